@@ -0,0 +1,26 @@
+package com.serliunx.statemanagement.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 声明状态的进入处理器
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineDefinition
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface OnEntry {
+
+	/**
+	 * 状态名称, 即枚举常量的名称
+	 */
+	String[] value();
+
+	/**
+	 * 是否异步执行, 异步执行时使用状态机的执行器(该状态配置了舱壁时经由舱壁)
+	 */
+	boolean async() default false;
+}
@@ -0,0 +1,31 @@
+package com.serliunx.statemanagement.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 声明状态的交换处理器, 仅在由 {@link #from()} 切换至 {@link #to()} 时触发
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineDefinition
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface OnExchange {
+
+	/**
+	 * 源状态名称
+	 */
+	String from();
+
+	/**
+	 * 目的状态名称
+	 */
+	String to();
+
+	/**
+	 * 是否异步执行, 异步执行时使用状态机的执行器(该状态配置了舱壁时经由舱壁)
+	 */
+	boolean async() default false;
+}
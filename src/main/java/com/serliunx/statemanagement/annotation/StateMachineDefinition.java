@@ -0,0 +1,45 @@
+package com.serliunx.statemanagement.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 在编译期根据枚举生成状态机
+ * <p>
+ * 标注在枚举上, 枚举常量即为状态(按声明顺序), 注解处理器将在同一个包中生成名为 {@link #name()} 的状态机实现.
+ * 生成的状态机按状态的序号直接调用处理器方法, 运行时无需构建任何映射表.
+ * <p>
+ * 处理器方法通过 {@link OnEntry}、{@link OnLeave} 及 {@link OnExchange} 声明, 可以位于枚举自身(必须为静态方法)
+ * 或 {@link #handlers()} 指定的类中(静态方法或实例方法, 含有实例方法的类需要在创建状态机时传入实例).
+ * 方法的参数可以为空、{@code StateHandlerProcessParams<S>} 或 {@code (S from, S to)}.
+ *
+ * <pre>{@code
+ * @StateMachineDefinition(handlers = PrinterHandlers.class)
+ * public enum PrinterState { IDLE, SCANNING, PRINTING }
+ *
+ * StateMachine<PrinterState> machine = new PrinterStateStateMachine(new PrinterHandlers());
+ * }</pre>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see com.serliunx.statemanagement.machine.GeneratedStateMachine
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface StateMachineDefinition {
+
+	/**
+	 * 生成的状态机类名, 默认为枚举名加上 StateMachine
+	 */
+	String name() default "";
+
+	/**
+	 * 初始状态的名称, 默认为第一个枚举常量
+	 */
+	String initial() default "";
+
+	/**
+	 * 包含处理器方法的类, 按顺序触发
+	 */
+	Class<?>[] handlers() default {};
+}
@@ -1,11 +1,22 @@
 package com.serliunx.statemanagement.machine;
 
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerType;
 import com.serliunx.statemanagement.manager.AbstractStateManager;
+import com.serliunx.statemanagement.support.Bulkhead;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -17,10 +28,41 @@ import java.util.function.Consumer;
  */
 public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> implements StateMachine<S> {
 
+    /**
+     * 状态机编号生成
+     */
+    private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
     /**
      * 状态机上下文
      */
     protected final StateMachineContext<S> context;
+    /**
+     * 全局唯一的状态机编号, 多状态机事务按编号顺序加锁
+     */
+    private final long id = ID_GENERATOR.incrementAndGet();
+    /**
+     * 切换守卫及拦截器, 未注册时为空
+     */
+    final TransitionPipeline<S> pipeline;
+
+    /**
+     * 提交后执行的处理器队列, 仅在 {@link HandlerDispatchMode#POST_COMMIT} 模式下使用
+     */
+    private final Queue<PostCommit<S>> postCommitQueue = new ConcurrentLinkedQueue<>();
+    /**
+     * 是否有线程正在执行提交后队列中的处理器
+     */
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    /**
+     * 传递给事件逻辑的状态机, 默认为自身; 由 {@link StateMachineRegistry} 管理时为按键转发的句柄,
+     * 使事件逻辑(尤其是异步执行的)持有的引用在状态机被钝化或迁移后依然有效
+     */
+    StateMachine<S> self = this;
+    /**
+     * 所属的占用索引成员, 未被索引时为空
+     */
+    volatile StateOccupancyIndex.Member<?, S> occupancy;
 
     /**
      * 默认的构造函数
@@ -31,6 +73,8 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
     public AbstractStateMachine(List<S> stateList, StateMachineContext<S> context) {
         super(stateList);
         this.context = context;
+        this.pipeline = context.pipeline;
+        context.machineId = id;
     }
 
     @Override
@@ -51,6 +95,16 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
         }
     }
 
+    @Override
+    public Map<String, Bulkhead> bulkheads() {
+        if (context.bulkheads == null ||
+                context.bulkheads.isEmpty())
+            return Collections.emptyMap();
+        final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+        context.bulkheads.values().forEach(b -> bulkheads.putIfAbsent(b.getName(), b));
+        return bulkheads;
+    }
+
     @Override
     public void reset(boolean invokeHandlers) {
         try {
@@ -59,35 +113,16 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
             super.reset();
             S newState = get();
             if (invokeHandlers)
-                invokeHandlers(oldState, newState);
+                dispatchHandlers(oldState, newState, null);
         } finally {
             writeLock.unlock();
+            drainPostCommit();
         }
     }
 
     @Override
     public boolean switchTo(S state, boolean invokeHandlers) {
-        int i = indexOf(state);
-        if (i == -1 || i == currentIndex()) {
-            return false;
-        }
-        try {
-            writeLock.lock();
-            // 重新检查
-            if (i == currentIndex()) {
-                return false;
-            }
-            S oldState = get();
-
-            updateCurrentIndex(i);
-
-            S newState = get();
-            if (invokeHandlers)
-                invokeHandlers(oldState, newState);
-            return true;
-        } finally {
-            writeLock.unlock();
-        }
+        return doSwitchTo(state, invokeHandlers, null);
     }
 
     @Override
@@ -98,10 +133,11 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
             prev();
             S newState = get();
             if (invokeHandlers)
-                invokeHandlers(oldState, newState);
+                dispatchHandlers(oldState, newState, null);
             return newState;
         } finally {
             writeLock.unlock();
+            drainPostCommit();
         }
     }
 
@@ -113,10 +149,11 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
             prev();
             S newState = get();
             if (invokeHandlers)
-                invokeHandlers(oldState, newState);
+                dispatchHandlers(oldState, newState, null);
             return oldState;
         } finally {
             writeLock.unlock();
+            drainPostCommit();
         }
     }
 
@@ -128,9 +165,10 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
             prev();
             S newState = get();
             if (invokeHandlers)
-                invokeHandlers(oldState, newState);
+                dispatchHandlers(oldState, newState, null);
         } finally {
             writeLock.unlock();
+            drainPostCommit();
         }
     }
 
@@ -142,10 +180,11 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
             next();
             S newState = get();
             if (invokeHandlers)
-                invokeHandlers(oldState, newState);
+                dispatchHandlers(oldState, newState, null);
             return newState;
         } finally {
             writeLock.unlock();
+            drainPostCommit();
         }
     }
 
@@ -157,45 +196,78 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
             next();
             S newState = get();
             if (invokeHandlers)
-                invokeHandlers(oldState, newState);
+                dispatchHandlers(oldState, newState, null);
             return oldState;
         } finally {
             writeLock.unlock();
+            drainPostCommit();
         }
     }
 
     @Override
     public void switchNext(boolean invokeHandlers) {
-        try {
-            writeLock.lock();
-            S oldState = get();
-            next();
-            S newState = get();
-            if (invokeHandlers)
-                invokeHandlers(oldState, newState);
-        } finally {
-            writeLock.unlock();
-        }
+        doSwitchNext(invokeHandlers, null);
     }
 
     @Override
     public void publish(Object event) {
-        List<Consumer<StateMachine<S>>> consumers = context.eventRegistries.get(event);
-        if (consumers == null ||
-                consumers.isEmpty()) {
-            return;
-        }
+        doPublish(event, null);
+    }
 
-        final Executor executor = context.executor;
-        final boolean async = context.async != null && context.async && executor != null;
-        consumers.forEach(consumer -> {
-            if (async)
-                executor.execute(() -> consumer.accept(this));
-            else
-                consumer.accept(this);
+    @Override
+    public CompletableFuture<TransitionResult<S>> switchToAsync(S state) {
+        final TransitionTracker<S> tracker = new TransitionTracker<>();
+        if (!doSwitchTo(state, true, tracker))
+            return CompletableFuture.completedFuture(TransitionResult.unchanged(current(), state));
+        return tracker.seal();
+    }
+
+    @Override
+    public CompletableFuture<TransitionResult<S>> switchNextAsync() {
+        final TransitionTracker<S> tracker = new TransitionTracker<>();
+        doSwitchNext(true, tracker);
+        return tracker.seal();
+    }
+
+    @Override
+    public CompletableFuture<TransitionResult<S>> publishAsync(Object event) {
+        final S from = current();
+        final TransitionTracker<S> tracker = new TransitionTracker<>();
+        doPublish(event, tracker);
+        return tracker.seal().thenApply(r -> {
+            final S to = current();
+            return new TransitionResult<>(from, to, !from.equals(to), r.getExecutions(), r.getElapsedNanos());
         });
     }
 
+    @Override
+    public boolean transaction(Consumer<StateTransaction<S>> transaction) {
+        return transaction(transaction, BatchDispatchMode.PER_STEP);
+    }
+
+    @Override
+    public boolean transaction(Consumer<StateTransaction<S>> transaction, BatchDispatchMode mode) {
+        if (transaction == null || mode == null)
+            throw new NullPointerException();
+        return doTransaction(transaction, mode);
+    }
+
+    @Override
+    public boolean applyAll(List<S> path) {
+        return applyAll(path, BatchDispatchMode.PER_STEP);
+    }
+
+    @Override
+    public boolean applyAll(List<S> path, BatchDispatchMode mode) {
+        if (path == null || mode == null)
+            throw new NullPointerException();
+        for (S state : path) {
+            if (indexOf(state) == -1)
+                return false;
+        }
+        return doTransaction(tx -> path.forEach(tx::switchTo), mode);
+    }
+
     @Override
     public S switchPrevAndGet() {
         return switchPrevAndGet(true);
@@ -236,6 +308,206 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
         reset(true);
     }
 
+    /**
+     * 切换至指定状态
+     *
+     * @param state             新的状态
+     * @param invokeHandlers    是否唤醒状态处理器
+     * @param tracker           切换追踪, 为空时不记录
+     * @return 切换成功返回真, 否则返回假
+     */
+    protected boolean doSwitchTo(S state, boolean invokeHandlers, TransitionTracker<S> tracker) {
+        int i = indexOf(state);
+        int expected = currentIndex();
+        if (i == -1 || i == expected) {
+            return false;
+        }
+        final TransitionPipeline<S> pipeline = this.pipeline;
+        // 守卫在加锁前执行, 被否决的切换不会争抢写锁
+        if (pipeline != null && !pipeline.allow(get(expected), state))
+            return false;
+        S oldState;
+        try {
+            writeLock.lock();
+            // 重新检查
+            if (i == currentIndex()) {
+                return false;
+            }
+            oldState = get();
+            // 加锁前状态已被修改时以新的源状态重新执行守卫
+            if (pipeline != null && currentIndex() != expected && !pipeline.allow(oldState, state))
+                return false;
+
+            updateCurrentIndex(i);
+
+            S newState = get();
+            if (invokeHandlers)
+                dispatchHandlers(oldState, newState, tracker);
+        } finally {
+            writeLock.unlock();
+            drainPostCommit();
+        }
+        if (pipeline != null)
+            pipeline.committed(oldState, state);
+        return true;
+    }
+
+    /**
+     * 切换至下一个状态
+     *
+     * @param invokeHandlers    是否唤醒状态处理器
+     * @param tracker           切换追踪, 为空时不记录
+     */
+    protected void doSwitchNext(boolean invokeHandlers, TransitionTracker<S> tracker) {
+        try {
+            writeLock.lock();
+            S oldState = get();
+            next();
+            S newState = get();
+            if (invokeHandlers)
+                dispatchHandlers(oldState, newState, tracker);
+        } finally {
+            writeLock.unlock();
+            drainPostCommit();
+        }
+    }
+
+    /**
+     * 在写锁内执行事务并一次性提交
+     *
+     * @param transaction   事务逻辑
+     * @param mode          处理器触发方式
+     * @return 至少发生了一步切换时返回真, 否则返回假
+     */
+    protected boolean doTransaction(Consumer<StateTransaction<S>> transaction, BatchDispatchMode mode) {
+        try {
+            writeLock.lock();
+            final Transaction tx = new Transaction(currentIndex());
+            tx.execute(transaction);
+            if (tx.steps == 0)
+                return false;
+            updateCurrentIndex(tx.index);
+            dispatchTransaction(tx, mode, false);
+            return true;
+        } finally {
+            writeLock.unlock();
+            drainPostCommit();
+        }
+    }
+
+    /**
+     * 按指定的方式触发已提交事务的处理器
+     *
+     * @param tx        已提交的事务
+     * @param mode      处理器触发方式
+     * @param direct    是否忽略分发模式直接触发, 不持有锁的实现使用
+     */
+    protected final void dispatchTransaction(Transaction tx, BatchDispatchMode mode, boolean direct) {
+        if (mode == BatchDispatchMode.COLLAPSED) {
+            if (tx.path[0] != tx.index)
+                dispatchStep(get(tx.path[0]), get(tx.index), direct);
+            return;
+        }
+        for (int i = 1; i <= tx.steps; i++)
+            dispatchStep(get(tx.path[i - 1]), get(tx.path[i]), direct);
+    }
+
+    private void dispatchStep(S from, S to, boolean direct) {
+        if (direct)
+            invokeHandlers(from, to, null);
+        else
+            dispatchHandlers(from, to, null);
+    }
+
+    /**
+     * 发布事件
+     *
+     * @param event     事件
+     * @param tracker   追踪, 为空时不记录
+     */
+    protected void doPublish(Object event, TransitionTracker<S> tracker) {
+        List<Consumer<StateMachine<S>>> consumers = context.eventRegistries.get(event);
+        if (consumers == null ||
+                consumers.isEmpty()) {
+            return;
+        }
+
+        final Executor executor = context.executor;
+        final boolean async = context.async != null && context.async && executor != null;
+        final StateMachine<S> self = this.self;
+        final Object recorded = FlightRecorder.beginPublish();
+        consumers.forEach(consumer -> {
+            if (tracker != null) {
+                if (async)
+                    HandlerInvocationDelegate.executeTracked(executor,
+                            tracker.track(HandlerType.EVENT, consumer, () -> consumer.accept(self)));
+                else
+                    tracker.invoke(HandlerType.EVENT, consumer, () -> consumer.accept(self));
+            } else if (async)
+                executor.execute(() -> consumer.accept(self));
+            else
+                consumer.accept(self);
+        });
+        FlightRecorder.commitPublish(recorded, id, event, consumers.size(), async);
+    }
+
+    /**
+     * 分发处理器, 仅在持有写锁的情况下调用
+     * <p>
+     * {@link HandlerDispatchMode#IN_LOCK} 模式下直接触发处理器; {@link HandlerDispatchMode#POST_COMMIT} 模式下
+     * 将本次切换按提交顺序放入提交后队列, 待释放写锁后由 {@link #drainPostCommit()} 触发.
+     *
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param tracker   切换追踪, 为空时不记录
+     */
+    protected final void dispatchHandlers(S from, S to, TransitionTracker<S> tracker) {
+        if (context.dispatchMode != HandlerDispatchMode.POST_COMMIT) {
+            invokeHandlers(from, to, tracker);
+            return;
+        }
+        if (tracker != null)
+            tracker.hold();
+        postCommitQueue.offer(new PostCommit<>(from, to, tracker));
+    }
+
+    /**
+     * 在释放写锁后按提交顺序触发提交后队列中的处理器
+     * <p>
+     * 同一时刻仅有一个线程执行队列中的处理器, 以此保证处理器的执行顺序与切换的提交顺序一致; 其他线程发现已有线程
+     * 正在执行时直接返回, 其提交的切换将由正在执行的线程负责触发. 处理器中再次切换当前状态机时同理, 新的切换会在
+     * 当前处理器执行完毕后触发, 而不会递归执行.
+     * <p>
+     * 队列中某个处理器抛出异常时不影响后续处理器的执行, 第一个异常会在队列清空后抛给执行队列的线程.
+     */
+    protected final void drainPostCommit() {
+        if (postCommitQueue.isEmpty() ||
+                writeLock.isHeldByCurrentThread())
+            return;
+        RuntimeException exception = null;
+        while (!postCommitQueue.isEmpty() &&
+                draining.compareAndSet(false, true)) {
+            try {
+                PostCommit<S> postCommit;
+                while ((postCommit = postCommitQueue.poll()) != null) {
+                    try {
+                        invokeHandlers(postCommit.from, postCommit.to, postCommit.tracker);
+                    } catch (RuntimeException e) {
+                        if (exception == null)
+                            exception = e;
+                    } finally {
+                        if (postCommit.tracker != null)
+                            postCommit.tracker.release();
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+        }
+        if (exception != null)
+            throw exception;
+    }
+
     /**
      * 触发处理器
      *
@@ -243,14 +515,213 @@ public abstract class AbstractStateMachine<S> extends AbstractStateManager<S> im
      * @param to	目的状态
      */
     protected final void invokeHandlers(S from, S to) {
-        // 触发离开处理器
-        HandlerInvocationDelegate.doInvokeHandlers(context, context.leaveHandlers.get(from), from, to);
+        invokeHandlers(from, to, null);
+    }
+
+    /**
+     * 触发处理器
+     *
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param tracker   切换追踪, 为空时不记录
+     */
+    protected final void invokeHandlers(S from, S to, TransitionTracker<S> tracker) {
+        final Object event = FlightRecorder.beginTransition();
+        try {
+            doInvokeHandlers(from, to, tracker);
+        } finally {
+            FlightRecorder.commitTransition(event, this, from, to);
+        }
+    }
+
+    /**
+     * 触发处理器的具体逻辑, 默认根据状态机上下文中注册的处理器触发
+     *
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param tracker   切换追踪, 为空时不记录
+     */
+    protected void doInvokeHandlers(S from, S to, TransitionTracker<S> tracker) {
+        // 持有写锁时, 环形缓冲区分发器的消费者线程上的处理器可能正在等待该锁
+        HandlerInvocationDelegate.invokeHandlers(context, from, to, tracker, null,
+                writeLock.isHeldByCurrentThread() ? lock : null);
+    }
+
+    @Override
+    protected void onStateChanged(int newIndex) {
+        final StateOccupancyIndex.Member<?, S> member = occupancy;
+        if (member != null)
+            member.update(newIndex);
+    }
+
+    /**
+     * 更新占用索引时使用的状态序号, 在状态序号更新后的回调中调用
+     * <p>
+     * 基于锁实现的状态机在持有写锁时回调, 直接使用回调的序号.
+     *
+     * @param newIndex  回调的状态序号
+     * @return 状态序号
+     */
+    int occupancyIndex(int newIndex) {
+        return newIndex;
+    }
+
+    /**
+     * 获取状态机编号
+     *
+     * @return 全局唯一的状态机编号
+     */
+    final long machineId() {
+        return id;
+    }
 
-        // 触发进入处理器
-        HandlerInvocationDelegate.doInvokeHandlers(context, context.entryHandlers.get(to), from, to);
+    /**
+     * 为多状态机事务锁定当前状态机, 锁定期间其他线程无法切换状态
+     *
+     * @return 锁定时的状态序号
+     * @see MultiStateMachineTransaction
+     */
+    int lockForCommit() {
+        writeLock.lock();
+        return currentIndex();
+    }
 
-        // 触发交换处理器
-        final String key = from.toString() + "-" + to.toString();
-        HandlerInvocationDelegate.doInvokeHandlers(context, context.exchangeHandlers.get(key), from, to);
+    /**
+     * 更新状态序号并解除多状态机事务的锁定
+     *
+     * @param newIndex  新的状态序号, 事务未提交时为锁定时的状态序号
+     */
+    void unlockForCommit(int newIndex) {
+        try {
+            updateCurrentIndex(newIndex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 事务内的状态副本, 记录每一步切换后的状态序号
+     */
+    protected final class Transaction implements StateTransaction<S> {
+
+        /**
+         * 状态序号路径, 第一个元素为事务开始时的状态
+         */
+        private int[] path = new int[8];
+        /**
+         * 切换的步数
+         */
+        private int steps;
+        /**
+         * 事务内的当前状态序号
+         */
+        private int index;
+        private boolean active;
+
+        protected Transaction(int startIndex) {
+            this.path[0] = startIndex;
+            this.index = startIndex;
+        }
+
+        /**
+         * 执行事务逻辑, 执行完毕后事务对象不再可用
+         *
+         * @param transaction   事务逻辑
+         */
+        public void execute(Consumer<StateTransaction<S>> transaction) {
+            active = true;
+            try {
+                transaction.accept(this);
+            } finally {
+                active = false;
+            }
+        }
+
+        /**
+         * @return 切换的步数
+         */
+        public int steps() {
+            return steps;
+        }
+
+        /**
+         * @return 事务开始时的状态序号
+         */
+        public int startIndex() {
+            return path[0];
+        }
+
+        /**
+         * @return 事务结束时的状态序号
+         */
+        public int endIndex() {
+            return index;
+        }
+
+        @Override
+        public S current() {
+            checkActive();
+            return get(index);
+        }
+
+        @Override
+        public boolean switchTo(S state) {
+            checkActive();
+            final int i = indexOf(state);
+            if (i == -1 || i == index)
+                return false;
+            record(i);
+            return true;
+        }
+
+        @Override
+        public S switchNext() {
+            checkActive();
+            record(index == size() - 1 ? 0 : index + 1);
+            return get(index);
+        }
+
+        @Override
+        public S switchPrev() {
+            checkActive();
+            record(index == 0 ? size() - 1 : index - 1);
+            return get(index);
+        }
+
+        @Override
+        public void reset() {
+            checkActive();
+            record(getDefault());
+        }
+
+        private void record(int newIndex) {
+            if (newIndex == index)
+                return;
+            if (++steps == path.length)
+                path = Arrays.copyOf(path, path.length << 1);
+            path[steps] = newIndex;
+            index = newIndex;
+        }
+
+        private void checkActive() {
+            if (!active)
+                throw new IllegalStateException("Transaction is not active");
+        }
+    }
+
+    /**
+     * 已提交但尚未触发处理器的切换
+     */
+    private static final class PostCommit<S> {
+
+        private final S from;
+        private final S to;
+        private final TransitionTracker<S> tracker;
+
+        PostCommit(S from, S to, TransitionTracker<S> tracker) {
+            this.from = from;
+            this.to = to;
+            this.tracker = tracker;
+        }
     }
 }
@@ -0,0 +1,172 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.support.RejectionAware;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 单次切换中待提交的异步处理器
+ * <p>
+ * 触发处理器时先登记, 切换的处理器全部登记后由 {@link #flush()} 按执行器分组提交, 每个执行器只提交一个任务.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see AsyncBatchMode
+ */
+final class AsyncBatch {
+
+    private final boolean parallel;
+    private final List<Executor> executors = new ArrayList<>();
+    private final List<Runnable> tasks = new ArrayList<>();
+    /**
+     * 各任务是否受追踪, 受追踪的任务被拒绝时仅记录不抛出异常
+     */
+    private final List<Boolean> tracked = new ArrayList<>();
+
+    AsyncBatch(AsyncBatchMode mode) {
+        this.parallel = mode == AsyncBatchMode.PARALLEL;
+    }
+
+    /**
+     * 登记一个异步处理器
+     *
+     * @param executor  执行器
+     * @param task      处理器任务
+     * @param tracked   是否受追踪
+     */
+    void add(Executor executor, Runnable task, boolean tracked) {
+        executors.add(executor);
+        tasks.add(task);
+        this.tracked.add(tracked);
+    }
+
+    /**
+     * 按执行器分组提交登记的处理器
+     * <p>
+     * 组内含有未受追踪的任务且被执行器直接拒绝时, 在所有分组提交后抛出第一个拒绝异常, 与逐个提交时的行为一致.
+     */
+    void flush() {
+        final int size = tasks.size();
+        if (size == 0)
+            return;
+        RejectedExecutionException rejected = null;
+        final boolean[] submitted = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            if (submitted[i])
+                continue;
+            final Executor executor = executors.get(i);
+            final List<Runnable> group = new ArrayList<>(size - i);
+            boolean throwing = false;
+            for (int j = i; j < size; j++) {
+                if (submitted[j] || executors.get(j) != executor)
+                    continue;
+                submitted[j] = true;
+                group.add(tasks.get(j));
+                throwing |= !tracked.get(j);
+            }
+            final Runnable task = group.size() == 1 ? group.get(0) :
+                    new Batch(executor, group.toArray(new Runnable[0]), parallel);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (task instanceof RejectionAware)
+                    ((RejectionAware) task).onRejected();
+                if (throwing && rejected == null)
+                    rejected = e;
+            }
+        }
+        if (rejected != null)
+            throw rejected;
+    }
+
+    /**
+     * 合并后的任务
+     */
+    private static final class Batch implements RejectionAware {
+
+        /**
+         * 合并任务所提交的执行器, 并行执行时其余处理器同样交由该执行器执行
+         */
+        private final Executor executor;
+        private final Runnable[] tasks;
+        private final boolean parallel;
+
+        Batch(Executor executor, Runnable[] tasks, boolean parallel) {
+            this.executor = executor;
+            this.tasks = tasks;
+            this.parallel = parallel;
+        }
+
+        @Override
+        public void run() {
+            if (parallel && ForkJoinTask.getPool() != executor) {
+                dispatch();
+                return;
+            }
+            Throwable failure = null;
+            // 仅在执行器本身为当前所在的 ForkJoinPool 时 fork, 不会逃逸至其他线程池
+            final ForkJoinTask<?>[] forked = parallel ? new ForkJoinTask<?>[tasks.length - 1] : null;
+            if (forked != null) {
+                for (int i = 1; i < tasks.length; i++)
+                    forked[i - 1] = ForkJoinTask.adapt(tasks[i]).fork();
+            }
+            for (int i = 0; i < (forked == null ? tasks.length : 1); i++) {
+                try {
+                    tasks[i].run();
+                } catch (Throwable t) {
+                    failure = suppress(failure, t);
+                }
+            }
+            if (forked != null) {
+                for (ForkJoinTask<?> task : forked) {
+                    try {
+                        task.join();
+                    } catch (Throwable t) {
+                        failure = suppress(failure, t);
+                    }
+                }
+            }
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure instanceof Error)
+                throw (Error) failure;
+            if (failure != null)
+                throw new IllegalStateException(failure);
+        }
+
+        /**
+         * 执行器不是 {@link java.util.concurrent.ForkJoinPool} 时, 其余处理器逐个提交至同一个执行器(仍受舱壁等限制),
+         * 不等待其结束以免占用执行器的线程; 被拒绝的处理器视为被拒绝, 第一个处理器在当前线程执行
+         */
+        private void dispatch() {
+            for (int i = 1; i < tasks.length; i++) {
+                try {
+                    executor.execute(tasks[i]);
+                } catch (RejectedExecutionException e) {
+                    if (tasks[i] instanceof RejectionAware)
+                        ((RejectionAware) tasks[i]).onRejected();
+                }
+            }
+            tasks[0].run();
+        }
+
+        @Override
+        public void onRejected() {
+            for (Runnable task : tasks) {
+                if (task instanceof RejectionAware)
+                    ((RejectionAware) task).onRejected();
+            }
+        }
+
+        private static Throwable suppress(Throwable first, Throwable t) {
+            if (first == null)
+                return t;
+            first.addSuppressed(t);
+            return first;
+        }
+    }
+}
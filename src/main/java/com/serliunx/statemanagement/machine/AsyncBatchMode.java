@@ -0,0 +1,36 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 异步处理器的投递方式
+ * <p>
+ * 决定同一次切换中的多个异步处理器如何提交至执行器; 合并投递的处理器不受该模式影响.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineBuilder#asyncBatch(AsyncBatchMode)
+ */
+public enum AsyncBatchMode {
+
+    /**
+     * 每个处理器单独提交为一个任务(默认)
+     */
+    NONE,
+
+    /**
+     * 同一次切换中使用同一个执行器(或舱壁)的处理器合并为一个任务, 在任务中按触发顺序依次执行
+     * <p>
+     * 执行器的队列占用、线程唤醒及拒绝次数随之减少为原来的 1/处理器数量; 某个处理器抛出异常时其余处理器照常执行,
+     * 任务结束时抛出第一个异常. 整个任务被拒绝时其中的每个处理器都视为被拒绝.
+     */
+    SEQUENTIAL,
+
+    /**
+     * 与 {@link #SEQUENTIAL} 一样合并为一个任务, 任务执行时其余处理器分发至同一个执行器并行执行, 不会使用其他线程池
+     * <ul>
+     *     <li> 执行器为 {@link java.util.concurrent.ForkJoinPool} 时在池内 fork, 任务在所有处理器结束后才完成
+     *     <li> 其他执行器(包括舱壁)上逐个提交其余处理器, 不等待其结束; 被拒绝的处理器视为被拒绝
+     * </ul>
+     * 适用于处理器耗时较长但不阻塞的场景, 会阻塞的处理器应当使用 {@link #SEQUENTIAL}.
+     */
+    PARALLEL;
+}
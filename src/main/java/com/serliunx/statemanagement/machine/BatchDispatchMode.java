@@ -0,0 +1,22 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 批量切换的处理器触发方式
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachine#transaction(java.util.function.Consumer, BatchDispatchMode)
+ * @see StateMachine#applyAll(java.util.List, BatchDispatchMode)
+ */
+public enum BatchDispatchMode {
+
+    /**
+     * 按顺序触发每一步切换的处理器(默认)
+     */
+    PER_STEP,
+
+    /**
+     * 将整个批次合并为一次由第一个状态至最后一个状态的切换, 首尾状态一致时不触发任何处理器
+     */
+    COLLAPSED;
+}
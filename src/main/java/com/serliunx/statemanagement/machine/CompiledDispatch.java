@@ -0,0 +1,269 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerType;
+import com.serliunx.statemanagement.machine.handler.StateHandler;
+import com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams;
+import com.serliunx.statemanagement.machine.handler.StateHandlerWrapper;
+import com.serliunx.statemanagement.manager.StateIndex;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 编译后的处理器分发表
+ * <p>
+ * 由冻结的状态机定义一次性生成, 触发处理器时不再需要拼接交换处理器的键及多次查询映射表:
+ * <ul>
+ *     <li> 状态数量不超过 {@link #DENSE_LIMIT} 时按 源状态序号 * 状态数量 + 目的状态序号 建立稠密的边表,
+ *     每条边上的离开、进入及交换处理器已按触发顺序展开为一个数组
+ *     <li> 状态数量较多时按状态序号分别建立离开、进入处理器数组, 交换处理器按源状态分组并以目的状态序号二分查找
+ * </ul>
+ * 边上的处理器全部为同步且非合并投递时, 同一次切换的处理器共用一个入参并直接调用, 不经过执行器的判断.
+ * <p>
+ * 分发表省去的只是查找处理器的开销: 所有边共用同一处 {@link StateHandler#handle(StateHandlerProcessParams)} 调用点,
+ * 处理器实现较多时该调用点是多态的, JIT无法将处理器内联. 需要每个处理器各自单态调用时使用
+ * {@link com.serliunx.statemanagement.annotation.StateMachineDefinition} 注解, 在编译期生成直接调用处理器方法的状态机.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineDefinition#compile()
+ */
+final class CompiledDispatch<S> {
+
+	/**
+	 * 建立稠密边表的最大状态数量
+	 */
+	static final int DENSE_LIMIT = 64;
+
+	private final StateIndex<S> stateIndex;
+	private final int size;
+
+	/**
+	 * 稠密边表, 状态数量较多时为空
+	 */
+	private final Edge<S>[] edges;
+
+	/**
+	 * 稀疏表, 状态数量较少时为空
+	 */
+	private final Edge<S>[] leaves;
+	private final Edge<S>[] entries;
+	private final int[][] exchangeTargets;
+	private final Edge<S>[][] exchanges;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	CompiledDispatch(List<S> states,
+					 Map<S, List<StateHandlerWrapper<S>>> entryHandlers,
+					 Map<S, List<StateHandlerWrapper<S>>> leaveHandlers,
+					 Map<String, List<StateHandlerWrapper<S>>> exchangeHandlers,
+					 Boolean async) {
+		this.stateIndex = StateIndex.of(states);
+		this.size = states.size();
+		final boolean defaultAsync = async != null && async;
+		final Map<Integer, Map<Integer, List<StateHandlerWrapper<S>>>> exchangeByIndex =
+				resolveExchanges(states, exchangeHandlers);
+
+		if (size <= DENSE_LIMIT) {
+			this.edges = new Edge[size * size];
+			for (int f = 0; f < size; f++) {
+				final Map<Integer, List<StateHandlerWrapper<S>>> targets = exchangeByIndex.get(f);
+				// 自身到自身的边同样需要建立(如重置至默认状态), 与未编译的分发保持一致
+				for (int t = 0; t < size; t++) {
+					final EdgeBuilder<S> builder = new EdgeBuilder<>();
+					builder.add(leaveHandlers.get(states.get(f)), HandlerType.LEAVE);
+					builder.add(entryHandlers.get(states.get(t)), HandlerType.ENTRY);
+					builder.add(targets == null ? null : targets.get(t), HandlerType.EXCHANGE);
+					edges[f * size + t] = builder.build(defaultAsync);
+				}
+			}
+			this.leaves = null;
+			this.entries = null;
+			this.exchangeTargets = null;
+			this.exchanges = null;
+			return;
+		}
+
+		this.edges = null;
+		this.leaves = new Edge[size];
+		this.entries = new Edge[size];
+		for (int i = 0; i < size; i++) {
+			leaves[i] = new EdgeBuilder<S>().add(leaveHandlers.get(states.get(i)), HandlerType.LEAVE)
+					.build(defaultAsync);
+			entries[i] = new EdgeBuilder<S>().add(entryHandlers.get(states.get(i)), HandlerType.ENTRY)
+					.build(defaultAsync);
+		}
+		if (exchangeByIndex.isEmpty()) {
+			this.exchangeTargets = null;
+			this.exchanges = null;
+			return;
+		}
+		this.exchangeTargets = new int[size][];
+		this.exchanges = new Edge[size][];
+		exchangeByIndex.forEach((f, targets) -> {
+			final int[] sorted = targets.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+			final Edge<S>[] group = new Edge[sorted.length];
+			for (int i = 0; i < sorted.length; i++)
+				group[i] = new EdgeBuilder<S>().add(targets.get(sorted[i]), HandlerType.EXCHANGE)
+						.build(defaultAsync);
+			exchangeTargets[f] = sorted;
+			exchanges[f] = group;
+		});
+	}
+
+	/**
+	 * 触发指定切换上的处理器, 触发顺序与 {@link HandlerInvocationDelegate} 一致
+	 *
+	 * @param context	状态机上下文
+	 * @param from		源状态
+	 * @param to		目的状态
+	 * @param tracker	切换追踪, 为空时不记录
+	 * @param attach	附加参数
+	 * @param held	调用方持有的状态机锁, 为空时表示未持有
+	 */
+	void invoke(StateMachineContext<S> context, S from, S to, TransitionTracker<S> tracker, Object attach,
+				ReentrantReadWriteLock held) {
+		final int f = stateIndex.indexOf(from);
+		final int t = stateIndex.indexOf(to);
+		if (f < 0 || t < 0)
+			return;
+		if (edges != null) {
+			final Edge<S> edge = edges[f * size + t];
+			if (edge == null)
+				return;
+			final RingBufferDispatcher ring = edge.direct == null ? HandlerInvocationDelegate.ringOf(context) : null;
+			final AsyncBatch batch = edge.direct == null && ring == null ?
+					HandlerInvocationDelegate.newBatch(context) : null;
+			if (invoke(context, edge, from, to, tracker, attach, batch, ring))
+				ring.publish(context, from, to, attach, tracker, held);
+			if (batch != null)
+				batch.flush();
+			return;
+		}
+		final RingBufferDispatcher ring = HandlerInvocationDelegate.ringOf(context);
+		final AsyncBatch batch = ring == null ? HandlerInvocationDelegate.newBatch(context) : null;
+		boolean deferred = invoke(context, leaves[f], from, to, tracker, attach, batch, ring);
+		deferred |= invoke(context, entries[t], from, to, tracker, attach, batch, ring);
+		final int[] targets;
+		final int i;
+		if (exchangeTargets != null &&
+				(targets = exchangeTargets[f]) != null &&
+				(i = Arrays.binarySearch(targets, t)) >= 0)
+			deferred |= invoke(context, exchanges[f][i], from, to, tracker, attach, batch, ring);
+		if (deferred)
+			ring.publish(context, from, to, attach, tracker, held);
+		if (batch != null)
+			batch.flush();
+	}
+
+	/**
+	 * @return 存在延后至环形缓冲区分发器的处理器时返回真
+	 */
+	private static <S> boolean invoke(StateMachineContext<S> context, Edge<S> edge, S from, S to,
+									  TransitionTracker<S> tracker, Object attach, AsyncBatch batch,
+									  RingBufferDispatcher ring) {
+		if (edge == null)
+			return false;
+		final StateHandlerProcessParams<S> params = new StateHandlerProcessParams<>(from, to, attach);
+		final StateHandler<S>[] direct;
+		if (tracker == null &&
+				(direct = edge.direct) != null &&
+				!FlightRecorder.isHandlerEnabled()) {
+			for (StateHandler<S> handler : direct)
+				handler.handle(params);
+			return false;
+		}
+		final StateHandlerWrapper<S>[] wrappers = edge.wrappers;
+		boolean deferred = false;
+		for (int i = 0; i < wrappers.length; i++)
+			deferred |= HandlerInvocationDelegate.invokeHandler(context, wrappers[i], from, to, edge.types[i],
+					tracker, params, batch, ring);
+		return deferred;
+	}
+
+	/**
+	 * 将以字符串为键的交换处理器还原为状态序号
+	 * <p>
+	 * 与 {@link HandlerInvocationDelegate} 的行为保持一致: 字符串形式相同的状态共享同一组交换处理器.
+	 */
+	private static <S> Map<Integer, Map<Integer, List<StateHandlerWrapper<S>>>> resolveExchanges(List<S> states,
+			Map<String, List<StateHandlerWrapper<S>>> exchangeHandlers) {
+		final Map<Integer, Map<Integer, List<StateHandlerWrapper<S>>>> result = new HashMap<>();
+		if (exchangeHandlers == null || exchangeHandlers.isEmpty())
+			return result;
+		final Map<String, List<Integer>> byName = new HashMap<>();
+		for (int i = 0; i < states.size(); i++)
+			byName.computeIfAbsent(String.valueOf(states.get(i)), k -> new ArrayList<>()).add(i);
+		exchangeHandlers.forEach((key, handlers) -> {
+			if (handlers == null || handlers.isEmpty())
+				return;
+			// 状态的字符串形式中可能包含分隔符, 逐个尝试
+			for (int split = key.indexOf('-'); split >= 0; split = key.indexOf('-', split + 1)) {
+				final List<Integer> fromIndexes = byName.get(key.substring(0, split));
+				final List<Integer> toIndexes = byName.get(key.substring(split + 1));
+				if (fromIndexes == null || toIndexes == null)
+					continue;
+				for (Integer f : fromIndexes) {
+					for (Integer t : toIndexes)
+						result.computeIfAbsent(f, k -> new HashMap<>())
+								.computeIfAbsent(t, k -> new ArrayList<>())
+								.addAll(handlers);
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * 展开后的边
+	 */
+	private static final class Edge<S> {
+
+		private final StateHandlerWrapper<S>[] wrappers;
+		private final HandlerType[] types;
+		/**
+		 * 全部为同步且非合并投递的处理器时不为空, 可直接调用
+		 */
+		private final StateHandler<S>[] direct;
+
+		Edge(StateHandlerWrapper<S>[] wrappers, HandlerType[] types, StateHandler<S>[] direct) {
+			this.wrappers = wrappers;
+			this.types = types;
+			this.direct = direct;
+		}
+	}
+
+	private static final class EdgeBuilder<S> {
+
+		private final List<StateHandlerWrapper<S>> wrappers = new ArrayList<>();
+		private final List<HandlerType> types = new ArrayList<>();
+
+		EdgeBuilder<S> add(List<StateHandlerWrapper<S>> handlers, HandlerType type) {
+			if (handlers == null)
+				return this;
+			for (StateHandlerWrapper<S> hw : handlers) {
+				if (hw == null || hw.getStateHandler() == null)
+					continue;
+				wrappers.add(hw);
+				types.add(type);
+			}
+			return this;
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Edge<S> build(boolean defaultAsync) {
+			if (wrappers.isEmpty())
+				return null;
+			StateHandler<S>[] direct = new StateHandler[wrappers.size()];
+			for (int i = 0; i < direct.length; i++) {
+				final StateHandlerWrapper<S> hw = wrappers.get(i);
+				if (hw.isConflated() ||
+						(hw.getAsync() == null ? defaultAsync : hw.getAsync())) {
+					direct = null;
+					break;
+				}
+				direct[i] = hw.getStateHandler();
+			}
+			return new Edge<>(wrappers.toArray(new StateHandlerWrapper[0]), types.toArray(new HandlerType[0]), direct);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.handler.StateHandler;
+import com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams;
+import com.serliunx.statemanagement.support.RejectionAware;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 合并投递
+ * <p>
+ * 每个状态机中每个合并投递的处理器对应一个实例, 保证至多存在一次待执行的调用:
+ * <ul>
+ *     <li> 没有待执行的调用时, 新的切换会登记为待执行并向执行器提交一次任务
+ *     <li> 已有待执行的调用时, 新的切换仅更新目的状态并累加被合并的次数, 不再提交任务
+ *     <li> 同一处理器的调用不会并发执行, 执行完毕后如有新的待执行调用则再次提交
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+final class ConflatedDelivery<S> implements RejectionAware {
+
+    private final StateHandler<S> handler;
+    private final Executor executor;
+    private final AtomicReference<Pending<S>> pending = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * @param handler   处理器
+     * @param executor  执行器
+     */
+    ConflatedDelivery(StateHandler<S> handler, Executor executor) {
+        this.handler = handler;
+        this.executor = executor;
+    }
+
+    /**
+     * 投递一次切换
+     *
+     * @param from      源状态
+     * @param to        目的状态
+     * @param tracked   切换追踪所登记的调用, 为空时不追踪
+     */
+    void offer(S from, S to, TransitionTracker<S>.Invocation tracked) {
+        Pending<S> current, next;
+        do {
+            current = pending.get();
+            next = current == null ?
+                    new Pending<>(from, to, 0, tracked, null) :
+                    new Pending<>(current.from, to, current.skipped + 1, tracked,
+                            current.tracked != null ? current : current.previous);
+        } while (!pending.compareAndSet(current, next));
+        if (current == null)
+            schedule();
+    }
+
+    @Override
+    public void run() {
+        final Pending<S> delivery = pending.getAndSet(null);
+        if (delivery != null) {
+            final long begin = System.nanoTime();
+            Throwable failure = null;
+            try {
+                handler.handle(new StateHandlerProcessParams<>(delivery.from, delivery.to, null, delivery.skipped));
+            } catch (Throwable t) {
+                failure = t;
+            }
+            final long duration = System.nanoTime() - begin;
+            for (Pending<S> p = delivery; p != null; p = p.previous) {
+                if (p.tracked != null)
+                    p.tracked.complete(duration, failure);
+            }
+        }
+        scheduled.set(false);
+        if (pending.get() != null)
+            schedule();
+    }
+
+    /**
+     * 执行器拒绝了任务: 丢弃待执行的调用, 后续的切换将重新提交
+     */
+    @Override
+    public void onRejected() {
+        final Pending<S> delivery = pending.getAndSet(null);
+        scheduled.set(false);
+        for (Pending<S> p = delivery; p != null; p = p.previous) {
+            if (p.tracked != null)
+                p.tracked.onRejected();
+        }
+        if (pending.get() != null)
+            schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true))
+            return;
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            onRejected();
+        }
+    }
+
+    /**
+     * 待执行的调用, 不可变; 通过 {@link #previous} 串联被合并且受追踪的切换以便逐一完成追踪
+     */
+    private static final class Pending<S> {
+
+        private final S from;
+        private final S to;
+        private final int skipped;
+        private final TransitionTracker<S>.Invocation tracked;
+        private final Pending<S> previous;
+
+        Pending(S from, S to, int skipped, TransitionTracker<S>.Invocation tracked, Pending<S> previous) {
+            this.from = from;
+            this.to = to;
+            this.skipped = skipped;
+            this.tracked = tracked;
+            this.previous = previous;
+        }
+    }
+}
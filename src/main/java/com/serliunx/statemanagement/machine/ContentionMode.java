@@ -0,0 +1,38 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 竞争模式
+ * <p>
+ * 决定并发型状态机(如 {@link DefaultConcurrentStateMachine})在多个线程同时切换状态时的处理方式;
+ * 基于锁实现的状态机不受该模式影响.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineBuilder#contentionMode(ContentionMode)
+ */
+public enum ContentionMode {
+
+    /**
+     * CAS失败后立即重试(默认)
+     * <p>
+     * 竞争较低时开销最小; 大量线程同时切换同一个状态机时, 缓存行在处理器间频繁迁移, 吞吐量会急剧下降.
+     */
+    CAS,
+
+    /**
+     * CAS失败后指数退避再重试
+     * <p>
+     * 退避期间调用 {@code Thread.onSpinWait()}, 降低对缓存行的争抢.
+     */
+    BACKOFF,
+
+    /**
+     * 合并执行
+     * <p>
+     * 切换请求先发布至状态机的请求队列, 由抢到合并权的线程依次执行队列中所有线程的请求并将结果交还给各请求线程,
+     * 同一时刻只有一个线程修改状态, 线程数增加时吞吐量平缓下降. 处理器仍由各请求线程自行触发.
+     * <p>
+     * 仅作用于上一个、下一个及切换至指定状态的操作, {@code compareAndSet} 与事务依然使用CAS.
+     */
+    COMBINING;
+}
@@ -1,15 +1,21 @@
 package com.serliunx.statemanagement.machine;
 
 import com.serliunx.statemanagement.machine.handler.StateHandlerWrapper;
+import com.serliunx.statemanagement.support.Backoff;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
  * 并发型状态机的默认实现, 内置的状态序列切换使用CAS实现.
+ * <p>
+ * 竞争激烈时可以通过 {@link ContentionMode} 选择CAS失败后退避或合并执行切换请求.
  *
  * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
  * @version 1.0.0
@@ -17,10 +23,39 @@ import java.util.function.Consumer;
  */
 public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> implements ConcurrentStateMachine<S> {
 
+    /**
+     * 切换至上一个状态的请求
+     */
+    private static final int PREV = -1;
+    /**
+     * 切换至下一个状态的请求
+     */
+    private static final int NEXT = -2;
+    /**
+     * 合并执行时单个线程最多连续执行的请求数量, 避免合并线程长时间无法返回
+     */
+    private static final int COMBINE_LIMIT = 256;
+    /**
+     * 等待合并执行结果时每自旋多少次让出一次处理器, 必须为2的幂
+     */
+    private static final int YIELD_INTERVAL = 64;
+
     /**
      * 当前状态
      */
     private final AtomicInteger index = new AtomicInteger(0);
+    /**
+     * 竞争模式
+     */
+    private final ContentionMode contentionMode;
+    /**
+     * 待合并执行的切换请求, 仅 {@link ContentionMode#COMBINING} 模式下使用
+     */
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    /**
+     * 是否有线程正在合并执行切换请求
+     */
+    private final AtomicBoolean combining = new AtomicBoolean();
 
     DefaultConcurrentStateMachine(List<S> stateList,
                                   Map<S, List<StateHandlerWrapper<S>>> entryHandlers,
@@ -31,7 +66,16 @@ public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> im
                                   Boolean async,
                                   S initialState
     ) {
-        super(stateList, new StateMachineContext<>(entryHandlers, leaveHandlers, exchangeHandlers, eventRegistries, executor, async, initialState));
+        this(stateList, new StateMachineContext<>(entryHandlers, leaveHandlers, exchangeHandlers, eventRegistries, executor, async, initialState));
+    }
+
+    /**
+     * @param stateList 状态列表
+     * @param context   状态机上下文
+     */
+    DefaultConcurrentStateMachine(List<S> stateList, StateMachineContext<S> context) {
+        super(stateList, context);
+        this.contentionMode = context.contentionMode;
 
         final int initialIndex = indexOf(context.initialState);
         if (initialIndex != -1) {
@@ -52,13 +96,23 @@ public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> im
             return false;
 
         S oldState = get(current);
-        boolean result = index.compareAndSet(current, newIndex);
-        if (result && invokeHandlers) {
-            S newState = get(newIndex);
+        S newState = get(newIndex);
+        final TransitionPipeline<S> pipeline = this.pipeline;
+        // 源状态已确定, 守卫在CAS之前执行一次; 当前状态与期望值不一致时无需执行守卫
+        if (pipeline != null &&
+                (load() != current || !pipeline.allow(oldState, newState)))
+            return false;
+        do {
+            if (acquire() != current)
+                return false;
+        } while (!index.compareAndSet(current, newIndex));
+        signalState(newIndex);
+        if (invokeHandlers)
             invokeHandlers(oldState, newState);
-        }
+        if (pipeline != null)
+            pipeline.committed(oldState, newState);
 
-        return result;
+        return true;
     }
 
     /**
@@ -70,93 +124,180 @@ public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> im
     public void reset(boolean invokeHandlers) {
         if (isDefault())
             return;
-        S oldState = get(index.get());
-        exchangeToTarget(0);
-        S newState = get(index.get());
-        if (invokeHandlers)
-            invokeHandlers(oldState, newState);
+        final int previous = exchange(0);
+        if (invokeHandlers && previous != 0)
+            invokeHandlers(get(previous), get(0));
     }
 
     @Override
-    public boolean switchTo(S state, boolean invokeHandlers) {
+    protected boolean doSwitchTo(S state, boolean invokeHandlers, TransitionTracker<S> tracker) {
         int i = indexOf(state);
         if (i == -1 ||
-                i == index.get()) {
+                i == load()) {
             return false;
         }
-        S oldState = get(index.get());
-        exchangeToTarget(i);
+        if (pipeline != null)
+            return switchGuarded(i, invokeHandlers, tracker);
+        final int previous = exchange(i);
+        if (previous == i)
+            return false;
         if (invokeHandlers)
-            invokeHandlers(oldState, state);
+            invokeHandlers(get(previous), state, tracker);
+        return true;
+    }
+
+    /**
+     * 存在守卫或拦截器时切换至指定状态
+     * <p>
+     * 每次CAS之前以读取到的源状态执行守卫, 被否决时直接返回; CAS失败说明源状态已被修改, 以新的源状态重新执行守卫.
+     * 此时不使用竞争模式.
+     *
+     * @param i                 目标状态序号
+     * @param invokeHandlers    是否唤醒状态处理器
+     * @param tracker           切换追踪, 为空时不记录
+     * @return 切换成功返回真, 否则返回假
+     */
+    private boolean switchGuarded(int i, boolean invokeHandlers, TransitionTracker<S> tracker) {
+        final S state = get(i);
+        int previous;
+        do {
+            if ((previous = acquire()) == i ||
+                    !pipeline.allow(get(previous), state))
+                return false;
+        } while (!index.compareAndSet(previous, i));
+        signalState(i);
+        final S oldState = get(previous);
+        if (invokeHandlers)
+            invokeHandlers(oldState, state, tracker);
+        pipeline.committed(oldState, state);
         return true;
     }
 
     @Override
     public S switchPrevAndGet(boolean invokeHandlers) {
-        S oldState = get(index.get());
-        exchangeToPrev();
-        S newState = get(index.get());
+        final int previous = exchange(PREV);
+        S newState = get(prevOf(previous));
         if (invokeHandlers)
-            invokeHandlers(oldState, newState);
+            invokeHandlers(get(previous), newState);
         return newState;
     }
 
     @Override
     public S getAndSwitchPrev(boolean invokeHandlers) {
-        S oldState = get(index.get());
-        exchangeToPrev();
-        S newState = get(index.get());
+        final int previous = exchange(PREV);
+        S oldState = get(previous);
         if (invokeHandlers)
-            invokeHandlers(oldState, newState);
+            invokeHandlers(oldState, get(prevOf(previous)));
         return oldState;
     }
 
     @Override
     public void switchPrev(boolean invokeHandlers) {
-        S oldState = get(index.get());
-        exchangeToPrev();
-        S newState = get(index.get());
+        final int previous = exchange(PREV);
         if (invokeHandlers)
-            invokeHandlers(oldState, newState);
+            invokeHandlers(get(previous), get(prevOf(previous)));
     }
 
     @Override
     public S switchNextAndGet(boolean invokeHandlers) {
-        S oldState = get(index.get());
-        exchangeToNext();
-        S newState = get(index.get());
+        final int previous = exchange(NEXT);
+        S newState = get(nextOf(previous));
         if (invokeHandlers)
-            invokeHandlers(oldState, newState);
+            invokeHandlers(get(previous), newState);
         return newState;
     }
 
     @Override
     public S getAndSwitchNext(boolean invokeHandlers) {
-        S oldState = get(index.get());
-        exchangeToNext();
-        S newState =get(index.get());
+        final int previous = exchange(NEXT);
+        S oldState = get(previous);
         if (invokeHandlers)
-            invokeHandlers(oldState, newState);
+            invokeHandlers(oldState, get(nextOf(previous)));
         return oldState;
     }
 
     @Override
-    public void switchNext(boolean invokeHandlers) {
-        S oldState = get(index.get());
-        exchangeToNext();
-        S newState = get(index.get());
+    protected void doSwitchNext(boolean invokeHandlers, TransitionTracker<S> tracker) {
+        final int previous = exchange(NEXT);
         if (invokeHandlers)
-            invokeHandlers(oldState, newState);
+            invokeHandlers(get(previous), get(nextOf(previous)), tracker);
+    }
+
+    /**
+     * 基于快照执行事务, 提交时使用CAS校验事务开始时的状态, 冲突时重新执行事务逻辑
+     */
+    @Override
+    protected boolean doTransaction(Consumer<StateTransaction<S>> transaction, BatchDispatchMode mode) {
+        for (;;) {
+            final Transaction tx = new Transaction(acquire());
+            tx.execute(transaction);
+            if (tx.steps() == 0)
+                return false;
+            if (index.compareAndSet(tx.startIndex(), tx.endIndex())) {
+                signalState(tx.endIndex());
+                dispatchTransaction(tx, mode, true);
+                return true;
+            }
+        }
     }
 
     @Override
     public S current() {
-        return get(index.get());
+        return get(load());
     }
 
     @Override
     protected void updateCurrentIndex(int newIndex) {
         this.index.set(newIndex);
+        signalState(newIndex);
+    }
+
+    /**
+     * 通过CAS将状态序号替换为预留标记 -(序号 + 1), 预留期间读取操作照常返回预留前的状态, 其他写入操作将等待预留结束
+     */
+    @Override
+    int lockForCommit() {
+        int value;
+        do {
+            value = acquire();
+        } while (!index.compareAndSet(value, -(value + 1)));
+        return value;
+    }
+
+    @Override
+    void unlockForCommit(int newIndex) {
+        index.set(newIndex);
+        signalState(newIndex);
+    }
+
+    /**
+     * 多个CAS的回调顺序与更新顺序可能不一致, 因此重新读取当前的状态序号
+     */
+    @Override
+    int occupancyIndex(int newIndex) {
+        return load();
+    }
+
+    /**
+     * 读取当前的状态序号, 处于多状态机事务的预留期间时返回预留前的状态序号
+     *
+     * @return 状态序号
+     */
+    private int load() {
+        final int value = index.get();
+        return value < 0 ? -(value + 1) : value;
+    }
+
+    /**
+     * 读取当前的状态序号用于更新, 处于多状态机事务的预留期间时等待预留结束
+     *
+     * @return 状态序号
+     */
+    private int acquire() {
+        int value;
+        for (int attempt = 0; (value = index.get()) < 0; attempt++)
+            Backoff.pause(attempt);
+        return value;
     }
 
     /**
@@ -165,7 +306,7 @@ public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> im
      * @return 默认状态时返回真, 否则返回假.
      */
     protected boolean isDefault() {
-        return index.get() == 0;
+        return load() == 0;
     }
 
     /**
@@ -173,13 +314,13 @@ public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> im
      * <p>
      *     使用CAS一直尝试, 直到成功
      * </p>
+     *
+     * @deprecated 内置的切换方法不再调用此方法(需要取得切换前的状态以配对处理器), 重写此方法不会影响内置的切换方法;
+     * 按当前的竞争模式执行, 仅为兼容保留
      */
+    @Deprecated
     protected void exchangeToPrev() {
-        final int size = size();
-        int currentValue;
-        do {
-            currentValue = index.get();
-        } while (!index.compareAndSet(currentValue, currentValue == 0 ? size - 1 : currentValue - 1));
+        exchange(PREV);
     }
 
     /**
@@ -187,13 +328,13 @@ public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> im
      * <p>
      *     使用CAS一直尝试, 直到成功
      * </p>
+     *
+     * @deprecated 内置的切换方法不再调用此方法, 重写此方法不会影响内置的切换方法; 仅为兼容保留
+     * @see #exchangeToPrev()
      */
+    @Deprecated
     protected void exchangeToNext() {
-        final int size = size();
-        int currentValue;
-        do {
-            currentValue = index.get();
-        } while (!index.compareAndSet(currentValue, currentValue == size - 1 ? 0 : currentValue + 1));
+        exchange(NEXT);
     }
 
     /**
@@ -203,11 +344,102 @@ public class DefaultConcurrentStateMachine<S> extends AbstractStateMachine<S> im
      * </p>
      *
      * @param target    目标值
+     * @deprecated 内置的切换方法不再调用此方法, 重写此方法不会影响内置的切换方法; 仅为兼容保留
+     * @see #exchangeToPrev()
      */
+    @Deprecated
     protected void exchangeToTarget(int target) {
-        int currentValue;
-        do {
-            currentValue = index.get();
-        } while (!index.compareAndSet(currentValue, target));
+        exchange(target);
+    }
+
+    /**
+     * 按竞争模式执行切换, 返回切换前的状态序号供内置的切换方法配对处理器的源状态与目的状态
+     *
+     * @param target    目标状态序号, 或 {@link #PREV}、{@link #NEXT}
+     * @return 切换前的状态序号
+     */
+    private int exchange(int target) {
+        switch (contentionMode) {
+            case COMBINING:
+                return combine(target);
+            case BACKOFF:
+                return apply(target, true);
+            default:
+                return apply(target, false);
+        }
+    }
+
+    /**
+     * 通过CAS执行切换
+     *
+     * @param target    目标状态序号, 或 {@link #PREV}、{@link #NEXT}
+     * @param backoff   CAS失败后是否退避
+     * @return 切换前的状态序号
+     */
+    private int apply(int target, boolean backoff) {
+        for (int attempt = 0;; attempt++) {
+            final int currentValue = acquire();
+            final int newValue = target == NEXT ? nextOf(currentValue) :
+                    target == PREV ? prevOf(currentValue) : target;
+            if (index.compareAndSet(currentValue, newValue)) {
+                signalState(newValue);
+                return currentValue;
+            }
+            if (backoff)
+                Backoff.pause(attempt);
+        }
+    }
+
+    /**
+     * 发布切换请求并等待执行; 未有其他线程合并执行时由当前线程执行队列中积压的请求
+     *
+     * @param target    目标状态序号, 或 {@link #PREV}、{@link #NEXT}
+     * @return 切换前的状态序号
+     */
+    private int combine(int target) {
+        final Request request = new Request(target);
+        requests.offer(request);
+        for (int attempt = 0;; attempt++) {
+            final int previous = request.previous;
+            if (previous >= 0)
+                return previous;
+            if (!combining.get() && combining.compareAndSet(false, true)) {
+                try {
+                    Request pending;
+                    for (int i = 0; i < COMBINE_LIMIT && (pending = requests.poll()) != null; i++)
+                        pending.previous = apply(pending.target, false);
+                } finally {
+                    combining.set(false);
+                }
+            } else if ((attempt & (YIELD_INTERVAL - 1)) == YIELD_INTERVAL - 1) {
+                Thread.yield();
+            } else {
+                Backoff.onSpinWait();
+            }
+        }
+    }
+
+    private int nextOf(int value) {
+        return value == size() - 1 ? 0 : value + 1;
+    }
+
+    private int prevOf(int value) {
+        return value == 0 ? size() - 1 : value - 1;
+    }
+
+    /**
+     * 合并执行的切换请求
+     */
+    private static final class Request {
+
+        final int target;
+        /**
+         * 切换前的状态序号, 执行前为 -1
+         */
+        volatile int previous = -1;
+
+        Request(int target) {
+            this.target = target;
+        }
     }
 }
@@ -0,0 +1,104 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.handler.IntStateHandler;
+import com.serliunx.statemanagement.manager.DefaultIntStateManager;
+import com.serliunx.statemanagement.manager.IntStateIndex;
+
+import java.util.Arrays;
+
+/**
+ * 整型状态机的默认实现
+ * <p>
+ * 处理器在构建时即按状态序号整理为数组, 触发时仅需数组访问:
+ * <ul>
+ *     <li> 进入、离开处理器以状态序号为下标
+ *     <li> 交换处理器按源状态序号分组, 组内按目的状态序号排序后二分查找
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public class DefaultIntStateMachine extends DefaultIntStateManager implements IntStateMachine {
+
+    /**
+     * 离开处理器, 下标为状态序号
+     */
+    private final IntStateHandler[][] leaveHandlers;
+    /**
+     * 进入处理器, 下标为状态序号
+     */
+    private final IntStateHandler[][] entryHandlers;
+    /**
+     * 交换处理器的目的状态序号(有序), 第一维下标为源状态序号; 没有交换处理器时为空
+     */
+    private final int[][] exchangeTargets;
+    /**
+     * 交换处理器, 与 {@link #exchangeTargets} 一一对应
+     */
+    private final IntStateHandler[][][] exchangeHandlers;
+
+    DefaultIntStateMachine(IntStateIndex stateIndex,
+                           int initialState,
+                           IntStateHandler[][] leaveHandlers,
+                           IntStateHandler[][] entryHandlers,
+                           int[][] exchangeTargets,
+                           IntStateHandler[][][] exchangeHandlers) {
+        super(stateIndex, initialState);
+        this.leaveHandlers = leaveHandlers;
+        this.entryHandlers = entryHandlers;
+        this.exchangeTargets = exchangeTargets;
+        this.exchangeHandlers = exchangeHandlers;
+    }
+
+    @Override
+    public void switchNext(boolean invokeHandlers) {
+        doSwitchNext(invokeHandlers, true);
+    }
+
+    @Override
+    public void switchPrev(boolean invokeHandlers) {
+        doSwitchPrev(invokeHandlers, true);
+    }
+
+    @Override
+    public void reset(boolean invokeHandlers) {
+        doReset(invokeHandlers);
+    }
+
+    @Override
+    public boolean switchTo(int state, boolean invokeHandlers) {
+        return doSwitchTo(state, invokeHandlers);
+    }
+
+    @Override
+    public boolean compareAndSet(int expectedValue, int newValue, boolean invokeHandlers) {
+        return doCompareAndSet(expectedValue, newValue, invokeHandlers);
+    }
+
+    @Override
+    protected void onTransition(int fromIndex, int toIndex) {
+        final int from = stateIndex.stateAt(fromIndex);
+        final int to = stateIndex.stateAt(toIndex);
+
+        // 触发离开处理器
+        invoke(leaveHandlers[fromIndex], from, to);
+
+        // 触发进入处理器
+        invoke(entryHandlers[toIndex], from, to);
+
+        // 触发交换处理器
+        final int[] targets;
+        if (exchangeTargets == null ||
+                (targets = exchangeTargets[fromIndex]) == null)
+            return;
+        final int i = Arrays.binarySearch(targets, toIndex);
+        if (i >= 0)
+            invoke(exchangeHandlers[fromIndex][i], from, to);
+    }
+
+    private static void invoke(IntStateHandler[] handlers, int from, int to) {
+        for (IntStateHandler handler : handlers) {
+            handler.handle(from, to);
+        }
+    }
+}
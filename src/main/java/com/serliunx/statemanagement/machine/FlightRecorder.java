@@ -0,0 +1,168 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerType;
+import com.serliunx.statemanagement.support.RejectionAware;
+
+import java.util.concurrent.Executor;
+
+/**
+ * JFR(Java Flight Recorder)事件的入口
+ * <p>
+ * 运行时检测 {@code jdk.jfr} 是否可用, 可用时由 {@link FlightRecorderEvents} 提交事件, 否则所有方法均为空操作;
+ * 本类不引用任何 {@code jdk.jfr} 中的类型, 在不支持JFR的JDK上同样可以加载. 事件是否记录由JFR的配置决定,
+ * 未开启记录时仅有一次布尔判断的开销.
+ * <p>
+ * 提供的事件:
+ * <ul>
+ *     <li> {@code com.serliunx.statemanagement.StateTransition}: 状态切换及其处理器分发
+ *     <li> {@code com.serliunx.statemanagement.StateHandlerExecution}: 单个处理器的执行
+ *     <li> {@code com.serliunx.statemanagement.StateEventPublish}: 事件发布
+ *     <li> {@code com.serliunx.statemanagement.HandlerTaskRejected}: 异步处理器被执行器拒绝
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+final class FlightRecorder {
+
+    /**
+     * 当前JDK是否支持JFR
+     */
+    static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorder() {throw new UnsupportedOperationException();}
+
+    /**
+     * 开始记录状态切换
+     *
+     * @return 事件, 未开启记录时为空
+     */
+    static Object beginTransition() {
+        return AVAILABLE ? FlightRecorderEvents.beginTransition() : null;
+    }
+
+    /**
+     * 提交状态切换事件
+     *
+     * @param event     {@link #beginTransition()} 返回的事件, 为空时忽略
+     * @param machine   状态机
+     * @param from      源状态
+     * @param to        目的状态
+     */
+    static void commitTransition(Object event, AbstractStateMachine<?> machine, Object from, Object to) {
+        if (event == null)
+            return;
+        final StateMachineContext<?> context = machine.context;
+        FlightRecorderEvents.commitTransition(event, machine.machineId(), machine.getClass().getName(), from, to,
+                context.dispatchMode.name(), context.async != null && context.async);
+    }
+
+    /**
+     * 开始记录事件发布
+     *
+     * @return 事件, 未开启记录时为空
+     */
+    static Object beginPublish() {
+        return AVAILABLE ? FlightRecorderEvents.beginPublish() : null;
+    }
+
+    /**
+     * 提交事件发布事件
+     *
+     * @param event     {@link #beginPublish()} 返回的事件, 为空时忽略
+     * @param machineId 状态机编号
+     * @param published 发布的事件
+     * @param consumers 事件逻辑的数量
+     * @param async     是否异步执行
+     */
+    static void commitPublish(Object event, long machineId, Object published, int consumers, boolean async) {
+        if (event != null)
+            FlightRecorderEvents.commitPublish(event, machineId, published, consumers, async);
+    }
+
+    /**
+     * 是否需要记录处理器的执行或拒绝
+     *
+     * @return 需要记录时返回真
+     */
+    static boolean isHandlerEnabled() {
+        return AVAILABLE && FlightRecorderEvents.isHandlerEnabled();
+    }
+
+    /**
+     * 包装处理器的执行逻辑, 执行时记录处理器执行事件, 被拒绝时记录拒绝事件
+     *
+     * @param machineId 状态机编号
+     * @param type      处理器类型
+     * @param from      源状态
+     * @param to        目的状态
+     * @param async     是否异步执行
+     * @param handler   处理器
+     * @param executor  异步执行器, 同步执行时为空
+     * @param body      处理器的执行逻辑, 实现了 {@link RejectionAware} 时被拒绝后同样会得到通知
+     * @return 包装后的执行逻辑
+     */
+    static RejectionAware handler(long machineId, HandlerType type, Object from, Object to, boolean async,
+                                  Object handler, Executor executor, Runnable body) {
+        return new RecordedHandler(machineId, type, from, to, async, handler, executor, body);
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorder.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 记录执行情况的处理器
+     */
+    private static final class RecordedHandler implements RejectionAware {
+
+        private final long machineId;
+        private final HandlerType type;
+        private final Object from;
+        private final Object to;
+        private final boolean async;
+        private final Object handler;
+        private final Executor executor;
+        private final Runnable body;
+
+        RecordedHandler(long machineId, HandlerType type, Object from, Object to, boolean async, Object handler,
+                        Executor executor, Runnable body) {
+            this.machineId = machineId;
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.async = async;
+            this.handler = handler;
+            this.executor = executor;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            final Object event = FlightRecorderEvents.beginHandler();
+            try {
+                body.run();
+            } finally {
+                if (event != null)
+                    FlightRecorderEvents.commitHandler(event, machineId, type, from, to, async, nameOf(handler));
+            }
+        }
+
+        @Override
+        public void onRejected() {
+            FlightRecorderEvents.rejected(machineId, type, from, to, nameOf(handler),
+                    executor == null ? null : executor.getClass().getName());
+            if (body instanceof RejectionAware)
+                ((RejectionAware) body).onRejected();
+        }
+
+        private static String nameOf(Object handler) {
+            return handler instanceof String ? (String) handler : handler.getClass().getName();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerType;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件的定义及提交
+ * <p>
+ * 仅在 {@link FlightRecorder#AVAILABLE} 为真时加载; 方法签名中不出现 {@code jdk.jfr} 中的类型,
+ * 事件对象以 {@link Object} 的形式在调用方之间传递.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see FlightRecorder
+ */
+final class FlightRecorderEvents {
+
+    private static final String CATEGORY = "State Management";
+
+    /**
+     * 事件类型, 未开启记录时通过类型判断即可返回, 无需创建事件对象
+     */
+    private static final EventType TRANSITION = EventType.getEventType(TransitionEvent.class);
+    private static final EventType PUBLISH = EventType.getEventType(PublishEvent.class);
+    private static final EventType HANDLER_EXECUTION = EventType.getEventType(HandlerExecutionEvent.class);
+    private static final EventType HANDLER_REJECTED = EventType.getEventType(HandlerRejectedEvent.class);
+
+    private FlightRecorderEvents() {throw new UnsupportedOperationException();}
+
+    static Object beginTransition() {
+        if (!TRANSITION.isEnabled())
+            return null;
+        final TransitionEvent event = new TransitionEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitTransition(Object e, long machineId, String machineType, Object from, Object to,
+                                 String dispatchMode, boolean async) {
+        final TransitionEvent event = (TransitionEvent) e;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.machineId = machineId;
+        event.machineType = machineType;
+        event.from = String.valueOf(from);
+        event.to = String.valueOf(to);
+        event.dispatchMode = dispatchMode;
+        event.async = async;
+        event.commit();
+    }
+
+    static Object beginPublish() {
+        if (!PUBLISH.isEnabled())
+            return null;
+        final PublishEvent event = new PublishEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitPublish(Object e, long machineId, Object published, int consumers, boolean async) {
+        final PublishEvent event = (PublishEvent) e;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.machineId = machineId;
+        event.event = String.valueOf(published);
+        event.consumers = consumers;
+        event.async = async;
+        event.commit();
+    }
+
+    static boolean isHandlerEnabled() {
+        return HANDLER_EXECUTION.isEnabled() || HANDLER_REJECTED.isEnabled();
+    }
+
+    static Object beginHandler() {
+        if (!HANDLER_EXECUTION.isEnabled())
+            return null;
+        final HandlerExecutionEvent event = new HandlerExecutionEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitHandler(Object e, long machineId, HandlerType type, Object from, Object to, boolean async,
+                              String handler) {
+        final HandlerExecutionEvent event = (HandlerExecutionEvent) e;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.machineId = machineId;
+        event.handlerType = type == null ? null : type.name();
+        event.from = String.valueOf(from);
+        event.to = String.valueOf(to);
+        event.async = async;
+        event.handler = handler;
+        event.commit();
+    }
+
+    static void rejected(long machineId, HandlerType type, Object from, Object to, String handler, String executor) {
+        if (!HANDLER_REJECTED.isEnabled())
+            return;
+        final HandlerRejectedEvent event = new HandlerRejectedEvent();
+        if (!event.shouldCommit())
+            return;
+        event.machineId = machineId;
+        event.handlerType = type == null ? null : type.name();
+        event.from = String.valueOf(from);
+        event.to = String.valueOf(to);
+        event.handler = handler;
+        event.executor = executor;
+        event.commit();
+    }
+
+    @Name("com.serliunx.statemanagement.StateTransition")
+    @Label("State Transition")
+    @Description("状态切换及其处理器分发")
+    @Category(CATEGORY)
+    static final class TransitionEvent extends Event {
+        @Label("Machine Id")
+        long machineId;
+        @Label("Machine Type")
+        String machineType;
+        @Label("From")
+        String from;
+        @Label("To")
+        String to;
+        @Label("Dispatch Mode")
+        String dispatchMode;
+        @Label("Async")
+        boolean async;
+    }
+
+    @Name("com.serliunx.statemanagement.StateHandlerExecution")
+    @Label("State Handler Execution")
+    @Description("单个状态处理器的执行, 异步处理器记录的是在执行器中的执行")
+    @Category(CATEGORY)
+    static final class HandlerExecutionEvent extends Event {
+        @Label("Machine Id")
+        long machineId;
+        @Label("Handler Type")
+        String handlerType;
+        @Label("From")
+        String from;
+        @Label("To")
+        String to;
+        @Label("Async")
+        boolean async;
+        @Label("Handler")
+        String handler;
+    }
+
+    @Name("com.serliunx.statemanagement.StateEventPublish")
+    @Label("State Event Publish")
+    @Description("状态机事件的发布")
+    @Category(CATEGORY)
+    static final class PublishEvent extends Event {
+        @Label("Machine Id")
+        long machineId;
+        @Label("Event")
+        String event;
+        @Label("Consumers")
+        int consumers;
+        @Label("Async")
+        boolean async;
+    }
+
+    @Name("com.serliunx.statemanagement.HandlerTaskRejected")
+    @Label("Handler Task Rejected")
+    @Description("异步处理器被执行器拒绝")
+    @Category(CATEGORY)
+    static final class HandlerRejectedEvent extends Event {
+        @Label("Machine Id")
+        long machineId;
+        @Label("Handler Type")
+        String handlerType;
+        @Label("From")
+        String from;
+        @Label("To")
+        String to;
+        @Label("Handler")
+        String handler;
+        @Label("Executor")
+        String executor;
+    }
+}
@@ -0,0 +1,112 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerType;
+import com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 编译期生成的状态机基类
+ * <p>
+ * 子类由注解处理器根据 {@link com.serliunx.statemanagement.annotation.StateMachineDefinition} 生成,
+ * 在 {@link #dispatch(int, int, StateHandlerProcessParams, TransitionTracker)} 中按状态的序号直接调用处理器方法,
+ * 状态机上下文中不包含任何处理器.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see com.serliunx.statemanagement.processor.StateMachineProcessor
+ */
+public abstract class GeneratedStateMachine<S extends Enum<S>> extends StandardStateMachine<S> {
+
+	/**
+	 * 最近一次持有写锁时使用的环形缓冲区分发器及其执行器视图, 仅在持有写锁时访问
+	 */
+	private RingBufferDispatcher heldRing;
+	private Executor heldRingView;
+
+	/**
+	 * @param states		状态, 即枚举的所有常量
+	 * @param initialState	初始状态
+	 * @param executor		异步执行器, 为空时自动创建
+	 * @param async			未在注解中声明为异步的处理器是否异步执行
+	 */
+	protected GeneratedStateMachine(S[] states, S initialState, Executor executor, Boolean async) {
+		super(Arrays.asList(states), new StateMachineContext<>(new HashMap<>(), new HashMap<>(), new HashMap<>(),
+				new HashMap<>(), executor, async, initialState));
+	}
+
+	@Override
+	protected final void doInvokeHandlers(S from, S to, TransitionTracker<S> tracker) {
+		if (tracker != null)
+			tracker.transition(from, to);
+		dispatch(from.ordinal(), to.ordinal(), new StateHandlerProcessParams<>(from, to, null), tracker);
+	}
+
+	/**
+	 * 按 离开、进入、交换 的顺序触发处理器
+	 *
+	 * @param from		源状态的序号
+	 * @param to		目的状态的序号
+	 * @param params	处理器入参
+	 * @param tracker	切换追踪, 为空时不记录
+	 */
+	protected abstract void dispatch(int from, int to, StateHandlerProcessParams<S> params,
+									 TransitionTracker<S> tracker);
+
+	/**
+	 * 同步处理器能否直接调用
+	 *
+	 * @param tracker	切换追踪
+	 * @return 无需追踪、状态机未指定异步且无需记录JFR事件时返回真
+	 */
+	protected final boolean isDirect(TransitionTracker<S> tracker) {
+		return tracker == null && (context.async == null || !context.async) && !FlightRecorder.isHandlerEnabled();
+	}
+
+	/**
+	 * 执行处理器方法
+	 * <p>
+	 * 未在注解中声明为异步且状态机未指定异步时直接执行, 否则通过该状态对应的执行器执行;
+	 * 记录JFR事件时仅能得知处理器所属的状态, 另一端的状态留空
+	 *
+	 * @param type		处理器类型
+	 * @param state		处理器所属的状态, 离开处理器为源状态, 其余为目的状态
+	 * @param async		注解中是否声明为异步
+	 * @param handler	处理器方法的名称, 用于切换追踪
+	 * @param body		处理器方法的调用
+	 * @param tracker	切换追踪, 为空时不记录
+	 */
+	protected final void invoke(HandlerType type, S state, boolean async, String handler, Runnable body,
+								TransitionTracker<S> tracker) {
+		final Object from = type == HandlerType.LEAVE ? state : null;
+		final Object to = type == HandlerType.LEAVE ? null : state;
+		if (async || (context.async != null && context.async)) {
+			Executor executor = context.executorFor(state);
+			// 持有写锁时, 环形缓冲区分发器的消费者线程上的处理器可能正在等待该锁
+			if (executor instanceof RingBufferDispatcher && writeLock.isHeldByCurrentThread()) {
+				if (heldRing != executor) {
+					heldRing = (RingBufferDispatcher) executor;
+					heldRingView = heldRing.heldBy(lock);
+				}
+				executor = heldRingView;
+			}
+			if (tracker == null)
+				HandlerInvocationDelegate.execute(context, type, from, to, handler, executor, body);
+			else
+				HandlerInvocationDelegate.executeTracked(context, type, from, to, handler, executor,
+						tracker.track(type, handler, body));
+		} else if (FlightRecorder.isHandlerEnabled()) {
+			final Runnable recorded = FlightRecorder.handler(context.machineId, type, from, to, false, handler,
+					null, body);
+			if (tracker == null)
+				recorded.run();
+			else
+				tracker.invoke(type, handler, recorded);
+		} else if (tracker == null)
+			body.run();
+		else
+			tracker.invoke(type, handler, body);
+	}
+}
@@ -0,0 +1,31 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 处理器分发模式
+ * <p>
+ * 决定基于锁实现的状态机(如 {@link StandardStateMachine})何时触发处理器; 并发型状态机本身不持有锁,
+ * 总是在状态更新成功后直接触发处理器, 不受该模式影响.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public enum HandlerDispatchMode {
+
+    /**
+     * 在持有写锁的情况下触发处理器(默认)
+     * <p>
+     * 同步处理器执行期间该状态机的所有读写操作均会被阻塞, 处理器中可以重入当前状态机.
+     */
+    IN_LOCK,
+
+    /**
+     * 提交后触发处理器
+     * <p>
+     * 在写锁内仅更新状态并将本次切换按提交顺序放入状态机的提交后队列, 释放写锁后再由调用线程依次触发处理器;
+     * 写锁的持有时间不再受处理器影响, 处理器的执行顺序与切换的提交顺序保持一致.
+     * <p>
+     * 注意: 当其他线程正在触发队列中的处理器时, 调用线程提交的切换将由该线程负责触发, 此时切换方法可能在
+     * 处理器执行完毕前返回.
+     */
+    POST_COMMIT;
+}
@@ -1,11 +1,15 @@
 package com.serliunx.statemanagement.machine;
 
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerType;
 import com.serliunx.statemanagement.machine.handler.StateHandler;
 import com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams;
 import com.serliunx.statemanagement.machine.handler.StateHandlerWrapper;
+import com.serliunx.statemanagement.support.RejectionAware;
 
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 状态处理器触发
@@ -24,15 +28,209 @@ public final class HandlerInvocationDelegate {
      * @param <S> 状态类型
      */
     public static <S> void invokeHandlers(StateMachineContext<S> context, S from, S to) {
+        invokeHandlers(context, from, to, null);
+    }
+
+    /**
+     * 触发处理器, 并将各处理器的执行情况记录至切换追踪中
+     *
+     * @param context   状态机上下文
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param tracker   切换追踪, 为空时不记录
+     * @param <S> 状态类型
+     */
+    public static <S> void invokeHandlers(StateMachineContext<S> context, S from, S to, TransitionTracker<S> tracker) {
+        invokeHandlers(context, from, to, tracker, null);
+    }
+
+    /**
+     * 触发处理器, 并将附加参数传递给各处理器
+     *
+     * @param context   状态机上下文
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param tracker   切换追踪, 为空时不记录
+     * @param attach    附加参数, 合并投递的处理器不会收到
+     * @param <S> 状态类型
+     */
+    static <S> void invokeHandlers(StateMachineContext<S> context, S from, S to, TransitionTracker<S> tracker,
+                                   Object attach) {
+        invokeHandlers(context, from, to, tracker, attach, null);
+    }
+
+    /**
+     * 触发处理器, 并指定调用方持有的状态机锁
+     * <p>
+     * 环形缓冲区分发器已满时, 若消费者线程上的处理器正在等待该锁, 延后的处理器在当前线程直接执行.
+     *
+     * @param context   状态机上下文
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param tracker   切换追踪, 为空时不记录
+     * @param attach    附加参数, 合并投递的处理器不会收到
+     * @param held      调用方持有的状态机锁, 为空时表示未持有
+     * @param <S> 状态类型
+     */
+    static <S> void invokeHandlers(StateMachineContext<S> context, S from, S to, TransitionTracker<S> tracker,
+                                   Object attach, ReentrantReadWriteLock held) {
+        if (tracker != null)
+            tracker.transition(from, to);
+
+        // 编译后的状态机直接查表
+        final CompiledDispatch<S> compiledDispatch = context.compiledDispatch;
+        if (compiledDispatch != null) {
+            compiledDispatch.invoke(context, from, to, tracker, attach, held);
+            return;
+        }
+        final StateHandlerProcessParams<S> params = attach == null ? null :
+                new StateHandlerProcessParams<>(from, to, attach);
+        final RingBufferDispatcher ring = ringOf(context);
+        final AsyncBatch batch = ring == null ? newBatch(context) : null;
+
         // 触发离开处理器
-        doInvokeHandlers(context, context.leaveHandlers.get(from), from, to);
+        boolean deferred = doInvokeHandlers(context, context.leaveHandlers.get(from), from, to, HandlerType.LEAVE,
+                tracker, params, batch, ring);
 
         // 触发进入处理器
-        doInvokeHandlers(context, context.entryHandlers.get(to), from, to);
+        deferred |= doInvokeHandlers(context, context.entryHandlers.get(to), from, to, HandlerType.ENTRY, tracker,
+                params, batch, ring);
 
         // 触发交换处理器
         final String key = from.toString() + "-" + to.toString();
-        doInvokeHandlers(context, context.exchangeHandlers.get(key), from, to);
+        deferred |= doInvokeHandlers(context, context.exchangeHandlers.get(key), from, to, HandlerType.EXCHANGE,
+                tracker, params, batch, ring);
+
+        if (deferred)
+            ring.publish(context, from, to, attach, tracker, held);
+        if (batch != null)
+            batch.flush();
+    }
+
+    /**
+     * 状态机的执行器为环形缓冲区分发器时返回该分发器
+     *
+     * @param context   状态机上下文
+     * @return 分发器, 执行器为其他类型时为空
+     */
+    static RingBufferDispatcher ringOf(StateMachineContext<?> context) {
+        final Executor executor = context.executor;
+        return executor instanceof RingBufferDispatcher ? (RingBufferDispatcher) executor : null;
+    }
+
+    /**
+     * 触发一次切换中延后至环形缓冲区分发器的处理器, 由分发器的消费者线程调用
+     * <p>
+     * 按离开、进入、交换的顺序依次执行使用状态机执行器的异步处理器(与发布时的判断一致), 某个处理器抛出异常不影响后续处理器,
+     * 全部执行完毕后抛出第一个异常; 指定了切换追踪时异常仅记录在追踪结果中, 最后释放发布时持有的计数.
+     *
+     * @param context   状态机上下文
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param attach    附加参数
+     * @param tracker   切换追踪, 为空时不记录
+     * @param rejected  分发器已关闭, 仅将处理器记录为被拒绝
+     * @param <S>       状态类型
+     */
+    static <S> void invokeDeferred(StateMachineContext<S> context, S from, S to, Object attach,
+                                   TransitionTracker<S> tracker, boolean rejected) {
+        final StateHandlerProcessParams<S> params = new StateHandlerProcessParams<>(from, to, attach);
+        Throwable failure = null;
+        try {
+            failure = invokeDeferred(context, context.leaveHandlers.get(from), HandlerType.LEAVE, from, params,
+                    tracker, rejected, failure);
+            failure = invokeDeferred(context, context.entryHandlers.get(to), HandlerType.ENTRY, to, params,
+                    tracker, rejected, failure);
+            failure = invokeDeferred(context, context.exchangeHandlers.get(from.toString() + "-" + to.toString()),
+                    HandlerType.EXCHANGE, to, params, tracker, rejected, failure);
+        } finally {
+            if (tracker != null)
+                tracker.release();
+        }
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new IllegalStateException(failure);
+    }
+
+    private static <S> Throwable invokeDeferred(StateMachineContext<S> context,
+                                                List<StateHandlerWrapper<S>> handlerWrappers, HandlerType type,
+                                                S state, StateHandlerProcessParams<S> params,
+                                                TransitionTracker<S> tracker, boolean rejected, Throwable failure) {
+        if (handlerWrappers == null)
+            return failure;
+        for (StateHandlerWrapper<S> hw : handlerWrappers) {
+            final StateHandler<S> stateHandler;
+            if (hw == null ||
+                    (stateHandler = hw.getStateHandler()) == null ||
+                    !isDeferred(context, hw, state))
+                continue;
+            if (tracker != null) {
+                final TransitionTracker<S>.Invocation invocation = tracker.track(type, stateHandler,
+                        () -> stateHandler.handle(params));
+                if (rejected)
+                    invocation.onRejected();
+                else
+                    recorded(context, type, params.getFrom(), params.getTo(), stateHandler, context.executor,
+                            invocation).run();
+                continue;
+            }
+            try {
+                if (FlightRecorder.isHandlerEnabled())
+                    FlightRecorder.handler(context.machineId, type, params.getFrom(), params.getTo(), true,
+                            stateHandler, context.executor, () -> stateHandler.handle(params)).run();
+                else
+                    stateHandler.handle(params);
+            } catch (Throwable t) {
+                if (failure == null)
+                    failure = t;
+                else
+                    failure.addSuppressed(t);
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * 处理器是否延后至环形缓冲区分发器: 异步、非合并投递且使用状态机的执行器
+     */
+    private static <S> boolean isDeferred(StateMachineContext<S> context, StateHandlerWrapper<S> hw, S state) {
+        if (hw.isConflated() ||
+                !(hw.getAsync() == null ? (context.async != null && context.async) : hw.getAsync()))
+            return false;
+        return (hw.getExecutor() == null ? context.executorFor(state) : hw.getExecutor()) == context.executor;
+    }
+
+    /**
+     * 根据上下文中的投递方式为一次切换创建异步处理器的批次
+     *
+     * @param context   状态机上下文
+     * @return 批次, 每个处理器单独提交时为空
+     */
+    static AsyncBatch newBatch(StateMachineContext<?> context) {
+        final AsyncBatchMode mode = context.asyncBatchMode;
+        return mode == null || mode == AsyncBatchMode.NONE ? null : new AsyncBatch(mode);
+    }
+
+    /**
+     * 指定切换上是否注册了处理器
+     *
+     * @param context   状态机上下文
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param <S>       状态类型
+     * @return 注册了任意离开、进入或交换处理器时返回真
+     */
+    static <S> boolean hasHandlers(StateMachineContext<S> context, S from, S to) {
+        return notEmpty(context.leaveHandlers.get(from)) ||
+                notEmpty(context.entryHandlers.get(to)) ||
+                notEmpty(context.exchangeHandlers.get(from.toString() + "-" + to.toString()));
+    }
+
+    private static boolean notEmpty(List<?> list) {
+        return list != null && !list.isEmpty();
     }
 
     /**
@@ -46,35 +244,184 @@ public final class HandlerInvocationDelegate {
      */
     public static <S> void doInvokeHandlers(StateMachineContext<S> context,
                                             List<StateHandlerWrapper<S>> handlerWrappers, S from, S to) {
+        doInvokeHandlers(context, handlerWrappers, from, to, null, null);
+    }
+
+    /**
+     * 触发逻辑
+     * <p>
+     * 指定了切换追踪时, 同步处理器抛出的异常不再向外传播而是记录在追踪结果中, 后续处理器照常执行;
+     * 异步处理器被执行器拒绝时同样记录在追踪结果中.
+     *
+     * @param context           状态机上下文
+     * @param handlerWrappers   封装后处理器集合
+     * @param from	            源状态
+     * @param to	            目的状态
+     * @param type              处理器类型
+     * @param tracker           切换追踪, 为空时不记录
+     * @param <S>               状态类型
+     */
+    static <S> void doInvokeHandlers(StateMachineContext<S> context,
+                                     List<StateHandlerWrapper<S>> handlerWrappers, S from, S to,
+                                     HandlerType type, TransitionTracker<S> tracker) {
+        doInvokeHandlers(context, handlerWrappers, from, to, type, tracker, null, null, null);
+    }
+
+    private static <S> boolean doInvokeHandlers(StateMachineContext<S> context,
+                                                List<StateHandlerWrapper<S>> handlerWrappers, S from, S to,
+                                                HandlerType type, TransitionTracker<S> tracker,
+                                                StateHandlerProcessParams<S> params, AsyncBatch batch,
+                                                RingBufferDispatcher ring) {
         if (handlerWrappers == null)
+            return false;
+        boolean deferred = false;
+        for (StateHandlerWrapper<S> hw : handlerWrappers) {
+            deferred |= invokeHandler(context, hw, from, to, type, tracker, params, batch, ring);
+        }
+        return deferred;
+    }
+
+    /**
+     * 触发单个处理器
+     *
+     * @param context           状态机上下文
+     * @param hw                封装后的处理器
+     * @param from	            源状态
+     * @param to	            目的状态
+     * @param type              处理器类型
+     * @param tracker           切换追踪, 为空时不记录
+     * @param params            处理器入参, 为空时新建; 入参不可变, 同一次切换的处理器可以共用
+     * @param batch             异步处理器的批次, 不为空时异步处理器仅登记至批次, 由调用方统一提交
+     * @param ring              状态机执行器对应的环形缓冲区分发器, 不为空时使用状态机执行器的异步处理器不提交,
+     *                          由调用方在切换的处理器全部触发后发布一次切换
+     * @param <S>               状态类型
+     * @return 处理器延后至分发器时返回真
+     */
+    static <S> boolean invokeHandler(StateMachineContext<S> context, StateHandlerWrapper<S> hw, S from, S to,
+                                     HandlerType type, TransitionTracker<S> tracker,
+                                     StateHandlerProcessParams<S> params, AsyncBatch batch,
+                                     RingBufferDispatcher ring) {
+        final StateHandler<S> stateHandler;
+        if (hw == null ||
+                (stateHandler = hw.getStateHandler()) == null)
+            return false;
+
+        // 合并投递: 仅登记本次切换, 由投递状态决定是否提交任务
+        if (hw.isConflated()) {
+            context.conflatedDelivery(hw, type == HandlerType.LEAVE ? from : to)
+                    .offer(from, to, tracker == null ? null : tracker.track(type, stateHandler, null));
+            return false;
+        }
+        final StateHandlerProcessParams<S> p = params == null ? new StateHandlerProcessParams<>(from, to, null) : params;
+
+        /*
+         * 一、异步逻辑校验: 首先判断是否需要异步执行状态处理器, 具体的状态逻辑处理器优先级大于全局
+         * 即： 如果全局指定了同步执行, 但此时特定的状态处理器注册时指定为异步执行的话. 该处理器
+         * 为异步执行.
+         *
+         * 二、 当确定了为异步执行时会选择合适的异步执行器(通常都是线程池), 如果状态处理器注册
+         * 时指定了异步执行器, 则优先使用该异步执行器；反则会使用全局的异步执行器(处理器所属状态配置了
+         * 舱壁时经由舱壁提交, 离开处理器属于源状态, 进入及交换处理器属于目的状态)。如果上一步骤
+         * 中确定为异步执行但当前步骤没有寻找到合适的异步执行器则会报空指针异常(当前版本不会出现)
+         */
+        if (hw.getAsync() == null ?
+                (context.async != null && context.async) :
+                hw.getAsync()) {
+            final Executor executor;
+            if ((executor = hw.getExecutor() == null ?
+                    context.executorFor(type == HandlerType.LEAVE ? from : to) : hw.getExecutor()) == null)
+                // 不应该发生
+                throw new Error();
+            if (ring != null && executor == ring)
+                return true;
+            if (batch != null)
+                batch.add(executor, recorded(context, type, from, to, stateHandler, executor, tracker == null ?
+                        () -> stateHandler.handle(p) :
+                        tracker.track(type, stateHandler, () -> stateHandler.handle(p))), tracker != null);
+            else if (tracker == null)
+                execute(context, type, from, to, stateHandler, executor, () -> stateHandler.handle(p));
+            else
+                executeTracked(context, type, from, to, stateHandler, executor,
+                        tracker.track(type, stateHandler, () -> stateHandler.handle(p)));
+        } else if (FlightRecorder.isHandlerEnabled()) {
+            final Runnable recorded = FlightRecorder.handler(context.machineId, type, from, to, false, stateHandler,
+                    null, () -> stateHandler.handle(p));
+            if (tracker == null)
+                recorded.run();
+            else
+                tracker.invoke(type, stateHandler, recorded);
+        } else if (tracker == null)
+            stateHandler.handle(p);
+        else
+            tracker.invoke(type, stateHandler, () -> stateHandler.handle(p));
+        return false;
+    }
+
+    /**
+     * 提交异步处理器, 需要记录JFR事件时记录其执行及拒绝情况
+     *
+     * @param context   状态机上下文
+     * @param type      处理器类型
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param handler   处理器
+     * @param executor  执行器
+     * @param task      处理器的执行逻辑
+     * @param <S>       状态类型
+     */
+    static <S> void execute(StateMachineContext<S> context, HandlerType type, Object from, Object to,
+                            Object handler, Executor executor, Runnable task) {
+        if (!FlightRecorder.isHandlerEnabled()) {
+            executor.execute(task);
             return;
-        handlerWrappers.forEach(hw -> {
-            final StateHandler<S> stateHandler;
-            if (hw == null ||
-                    (stateHandler = hw.getStateHandler()) == null)
-                return;
-            final StateHandlerProcessParams<S> params = new StateHandlerProcessParams<>(from, to, null);
-
-            /*
-             * 一、异步逻辑校验: 首先判断是否需要异步执行状态处理器, 具体的状态逻辑处理器优先级大于全局
-             * 即： 如果全局指定了同步执行, 但此时特定的状态处理器注册时指定为异步执行的话. 该处理器
-             * 为异步执行.
-             *
-             * 二、 当确定了为异步执行时会选择合适的异步执行器(通常都是线程池), 如果状态处理器注册
-             * 时指定了异步执行器, 则优先使用该异步执行器；反则会使用全局的异步执行器。如果上一步骤
-             * 中确定为异步执行但当前步骤没有寻找到合适的异步执行器则会报空指针异常(当前版本不会出现)
-             */
-            if (hw.getAsync() == null ?
-                    (context.async != null && context.async) :
-                    hw.getAsync()) {
-                final Executor executor;
-                if ((executor = hw.getExecutor() == null ?
-                        context.executor : hw.getExecutor()) == null)
-                    // 不应该发生
-                    throw new Error();
-                executor.execute(() -> stateHandler.handle(params));
-            } else
-                stateHandler.handle(params);
-        });
+        }
+        final RejectionAware recorded = FlightRecorder.handler(context.machineId, type, from, to, true, handler,
+                executor, task);
+        try {
+            executor.execute(recorded);
+        } catch (RejectedExecutionException e) {
+            recorded.onRejected();
+            throw e;
+        }
+    }
+
+    /**
+     * 提交受追踪的异步处理器, 需要记录JFR事件时记录其执行及拒绝情况
+     *
+     * @param context   状态机上下文
+     * @param type      处理器类型
+     * @param from	    源状态
+     * @param to	    目的状态
+     * @param handler   处理器
+     * @param executor  执行器
+     * @param task      受追踪的任务
+     * @param <S>       状态类型
+     */
+    static <S> void executeTracked(StateMachineContext<S> context, HandlerType type, Object from, Object to,
+                                   Object handler, Executor executor, RejectionAware task) {
+        executeTracked(executor, (RejectionAware) recorded(context, type, from, to, handler, executor, task));
+    }
+
+    /**
+     * 需要记录JFR事件时包装异步处理器的任务, 受追踪的任务包装后依然可感知拒绝
+     */
+    private static <S> Runnable recorded(StateMachineContext<S> context, HandlerType type, Object from, Object to,
+                                         Object handler, Executor executor, Runnable task) {
+        return FlightRecorder.isHandlerEnabled() ?
+                FlightRecorder.handler(context.machineId, type, from, to, true, handler, executor, task) : task;
+    }
+
+    /**
+     * 提交受追踪的任务, 执行器直接抛出拒绝异常时同样视为被拒绝
+     *
+     * @param executor  执行器
+     * @param task      受追踪的任务
+     */
+    static void executeTracked(Executor executor, RejectionAware task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.onRejected();
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.manager.IntStateManager;
+
+/**
+ * 整型状态机
+ * <p>
+ * 基本行为与并发型状态机 {@link ConcurrentStateMachine} 一致, 状态为基本类型 int, 状态切换使用CAS实现;
+ * 处理器 {@link com.serliunx.statemanagement.machine.handler.IntStateHandler} 总是在切换线程中同步执行,
+ * 整个切换及处理器触发过程不涉及装箱及对象分配.
+ * <p>
+ * 请使用 {@link IntStateMachineBuilder} 来构建状态机.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see IntStateMachineBuilder
+ * @see ConcurrentStateMachine
+ */
+public interface IntStateMachine extends IntStateManager {
+
+    /**
+     * 切换至下一个状态
+     *
+     * @param invokeHandlers    是否唤醒状态处理器
+     */
+    void switchNext(boolean invokeHandlers);
+
+    /**
+     * 切换至上一个状态
+     *
+     * @param invokeHandlers    是否唤醒状态处理器
+     */
+    void switchPrev(boolean invokeHandlers);
+
+    /**
+     * 重置回默认状态
+     *
+     * @param invokeHandlers    是否唤醒状态处理器
+     */
+    void reset(boolean invokeHandlers);
+
+    /**
+     * 切换至指定状态
+     *
+     * @param state             新的状态
+     * @param invokeHandlers    是否唤醒状态处理器
+     * @return 切换成功返回真, 否则返回假
+     */
+    boolean switchTo(int state, boolean invokeHandlers);
+
+    /**
+     * 尝试使用CAS更新状态
+     *
+     * @param expectedValue     前置状态
+     * @param newValue          更新的状态值
+     * @param invokeHandlers    是否触发状态处理器, 仅在成功更新时才触发
+     * @return 成功更新返回真, 否则返回假
+     */
+    boolean compareAndSet(int expectedValue, int newValue, boolean invokeHandlers);
+}
@@ -0,0 +1,154 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.handler.IntStateHandler;
+import com.serliunx.statemanagement.manager.IntStateIndex;
+
+import java.util.*;
+
+/**
+ * 整型状态机构建
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see IntStateMachine
+ */
+public final class IntStateMachineBuilder {
+
+	private static final IntStateHandler[] NO_HANDLERS = new IntStateHandler[0];
+
+	/**
+	 * 状态索引
+	 */
+	private final IntStateIndex stateIndex;
+	/**
+	 * 初始化状态
+	 */
+	private int initialState;
+
+	/**
+	 * 各种事件, 键为状态序号
+	 */
+	private final Map<Integer, List<IntStateHandler>> entryHandlers = new HashMap<>();
+	private final Map<Integer, List<IntStateHandler>> leaveHandlers = new HashMap<>();
+	private final Map<Integer, Map<Integer, List<IntStateHandler>>> exchangeHandlers = new HashMap<>();
+
+	private IntStateMachineBuilder(IntStateIndex stateIndex) {
+		if (stateIndex.size() == 0)
+			throw new IllegalArgumentException("No states");
+		this.stateIndex = stateIndex;
+		this.initialState = stateIndex.stateAt(0);
+	}
+
+	/**
+	 * 定义初始状态
+	 *
+	 * @param initialState	初始状态
+	 * @return 当前对象, 链式调用
+	 */
+	public IntStateMachineBuilder withInitial(int initialState) {
+		indexOf(initialState);
+		this.initialState = initialState;
+		return this;
+	}
+
+	/**
+	 * 添加进入事件
+	 *
+	 * @param state		状态
+	 * @param handler	处理逻辑
+	 * @return 当前对象, 链式调用
+	 */
+	public IntStateMachineBuilder whenEntry(int state, IntStateHandler handler) {
+		entryHandlers.computeIfAbsent(indexOf(state), k -> new ArrayList<>()).add(handler);
+		return this;
+	}
+
+	/**
+	 * 添加离开事件
+	 *
+	 * @param state		状态
+	 * @param handler	处理逻辑
+	 * @return 当前对象, 链式调用
+	 */
+	public IntStateMachineBuilder whenLeave(int state, IntStateHandler handler) {
+		leaveHandlers.computeIfAbsent(indexOf(state), k -> new ArrayList<>()).add(handler);
+		return this;
+	}
+
+	/**
+	 * 添加交换事件
+	 *
+	 * @param from		源状态
+	 * @param to		目的状态
+	 * @param handler	处理器
+	 * @return 当前对象, 链式调用
+	 */
+	public IntStateMachineBuilder exchange(int from, int to, IntStateHandler handler) {
+		exchangeHandlers.computeIfAbsent(indexOf(from), k -> new HashMap<>())
+				.computeIfAbsent(indexOf(to), k -> new ArrayList<>())
+				.add(handler);
+		return this;
+	}
+
+	/**
+	 * 执行构建
+	 *
+	 * @return 整型状态机
+	 */
+	public IntStateMachine build() {
+		final int size = stateIndex.size();
+		int[][] exchangeTargets = null;
+		IntStateHandler[][][] exchanges = null;
+		if (!exchangeHandlers.isEmpty()) {
+			exchangeTargets = new int[size][];
+			exchanges = new IntStateHandler[size][][];
+			for (Map.Entry<Integer, Map<Integer, List<IntStateHandler>>> entry : exchangeHandlers.entrySet()) {
+				final int from = entry.getKey();
+				final int[] targets = entry.getValue().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+				final IntStateHandler[][] handlers = new IntStateHandler[targets.length][];
+				for (int i = 0; i < targets.length; i++)
+					handlers[i] = entry.getValue().get(targets[i]).toArray(NO_HANDLERS);
+				exchangeTargets[from] = targets;
+				exchanges[from] = handlers;
+			}
+		}
+		return new DefaultIntStateMachine(stateIndex, initialState, toArray(leaveHandlers, size),
+				toArray(entryHandlers, size), exchangeTargets, exchanges);
+	}
+
+	/**
+	 * 整型状态机构建器
+	 *
+	 * @param states	状态集合, 第一个状态为默认的初始状态
+	 * @return 整型状态机构建器实例
+	 */
+	public static IntStateMachineBuilder from(int... states) {
+		return new IntStateMachineBuilder(IntStateIndex.of(states));
+	}
+
+	/**
+	 * 整型状态机构建器, 状态为连续的整数 0..count-1
+	 *
+	 * @param count	状态数量
+	 * @return 整型状态机构建器实例
+	 */
+	public static IntStateMachineBuilder range(int count) {
+		return new IntStateMachineBuilder(IntStateIndex.range(count));
+	}
+
+	private int indexOf(int state) {
+		final int index = stateIndex.indexOf(state);
+		if (index == -1)
+			throw new IllegalArgumentException("Unknown state: " + state);
+		return index;
+	}
+
+	private static IntStateHandler[][] toArray(Map<Integer, List<IntStateHandler>> handlers, int size) {
+		final IntStateHandler[][] array = new IntStateHandler[size][];
+		for (int i = 0; i < size; i++) {
+			final List<IntStateHandler> list = handlers.get(i);
+			array[i] = list == null ? NO_HANDLERS : list.toArray(NO_HANDLERS);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,141 @@
+package com.serliunx.statemanagement.machine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+
+/**
+ * 映射内存的原子访问
+ * <p>
+ * {@link MappedStateTable} 需要在映射内存上执行 volatile 读取及CAS, Java 8 中只能借助 {@code sun.misc.Unsafe}.
+ * 为避免在源码中引用内部API(编译时产生无法通过注解抑制的警告, 且在不提供该类的运行环境上无法加载), 本类在运行时
+ * 通过反射取得 {@code Unsafe} 实例, 并将用到的方法绑定为 {@link MethodHandle}; 句柄保存在静态常量中,
+ * 由JIT内联后与直接调用等价. 对内部API的依赖仅限于本类.
+ * <p>
+ * 运行环境不支持时 {@link #SUPPORTED} 为假, 调用方应退化为加锁访问, 不应调用其余方法.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+final class MappedMemory {
+
+	/**
+	 * 当前运行环境是否支持映射内存上的原子访问
+	 */
+	static final boolean SUPPORTED;
+
+	private static final long ADDRESS_OFFSET;
+	private static final MethodHandle GET_LONG;
+	private static final MethodHandle GET_BYTE_VOLATILE;
+	private static final MethodHandle GET_SHORT_VOLATILE;
+	private static final MethodHandle GET_INT_VOLATILE;
+	private static final MethodHandle GET_LONG_VOLATILE;
+	private static final MethodHandle COMPARE_AND_SWAP_INT;
+	private static final MethodHandle COMPARE_AND_SWAP_LONG;
+
+	static {
+		long offset = -1;
+		MethodHandle getLong = null, getByte = null, getShort = null, getInt = null, getLongVolatile = null,
+				casInt = null, casLong = null;
+		try {
+			final Class<?> type = Class.forName("sun.misc.Unsafe");
+			final Field field = type.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			final Object unsafe = field.get(null);
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			offset = (long) lookup.findVirtual(type, "objectFieldOffset", MethodType.methodType(long.class, Field.class))
+					.invoke(unsafe, Buffer.class.getDeclaredField("address"));
+			getLong = bind(lookup, type, unsafe, "getLong", long.class, Object.class, long.class);
+			getByte = bind(lookup, type, unsafe, "getByteVolatile", byte.class, Object.class, long.class);
+			getShort = bind(lookup, type, unsafe, "getShortVolatile", short.class, Object.class, long.class);
+			getInt = bind(lookup, type, unsafe, "getIntVolatile", int.class, Object.class, long.class);
+			getLongVolatile = bind(lookup, type, unsafe, "getLongVolatile", long.class, Object.class, long.class);
+			casInt = bind(lookup, type, unsafe, "compareAndSwapInt", boolean.class, Object.class, long.class,
+					int.class, int.class);
+			casLong = bind(lookup, type, unsafe, "compareAndSwapLong", boolean.class, Object.class, long.class,
+					long.class, long.class);
+		} catch (Throwable t) {
+			offset = -1;
+		}
+		SUPPORTED = offset >= 0;
+		ADDRESS_OFFSET = offset;
+		GET_LONG = getLong;
+		GET_BYTE_VOLATILE = getByte;
+		GET_SHORT_VOLATILE = getShort;
+		GET_INT_VOLATILE = getInt;
+		GET_LONG_VOLATILE = getLongVolatile;
+		COMPARE_AND_SWAP_INT = casInt;
+		COMPARE_AND_SWAP_LONG = casLong;
+	}
+
+	private MappedMemory() {throw new UnsupportedOperationException();}
+
+	/**
+	 * 获取直接缓冲区的起始地址
+	 *
+	 * @param buffer	直接缓冲区(如映射的缓冲区)
+	 * @return 起始地址
+	 */
+	static long address(Buffer buffer) {
+		try {
+			return (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	static byte getByteVolatile(long address) {
+		try {
+			return (byte) GET_BYTE_VOLATILE.invokeExact((Object) null, address);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	static short getShortVolatile(long address) {
+		try {
+			return (short) GET_SHORT_VOLATILE.invokeExact((Object) null, address);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	static int getIntVolatile(long address) {
+		try {
+			return (int) GET_INT_VOLATILE.invokeExact((Object) null, address);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	static long getLongVolatile(long address) {
+		try {
+			return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	static boolean compareAndSwapInt(long address, int expected, int value) {
+		try {
+			return (boolean) COMPARE_AND_SWAP_INT.invokeExact((Object) null, address, expected, value);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	static boolean compareAndSwapLong(long address, long expected, long value) {
+		try {
+			return (boolean) COMPARE_AND_SWAP_LONG.invokeExact((Object) null, address, expected, value);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	private static MethodHandle bind(MethodHandles.Lookup lookup, Class<?> type, Object unsafe, String name,
+									 Class<?> returnType, Class<?>... parameterTypes) throws ReflectiveOperationException {
+		return lookup.findVirtual(type, name, MethodType.methodType(returnType, parameterTypes)).bindTo(unsafe);
+	}
+}
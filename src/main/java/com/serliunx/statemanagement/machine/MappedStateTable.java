@@ -0,0 +1,1241 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.manager.StateIndex;
+import com.serliunx.statemanagement.support.Backoff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * 基于内存映射文件的状态表
+ * <p>
+ * 为海量实体(如设备)各保存一个状态序号, 而不是为每个实体创建状态机: 每个槽位占用1或2个字节,
+ * 开启纪元时占用4个字节(低16位为状态序号, 高16位为纪元, 每次切换加一并循环). 槽位存放于内存映射文件中,
+ * 由操作系统的页缓存决定哪些部分驻留内存, 堆内存占用与槽位数量无关; 重新打开同一个文件即可恢复所有槽位的状态.
+ * <p>
+ * 槽位的更新使用映射内存上的CAS实现, 不足4字节的槽位通过所在的4字节对齐字进行CAS; 运行环境不支持时退化为分段加锁.
+ * 状态切换成功后按照状态机定义触发处理器, 处理器的附加参数({@link com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams#getAttach()})
+ * 为槽位编号; 合并投递的处理器在整张表内合并, 不区分槽位.
+ * <p>
+ * 打开时启用快照后, 通过 {@link #snapshot()} 可以取得整张表在某一时刻的一致视图, 用于报表、导出等需要读取大量槽位的场景,
+ * 读取快照期间写入不会阻塞.
+ * <p>
+ * 定义中的切换守卫及拦截器作用于 {@link #switchTo(long, Object)}、{@link #compareAndSet(long, Object, Object)} 及批量切换:
+ * 批量切换时守卫对每个源状态执行一次, 被否决的源状态不参与切换; 拦截器对每个切换的槽位回调一次.
+ * 与状态机一致, {@link #switchNextAndGet(long)} 不经过守卫及拦截器.
+ * <p>
+ * 打开时启用占用索引后, 每次CAS切换成功(包括批量切换)时增量更新各状态的槽位数量, 通过 {@link #count(Object)} 以 O(1) 查询.
+ * <p>
+ * 新建的文件中所有槽位均处于定义中的初始状态. 文件头记录了状态的数量、名称摘要、初始状态及槽位格式,
+ * 使用不匹配的定义打开时将抛出 {@link IllegalStateException}. 槽位数据使用本机字节序, 文件不能跨字节序的平台使用.
+ *
+ * <pre>{@code
+ * try (MappedStateTable<DeviceState> table = MappedStateTable.open(definition, path, 100_000_000L)) {
+ *     table.switchTo(deviceId, DeviceState.ONLINE);
+ * }
+ * }</pre>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public final class MappedStateTable<S> implements AutoCloseable {
+
+	private static final int MAGIC = 0x534D5431;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int FLAG_EPOCH = 1;
+	private static final int FLAG_BIG_ENDIAN = 1 << 1;
+	/**
+	 * 每段映射的大小, 单个 {@link MappedByteBuffer} 最大不能超过2G
+	 */
+	private static final int CHUNK_SHIFT = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+	private static final int EPOCH_SHIFT = 16;
+	private static final int INDEX_MASK = 0xFFFF;
+	/**
+	 * 不支持映射内存上的CAS时使用的锁数量
+	 */
+	private static final int LOCK_STRIPES = 64;
+	/**
+	 * 批量切换时每个任务扫描的最大槽位数量
+	 */
+	private static final long TASK_SLOTS = 1 << 16;
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	/**
+	 * 快照写时复制的分块大小(槽位数量)
+	 */
+	private static final int BLOCK_SHIFT = 12;
+	private static final int BLOCK_SLOTS = 1 << BLOCK_SHIFT;
+	/**
+	 * 登记正在进行的写入的位置数量及间隔
+	 */
+	private static final int WRITER_SLOTS = 64;
+	private static final int WRITER_STRIDE = 16;
+
+	private final StateMachineDefinition<S> definition;
+	private final List<S> states;
+	private final StateIndex<S> stateIndex;
+	private final StateMachineContext<S> context;
+	/**
+	 * 切换守卫及拦截器, 未注册时为空
+	 */
+	private final TransitionPipeline<S> pipeline;
+	/**
+	 * 是否注册了拦截器, 批量切换时需要记录每个切换的槽位
+	 */
+	private final boolean intercepted;
+	private final int initialIndex;
+	private final boolean epoch;
+	private final long capacity;
+	/**
+	 * 槽位字节数的对数: 0、1、2 分别对应1、2、4个字节
+	 */
+	private final int slotShift;
+	private final FileChannel channel;
+	/**
+	 * 映射的各段, 同时保证映射在表被回收前不会被解除
+	 */
+	private final MappedByteBuffer[] chunks;
+	/**
+	 * 各段的起始地址, 不支持映射内存上的CAS时为空
+	 */
+	private final long[] addresses;
+	private final Object[] locks;
+	/**
+	 * 当前的写入纪元, 取快照时替换
+	 */
+	private volatile WriteEpoch writeEpoch = new WriteEpoch(null);
+	/**
+	 * 正在进行的写入所处的纪元, 每个线程按编号占用其中一个位置(间隔填充避免伪共享), 不在写入时为空;
+	 * 取快照时据此等待此前开始的写入完成. 未启用快照时为空
+	 */
+	private final AtomicReferenceArray<WriteEpoch> writers;
+	/**
+	 * 占用索引, 即处于各状态的槽位数量, 按状态序号存放; 未启用时为空
+	 */
+	private final LongAdder[] occupancy;
+	private volatile boolean closed;
+
+	/**
+	 * @param existing	文件中已有的槽位数量, 启用占用索引时需要扫描; 其余槽位处于初始状态
+	 */
+	private MappedStateTable(StateMachineDefinition<S> definition, FileChannel channel, long capacity, long existing,
+							 boolean epoch, boolean snapshots, boolean occupancy) throws IOException {
+		this.definition = definition;
+		this.states = definition.getStates();
+		this.stateIndex = StateIndex.of(states);
+		this.context = definition.newContext(definition.getInitialState());
+		this.pipeline = context.pipeline;
+		this.intercepted = pipeline != null && pipeline.interceptors().length != 0;
+		final int initial = definition.getInitialState() == null ? 0 : stateIndex.indexOf(definition.getInitialState());
+		this.initialIndex = Math.max(initial, 0);
+		this.epoch = epoch;
+		this.capacity = capacity;
+		this.slotShift = epoch ? 2 : states.size() <= 0x100 ? 0 : 1;
+		this.channel = channel;
+		this.writers = snapshots ? new AtomicReferenceArray<>(WRITER_SLOTS * WRITER_STRIDE) : null;
+
+		final long size = HEADER_SIZE + (capacity << slotShift);
+		final List<MappedByteBuffer> mapped = new ArrayList<>();
+		for (long start = 0; start < size; start += CHUNK_MASK + 1) {
+			final MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, start,
+					Math.min(CHUNK_MASK + 1, size - start));
+			chunk.order(ByteOrder.nativeOrder());
+			mapped.add(chunk);
+		}
+		this.chunks = mapped.toArray(new MappedByteBuffer[0]);
+		if (MappedMemory.SUPPORTED) {
+			this.addresses = new long[chunks.length];
+			for (int i = 0; i < chunks.length; i++)
+				addresses[i] = MappedMemory.address(chunks[i]);
+			this.locks = null;
+		} else {
+			this.addresses = null;
+			this.locks = new Object[LOCK_STRIPES];
+			for (int i = 0; i < LOCK_STRIPES; i++)
+				locks[i] = new Object();
+		}
+		this.occupancy = occupancy ? countSlots(existing) : null;
+	}
+
+	/**
+	 * 打开或创建状态表, 不记录纪元
+	 *
+	 * @param definition	状态机定义
+	 * @param path			文件路径
+	 * @param capacity		槽位数量, 小于文件中已有的数量时以文件为准
+	 * @param <S>			状态类型
+	 * @return 状态表
+	 * @throws IOException 文件读写失败
+	 * @see #open(StateMachineDefinition, Path, long, boolean)
+	 */
+	public static <S> MappedStateTable<S> open(StateMachineDefinition<S> definition, Path path, long capacity)
+			throws IOException {
+		return open(definition, path, capacity, false);
+	}
+
+	/**
+	 * 打开或创建状态表, 不启用快照
+	 *
+	 * @param definition	状态机定义
+	 * @param path			文件路径
+	 * @param capacity		槽位数量, 小于文件中已有的数量时以文件为准
+	 * @param epoch			是否记录纪元, 必须与已有文件一致
+	 * @param <S>			状态类型
+	 * @return 状态表
+	 * @throws IOException 文件读写失败
+	 * @throws IllegalStateException 文件与状态机定义或槽位格式不匹配
+	 * @see #open(StateMachineDefinition, Path, long, boolean, boolean)
+	 */
+	public static <S> MappedStateTable<S> open(StateMachineDefinition<S> definition, Path path, long capacity,
+											   boolean epoch) throws IOException {
+		return open(definition, path, capacity, epoch, false);
+	}
+
+	/**
+	 * 打开或创建状态表
+	 * <p>
+	 * 文件已存在时校验文件头, 槽位数量不足时扩充文件, 新增的槽位处于初始状态.
+	 *
+	 * @param definition	状态机定义
+	 * @param path			文件路径
+	 * @param capacity		槽位数量, 小于文件中已有的数量时以文件为准
+	 * @param epoch			是否记录纪元, 必须与已有文件一致
+	 * @param snapshots		是否启用快照, 启用后每次写入需要额外登记一次(一次CAS), 不影响文件格式
+	 * @param <S>			状态类型
+	 * @return 状态表
+	 * @throws IOException 文件读写失败
+	 * @throws IllegalStateException 文件与状态机定义或槽位格式不匹配
+	 * @see #open(StateMachineDefinition, Path, long, boolean, boolean, boolean)
+	 */
+	public static <S> MappedStateTable<S> open(StateMachineDefinition<S> definition, Path path, long capacity,
+											   boolean epoch, boolean snapshots) throws IOException {
+		return open(definition, path, capacity, epoch, snapshots, false);
+	}
+
+	/**
+	 * 打开或创建状态表
+	 * <p>
+	 * 文件已存在时校验文件头, 槽位数量不足时扩充文件, 新增的槽位处于初始状态.
+	 * 启用占用索引时, 打开已有的文件需要扫描一次文件中原有的槽位以建立索引.
+	 *
+	 * @param definition	状态机定义
+	 * @param path			文件路径
+	 * @param capacity		槽位数量, 小于文件中已有的数量时以文件为准
+	 * @param epoch			是否记录纪元, 必须与已有文件一致
+	 * @param snapshots		是否启用快照, 启用后每次写入需要额外登记一次(一次CAS), 不影响文件格式
+	 * @param occupancy		是否启用占用索引, 启用后每次切换成功需要额外更新两个计数, 不影响文件格式
+	 * @param <S>			状态类型
+	 * @return 状态表
+	 * @throws IOException 文件读写失败
+	 * @throws IllegalStateException 文件与状态机定义或槽位格式不匹配
+	 * @see #snapshot()
+	 * @see #count(Object)
+	 */
+	public static <S> MappedStateTable<S> open(StateMachineDefinition<S> definition, Path path, long capacity,
+											   boolean epoch, boolean snapshots, boolean occupancy)
+			throws IOException {
+		final List<S> states = definition.getStates();
+		if (states.size() > INDEX_MASK + 1)
+			throw new IllegalArgumentException("Too many states: " + states.size());
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive");
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			final int flags = (epoch ? FLAG_EPOCH : 0) |
+					(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? FLAG_BIG_ENDIAN : 0);
+			final int slotShift = epoch ? 2 : states.size() <= 0x100 ? 0 : 1;
+			final S initialState = definition.getInitialState();
+			final int initialIndex = initialState == null ? 0 : Math.max(states.indexOf(initialState), 0);
+			final int digest = digest(states);
+			long slots = capacity, existing = 0;
+			if (channel.size() >= HEADER_SIZE) {
+				channel.read(header, 0);
+				header.flip();
+				if (header.getInt() != MAGIC || header.getInt() != VERSION)
+					throw new IllegalStateException("Not a state table: " + path);
+				if (header.getInt() != slotShift || header.getInt() != flags)
+					throw new IllegalStateException("Slot format mismatch: " + path);
+				existing = header.getLong();
+				if (header.getInt() != states.size() || header.getInt() != digest || header.getInt() != initialIndex)
+					throw new IllegalStateException("State definition mismatch: " + path);
+				slots = Math.max(existing, capacity);
+			} else if (channel.size() != 0) {
+				throw new IllegalStateException("Not a state table: " + path);
+			}
+			if (slots > (Long.MAX_VALUE - HEADER_SIZE) >> slotShift)
+				throw new IllegalArgumentException("capacity too large: " + capacity);
+
+			header.clear();
+			header.putInt(MAGIC).putInt(VERSION).putInt(slotShift).putInt(flags).putLong(slots)
+					.putInt(states.size()).putInt(digest).putInt(initialIndex);
+			header.clear();
+			channel.write(header, 0);
+			// 稀疏扩充, 未写入的区域读取为0即初始状态
+			final long size = HEADER_SIZE + (slots << slotShift);
+			if (channel.size() < size)
+				channel.write(ByteBuffer.allocate(1), size - 1);
+			return new MappedStateTable<>(definition, channel, slots, existing, epoch, snapshots, occupancy);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 获取槽位的当前状态
+	 *
+	 * @param slot	槽位编号
+	 * @return 当前状态
+	 */
+	public S current(long slot) {
+		return states.get(indexOf(load(checkSlot(slot))));
+	}
+
+	/**
+	 * 获取槽位的纪元, 未开启纪元时总是返回0
+	 *
+	 * @param slot	槽位编号
+	 * @return 纪元
+	 */
+	public int epoch(long slot) {
+		return epoch ? load(checkSlot(slot)) >>> EPOCH_SHIFT : 0;
+	}
+
+	/**
+	 * 切换槽位至指定状态, 并触发处理器
+	 *
+	 * @param slot	槽位编号
+	 * @param state	新的状态
+	 * @return 切换成功返回真; 状态不存在或已处于该状态时返回假
+	 */
+	public boolean switchTo(long slot, S state) {
+		return switchTo(slot, state, true);
+	}
+
+	/**
+	 * 切换槽位至指定状态
+	 *
+	 * @param slot				槽位编号
+	 * @param state				新的状态
+	 * @param invokeHandlers	是否触发处理器
+	 * @return 切换成功返回真; 状态不存在或已处于该状态时返回假
+	 */
+	public boolean switchTo(long slot, S state, boolean invokeHandlers) {
+		final int target = stateIndex.indexOf(state);
+		if (target == -1)
+			return false;
+		checkSlot(slot);
+		if (pipeline != null)
+			return switchGuarded(slot, target, invokeHandlers);
+		int raw, from;
+		final int writer = enter();
+		final WriteEpoch epoch = announced(writer);
+		try {
+			do {
+				raw = load(slot);
+				if ((from = indexOf(raw)) == target)
+					return false;
+			} while (!compareAndSwap(epoch, slot, raw, encode(target, raw)));
+		} finally {
+			exit(writer);
+		}
+		occupied(from, target, 1);
+		if (invokeHandlers)
+			dispatch(slot, from, target);
+		return true;
+	}
+
+	/**
+	 * 存在守卫或拦截器时切换槽位至指定状态
+	 * <p>
+	 * 每次CAS之前以读取到的源状态执行守卫, 被否决时直接返回; CAS失败说明源状态已被修改, 以新的源状态重新执行守卫.
+	 * 守卫在写入纪元之外执行, 不会拖延取快照的线程.
+	 */
+	private boolean switchGuarded(long slot, int target, boolean invokeHandlers) {
+		final S state = states.get(target);
+		int raw, from;
+		for (;;) {
+			raw = load(slot);
+			if ((from = indexOf(raw)) == target ||
+					!pipeline.allow(states.get(from), state))
+				return false;
+			final int writer = enter();
+			try {
+				if (compareAndSwap(announced(writer), slot, raw, encode(target, raw)))
+					break;
+			} finally {
+				exit(writer);
+			}
+		}
+		occupied(from, target, 1);
+		if (invokeHandlers)
+			dispatch(slot, from, target);
+		pipeline.committed(states.get(from), state);
+		return true;
+	}
+
+	/**
+	 * 槽位处于期望的状态时切换至新的状态, 并触发处理器
+	 *
+	 * @param slot			槽位编号
+	 * @param expectedValue	期望的状态
+	 * @param newValue		新的状态
+	 * @return 切换成功返回真
+	 */
+	public boolean compareAndSet(long slot, S expectedValue, S newValue) {
+		final int expected = stateIndex.indexOf(expectedValue);
+		final int target = stateIndex.indexOf(newValue);
+		if (expected == -1 || target == -1)
+			return false;
+		checkSlot(slot);
+		// 源状态已确定, 守卫在CAS之前执行一次; 槽位状态与期望值不一致时无需执行守卫
+		if (pipeline != null && expected != target &&
+				(indexOf(load(slot)) != expected || !pipeline.allow(expectedValue, newValue)))
+			return false;
+		int raw;
+		final int writer = enter();
+		final WriteEpoch epoch = announced(writer);
+		try {
+			do {
+				raw = load(slot);
+				if (indexOf(raw) != expected)
+					return false;
+				if (expected == target)
+					return true;
+			} while (!compareAndSwap(epoch, slot, raw, encode(target, raw)));
+		} finally {
+			exit(writer);
+		}
+		occupied(expected, target, 1);
+		dispatch(slot, expected, target);
+		if (pipeline != null)
+			pipeline.committed(expectedValue, newValue);
+		return true;
+	}
+
+	/**
+	 * 切换槽位至下一个状态(最后一个状态的下一个为第一个), 并触发处理器
+	 *
+	 * @param slot	槽位编号
+	 * @return 切换后的状态
+	 */
+	public S switchNextAndGet(long slot) {
+		checkSlot(slot);
+		int raw, from, target;
+		final int writer = enter();
+		final WriteEpoch epoch = announced(writer);
+		try {
+			do {
+				raw = load(slot);
+				from = indexOf(raw);
+				target = from == states.size() - 1 ? 0 : from + 1;
+			} while (!compareAndSwap(epoch, slot, raw, encode(target, raw)));
+		} finally {
+			exit(writer);
+		}
+		occupied(from, target, 1);
+		dispatch(slot, from, target);
+		return states.get(target);
+	}
+
+	/**
+	 * 将所有处于指定状态的槽位切换至新的状态, 并触发处理器
+	 *
+	 * @param from	源状态
+	 * @param to	目的状态
+	 * @return 切换的槽位数量
+	 * @see #transitionAll(Object, Object, boolean, ForkJoinPool)
+	 */
+	public long transitionAll(S from, S to) {
+		return transitionAll(from, to, true, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 将所有处于指定状态的槽位切换至新的状态
+	 * <p>
+	 * 槽位按固定大小分块, 在指定的线程池中并行扫描, 每个槽位单独通过CAS切换; 每个分块扫描完成后再依次触发该分块内切换的处理器,
+	 * 没有注册处理器及拦截器的切换不会记录. 扫描期间其他线程对单个槽位的切换照常进行, 切换以CAS成功时的状态为准.
+	 * 处理器或拦截器抛出异常时已完成的切换不会回滚, 其余槽位的处理器及拦截器照常触发;
+	 * 所有分块结束后抛出第一个异常, 其余异常作为被抑制的异常附加在其上.
+	 *
+	 * @param from				源状态
+	 * @param to				目的状态
+	 * @param invokeHandlers	是否触发处理器
+	 * @param pool				执行扫描的线程池
+	 * @return 切换的槽位数量
+	 */
+	public long transitionAll(S from, S to, boolean invokeHandlers, ForkJoinPool pool) {
+		final int index = stateIndex.indexOf(from);
+		if (index == -1)
+			return 0;
+		final boolean[] matches = new boolean[states.size()];
+		matches[index] = true;
+		return transition(matches, to, invokeHandlers, pool);
+	}
+
+	/**
+	 * 将所有状态满足条件的槽位切换至新的状态, 并触发处理器
+	 *
+	 * @param predicate	状态需满足的条件, 每个状态仅判断一次
+	 * @param to		目的状态
+	 * @return 切换的槽位数量
+	 * @see #transitionAll(Object, Object, boolean, ForkJoinPool)
+	 */
+	public long transitionWhere(Predicate<? super S> predicate, S to) {
+		return transitionWhere(predicate, to, true, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 将所有状态满足条件的槽位切换至新的状态, 扫描方式与 {@link #transitionAll(Object, Object, boolean, ForkJoinPool)} 一致
+	 *
+	 * @param predicate			状态需满足的条件, 每个状态仅判断一次
+	 * @param to				目的状态
+	 * @param invokeHandlers	是否触发处理器
+	 * @param pool				执行扫描的线程池
+	 * @return 切换的槽位数量
+	 */
+	public long transitionWhere(Predicate<? super S> predicate, S to, boolean invokeHandlers, ForkJoinPool pool) {
+		final boolean[] matches = new boolean[states.size()];
+		for (int i = 0; i < matches.length; i++)
+			matches[i] = predicate.test(states.get(i));
+		return transition(matches, to, invokeHandlers, pool);
+	}
+
+	/**
+	 * 取得整张表在当前时刻的一致快照
+	 * <p>
+	 * 快照不复制槽位: 取快照时替换写入纪元, 等待此前开始的写入完成后即为快照的时刻; 此后的写入在修改某个分块
+	 * ({@value #BLOCK_SLOTS} 个槽位)前先保留该分块在快照时刻的内容, 每个分块在每个快照中最多复制一次.
+	 * 读取快照时未被修改的分块直接读取映射内存, 读取后确认期间没有被保留, 否则改为读取保留的内容.
+	 * <p>
+	 * 取快照的线程需要等待正在进行的写入(包括批量切换中的单个分块)完成, 这段时间内首次修改某个分块的写入同样需要等待,
+	 * 否则复制的内容可能缺少此前开始的写入; 快照返回后写入方不会因读取快照而阻塞, 仅在首次修改某个分块时复制一次.
+	 * 同一时刻只能存在一个快照, 快照使用完毕后应当关闭, 此后的写入不再复制分块.
+	 *
+	 * @return 快照
+	 * @throws IllegalStateException 表已关闭、未启用快照或已存在未关闭的快照
+	 */
+	public synchronized Snapshot<S> snapshot() {
+		if (closed)
+			throw new IllegalStateException("State table closed");
+		if (writers == null)
+			throw new IllegalStateException("Snapshots not enabled");
+		if (writeEpoch.snapshot != null)
+			throw new IllegalStateException("Another snapshot is open");
+		final Snapshot<S> snapshot = new Snapshot<>(this);
+		final WriteEpoch current = writeEpoch = new WriteEpoch(snapshot);
+		// 此后进入的写入均会保留分块, 等待此前进入的写入(包括仍处于更早纪元的写入)完成
+		for (int i = 0; i < writers.length(); i += WRITER_STRIDE) {
+			WriteEpoch epoch;
+			for (int attempt = 0; (epoch = writers.get(i)) != null && epoch != current; attempt++)
+				Backoff.pause(attempt);
+		}
+		snapshot.sealed = true;
+		return snapshot;
+	}
+
+	/**
+	 * 槽位数量
+	 *
+	 * @return 槽位数量
+	 */
+	public long capacity() {
+		return capacity;
+	}
+
+	/**
+	 * 处于指定状态的槽位数量, 由占用索引维护, 无需扫描
+	 * <p>
+	 * 计数在CAS成功后更新, 切换进行中查询时可能暂时反映切换前的状态; 所有切换完成后与槽位的状态精确一致.
+	 *
+	 * @param state	状态
+	 * @return 槽位数量, 状态不存在时返回0
+	 * @throws IllegalStateException 打开时未启用占用索引
+	 * @see #open(StateMachineDefinition, Path, long, boolean, boolean, boolean)
+	 */
+	public long count(S state) {
+		if (occupancy == null)
+			throw new IllegalStateException("Occupancy index not enabled");
+		final int index = stateIndex.indexOf(state);
+		return index == -1 ? 0 : occupancy[index].sum();
+	}
+
+	public StateMachineDefinition<S> getDefinition() {
+		return definition;
+	}
+
+	/**
+	 * 将修改写回文件
+	 */
+	public void force() {
+		for (MappedByteBuffer chunk : chunks)
+			chunk.force();
+	}
+
+	/**
+	 * 写回修改并关闭文件; 定义未指定执行器时同时关闭为本表创建的执行器
+	 * <p>
+	 * 映射的内存在表对象被回收后才会解除映射.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		force();
+		channel.close();
+		if (definition.getExecutor() == null && context.executor instanceof ExecutorService)
+			((ExecutorService) context.executor).shutdown();
+	}
+
+	private long transition(boolean[] matches, S to, boolean invokeHandlers, ForkJoinPool pool) {
+		final int target = stateIndex.indexOf(to);
+		if (target == -1)
+			return 0;
+		checkSlot(0);
+		matches[target] = false;
+		final boolean[] stored = new boolean[INDEX_MASK + 1];
+		final boolean[] dispatch = new boolean[states.size()];
+		int single = -1, count = 0;
+		for (int i = 0; i < matches.length; i++) {
+			// 守卫对每个源状态执行一次
+			if (!matches[i] ||
+					(pipeline != null && !pipeline.allow(states.get(i), to)))
+				continue;
+			single = store(i);
+			stored[single] = true;
+			dispatch[i] = invokeHandlers && HandlerInvocationDelegate.hasHandlers(context, states.get(i), to);
+			count++;
+		}
+		if (count == 0)
+			return 0;
+		final TransitionTask task = new TransitionTask(0, capacity, stored, count == 1 ? single : -1, target, dispatch);
+		final long transitioned = pool.invoke(task);
+		task.rethrow();
+		return transitioned;
+	}
+
+	/**
+	 * 关闭快照, 此后的写入不再保留分块
+	 */
+	private synchronized void release(Snapshot<S> snapshot) {
+		if (writeEpoch.snapshot == snapshot)
+			writeEpoch = new WriteEpoch(null);
+	}
+
+	/**
+	 * 进入当前的写入纪元, 修改槽位前调用, 修改完毕后清空返回的位置
+	 * <p>
+	 * 占用位置的CAS保证登记先于读取纪元对取快照的线程可见; 登记后纪元已被替换时,
+	 * 取快照的线程可能没有等待本次写入, 改为登记新的纪元.
+	 *
+	 * @return 登记的位置, 未启用快照时返回-1
+	 */
+	private int enter() {
+		if (writers == null)
+			return -1;
+		int index = ((int) Thread.currentThread().getId() & (WRITER_SLOTS - 1)) * WRITER_STRIDE;
+		WriteEpoch epoch = writeEpoch;
+		// 位置被其他线程占用时依次尝试下一个位置
+		for (int attempt = 0; !writers.compareAndSet(index, null, epoch); attempt++) {
+			index = (index + WRITER_STRIDE) % writers.length();
+			if (attempt >= WRITER_SLOTS)
+				Backoff.pause(attempt - WRITER_SLOTS);
+			epoch = writeEpoch;
+		}
+		while (writeEpoch != epoch)
+			writers.set(index, epoch = writeEpoch);
+		return index;
+	}
+
+	private WriteEpoch announced(int writer) {
+		return writer < 0 ? writeEpoch : writers.get(writer);
+	}
+
+	private void exit(int writer) {
+		if (writer >= 0)
+			writers.lazySet(writer, null);
+	}
+
+	/**
+	 * 读取分块在当前时刻的内容
+	 */
+	private int[] copyBlock(int block) {
+		final long start = (long) block << BLOCK_SHIFT;
+		final int[] copy = new int[(int) Math.min(BLOCK_SLOTS, capacity - start)];
+		for (int i = 0; i < copy.length; i++)
+			copy[i] = load(start + i);
+		return copy;
+	}
+
+	/**
+	 * 扫描文件中已有的槽位建立占用索引, 其余槽位计入初始状态
+	 */
+	private LongAdder[] countSlots(long existing) {
+		final long[] counts = new long[states.size()];
+		for (long slot = 0; slot < existing; slot++)
+			counts[indexOf(load(slot))]++;
+		counts[initialIndex] += capacity - existing;
+		final LongAdder[] adders = new LongAdder[counts.length];
+		for (int i = 0; i < adders.length; i++) {
+			adders[i] = new LongAdder();
+			adders[i].add(counts[i]);
+		}
+		return adders;
+	}
+
+	/**
+	 * CAS切换成功后更新占用索引
+	 */
+	private void occupied(int from, int to, int slots) {
+		if (occupancy == null)
+			return;
+		occupancy[from].add(-slots);
+		occupancy[to].add(slots);
+	}
+
+	private void dispatch(long slot, int from, int to) {
+		HandlerInvocationDelegate.invokeHandlers(context, states.get(from), states.get(to), null, slot);
+	}
+
+	private long checkSlot(long slot) {
+		if (closed)
+			throw new IllegalStateException("State table closed");
+		if (slot < 0 || slot >= capacity)
+			throw new IndexOutOfBoundsException("slot: " + slot);
+		return slot;
+	}
+
+	/**
+	 * 槽位中存放的值为 0 时表示初始状态, 因此将初始状态与序号0的状态互换后存放
+	 */
+	private int indexOf(int raw) {
+		final int stored = raw & INDEX_MASK;
+		return stored == 0 ? initialIndex : stored == initialIndex ? 0 : stored;
+	}
+
+	private int store(int index) {
+		return index == initialIndex ? 0 : index == 0 ? initialIndex : index;
+	}
+
+	private int encode(int index, int raw) {
+		final int stored = store(index);
+		if (!epoch)
+			return stored;
+		return ((((raw >>> EPOCH_SHIFT) + 1) & INDEX_MASK) << EPOCH_SHIFT) | stored;
+	}
+
+	private long address(long slot) {
+		final long offset = HEADER_SIZE + (slot << slotShift);
+		return addresses[(int) (offset >>> CHUNK_SHIFT)] + (offset & CHUNK_MASK);
+	}
+
+	private int load(long slot) {
+		final long offset = HEADER_SIZE + (slot << slotShift);
+		final int chunk = (int) (offset >>> CHUNK_SHIFT);
+		final int position = (int) (offset & CHUNK_MASK);
+		if (addresses != null) {
+			final long address = addresses[chunk] + position;
+			switch (slotShift) {
+				case 0:
+					return MappedMemory.getByteVolatile(address) & 0xFF;
+				case 1:
+					return MappedMemory.getShortVolatile(address) & 0xFFFF;
+				default:
+					return MappedMemory.getIntVolatile(address);
+			}
+		}
+		synchronized (locks[(int) (slot & (LOCK_STRIPES - 1))]) {
+			return get(chunks[chunk], position);
+		}
+	}
+
+	/**
+	 * 存在快照时先保留槽位所在的分块, 再修改槽位
+	 */
+	private boolean compareAndSwap(WriteEpoch epoch, long slot, int expected, int value) {
+		if (epoch.snapshot != null)
+			epoch.snapshot.preserve(slot);
+		return compareAndSwap(slot, expected, value);
+	}
+
+	private boolean compareAndSwap(long slot, int expected, int value) {
+		final long offset = HEADER_SIZE + (slot << slotShift);
+		final int chunk = (int) (offset >>> CHUNK_SHIFT);
+		final int position = (int) (offset & CHUNK_MASK);
+		if (addresses == null) {
+			synchronized (locks[(int) (slot & (LOCK_STRIPES - 1))]) {
+				final ByteBuffer buffer = chunks[chunk];
+				if (get(buffer, position) != expected)
+					return false;
+				if (slotShift == 0)
+					buffer.put(position, (byte) value);
+				else if (slotShift == 1)
+					buffer.putShort(position, (short) value);
+				else
+					buffer.putInt(position, value);
+				return true;
+			}
+		}
+		final long address = addresses[chunk] + position;
+		if (slotShift == 2)
+			return MappedMemory.compareAndSwapInt(address, expected, value);
+
+		// 对所在的4字节对齐字做CAS, 映射的起始地址按页对齐, 对齐字不会跨段
+		final long word = address & ~3L;
+		final int bytes = 1 << slotShift;
+		final int shift = (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ?
+				(int) (address - word) : 4 - bytes - (int) (address - word)) << 3;
+		final int mask = ((1 << (bytes << 3)) - 1) << shift;
+		for (;;) {
+			final int current = MappedMemory.getIntVolatile(word);
+			if ((current & mask) >>> shift != expected)
+				return false;
+			if (MappedMemory.compareAndSwapInt(word, current, (current & ~mask) | (value << shift)))
+				return true;
+		}
+	}
+
+	private int get(ByteBuffer buffer, int position) {
+		switch (slotShift) {
+			case 0:
+				return buffer.get(position) & 0xFF;
+			case 1:
+				return buffer.getShort(position) & 0xFFFF;
+			default:
+				return buffer.getInt(position);
+		}
+	}
+
+	/**
+	 * 8个字节中是否存在指定的字节
+	 */
+	private static boolean containsByte(long word, int value) {
+		final long x = word ^ (value * 0x0101010101010101L);
+		return ((x - 0x0101010101010101L) & ~x & 0x8080808080808080L) != 0;
+	}
+
+	private static int digest(List<?> states) {
+		int h = 1;
+		for (Object state : states)
+			h = 31 * h + String.valueOf(state).hashCode();
+		return h;
+	}
+
+	/**
+	 * 批量切换的扫描任务, 按槽位范围二分直至不超过 {@link #TASK_SLOTS}
+	 */
+	private final class TransitionTask extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long start;
+		private final long end;
+		/**
+		 * 需要切换的槽位值
+		 */
+		private final boolean[] stored;
+		/**
+		 * 仅有一个需要切换的槽位值时为该值, 否则为 -1
+		 */
+		private final int single;
+		private final int target;
+		/**
+		 * 需要触发处理器的源状态
+		 */
+		private final boolean[] dispatch;
+		/**
+		 * 需要触发处理器或回调拦截器的槽位及其源状态, 扫描完成后依次触发
+		 */
+		private long[] slots;
+		private int[] froms;
+		private int size;
+		/**
+		 * 本分块及其子分块中按槽位顺序抛出的异常, 没有异常时为空; 由最外层的调用方抛出, 避免跨线程合并时异常被复制
+		 */
+		private List<Throwable> failures;
+
+		TransitionTask(long start, long end, boolean[] stored, int single, int target, boolean[] dispatch) {
+			this.start = start;
+			this.end = end;
+			this.stored = stored;
+			this.single = single;
+			this.target = target;
+			this.dispatch = dispatch;
+		}
+
+		@Override
+		protected Long compute() {
+			if (end - start > TASK_SLOTS) {
+				final long middle = ((start + end) >>> 1) & ~7L;
+				final TransitionTask left = new TransitionTask(start, middle, stored, single, target, dispatch);
+				left.fork();
+				final TransitionTask right = new TransitionTask(middle, end, stored, single, target, dispatch);
+				final long transitioned = right.compute() + left.join();
+				if (left.failures == null)
+					failures = right.failures;
+				else {
+					failures = left.failures;
+					if (right.failures != null)
+						failures.addAll(right.failures);
+				}
+				return transitioned;
+			}
+			try {
+				return scan();
+			} catch (Throwable t) {
+				failed(t);
+				return 0L;
+			}
+		}
+
+		private long scan() {
+			// 整个分块的扫描处于同一个写入纪元
+			final int writer = enter();
+			final long transitioned;
+			try {
+				transitioned = scan(announced(writer).snapshot);
+			} finally {
+				exit(writer);
+			}
+			for (int i = 0; i < size; i++) {
+				if (dispatch[froms[i]]) {
+					try {
+						MappedStateTable.this.dispatch(slots[i], froms[i], target);
+					} catch (Throwable t) {
+						failed(t);
+					}
+				}
+				if (intercepted) {
+					try {
+						pipeline.committed(states.get(froms[i]), states.get(target));
+					} catch (Throwable t) {
+						failed(t);
+					}
+				}
+			}
+			return transitioned;
+		}
+
+		/**
+		 * 抛出第一个异常, 其余异常作为被抑制的异常附加在其上; 在所有分块结束后调用
+		 */
+		void rethrow() {
+			if (failures == null)
+				return;
+			final Throwable failure = failures.get(0);
+			for (int i = 1; i < failures.size(); i++) {
+				if (failures.get(i) != failure)
+					failure.addSuppressed(failures.get(i));
+			}
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+			throw new IllegalStateException(failure);
+		}
+
+		private void failed(Throwable t) {
+			if (failures == null)
+				failures = new ArrayList<>();
+			failures.add(t);
+		}
+
+		/**
+		 * @param snapshot	当前的快照, 修改槽位前需要保留所在的分块; 没有快照时为空
+		 */
+		private long scan(Snapshot<?> snapshot) {
+			// 单字节槽位且仅匹配一个值时, 每次处理对齐的8个槽位: 不包含该值时整体跳过, 否则整体替换后CAS
+			final boolean packed = single >= 0 && slotShift == 0 && addresses != null;
+			long transitioned = 0;
+			for (long slot = start; slot < end; slot++) {
+				if (packed && (slot & 7) == 0 && slot + 8 <= end) {
+					transitioned += transitionWord(snapshot, slot);
+					slot += 7;
+					continue;
+				}
+				int raw = load(slot);
+				while (stored[raw & INDEX_MASK]) {
+					if (snapshot != null)
+						snapshot.preserve(slot);
+					if (compareAndSwap(slot, raw, encode(target, raw))) {
+						transitioned++;
+						occupied(indexOf(raw), target, 1);
+						record(slot, indexOf(raw));
+						break;
+					}
+					raw = load(slot);
+				}
+			}
+			return transitioned;
+		}
+
+		/**
+		 * 切换从指定槽位开始的8个单字节槽位
+		 *
+		 * @return 切换的槽位数量
+		 */
+		private int transitionWord(Snapshot<?> snapshot, long slot) {
+			final long address = address(slot);
+			final long replacement = store(target);
+			long word, updated;
+			int matched;
+			do {
+				word = MappedMemory.getLongVolatile(address);
+				if (!containsByte(word, single))
+					return 0;
+				// 对齐的8个槽位不会跨越分块
+				if (snapshot != null)
+					snapshot.preserve(slot);
+				updated = word;
+				matched = 0;
+				for (int i = 0; i < 8; i++) {
+					final int shift = i << 3;
+					if ((int) (word >>> shift & 0xFF) == single) {
+						updated = updated & ~(0xFFL << shift) | replacement << shift;
+						matched |= 1 << i;
+					}
+				}
+			} while (!MappedMemory.compareAndSwapLong(address, word, updated));
+			final int from = indexOf(single);
+			occupied(from, target, Integer.bitCount(matched));
+			if (dispatch[from] || intercepted) {
+				for (int i = 0; i < 8; i++) {
+					if ((matched & 1 << i) != 0)
+						record(slot + (LITTLE_ENDIAN ? i : 7 - i), from);
+				}
+			}
+			return Integer.bitCount(matched);
+		}
+
+		private void record(long slot, int from) {
+			if (!dispatch[from] && !intercepted)
+				return;
+			if (slots == null) {
+				slots = new long[64];
+				froms = new int[64];
+			} else if (size == slots.length) {
+				slots = Arrays.copyOf(slots, size << 1);
+				froms = Arrays.copyOf(froms, size << 1);
+			}
+			slots[size] = slot;
+			froms[size++] = from;
+		}
+	}
+
+	/**
+	 * 写入纪元, 每次取快照及关闭快照时替换
+	 */
+	private static final class WriteEpoch {
+
+		/**
+		 * 该纪元对应的快照, 没有快照时为空
+		 */
+		private final Snapshot<?> snapshot;
+
+		WriteEpoch(Snapshot<?> snapshot) {
+			this.snapshot = snapshot;
+		}
+	}
+
+	/**
+	 * 状态表的一致快照
+	 * <p>
+	 * 反映取快照时刻所有槽位的状态, 不受此后切换的影响; 读取方法均不加锁, 可以由多个线程同时读取.
+	 * {@link #forEach(ObjLongConsumer)} 按槽位顺序逐个分块读取, 除被修改的分块外不复制槽位, 适合流式导出.
+	 * 快照关闭后不能再读取.
+	 *
+	 * @param <S>	状态类型
+	 * @see MappedStateTable#snapshot()
+	 */
+	public static final class Snapshot<S> implements AutoCloseable {
+
+		private final MappedStateTable<S> table;
+		/**
+		 * 被修改前保留的分块, 未被修改的分块为空
+		 */
+		private final AtomicReferenceArray<int[]> preserved;
+		private final AtomicInteger preservedBlocks = new AtomicInteger();
+		/**
+		 * 取快照前开始的写入是否均已完成
+		 */
+		private volatile boolean sealed;
+		private volatile boolean closed;
+
+		private Snapshot(MappedStateTable<S> table) {
+			this.table = table;
+			this.preserved = new AtomicReferenceArray<>((int) ((table.capacity + BLOCK_SLOTS - 1) >>> BLOCK_SHIFT));
+		}
+
+		/**
+		 * 获取槽位在快照时刻的状态
+		 *
+		 * @param slot	槽位编号
+		 * @return 状态
+		 */
+		public S get(long slot) {
+			return table.states.get(table.indexOf(raw(checkSlot(slot))));
+		}
+
+		/**
+		 * 获取槽位在快照时刻的纪元, 未开启纪元时总是返回0
+		 *
+		 * @param slot	槽位编号
+		 * @return 纪元
+		 */
+		public int epoch(long slot) {
+			return table.epoch ? raw(checkSlot(slot)) >>> EPOCH_SHIFT : 0;
+		}
+
+		/**
+		 * 按槽位顺序遍历所有槽位
+		 *
+		 * @param action	接收状态及槽位编号
+		 */
+		public void forEach(ObjLongConsumer<? super S> action) {
+			forEach(0, table.capacity, action);
+		}
+
+		/**
+		 * 按槽位顺序遍历指定范围内的槽位
+		 * <p>
+		 * 每次读取一个分块至复用的缓冲区, 确认该分块未被保留后再交给调用方, 否则改用保留的内容.
+		 *
+		 * @param from		起始槽位(包含)
+		 * @param to		结束槽位(不包含)
+		 * @param action	接收状态及槽位编号
+		 */
+		public void forEach(long from, long to, ObjLongConsumer<? super S> action) {
+			if (from < 0 || to > table.capacity || from > to)
+				throw new IndexOutOfBoundsException("range: [" + from + ", " + to + ")");
+			checkOpen();
+			final List<S> states = table.states;
+			final int[] buffer = new int[BLOCK_SLOTS];
+			for (long start = from; start < to; ) {
+				final int block = (int) (start >>> BLOCK_SHIFT);
+				final long blockStart = (long) block << BLOCK_SHIFT;
+				final int offset = (int) (start - blockStart);
+				final int length = (int) (Math.min(to, blockStart + BLOCK_SLOTS) - start);
+				int[] values = preserved.get(block);
+				int base = offset;
+				if (values == null) {
+					for (int i = 0; i < length; i++)
+						buffer[i] = table.load(start + i);
+					// 读取期间该分块被修改过时, 读取到的值可能包含快照之后的写入
+					if ((values = preserved.get(block)) == null) {
+						values = buffer;
+						base = 0;
+					}
+				}
+				for (int i = 0; i < length; i++)
+					action.accept(states.get(table.indexOf(values[base + i])), start + i);
+				start += length;
+			}
+		}
+
+		/**
+		 * 统计快照时刻处于指定状态的槽位数量
+		 *
+		 * @param state	状态
+		 * @return 槽位数量
+		 */
+		public long count(S state) {
+			final long[] count = new long[1];
+			forEach((s, slot) -> {
+				if (Objects.equals(s, state))
+					count[0]++;
+			});
+			return count[0];
+		}
+
+		/**
+		 * 槽位数量
+		 *
+		 * @return 槽位数量
+		 */
+		public long capacity() {
+			return table.capacity;
+		}
+
+		/**
+		 * 快照期间被修改而保留的分块数量
+		 *
+		 * @return 分块数量
+		 */
+		public int getPreservedBlocks() {
+			return preservedBlocks.get();
+		}
+
+		/**
+		 * 关闭快照, 此后的写入不再复制分块
+		 */
+		@Override
+		public void close() {
+			if (closed)
+				return;
+			closed = true;
+			table.release(this);
+		}
+
+		/**
+		 * 在修改槽位前保留所在分块在快照时刻的内容
+		 * <p>
+		 * 分块只有在保留后才会被修改, 因此最先完成保留的副本一定是快照时刻的内容; 多个线程同时复制时仅保留一份.
+		 * 取快照前开始的写入尚未完成时, 等待其完成后再复制.
+		 */
+		void preserve(long slot) {
+			final int block = (int) (slot >>> BLOCK_SHIFT);
+			if (preserved.get(block) != null)
+				return;
+			for (int attempt = 0; !sealed; attempt++)
+				Backoff.pause(attempt);
+			if (preserved.compareAndSet(block, null, table.copyBlock(block)))
+				preservedBlocks.incrementAndGet();
+		}
+
+		private int raw(long slot) {
+			final int block = (int) (slot >>> BLOCK_SHIFT);
+			int[] values = preserved.get(block);
+			if (values == null) {
+				final int raw = table.load(slot);
+				if ((values = preserved.get(block)) == null)
+					return raw;
+			}
+			return values[(int) (slot & (BLOCK_SLOTS - 1))];
+		}
+
+		private long checkSlot(long slot) {
+			checkOpen();
+			if (slot < 0 || slot >= table.capacity)
+				throw new IndexOutOfBoundsException("slot: " + slot);
+			return slot;
+		}
+
+		private void checkOpen() {
+			if (closed)
+				throw new IllegalStateException("Snapshot closed");
+			if (table.closed)
+				throw new IllegalStateException("State table closed");
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package com.serliunx.statemanagement.machine;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 多状态机事务
+ * <p>
+ * 将多个状态机上的切换作为一个整体提交: 要么全部生效, 要么全部不生效. 提交时按状态机的全局编号顺序依次锁定各状态机,
+ * 基于锁实现的状态机获取写锁, 并发型状态机通过CAS将状态序号替换为预留标记; 所有参与者使用同一个全局顺序,
+ * 因此多个事务之间不会产生死锁, 涉及的状态机互不相交时也不会相互等待.
+ * <p>
+ * 锁定全部状态机后按登记顺序执行各状态机的事务逻辑, 任一逻辑抛出异常或任一前置条件不满足时解除锁定并放弃全部切换;
+ * 否则一次性更新所有状态机的状态, 在解除所有锁定后按登记顺序触发处理器.
+ * <p>
+ * 可以使用 {@link StateMachineRegistry#get(Object)} 返回的句柄登记, 提交时才确定实际的状态机, 提交期间不会被钝化或迁移;
+ * 指向同一个状态机的多个句柄视为同一个参与者.
+ * <p>
+ * 注意:
+ * <ul>
+ *     <li> 事务逻辑执行期间只能通过事务对象操作状态机, 直接调用状态机的切换方法可能导致死锁
+ *     <li> 不要在持有状态机写锁的处理器中提交涉及其他状态机的事务
+ * </ul>
+ *
+ * <pre>{@code
+ * boolean committed = StateMachines.atomically()
+ *         .expect(order, OrderState.PAID)
+ *         .switchTo(order, OrderState.SHIPPED)
+ *         .switchTo(shipment, ShipmentState.IN_TRANSIT)
+ *         .commit();
+ * }</pre>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see com.serliunx.statemanagement.machine.support.StateMachines#atomically()
+ */
+public final class MultiStateMachineTransaction {
+
+    /**
+     * 放弃事务, 不记录堆栈
+     */
+    private static final RuntimeException ABORT = new RuntimeException("abort", null, false, false) {};
+
+    /**
+     * 登记的事务逻辑, 按登记顺序排列; 句柄在提交时才确定实际的状态机
+     */
+    private final List<Registration<?>> registrations = new ArrayList<>();
+    private BatchDispatchMode mode = BatchDispatchMode.PER_STEP;
+    private boolean committed;
+
+    private MultiStateMachineTransaction() {}
+
+    /**
+     * 开始一个多状态机事务
+     *
+     * @return 多状态机事务
+     */
+    public static MultiStateMachineTransaction begin() {
+        return new MultiStateMachineTransaction();
+    }
+
+    /**
+     * 登记状态机的事务逻辑, 同一状态机登记的多段逻辑按顺序作用于同一个状态副本
+     *
+     * @param machine       状态机
+     * @param transaction   事务逻辑
+     * @param <S>           状态类型
+     * @return 当前对象, 链式调用
+     */
+    public <S> MultiStateMachineTransaction transaction(StateMachine<S> machine,
+                                                        Consumer<StateTransaction<S>> transaction) {
+        if (transaction == null)
+            throw new NullPointerException();
+        if (committed)
+            throw new IllegalStateException("Transaction already committed");
+        if (!(machine instanceof AbstractStateMachine) && !(machine instanceof StateMachineHandle))
+            throw new IllegalArgumentException("Unsupported state machine: " + machine);
+        registrations.add(new Registration<>(machine, transaction));
+        return this;
+    }
+
+    /**
+     * 登记切换, 状态不存在时放弃整个事务; 与当前状态一致时忽略
+     *
+     * @param machine   状态机
+     * @param state     新的状态
+     * @param <S>       状态类型
+     * @return 当前对象, 链式调用
+     */
+    public <S> MultiStateMachineTransaction switchTo(StateMachine<S> machine, S state) {
+        return transaction(machine, tx -> {
+            if (!tx.switchTo(state) && !Objects.equals(tx.current(), state))
+                throw ABORT;
+        });
+    }
+
+    /**
+     * 登记依次切换至路径中的每个状态, 路径中存在未知的状态时放弃整个事务
+     *
+     * @param machine   状态机
+     * @param path      状态路径
+     * @param <S>       状态类型
+     * @return 当前对象, 链式调用
+     */
+    public <S> MultiStateMachineTransaction applyAll(StateMachine<S> machine, List<S> path) {
+        final List<S> copy = new ArrayList<>(path);
+        return transaction(machine, tx -> {
+            for (S state : copy) {
+                if (!tx.switchTo(state) && !Objects.equals(tx.current(), state))
+                    throw ABORT;
+            }
+        });
+    }
+
+    /**
+     * 登记前置条件: 执行到该位置时状态机必须处于指定的状态, 否则放弃整个事务
+     *
+     * @param machine   状态机
+     * @param state     期望的状态
+     * @param <S>       状态类型
+     * @return 当前对象, 链式调用
+     */
+    public <S> MultiStateMachineTransaction expect(StateMachine<S> machine, S state) {
+        return transaction(machine, tx -> {
+            if (!Objects.equals(tx.current(), state))
+                throw ABORT;
+        });
+    }
+
+    /**
+     * 指定提交后处理器的触发方式, 默认为 {@link BatchDispatchMode#PER_STEP}
+     *
+     * @param mode  处理器触发方式
+     * @return 当前对象, 链式调用
+     */
+    public MultiStateMachineTransaction dispatchMode(BatchDispatchMode mode) {
+        if (mode == null)
+            throw new NullPointerException();
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * 提交事务, 每个事务对象只能提交一次
+     *
+     * @return 全部切换生效时返回真; 前置条件不满足或状态不存在而放弃时返回假
+     * @throws IllegalStateException 重复提交
+     */
+    public boolean commit() {
+        if (committed)
+            throw new IllegalStateException("Transaction already committed");
+        committed = true;
+
+        // 参与者按登记顺序排列, 句柄锁定的状态机在处理器触发完毕后解除锁定
+        final Map<AbstractStateMachine<?>, Participant<?>> participants = new LinkedHashMap<>();
+        final List<StateMachineHandle.Lease<?>> leases = new ArrayList<>();
+        try {
+            for (Registration<?> registration : registrations)
+                registration.register(participants, leases);
+            return commit(participants);
+        } finally {
+            for (StateMachineHandle.Lease<?> lease : leases)
+                lease.release();
+        }
+    }
+
+    private boolean commit(Map<AbstractStateMachine<?>, Participant<?>> participants) {
+        final List<Participant<?>> ordered = new ArrayList<>(participants.values());
+        ordered.sort(Comparator.comparingLong(p -> p.machine.machineId()));
+        int locked = 0;
+        boolean success = false;
+        try {
+            for (Participant<?> participant : ordered) {
+                participant.lock();
+                locked++;
+            }
+            for (Participant<?> participant : participants.values())
+                participant.execute();
+            success = true;
+        } catch (RuntimeException e) {
+            if (e != ABORT)
+                throw e;
+        } finally {
+            for (int i = locked - 1; i >= 0; i--)
+                ordered.get(i).unlock(success);
+        }
+
+        if (success) {
+            for (Participant<?> participant : participants.values())
+                participant.dispatch(mode);
+        }
+        return success;
+    }
+
+    /**
+     * 登记的一段事务逻辑
+     */
+    private static final class Registration<S> {
+
+        private final StateMachine<S> machine;
+        private final Consumer<StateTransaction<S>> transaction;
+
+        Registration(StateMachine<S> machine, Consumer<StateTransaction<S>> transaction) {
+            this.machine = machine;
+            this.transaction = transaction;
+        }
+
+        /**
+         * 确定实际的状态机并加入对应的参与者, 句柄在此时锁定
+         */
+        @SuppressWarnings("unchecked")
+        void register(Map<AbstractStateMachine<?>, Participant<?>> participants,
+                      List<StateMachineHandle.Lease<?>> leases) {
+            StateMachine<S> resolved = machine;
+            if (machine instanceof StateMachineHandle) {
+                final StateMachineHandle.Lease<S> lease = ((StateMachineHandle<S>) machine).lease();
+                leases.add(lease);
+                resolved = lease.machine();
+            }
+            if (!(resolved instanceof AbstractStateMachine))
+                throw new IllegalArgumentException("Unsupported state machine: " + resolved);
+            final AbstractStateMachine<S> target = (AbstractStateMachine<S>) resolved;
+            ((Participant<S>) participants.computeIfAbsent(target, m -> new Participant<>(target)))
+                    .transactions.add(transaction);
+        }
+    }
+
+    /**
+     * 事务参与者
+     */
+    private static final class Participant<S> {
+
+        private final AbstractStateMachine<S> machine;
+        private final List<Consumer<StateTransaction<S>>> transactions = new ArrayList<>();
+        /**
+         * 锁定时的状态序号
+         */
+        private int startIndex;
+        private AbstractStateMachine<S>.Transaction transaction;
+
+        Participant(AbstractStateMachine<S> machine) {
+            this.machine = machine;
+        }
+
+        void lock() {
+            startIndex = machine.lockForCommit();
+        }
+
+        void execute() {
+            transaction = machine.new Transaction(startIndex);
+            transaction.execute(tx -> transactions.forEach(t -> t.accept(tx)));
+        }
+
+        void unlock(boolean success) {
+            machine.unlockForCommit(success ? transaction.endIndex() : startIndex);
+        }
+
+        void dispatch(BatchDispatchMode mode) {
+            if (transaction.steps() > 0)
+                machine.dispatchTransaction(transaction, mode, true);
+        }
+    }
+}
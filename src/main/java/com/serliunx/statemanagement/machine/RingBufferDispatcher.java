@@ -0,0 +1,490 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.support.Backoff;
+import com.serliunx.statemanagement.support.WaitStrategy;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 环形缓冲区分发器
+ * <p>
+ * 预先分配固定数量的可复用槽位, 生产者按序号认领槽位并写入后发布, 单个消费者线程按序号顺序批量处理已发布的槽位:
+ * <ul>
+ *     <li> 多个生产者通过一次原子自增认领序号, 缓冲区已满时按 {@link WaitStrategy} 等待消费者追上
+ *     <li> 每个槽位单独记录已发布的轮次, 消费者可以感知到乱序完成写入的生产者, 仅处理连续已发布的部分
+ *     <li> 消费者每次取出所有连续可用的序号并依次处理, 处理完整批后才推进消费进度, 减少与生产者之间的同步
+ * </ul>
+ * 作为状态机的执行器使用时, 使用状态机执行器的异步处理器不再各自创建任务: 一次切换只占用一个槽位,
+ * 槽位中直接记录切换的上下文、源状态、目的状态、附加参数及切换追踪, 由消费者线程按切换顺序依次触发这些处理器;
+ * 生产者发布时不需要分配任何对象. 指定了其他执行器、经由舱壁提交或合并投递的处理器不受影响.
+ * <p>
+ * 缓冲区已满时以下两种发布不再等待, 而是在发布的线程上直接执行, 此时的执行顺序先于缓冲区中尚未处理的部分:
+ * <ul>
+ *     <li> 消费者线程(即处理器内)再次发布: 消费者处理完整批后才推进消费进度, 等待自身将永远无法返回
+ *     <li> 持有状态机锁的发布线程发现消费者正在等待该锁: 继续等待双方都无法返回
+ * </ul>
+ * <p>
+ * 同时也可以作为普通的执行器使用, 任务按提交顺序执行. 任务抛出的异常交由消费者线程的
+ * {@link Thread.UncaughtExceptionHandler} 处理, 不会中断后续任务; 关闭后提交的任务将被拒绝.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see WaitStrategy
+ */
+public final class RingBufferDispatcher implements Executor, AutoCloseable {
+
+	/**
+	 * 默认的缓冲区容量
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+	/**
+	 * 让出处理器或挂起前的自旋次数
+	 */
+	private static final int SPIN_TRIES = 100;
+	/**
+	 * 让出处理器的次数, 超过后按等待策略挂起
+	 */
+	private static final int YIELD_TRIES = 100;
+	/**
+	 * 挂起的最长时间, 防止错过唤醒
+	 */
+	private static final long PARK_NANOS = 1_000_000L;
+
+	private final Slot[] slots;
+	private final int mask;
+	private final int shift;
+	private final WaitStrategy waitStrategy;
+	private final Thread consumer;
+
+	/**
+	 * 各槽位已发布的轮次(序号 >>> shift), 初始为-1
+	 */
+	private final AtomicIntegerArray available;
+	/**
+	 * 最后一个被认领的序号
+	 */
+	private final AtomicLong claimed = new AtomicLong(-1);
+	/**
+	 * 最后一个处理完毕的序号
+	 */
+	private final AtomicLong consumed = new AtomicLong(-1);
+	/**
+	 * 正在发布的生产者数量, 关闭时等待其归零
+	 */
+	private final LongAdder publishing = new LongAdder();
+	/**
+	 * 持有状态机锁时直接执行期间, 执行线程持有的锁; 执行期间再次发布的任务同样需要感知该锁
+	 */
+	private final ThreadLocal<ReentrantReadWriteLock> inlined = new ThreadLocal<>();
+	/**
+	 * 正在直接执行的线程数量, 不为零时才需要查询 {@link #inlined}
+	 */
+	private final AtomicInteger inlining = new AtomicInteger();
+
+	private volatile boolean running = true;
+	private volatile boolean stopped;
+	private volatile boolean sleeping;
+
+	/**
+	 * 默认容量, 等待策略为 {@link WaitStrategy#PARK}
+	 */
+	public RingBufferDispatcher() {
+		this(DEFAULT_CAPACITY, WaitStrategy.PARK);
+	}
+
+	/**
+	 * @param capacity		缓冲区容量, 必须为2的幂
+	 * @param waitStrategy	等待策略
+	 */
+	public RingBufferDispatcher(int capacity, WaitStrategy waitStrategy) {
+		this(capacity, waitStrategy, "state-process-ring");
+	}
+
+	/**
+	 * @param capacity		缓冲区容量, 必须为2的幂
+	 * @param waitStrategy	等待策略
+	 * @param name			消费者线程名称
+	 */
+	public RingBufferDispatcher(int capacity, WaitStrategy waitStrategy, String name) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("capacity must be a power of two");
+		if (waitStrategy == null)
+			throw new NullPointerException("waitStrategy");
+		this.slots = new Slot[capacity];
+		for (int i = 0; i < capacity; i++)
+			slots[i] = new Slot();
+		this.mask = capacity - 1;
+		this.shift = Integer.numberOfTrailingZeros(capacity);
+		this.waitStrategy = waitStrategy;
+		this.available = new AtomicIntegerArray(capacity);
+		for (int i = 0; i < capacity; i++)
+			available.set(i, -1);
+		this.consumer = new Thread(this::consume, name);
+		this.consumer.setDaemon(true);
+		this.consumer.start();
+	}
+
+	/**
+	 * 发布一个任务
+	 *
+	 * @param task	任务
+	 * @throws RejectedExecutionException 分发器已关闭
+	 */
+	@Override
+	public void execute(Runnable task) {
+		execute(task, null);
+	}
+
+	/**
+	 * 由持有指定状态机锁的线程发布任务的执行器视图
+	 *
+	 * @param held	发布线程持有的状态机锁
+	 * @return 执行器
+	 */
+	Executor heldBy(ReentrantReadWriteLock held) {
+		return task -> execute(task, held);
+	}
+
+	/**
+	 * 发布一个任务
+	 *
+	 * @param task	任务
+	 * @param held	发布线程持有的状态机锁, 为空时表示未持有
+	 */
+	private void execute(Runnable task, ReentrantReadWriteLock held) {
+		if (task == null)
+			throw new NullPointerException();
+		publishing.increment();
+		try {
+			if (!running)
+				throw new RejectedExecutionException("Ring buffer dispatcher has been closed");
+			final long sequence = claim(held);
+			if (sequence < 0) {
+				final ReentrantReadWriteLock previous = beginInline(held);
+				try {
+					run(task);
+				} finally {
+					endInline(held, previous);
+				}
+				return;
+			}
+			slots[(int) sequence & mask].task = task;
+			publish(sequence);
+		} finally {
+			publishing.decrement();
+		}
+	}
+
+	/**
+	 * 发布一次切换, 由消费者线程触发该切换上使用状态机执行器的异步处理器
+	 * <p>
+	 * 指定了切换追踪时持有一个计数直至处理器全部执行完毕; 分发器已关闭时这些处理器记录为被拒绝.
+	 *
+	 * @param context	状态机上下文
+	 * @param from		源状态
+	 * @param to		目的状态
+	 * @param attach	附加参数
+	 * @param tracker	切换追踪, 为空时不记录
+	 * @param held		发布线程持有的状态机锁, 为空时表示未持有
+	 * @throws RejectedExecutionException 分发器已关闭且没有指定切换追踪
+	 * @see HandlerInvocationDelegate#invokeDeferred(StateMachineContext, Object, Object, Object, TransitionTracker, boolean)
+	 */
+	<S> void publish(StateMachineContext<S> context, S from, S to, Object attach, TransitionTracker<S> tracker,
+					 ReentrantReadWriteLock held) {
+		if (tracker != null)
+			tracker.hold();
+		publishing.increment();
+		try {
+			if (!running) {
+				if (tracker == null)
+					throw new RejectedExecutionException("Ring buffer dispatcher has been closed");
+				HandlerInvocationDelegate.invokeDeferred(context, from, to, attach, tracker, true);
+				return;
+			}
+			final long sequence = claim(held);
+			if (sequence < 0) {
+				final ReentrantReadWriteLock previous = beginInline(held);
+				try {
+					HandlerInvocationDelegate.invokeDeferred(context, from, to, attach, tracker, false);
+				} catch (Throwable t) {
+					uncaught(t);
+				} finally {
+					endInline(held, previous);
+				}
+				return;
+			}
+			final Slot slot = slots[(int) sequence & mask];
+			slot.context = context;
+			slot.from = from;
+			slot.to = to;
+			slot.attach = attach;
+			slot.tracker = tracker;
+			publish(sequence);
+		} finally {
+			publishing.decrement();
+		}
+	}
+
+	/**
+	 * 认领下一个序号, 缓冲区已满时等待消费者处理
+	 *
+	 * @param held	发布线程持有的状态机锁, 为空时表示未持有; 消费者正在等待该锁时不再等待
+	 * @return 序号, 消费者线程上或消费者正在等待持有的锁时缓冲区已满则为-1
+	 */
+	private long claim(ReentrantReadWriteLock held) {
+		if (Thread.currentThread() == consumer) {
+			// 消费进度仅由消费者线程推进, 认领期间不会变化
+			final long limit = consumed.get() + slots.length;
+			for (;;) {
+				final long current = claimed.get();
+				if (current >= limit)
+					return -1;
+				if (claimed.compareAndSet(current, current + 1))
+					return current + 1;
+			}
+		}
+		if (held == null && inlining.get() > 0)
+			held = inlined.get();
+		if (held != null) {
+			// 认领前确认有空位, 以便在消费者等待持有的锁时放弃认领
+			for (int attempt = 0;;) {
+				final long current = claimed.get();
+				if (current < consumed.get() + slots.length) {
+					if (claimed.compareAndSet(current, current + 1))
+						return current + 1;
+				} else if (held.hasQueuedThread(consumer))
+					return -1;
+				else
+					idle(attempt++, false);
+			}
+		}
+		final long sequence = claimed.incrementAndGet();
+		final long wrap = sequence - slots.length;
+		for (int attempt = 0; wrap > consumed.get(); attempt++)
+			idle(attempt, false);
+		return sequence;
+	}
+
+	private void publish(long sequence) {
+		available.set((int) sequence & mask, (int) (sequence >>> shift));
+		if (sleeping)
+			LockSupport.unpark(consumer);
+	}
+
+	private boolean isPublished(long sequence) {
+		return available.get((int) sequence & mask) == (int) (sequence >>> shift);
+	}
+
+	private void consume() {
+		long next = 0;
+		int attempt = 0;
+		for (;;) {
+			long last = next - 1;
+			while (isPublished(last + 1))
+				last++;
+			if (last >= next) {
+				for (long sequence = next; sequence <= last; sequence++)
+					process(slots[(int) sequence & mask]);
+				consumed.lazySet(last);
+				next = last + 1;
+				attempt = 0;
+				continue;
+			}
+			// 关闭后不再有新的认领, 已认领的序号全部处理完毕后退出
+			if (stopped && claimed.get() < next)
+				return;
+			idle(attempt++, true);
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void process(Slot slot) {
+		try {
+			if (slot.task != null)
+				slot.task.run();
+			else
+				HandlerInvocationDelegate.invokeDeferred((StateMachineContext) slot.context, slot.from, slot.to,
+						slot.attach, (TransitionTracker) slot.tracker, false);
+		} catch (Throwable t) {
+			uncaught(t);
+		} finally {
+			slot.clear();
+		}
+	}
+
+	/**
+	 * 开始直接执行, 消费者线程上直接执行时不需要记录
+	 *
+	 * @param held	执行线程持有的状态机锁
+	 * @return 此前记录的锁
+	 */
+	private ReentrantReadWriteLock beginInline(ReentrantReadWriteLock held) {
+		if (held == null || Thread.currentThread() == consumer)
+			return null;
+		final ReentrantReadWriteLock previous = inlined.get();
+		inlined.set(held);
+		inlining.incrementAndGet();
+		return previous;
+	}
+
+	private void endInline(ReentrantReadWriteLock held, ReentrantReadWriteLock previous) {
+		if (held == null || Thread.currentThread() == consumer)
+			return;
+		inlining.decrementAndGet();
+		if (previous == null)
+			inlined.remove();
+		else
+			inlined.set(previous);
+	}
+
+	/**
+	 * 直接执行, 异常的处理方式与槽位中的任务一致
+	 */
+	private void run(Runnable task) {
+		try {
+			task.run();
+		} catch (Throwable t) {
+			uncaught(t);
+		}
+	}
+
+	private void uncaught(Throwable t) {
+		final Thread.UncaughtExceptionHandler handler = consumer.getUncaughtExceptionHandler();
+		if (handler != null)
+			handler.uncaughtException(consumer, t);
+	}
+
+	/**
+	 * 按等待策略等待一次
+	 *
+	 * @param attempt	本轮已等待的次数
+	 * @param consuming	是否为消费者线程, 消费者挂起前需要登记以便生产者唤醒
+	 */
+	private void idle(int attempt, boolean consuming) {
+		if (waitStrategy == WaitStrategy.BUSY_SPIN || attempt < SPIN_TRIES) {
+			Backoff.onSpinWait();
+			return;
+		}
+		if (waitStrategy == WaitStrategy.YIELD || attempt < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+			return;
+		}
+		if (!consuming) {
+			LockSupport.parkNanos(this, PARK_NANOS);
+			return;
+		}
+		sleeping = true;
+		// 登记后再次检查, 避免错过在登记前完成的发布
+		if (!isPublished(consumed.get() + 1) && !stopped)
+			LockSupport.parkNanos(this, PARK_NANOS);
+		sleeping = false;
+	}
+
+	/**
+	 * 关闭分发器
+	 * <p>
+	 * 之后发布的任务及切换将被拒绝, 已发布的部分依然会被处理; 在消费者线程以外调用时等待其处理完毕.
+	 */
+	@Override
+	public void close() {
+		if (!running)
+			return;
+		running = false;
+		while (publishing.sum() != 0)
+			Thread.yield();
+		stopped = true;
+		LockSupport.unpark(consumer);
+		if (Thread.currentThread() == consumer)
+			return;
+		boolean interrupted = false;
+		while (consumer.isAlive()) {
+			try {
+				consumer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * 缓冲区容量
+	 *
+	 * @return 槽位数量
+	 */
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * 等待策略
+	 *
+	 * @return 等待策略
+	 */
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * 已认领的序号数量(含正在写入的)
+	 *
+	 * @return 已发布的任务及切换数量
+	 */
+	public long getPublishedCount() {
+		return claimed.get() + 1;
+	}
+
+	/**
+	 * 已处理完毕的序号数量, 消费者每处理完一批更新一次
+	 *
+	 * @return 已处理的任务及切换数量
+	 */
+	public long getConsumedCount() {
+		return consumed.get() + 1;
+	}
+
+	/**
+	 * 是否已关闭
+	 *
+	 * @return 已关闭时返回真
+	 */
+	public boolean isClosed() {
+		return !running;
+	}
+
+	@Override
+	public String toString() {
+		return "RingBufferDispatcher{capacity=" + slots.length + ", waitStrategy=" + waitStrategy +
+				", published=" + getPublishedCount() + ", consumed=" + getConsumedCount() + "}";
+	}
+
+	/**
+	 * 可复用的槽位, 保存一个任务或一次切换
+	 */
+	private static final class Slot {
+
+		private Runnable task;
+		private StateMachineContext<?> context;
+		private Object from;
+		private Object to;
+		private Object attach;
+		private TransitionTracker<?> tracker;
+
+		void clear() {
+			task = null;
+			context = null;
+			from = null;
+			to = null;
+			attach = null;
+			tracker = null;
+		}
+	}
+}
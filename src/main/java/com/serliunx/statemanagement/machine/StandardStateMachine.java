@@ -34,8 +34,16 @@ public class StandardStateMachine<S> extends AbstractStateMachine<S> implements
 						 Boolean async,
 						 S initialState
 	) {
-		super(stateList, new StateMachineContext<>(entryHandlers, leaveHandlers, exchangeHandlers, eventRegistries,
+		this(stateList, new StateMachineContext<>(entryHandlers, leaveHandlers, exchangeHandlers, eventRegistries,
 				executor, async, initialState));
+	}
+
+	/**
+	 * @param stateList	状态列表
+	 * @param context	状态机上下文
+	 */
+	StandardStateMachine(List<S> stateList, StateMachineContext<S> context) {
+		super(stateList, context);
 
 		final int initialIndex = indexOf(context.initialState);
 		if (initialIndex != -1) {
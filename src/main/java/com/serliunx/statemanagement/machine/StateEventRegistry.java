@@ -137,4 +137,74 @@ public interface StateEventRegistry<S> {
      * @return 当前对象, 链式调用
      */
     StateEventRegistry<S> exchange(S from, S to, StateHandler<S> handler);
+
+    /**
+     * 添加合并投递的进入事件
+     * <p>
+     *     处理器总是异步执行, 每个状态机中该处理器至多存在一次待执行的调用; 执行前到达的多次切换会被合并为一次投递,
+     *     源状态为第一次切换的源状态, 目的状态为最近一次切换的目的状态, 被合并的次数见
+     *     {@link com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams#getSkipped()}.
+     *     适用于仅关心最新状态的处理器(如界面展示、监控), 无论切换频率多高, 待执行的任务数量都是有界的.
+     * </p>
+     *
+     * @param state		状态
+     * @param handler	处理逻辑
+     * @param executor	异步执行器, 不指定时将使用状态机内置的执行器
+     * @return 当前对象, 链式调用
+     */
+    StateEventRegistry<S> whenEntryConflated(S state, StateHandler<S> handler, Executor executor);
+
+    /**
+     * 添加合并投递的进入事件
+     *
+     * @param state		状态
+     * @param handler	处理逻辑
+     * @return 当前对象, 链式调用
+     * @see #whenEntryConflated(Object, StateHandler, Executor)
+     */
+    StateEventRegistry<S> whenEntryConflated(S state, StateHandler<S> handler);
+
+    /**
+     * 添加合并投递的离开事件
+     *
+     * @param state		状态
+     * @param handler	处理逻辑
+     * @param executor	异步执行器, 不指定时将使用状态机内置的执行器
+     * @return 当前对象, 链式调用
+     * @see #whenEntryConflated(Object, StateHandler, Executor)
+     */
+    StateEventRegistry<S> whenLeaveConflated(S state, StateHandler<S> handler, Executor executor);
+
+    /**
+     * 添加合并投递的离开事件
+     *
+     * @param state		状态
+     * @param handler	处理逻辑
+     * @return 当前对象, 链式调用
+     * @see #whenEntryConflated(Object, StateHandler, Executor)
+     */
+    StateEventRegistry<S> whenLeaveConflated(S state, StateHandler<S> handler);
+
+    /**
+     * 添加合并投递的交换事件
+     *
+     * @param from		源状态
+     * @param to		目的状态
+     * @param handler	处理器
+     * @param executor	异步执行器, 不指定时将使用状态机内置的执行器
+     * @return 当前对象, 链式调用
+     * @see #whenEntryConflated(Object, StateHandler, Executor)
+     */
+    StateEventRegistry<S> exchangeConflated(S from, S to, StateHandler<S> handler, Executor executor);
+
+    /**
+     * 添加合并投递的交换事件
+     *
+     * @param from		源状态
+     * @param to		目的状态
+     * @param handler	处理器
+     * @return 当前对象, 链式调用
+     * @see #whenEntryConflated(Object, StateHandler, Executor)
+     */
+    StateEventRegistry<S> exchangeConflated(S from, S to, StateHandler<S> handler);
 }
@@ -1,6 +1,14 @@
 package com.serliunx.statemanagement.machine;
 
 import com.serliunx.statemanagement.manager.BidirectionalStateManager;
+import com.serliunx.statemanagement.support.Bulkhead;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * 状态机定义
@@ -107,6 +115,109 @@ public interface StateMachine<S> extends BidirectionalStateManager<S>, AutoClose
      */
     boolean switchTo(S state);
 
+    /**
+     * 切换至指定状态, 返回的结果在本次切换的所有处理器(包括异步处理器)执行完毕后完成
+     * <p>
+     *     与 {@link #switchTo(Object)} 不同, 同步处理器抛出的异常不会向外传播, 而是记录在切换结果中;
+     *     目标状态不存在或与当前状态一致时, 返回已完成且未发生切换的结果.
+     * </p>
+     * <p>
+     *     异步处理器被执行器拒绝时, 结果依赖执行器报告拒绝才能完成: 执行器需要抛出
+     *     {@link java.util.concurrent.RejectedExecutionException} 或回调
+     *     {@link com.serliunx.statemanagement.support.RejectionAware}(如
+     *     {@link com.serliunx.statemanagement.support.DefaultCountableRejectedExecutionHandler}), 此时该处理器在结果中记录为被拒绝.
+     *     使用 {@link java.util.concurrent.ThreadPoolExecutor.DiscardPolicy} 等静默丢弃任务的拒绝策略时,
+     *     被丢弃的处理器永远不会执行, 返回的结果也永远不会完成; 无法保证执行器满足要求时应当限时等待结果.
+     * </p>
+     *
+     * @param state 新的状态
+     * @return 切换结果
+     */
+    CompletableFuture<TransitionResult<S>> switchToAsync(S state);
+
+    /**
+     * 切换至下一个状态, 返回的结果在本次切换的所有处理器(包括异步处理器)执行完毕后完成
+     * <p>
+     *     执行器静默丢弃异步处理器时返回的结果永远不会完成, 对执行器的要求见 {@link #switchToAsync(Object)}.
+     * </p>
+     *
+     * @return 切换结果
+     * @see #switchToAsync(Object)
+     */
+    CompletableFuture<TransitionResult<S>> switchNextAsync();
+
+    /**
+     * 发布事件, 返回的结果在该事件的所有处理逻辑执行完毕后完成
+     * <p>
+     *     结果中的源状态与目的状态分别为事件发布时及所有处理逻辑执行完毕时的状态.
+     * </p>
+     * <p>
+     *     处理逻辑中切换状态触发的异步处理器同样计入结果; 执行器静默丢弃这些处理器时返回的结果永远不会完成,
+     *     对执行器的要求见 {@link #switchToAsync(Object)}.
+     * </p>
+     *
+     * @param event 事件
+     * @return 事件处理结果
+     */
+    CompletableFuture<TransitionResult<S>> publishAsync(Object event);
+
+    /**
+     * 在一次加锁(或一次CAS)内执行多步切换, 按顺序逐步触发处理器
+     *
+     * @param transaction   事务逻辑
+     * @return 至少发生了一步切换时返回真, 否则返回假
+     * @see #transaction(Consumer, BatchDispatchMode)
+     */
+    boolean transaction(Consumer<StateTransaction<S>> transaction);
+
+    /**
+     * 在一次加锁(或一次CAS)内执行多步切换
+     * <p>
+     *     事务逻辑中的所有切换作用于状态副本, 逻辑结束后一次性提交, 其他线程不会观察到中间状态, 也无法在各步之间插入切换;
+     *     提交后按指定的方式触发处理器. 事务逻辑抛出异常时不提交任何切换, 异常向外传播.
+     * </p>
+     * <p>
+     *     基于CAS实现的并发型状态机在提交冲突时会重新执行事务逻辑, 因此事务逻辑中不应包含副作用.
+     * </p>
+     *
+     * @param transaction   事务逻辑
+     * @param mode          处理器触发方式
+     * @return 至少发生了一步切换时返回真, 否则返回假
+     */
+    boolean transaction(Consumer<StateTransaction<S>> transaction, BatchDispatchMode mode);
+
+    /**
+     * 原子地依次切换至路径中的每个状态, 按顺序逐步触发处理器
+     *
+     * @param path  状态路径
+     * @return 至少发生了一步切换时返回真, 否则返回假
+     * @see #applyAll(List, BatchDispatchMode)
+     */
+    boolean applyAll(List<S> path);
+
+    /**
+     * 原子地依次切换至路径中的每个状态
+     * <p>
+     *     路径中存在未知的状态时不执行任何切换并返回假; 与前一个状态相同的状态将被忽略.
+     * </p>
+     *
+     * @param path  状态路径
+     * @param mode  处理器触发方式
+     * @return 至少发生了一步切换时返回真, 否则返回假
+     * @see #transaction(Consumer, BatchDispatchMode)
+     */
+    boolean applyAll(List<S> path, BatchDispatchMode mode);
+
+    /**
+     * 获取状态机配置的所有舱壁, 可用于观察各舱壁的饱和情况
+     *
+     * @return 舱壁名称与舱壁的映射, 未配置时为空
+     * @see StateMachineBuilder#bulkhead(String, int, int, Collection)
+     */
+    default Map<String, Bulkhead> bulkheads() {
+        return Collections.emptyMap();
+    }
+
     @Override
     default void close() throws Exception {}
 }
@@ -1,7 +1,10 @@
 package com.serliunx.statemanagement.machine;
 
+import com.serliunx.statemanagement.machine.StateMachineDefinition.BulkheadDefinition;
 import com.serliunx.statemanagement.machine.handler.StateHandler;
 import com.serliunx.statemanagement.machine.handler.StateHandlerWrapper;
+import com.serliunx.statemanagement.support.Bulkhead;
+import com.serliunx.statemanagement.support.ExecutorStrategy;
 
 import java.util.*;
 import java.util.concurrent.Executor;
@@ -24,6 +27,10 @@ public final class StateMachineBuilder<S> implements StateEventRegistry<S> {
 	 * 执行器
 	 */
 	private Executor executor;
+	/**
+	 * 执行器策略
+	 */
+	private ExecutorStrategy executorStrategy;
 	/**
 	 * 是否异步执行
 	 */
@@ -36,6 +43,18 @@ public final class StateMachineBuilder<S> implements StateEventRegistry<S> {
 	 * 初始化状态
 	 */
 	private S initialState;
+	/**
+	 * 处理器分发模式
+	 */
+	private HandlerDispatchMode dispatchMode = HandlerDispatchMode.IN_LOCK;
+	/**
+	 * 竞争模式
+	 */
+	private ContentionMode contentionMode = ContentionMode.CAS;
+	/**
+	 * 异步处理器的投递方式
+	 */
+	private AsyncBatchMode asyncBatchMode = AsyncBatchMode.NONE;
 
 	/**
 	 * 各种事件
@@ -44,6 +63,15 @@ public final class StateMachineBuilder<S> implements StateEventRegistry<S> {
 	private final Map<S, List<StateHandlerWrapper<S>>> leaveHandlers = new HashMap<>(64);
 	private final Map<String, List<StateHandlerWrapper<S>>> exchangeHandlers = new HashMap<>(64);
 	private final Map<Object, List<Consumer<StateMachine<S>>>> eventRegistries = new HashMap<>(64);
+	/**
+	 * 舱壁定义
+	 */
+	private final Map<String, BulkheadDefinition<S>> bulkheads = new LinkedHashMap<>();
+	/**
+	 * 切换守卫及拦截器
+	 */
+	private final List<TransitionGuard<S>> guards = new ArrayList<>();
+	private final List<TransitionInterceptor<S>> interceptors = new ArrayList<>();
 
 	private StateMachineBuilder(List<S> states) {
 		this.stateList = states;
@@ -119,6 +147,42 @@ public final class StateMachineBuilder<S> implements StateEventRegistry<S> {
 		return whenEntry(state, handler, null);
 	}
 
+	@Override
+	public StateMachineBuilder<S> whenEntryConflated(S state, StateHandler<S> handler, Executor executor) {
+		entryHandlers.computeIfAbsent(state, k -> new ArrayList<>())
+				.add(new StateHandlerWrapper<>(handler, executor, true, true));
+		return this;
+	}
+
+	@Override
+	public StateMachineBuilder<S> whenEntryConflated(S state, StateHandler<S> handler) {
+		return whenEntryConflated(state, handler, null);
+	}
+
+	@Override
+	public StateMachineBuilder<S> whenLeaveConflated(S state, StateHandler<S> handler, Executor executor) {
+		leaveHandlers.computeIfAbsent(state, k -> new ArrayList<>())
+				.add(new StateHandlerWrapper<>(handler, executor, true, true));
+		return this;
+	}
+
+	@Override
+	public StateMachineBuilder<S> whenLeaveConflated(S state, StateHandler<S> handler) {
+		return whenLeaveConflated(state, handler, null);
+	}
+
+	@Override
+	public StateMachineBuilder<S> exchangeConflated(S from, S to, StateHandler<S> handler, Executor executor) {
+		exchangeHandlers.computeIfAbsent(from.toString() + "-" + to.toString(), k -> new ArrayList<>())
+				.add(new StateHandlerWrapper<>(handler, executor, true, true));
+		return this;
+	}
+
+	@Override
+	public StateMachineBuilder<S> exchangeConflated(S from, S to, StateHandler<S> handler) {
+		return exchangeConflated(from, to, handler, null);
+	}
+
 	/**
 	 * 注册当前状态机感兴趣的事件
 	 *
@@ -145,6 +209,66 @@ public final class StateMachineBuilder<S> implements StateEventRegistry<S> {
 		return this;
 	}
 
+	/**
+	 * 指定未设置执行器时创建执行器的策略
+	 * <p>
+	 * 每个状态机实例都会通过策略创建各自的执行器; 通过 {@link #executor(Executor)} 指定了执行器时不生效.
+	 *
+	 * @param executorStrategy 执行器策略
+	 * @return 当前对象, 链式调用
+	 * @see ExecutorStrategy
+	 */
+	public StateMachineBuilder<S> executorStrategy(ExecutorStrategy executorStrategy) {
+		this.executorStrategy = executorStrategy;
+		return this;
+	}
+
+	/**
+	 * 为一组状态定义舱壁
+	 * <p>
+	 * 这些状态的异步处理器(未单独指定执行器时)将共享同一个舱壁: 同时提交至状态机执行器的任务不超过指定的并发数量,
+	 * 超出的部分在舱壁内排队, 队列满时计数并抛出 {@link java.util.concurrent.RejectedExecutionException}; 以此避免某个缓慢或繁忙的状态占满共享的执行器而导致其他状态的处理器被拒绝.
+	 * <p>
+	 * 离开处理器归属于源状态, 进入及交换处理器归属于目的状态. 同名的舱壁重复定义时以最后一次为准,
+	 * 同一状态只能归属于一个舱壁. 状态机的执行器拒绝任务时必须抛出异常或回调
+	 * {@link com.serliunx.statemanagement.support.RejectionAware}, 不能静默丢弃, 否则被丢弃的工作任务会永久占用舱壁的并发名额.
+	 *
+	 * @param name			舱壁名称
+	 * @param maxConcurrent	最大并发数量
+	 * @param queueCapacity	最大排队数量
+	 * @param states		归属于该舱壁的状态
+	 * @return 当前对象, 链式调用
+	 * @see Bulkhead
+	 */
+	public StateMachineBuilder<S> bulkhead(String name, int maxConcurrent, int queueCapacity, Collection<S> states) {
+		if (name == null || states == null)
+			throw new NullPointerException();
+		if (maxConcurrent <= 0 || queueCapacity < 0)
+			throw new IllegalArgumentException("Illegal bulkhead limits: " + maxConcurrent + "/" + queueCapacity);
+		for (S state : states) {
+			for (BulkheadDefinition<S> definition : bulkheads.values()) {
+				if (!definition.name.equals(name) && definition.states.contains(state))
+					throw new IllegalArgumentException("State " + state + " already belongs to bulkhead "
+							+ definition.name);
+			}
+		}
+		bulkheads.put(name, new BulkheadDefinition<>(name, maxConcurrent, queueCapacity, new ArrayList<>(states)));
+		return this;
+	}
+
+	/**
+	 * 为单个状态定义舱壁, 舱壁名称为状态的字符串形式
+	 *
+	 * @param state			状态
+	 * @param maxConcurrent	最大并发数量
+	 * @param queueCapacity	最大排队数量
+	 * @return 当前对象, 链式调用
+	 * @see #bulkhead(String, int, int, Collection)
+	 */
+	public StateMachineBuilder<S> bulkhead(S state, int maxConcurrent, int queueCapacity) {
+		return bulkhead(state.toString(), maxConcurrent, queueCapacity, Collections.singletonList(state));
+	}
+
 	/**
 	 * 定义状态机是否异步执行
 	 *
@@ -165,6 +289,95 @@ public final class StateMachineBuilder<S> implements StateEventRegistry<S> {
 		return async(true);
 	}
 
+	/**
+	 * 指定处理器的分发模式
+	 *
+	 * @param dispatchMode 分发模式
+	 * @return 当前对象, 链式调用
+	 * @see HandlerDispatchMode
+	 */
+	public StateMachineBuilder<S> dispatchMode(HandlerDispatchMode dispatchMode) {
+		if (dispatchMode == null) {
+			throw new NullPointerException();
+		}
+		this.dispatchMode = dispatchMode;
+		return this;
+	}
+
+	/**
+	 * 指定处理器在释放写锁后按提交顺序触发
+	 *
+	 * @return 当前对象, 链式调用
+	 * @see HandlerDispatchMode#POST_COMMIT
+	 */
+	public StateMachineBuilder<S> postCommit() {
+		return dispatchMode(HandlerDispatchMode.POST_COMMIT);
+	}
+
+	/**
+	 * 指定并发型状态机的竞争模式
+	 *
+	 * @param contentionMode 竞争模式
+	 * @return 当前对象, 链式调用
+	 * @see ContentionMode
+	 */
+	public StateMachineBuilder<S> contentionMode(ContentionMode contentionMode) {
+		if (contentionMode == null) {
+			throw new NullPointerException();
+		}
+		this.contentionMode = contentionMode;
+		return this;
+	}
+
+	/**
+	 * 指定同一次切换中异步处理器的投递方式
+	 *
+	 * @param asyncBatchMode 投递方式
+	 * @return 当前对象, 链式调用
+	 * @see AsyncBatchMode
+	 */
+	public StateMachineBuilder<S> asyncBatch(AsyncBatchMode asyncBatchMode) {
+		if (asyncBatchMode == null) {
+			throw new NullPointerException();
+		}
+		this.asyncBatchMode = asyncBatchMode;
+		return this;
+	}
+
+	/**
+	 * 注册切换守卫, 多个守卫按注册顺序执行, 任意守卫否决时切换失败
+	 * <p>
+	 * 作用于 {@link StateMachine#switchTo(Object)} 及 {@link ConcurrentStateMachine#compareAndSet(Object, Object)},
+	 * 事务内的切换不经过守卫; 未注册任何守卫及拦截器时切换的开销不变.
+	 *
+	 * @param guard 守卫
+	 * @return 当前对象, 链式调用
+	 * @see TransitionGuard
+	 */
+	public StateMachineBuilder<S> guard(TransitionGuard<S> guard) {
+		if (guard == null) {
+			throw new NullPointerException();
+		}
+		guards.add(guard);
+		return this;
+	}
+
+	/**
+	 * 注册切换拦截器, 多个拦截器按注册顺序回调
+	 *
+	 * @param interceptor 拦截器
+	 * @return 当前对象, 链式调用
+	 * @see TransitionInterceptor
+	 * @see #guard(TransitionGuard)
+	 */
+	public StateMachineBuilder<S> intercept(TransitionInterceptor<S> interceptor) {
+		if (interceptor == null) {
+			throw new NullPointerException();
+		}
+		interceptors.add(interceptor);
+		return this;
+	}
+
 	/**
 	 * 指定状态机的类型
 	 * <p>
@@ -212,19 +425,43 @@ public final class StateMachineBuilder<S> implements StateEventRegistry<S> {
 	 * @param <M>	状态机类型
 	 * @return 状态机
 	 */
-	@SuppressWarnings("unchecked")
 	public <M extends StateMachine<S>> M build() {
 		if (type == null) {
 			throw new NullPointerException();
 		}
-		if (type.equals(StateMachineType.STANDARD)) {
-			return (M)new StandardStateMachine<>(stateList, entryHandlers,
-					leaveHandlers, exchangeHandlers, eventRegistries, executor, async, initialState);
-		} else if (type.equals(StateMachineType.CONCURRENT)) {
-			return (M)new DefaultConcurrentStateMachine<>(stateList, entryHandlers,
-					leaveHandlers, exchangeHandlers, eventRegistries, executor, async, initialState);
-		}
-		throw new IllegalArgumentException("未知的状态机类型: " + type);
+		final StateMachineContext<S> context = new StateMachineContext<>(entryHandlers, leaveHandlers,
+				exchangeHandlers, eventRegistries, StateMachineDefinition.resolveExecutor(executor, executorStrategy),
+				async, initialState);
+		context.dispatchMode = dispatchMode;
+		context.contentionMode = contentionMode;
+		context.asyncBatchMode = asyncBatchMode;
+		context.pipeline = TransitionPipeline.of(guards, interceptors);
+		StateMachineDefinition.configureBulkheads(context, bulkheads.values());
+		return StateMachineDefinition.newMachine(type, stateList, context);
+	}
+
+	/**
+	 * 冻结当前的配置
+	 * <p>
+	 * 冻结后继续修改构建器不会影响已生成的定义
+	 *
+	 * @return 状态机定义
+	 * @see StateMachineDefinition
+	 */
+	public StateMachineDefinition<S> freeze() {
+		return new StateMachineDefinition<>(stateList, entryHandlers, leaveHandlers, exchangeHandlers,
+				eventRegistries, executor, executorStrategy, async, initialState, type, dispatchMode, contentionMode, asyncBatchMode,
+				bulkheads.values(), TransitionPipeline.of(guards, interceptors));
+	}
+
+	/**
+	 * 冻结并编译当前的配置
+	 *
+	 * @return 编译后的状态机定义
+	 * @see StateMachineDefinition#compile()
+	 */
+	public StateMachineDefinition<S> compile() {
+		return freeze().compile();
 	}
 
 	/**
@@ -2,12 +2,14 @@ package com.serliunx.statemanagement.machine;
 
 import com.serliunx.statemanagement.machine.handler.StateHandler;
 import com.serliunx.statemanagement.machine.handler.StateHandlerWrapper;
+import com.serliunx.statemanagement.support.Bulkhead;
 import com.serliunx.statemanagement.support.DefaultCountableRejectedExecutionHandler;
 import com.serliunx.statemanagement.support.ExecutorUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
@@ -50,6 +52,44 @@ public final class StateMachineContext<S> implements StateEventRegistry<S> {
 	 * 初始化状态
 	 */
 	public S initialState;
+	/**
+	 * 处理器分发模式
+	 */
+	public HandlerDispatchMode dispatchMode = HandlerDispatchMode.IN_LOCK;
+	/**
+	 * 竞争模式, 仅作用于并发型状态机
+	 */
+	public ContentionMode contentionMode = ContentionMode.CAS;
+	/**
+	 * 异步处理器的投递方式
+	 */
+	public AsyncBatchMode asyncBatchMode = AsyncBatchMode.NONE;
+	/**
+	 * 状态与舱壁的映射
+	 * <p>
+	 * 异步处理器未指定执行器时, 将通过其所属状态对应的舱壁提交至 {@link #executor}.
+	 */
+	public Map<S, Bulkhead> bulkheads;
+	/**
+	 * 合并投递的处理器在当前状态机中的投递状态
+	 */
+	final Map<StateHandlerWrapper<S>, ConflatedDelivery<S>> conflatedDeliveries = new ConcurrentHashMap<>();
+	/**
+	 * 编译后的处理器分发表, 仅由编译后的状态机定义创建的状态机持有
+	 * <p>
+	 * 此时处理器集合均不可修改.
+	 *
+	 * @see StateMachineDefinition#compile()
+	 */
+	CompiledDispatch<S> compiledDispatch;
+	/**
+	 * 切换守卫及拦截器, 未注册时为空
+	 */
+	TransitionPipeline<S> pipeline;
+	/**
+	 * 所属状态机的编号, 用于JFR事件
+	 */
+	long machineId;
 
 	public StateMachineContext(Map<S, List<StateHandlerWrapper<S>>> entryHandlers,
 							   Map<S, List<StateHandlerWrapper<S>>> leaveHandlers,
@@ -132,6 +172,73 @@ public final class StateMachineContext<S> implements StateEventRegistry<S> {
 		return exchange(from, to, handler, null);
 	}
 
+	@Override
+	public StateMachineContext<S> whenEntryConflated(S state, StateHandler<S> handler, Executor executor) {
+		entryHandlers.computeIfAbsent(state, k -> new ArrayList<>())
+				.add(new StateHandlerWrapper<>(handler, executor, true, true));
+		return this;
+	}
+
+	@Override
+	public StateMachineContext<S> whenEntryConflated(S state, StateHandler<S> handler) {
+		return whenEntryConflated(state, handler, null);
+	}
+
+	@Override
+	public StateMachineContext<S> whenLeaveConflated(S state, StateHandler<S> handler, Executor executor) {
+		leaveHandlers.computeIfAbsent(state, k -> new ArrayList<>())
+				.add(new StateHandlerWrapper<>(handler, executor, true, true));
+		return this;
+	}
+
+	@Override
+	public StateMachineContext<S> whenLeaveConflated(S state, StateHandler<S> handler) {
+		return whenLeaveConflated(state, handler, null);
+	}
+
+	@Override
+	public StateMachineContext<S> exchangeConflated(S from, S to, StateHandler<S> handler, Executor executor) {
+		exchangeHandlers.computeIfAbsent(from.toString() + "-" + to.toString(), k -> new ArrayList<>())
+				.add(new StateHandlerWrapper<>(handler, executor, true, true));
+		return this;
+	}
+
+	@Override
+	public StateMachineContext<S> exchangeConflated(S from, S to, StateHandler<S> handler) {
+		return exchangeConflated(from, to, handler, null);
+	}
+
+	/**
+	 * 获取指定状态的异步处理器所使用的默认执行器
+	 * <p>
+	 * 该状态配置了舱壁时返回对应的舱壁, 否则返回状态机的执行器
+	 *
+	 * @param state	处理器所属的状态
+	 * @return 执行器
+	 */
+	public Executor executorFor(S state) {
+		final Bulkhead bulkhead;
+		if (bulkheads == null ||
+				(bulkhead = bulkheads.get(state)) == null)
+			return executor;
+		return bulkhead;
+	}
+
+	/**
+	 * 获取合并投递的处理器在当前状态机中的投递状态
+	 *
+	 * @param handlerWrapper	合并投递的处理器
+	 * @param state				处理器所属的状态
+	 * @return 投递状态
+	 */
+	ConflatedDelivery<S> conflatedDelivery(StateHandlerWrapper<S> handlerWrapper, S state) {
+		final ConflatedDelivery<S> delivery = conflatedDeliveries.get(handlerWrapper);
+		if (delivery != null)
+			return delivery;
+		return conflatedDeliveries.computeIfAbsent(handlerWrapper, hw -> new ConflatedDelivery<>(hw.getStateHandler(),
+				hw.getExecutor() == null ? executorFor(state) : hw.getExecutor()));
+	}
+
 	/**
 	 * 执行器为空时自动创建一个适合当前操作系统的执行器（线程池）
 	 */
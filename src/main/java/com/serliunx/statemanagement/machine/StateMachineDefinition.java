@@ -0,0 +1,327 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.handler.StateHandlerWrapper;
+import com.serliunx.statemanagement.support.Bulkhead;
+import com.serliunx.statemanagement.support.ExecutorStrategy;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 冻结的状态机定义
+ * <p>
+ * 由 {@link StateMachineBuilder#freeze()} 生成, 冻结后状态、处理器及各项配置均不可修改, 可以反复用于创建状态机实例;
+ * 各实例拥有独立的当前状态、舱壁及合并投递状态, 共享同一份处理器集合. 由定义创建的状态机不支持再注册处理器.
+ * <p>
+ * 通过 {@link #compile()} 可以将定义编译为处理器分发表, 编译后的状态机触发处理器时直接按状态序号查表,
+ * 处理器的触发顺序及同步、异步行为与未编译时一致. 编译仅省去查找处理器的开销, 处理器仍经由同一处接口调用点触发,
+ * 不会因此被JIT内联.
+ * <p>
+ * 定义可以通过 {@link StateMachineSnapshot} 写入二进制快照, 启动时直接加载而无需重新执行构建器的调用.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineBuilder#freeze()
+ * @see StateMachineBuilder#compile()
+ * @see StateMachineSnapshot
+ */
+public final class StateMachineDefinition<S> {
+
+	private final List<S> stateList;
+	private final Map<S, List<StateHandlerWrapper<S>>> entryHandlers;
+	private final Map<S, List<StateHandlerWrapper<S>>> leaveHandlers;
+	private final Map<String, List<StateHandlerWrapper<S>>> exchangeHandlers;
+	private final Map<Object, List<Consumer<StateMachine<S>>>> eventRegistries;
+	private final Executor executor;
+	private final ExecutorStrategy executorStrategy;
+	private final Boolean async;
+	private final S initialState;
+	private final StateMachineType type;
+	private final HandlerDispatchMode dispatchMode;
+	private final ContentionMode contentionMode;
+	private final AsyncBatchMode asyncBatchMode;
+	private final List<BulkheadDefinition<S>> bulkheads;
+	/**
+	 * 切换守卫及拦截器, 未注册时为空
+	 */
+	private final TransitionPipeline<S> pipeline;
+	/**
+	 * 处理器分发表, 未编译时为空
+	 */
+	private final CompiledDispatch<S> compiledDispatch;
+
+	StateMachineDefinition(List<S> stateList,
+						   Map<S, List<StateHandlerWrapper<S>>> entryHandlers,
+						   Map<S, List<StateHandlerWrapper<S>>> leaveHandlers,
+						   Map<String, List<StateHandlerWrapper<S>>> exchangeHandlers,
+						   Map<Object, List<Consumer<StateMachine<S>>>> eventRegistries,
+						   Executor executor,
+						   ExecutorStrategy executorStrategy,
+						   Boolean async,
+						   S initialState,
+						   StateMachineType type,
+						   HandlerDispatchMode dispatchMode,
+						   ContentionMode contentionMode,
+						   AsyncBatchMode asyncBatchMode,
+						   Collection<BulkheadDefinition<S>> bulkheads,
+						   TransitionPipeline<S> pipeline) {
+		this(stateList, freeze(entryHandlers), freeze(leaveHandlers), freeze(exchangeHandlers), freeze(eventRegistries),
+				executor, executorStrategy, async, initialState, type, dispatchMode, contentionMode, asyncBatchMode,
+				bulkheads, pipeline, true);
+	}
+
+	/**
+	 * @param frozen	处理器集合是否已经不可修改, 仅用于区分构造方法
+	 */
+	StateMachineDefinition(List<S> stateList,
+						   Map<S, List<StateHandlerWrapper<S>>> entryHandlers,
+						   Map<S, List<StateHandlerWrapper<S>>> leaveHandlers,
+						   Map<String, List<StateHandlerWrapper<S>>> exchangeHandlers,
+						   Map<Object, List<Consumer<StateMachine<S>>>> eventRegistries,
+						   Executor executor,
+						   ExecutorStrategy executorStrategy,
+						   Boolean async,
+						   S initialState,
+						   StateMachineType type,
+						   HandlerDispatchMode dispatchMode,
+						   ContentionMode contentionMode,
+						   AsyncBatchMode asyncBatchMode,
+						   Collection<BulkheadDefinition<S>> bulkheads,
+						   TransitionPipeline<S> pipeline,
+						   boolean frozen) {
+		if (type == null || dispatchMode == null || contentionMode == null || asyncBatchMode == null)
+			throw new NullPointerException();
+		this.stateList = Collections.unmodifiableList(new ArrayList<>(stateList));
+		this.entryHandlers = entryHandlers;
+		this.leaveHandlers = leaveHandlers;
+		this.exchangeHandlers = exchangeHandlers;
+		this.eventRegistries = eventRegistries;
+		this.executor = executor;
+		this.executorStrategy = executorStrategy;
+		this.async = async;
+		this.initialState = initialState;
+		this.type = type;
+		this.dispatchMode = dispatchMode;
+		this.contentionMode = contentionMode;
+		this.asyncBatchMode = asyncBatchMode;
+		this.bulkheads = Collections.unmodifiableList(new ArrayList<>(bulkheads));
+		this.pipeline = pipeline;
+		this.compiledDispatch = null;
+	}
+
+	private StateMachineDefinition(StateMachineDefinition<S> source, CompiledDispatch<S> compiledDispatch) {
+		this.stateList = source.stateList;
+		this.entryHandlers = source.entryHandlers;
+		this.leaveHandlers = source.leaveHandlers;
+		this.exchangeHandlers = source.exchangeHandlers;
+		this.eventRegistries = source.eventRegistries;
+		this.executor = source.executor;
+		this.executorStrategy = source.executorStrategy;
+		this.async = source.async;
+		this.initialState = source.initialState;
+		this.type = source.type;
+		this.dispatchMode = source.dispatchMode;
+		this.contentionMode = source.contentionMode;
+		this.asyncBatchMode = source.asyncBatchMode;
+		this.bulkheads = source.bulkheads;
+		this.pipeline = source.pipeline;
+		this.compiledDispatch = compiledDispatch;
+	}
+
+	/**
+	 * 编译当前定义
+	 *
+	 * @return 编译后的定义, 当前定义已编译时返回自身
+	 */
+	public StateMachineDefinition<S> compile() {
+		if (compiledDispatch != null)
+			return this;
+		return new StateMachineDefinition<>(this, new CompiledDispatch<>(stateList, entryHandlers,
+				leaveHandlers, exchangeHandlers, async));
+	}
+
+	/**
+	 * 是否已编译
+	 *
+	 * @return 已编译返回真, 否则返回假
+	 */
+	public boolean isCompiled() {
+		return compiledDispatch != null;
+	}
+
+	/**
+	 * 使用定义中的初始状态创建状态机
+	 *
+	 * @param <M>	状态机类型
+	 * @return 状态机
+	 */
+	public <M extends StateMachine<S>> M newMachine() {
+		return newMachine(initialState);
+	}
+
+	/**
+	 * 使用指定的初始状态创建状态机
+	 * <p>
+	 * 定义中未指定执行器时, 每个状态机实例都会(通过执行器策略)创建各自的执行器, 与 {@link StateMachineBuilder#build()} 一致.
+	 *
+	 * @param initialState	初始状态
+	 * @param <M>			状态机类型
+	 * @return 状态机
+	 */
+	public <M extends StateMachine<S>> M newMachine(S initialState) {
+		return newMachine(type, stateList, newContext(initialState));
+	}
+
+	public List<S> getStates() {
+		return stateList;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	public ExecutorStrategy getExecutorStrategy() {
+		return executorStrategy;
+	}
+
+	public S getInitialState() {
+		return initialState;
+	}
+
+	public StateMachineType getType() {
+		return type;
+	}
+
+	public HandlerDispatchMode getDispatchMode() {
+		return dispatchMode;
+	}
+
+	public ContentionMode getContentionMode() {
+		return contentionMode;
+	}
+
+	public AsyncBatchMode getAsyncBatchMode() {
+		return asyncBatchMode;
+	}
+
+	Boolean getAsync() {
+		return async;
+	}
+
+	Map<S, List<StateHandlerWrapper<S>>> getEntryHandlers() {
+		return entryHandlers;
+	}
+
+	Map<S, List<StateHandlerWrapper<S>>> getLeaveHandlers() {
+		return leaveHandlers;
+	}
+
+	Map<String, List<StateHandlerWrapper<S>>> getExchangeHandlers() {
+		return exchangeHandlers;
+	}
+
+	Map<Object, List<Consumer<StateMachine<S>>>> getEventRegistries() {
+		return eventRegistries;
+	}
+
+	List<BulkheadDefinition<S>> getBulkheads() {
+		return bulkheads;
+	}
+
+	TransitionPipeline<S> getPipeline() {
+		return pipeline;
+	}
+
+	/**
+	 * 根据定义创建状态机上下文, 各上下文拥有独立的舱壁及合并投递状态
+	 *
+	 * @param initialState	初始状态
+	 * @return 状态机上下文
+	 */
+	StateMachineContext<S> newContext(S initialState) {
+		final StateMachineContext<S> context = new StateMachineContext<>(entryHandlers, leaveHandlers,
+				exchangeHandlers, eventRegistries, resolveExecutor(executor, executorStrategy), async, initialState);
+		context.dispatchMode = dispatchMode;
+		context.contentionMode = contentionMode;
+		context.asyncBatchMode = asyncBatchMode;
+		context.compiledDispatch = compiledDispatch;
+		context.pipeline = pipeline;
+		configureBulkheads(context, bulkheads);
+		return context;
+	}
+
+	/**
+	 * 根据类型创建状态机
+	 *
+	 * @param type		状态机类型
+	 * @param stateList	状态列表
+	 * @param context	状态机上下文
+	 * @param <S>		状态类型
+	 * @param <M>		状态机类型
+	 * @return 状态机
+	 */
+	@SuppressWarnings("unchecked")
+	static <S, M extends StateMachine<S>> M newMachine(StateMachineType type, List<S> stateList,
+													   StateMachineContext<S> context) {
+		if (type.equals(StateMachineType.STANDARD)) {
+			return (M)new StandardStateMachine<>(stateList, context);
+		} else if (type.equals(StateMachineType.CONCURRENT)) {
+			return (M)new DefaultConcurrentStateMachine<>(stateList, context);
+		}
+		throw new IllegalArgumentException("未知的状态机类型: " + type);
+	}
+
+	/**
+	 * 确定状态机使用的执行器
+	 *
+	 * @param executor			指定的执行器
+	 * @param executorStrategy	执行器策略
+	 * @return 指定了执行器时返回该执行器, 否则通过策略创建; 均未指定时返回空, 由上下文自动创建
+	 */
+	static Executor resolveExecutor(Executor executor, ExecutorStrategy executorStrategy) {
+		return executor != null || executorStrategy == null ? executor : executorStrategy.newExecutor();
+	}
+
+	/**
+	 * 根据舱壁定义创建舱壁, 所有舱壁复用状态机上下文中的执行器
+	 *
+	 * @param context		状态机上下文
+	 * @param definitions	舱壁定义
+	 * @param <S>			状态类型
+	 */
+	static <S> void configureBulkheads(StateMachineContext<S> context, Collection<BulkheadDefinition<S>> definitions) {
+		if (definitions.isEmpty())
+			return;
+		final Map<S, Bulkhead> stateBulkheads = new HashMap<>();
+		definitions.forEach(d -> {
+			final Bulkhead bulkhead = new Bulkhead(d.name, context.executor, d.maxConcurrent, d.queueCapacity);
+			d.states.forEach(state -> stateBulkheads.put(state, bulkhead));
+		});
+		context.bulkheads = stateBulkheads;
+	}
+
+	private static <K, V> Map<K, List<V>> freeze(Map<K, List<V>> source) {
+		final Map<K, List<V>> copy = new HashMap<>(Math.max(16, source.size() * 2));
+		source.forEach((k, v) -> copy.put(k, Collections.unmodifiableList(new ArrayList<>(v))));
+		return Collections.unmodifiableMap(copy);
+	}
+
+	/**
+	 * 舱壁定义
+	 */
+	static final class BulkheadDefinition<S> {
+
+		final String name;
+		final int maxConcurrent;
+		final int queueCapacity;
+		final List<S> states;
+
+		BulkheadDefinition(String name, int maxConcurrent, int queueCapacity, List<S> states) {
+			this.name = name;
+			this.maxConcurrent = maxConcurrent;
+			this.queueCapacity = queueCapacity;
+			this.states = states;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 不持有状态机本身, 每次调用时转发至实际状态机的句柄
+ * <p>
+ * 需要在一段时间内连续使用同一个实际状态机时(如多状态机事务的提交期间), 通过 {@link #lease()} 取得并锁定,
+ * 锁定期间实际状态机不会被替换.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineRegistry#get(Object)
+ */
+interface StateMachineHandle<S> extends StateMachine<S> {
+
+	/**
+	 * 取得并锁定实际的状态机, 使用结束后必须调用 {@link Lease#release()}
+	 *
+	 * @return 锁定的状态机
+	 */
+	Lease<S> lease();
+
+	/**
+	 * 锁定的实际状态机
+	 */
+	interface Lease<S> {
+
+		/**
+		 * @return 实际的状态机, 释放前有效
+		 */
+		StateMachine<S> machine();
+
+		/**
+		 * 解除锁定, 只能调用一次
+		 */
+		void release();
+	}
+}
@@ -0,0 +1,1252 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.manager.StateIndex;
+import com.serliunx.statemanagement.support.Bulkhead;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 按键管理状态机的注册表
+ * <p>
+ * 首次访问某个键时根据共享的 {@link StateMachineDefinition} 创建状态机; 闲置超过指定时间或活跃数量超出上限的状态机
+ * 将被钝化, 仅保留 (状态序号, 纪元) 两个整数压缩而成的 {@code long}, 释放状态机本身及其上下文、锁等对象;
+ * 再次访问时以钝化时的状态为初始状态重新创建状态机, 对调用方透明. 堆内存占用因此取决于活跃状态机的数量.
+ * <p>
+ * 键按哈希分布在多个分段中, 每个分段独立加锁; 分段内的活跃状态机组成环形链表, 使用时钟算法(二次机会)选择淘汰对象,
+ * 同时在访问时顺带检查少量状态机是否闲置, 也可以通过 {@link #passivateIdle()} 主动清理.
+ * <p>
+ * 通过 {@link #migrate(StateMachineDefinition, Function)} 可以将所有状态机迁移至新版本的定义(例如新增或重命名了状态):
+ * 各分段依次切换至新版本, 此后新建的状态机使用新版本, 已有的状态机在下次访问时按状态映射迁移, 也可以通过返回的
+ * {@link Migration} 分批迁移. 迁移期间只会逐个持有分段锁, 不会暂停其他分段的访问.
+ * <p>
+ * 注意:
+ * <ul>
+ *     <li> {@link #get(Object)} 返回的状态机只是按键转发的句柄, 可以长期持有, 每次调用都作用于当前活跃的状态机;
+ *     但多次调用之间可能发生钝化或迁移, 需要在一段逻辑中连续使用同一个状态机时应通过
+ *     {@link #withMachine(Object, Function)} 执行, 执行期间不会被钝化或迁移, 传入的状态机也不应在执行结束后继续使用
+ *     <li> 状态机定义必须指定共享的执行器, 否则每个状态机都会各自创建线程池
+ *     <li> 钝化不会保留提交后队列、合并投递等运行期状态
+ * </ul>
+ *
+ * <pre>{@code
+ * StateMachineRegistry<String, OrderState> registry = StateMachineRegistry.from(definition)
+ *         .idleTimeout(30, TimeUnit.MINUTES)
+ *         .maximumActive(10_000)
+ *         .build();
+ * registry.get(sessionId).switchNext();
+ * }</pre>
+ *
+ * @param <K>	键的类型
+ * @param <S>	状态类型
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public final class StateMachineRegistry<K, S> {
+
+	/**
+	 * 每访问多少次顺带检查一次闲置状态机, 必须为2的幂
+	 */
+	private static final int SWEEP_INTERVAL = 64;
+	/**
+	 * 顺带检查时最多检查的状态机数量
+	 */
+	private static final int SWEEP_BATCH = 8;
+	/**
+	 * 后台迁移时剩余的状态机均在使用中, 等待多久后重试
+	 */
+	private static final long MIGRATION_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * 最新版本的定义
+	 */
+	private volatile Generation<S> generation;
+	/**
+	 * 最近一次迁移, 未迁移过时为空
+	 */
+	private volatile Migration<K, S> migration;
+	private final long idleNanos;
+	private final int maximumActivePerSegment;
+	private final LongSupplier ticker;
+	private final Segment<K, S>[] segments;
+	private final int segmentMask;
+	/**
+	 * 占用索引, 未开启时为空
+	 */
+	private final StateOccupancyIndex<K, S> occupancy;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private StateMachineRegistry(Builder<K, S> builder) {
+		this.generation = new Generation<>(builder.definition, 1);
+		this.idleNanos = builder.idleNanos;
+		this.ticker = builder.ticker;
+		this.occupancy = builder.occupancyIndex ? new StateOccupancyIndex<>(generation.states) : null;
+		int size = 1;
+		while (size < builder.concurrencyLevel)
+			size <<= 1;
+		this.segments = new Segment[size];
+		for (int i = 0; i < size; i++)
+			segments[i] = new Segment<>(generation);
+		this.segmentMask = size - 1;
+		this.maximumActivePerSegment = builder.maximumActive == Integer.MAX_VALUE ?
+				Integer.MAX_VALUE : Math.max(1, (builder.maximumActive + size - 1) / size);
+	}
+
+	/**
+	 * 开始构建注册表
+	 *
+	 * @param definition	状态机定义
+	 * @param <K>			键的类型
+	 * @param <S>			状态类型
+	 * @return 注册表构建器
+	 * @throws IllegalArgumentException 状态机定义未指定执行器
+	 */
+	public static <K, S> Builder<K, S> from(StateMachineDefinition<S> definition) {
+		checkExecutor(definition);
+		return new Builder<>(definition);
+	}
+
+	/**
+	 * 获取键对应的状态机, 不存在时创建, 已钝化时重新激活
+	 * <p>
+	 * 返回的是转发至注册表的句柄: 每次调用时按键取得活跃的状态机(必要时重新激活或迁移), 调用期间不会被钝化,
+	 * 因此即使状态机在两次调用之间被钝化或迁移, 通过句柄进行的切换也不会丢失.
+	 * <p>
+	 * 状态机为 {@link StateMachineType#CONCURRENT} 类型时句柄同时实现 {@link ConcurrentStateMachine}.
+	 * 句柄可以参与多状态机事务({@link com.serliunx.statemanagement.machine.support.StateMachines#atomically()}),
+	 * 提交期间实际的状态机不会被钝化或迁移.
+	 *
+	 * @param key	键
+	 * @return 状态机句柄
+	 */
+	public StateMachine<S> get(K key) {
+		final Segment<K, S> segment = segmentFor(key);
+		final StateMachine<S> machine;
+		segment.lock();
+		try {
+			machine = activate(segment, key).machine;
+		} finally {
+			segment.unlock();
+		}
+		return handle(key, machine);
+	}
+
+	/**
+	 * 使用键对应的状态机执行逻辑, 执行期间该状态机不会被钝化
+	 * <p>
+	 * 传入的状态机仅在执行期间有效, 不应交给异步执行的逻辑; 需要在执行结束后继续使用时应改用 {@link #get(Object)} 返回的句柄.
+	 * 状态机的事件逻辑收到的同样是句柄, 可以在异步执行时切换状态.
+	 *
+	 * @param key		键
+	 * @param function	执行逻辑
+	 * @param <R>		返回值类型
+	 * @return 执行逻辑的返回值
+	 */
+	public <R> R withMachine(K key, Function<? super StateMachine<S>, R> function) {
+		final Entry<K, S> entry = pin(key);
+		try {
+			return function.apply(entry.machine);
+		} finally {
+			unpin(entry);
+		}
+	}
+
+	/**
+	 * 查询键对应的当前状态, 不会创建或激活状态机
+	 *
+	 * @param key	键
+	 * @return 当前状态, 键不存在时返回空
+	 */
+	public S peek(K key) {
+		final Segment<K, S> segment = segmentFor(key);
+		segment.lock();
+		try {
+			final Entry<K, S> entry = segment.map.get(key);
+			if (entry == null)
+				return null;
+			return entry.machine != null ? entry.machine.current() :
+					entry.generation.states.get(indexOf(entry.passivated));
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * 查询键对应的状态机所使用的定义版本, 不会创建、激活或迁移状态机
+	 *
+	 * @param key	键
+	 * @return 定义版本, 键不存在时返回 -1
+	 * @see #migrate(StateMachineDefinition, Function)
+	 */
+	public int version(K key) {
+		final Segment<K, S> segment = segmentFor(key);
+		segment.lock();
+		try {
+			final Entry<K, S> entry = segment.map.get(key);
+			return entry == null ? -1 : entry.generation.version;
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * 查询键对应的纪元, 状态机每次被重新激活(包括迁移至新版本的定义)时加一
+	 * <p>
+	 * 纪元发生变化说明此前在 {@link #withMachine(Object, Function)} 中取得的状态机对象已失效, {@link #get(Object)}
+	 * 返回的句柄不受影响.
+	 *
+	 * @param key	键
+	 * @return 纪元, 键不存在时返回 -1
+	 */
+	public int epoch(K key) {
+		final Segment<K, S> segment = segmentFor(key);
+		segment.lock();
+		try {
+			final Entry<K, S> entry = segment.map.get(key);
+			return entry == null ? -1 : epochOf(entry.passivated);
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * 移除键对应的状态机
+	 *
+	 * @param key	键
+	 * @return 键存在时返回真
+	 */
+	public boolean remove(K key) {
+		final Segment<K, S> segment = segmentFor(key);
+		segment.lock();
+		try {
+			final Entry<K, S> entry = segment.map.remove(key);
+			if (entry == null)
+				return false;
+			if (entry.machine != null)
+				segment.unlink(entry);
+			if (entry.generation != segment.generation)
+				segment.migrated(false);
+			if (occupancy != null)
+				occupancy.untrack(key);
+			return true;
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * 钝化所有闲置超时的状态机
+	 *
+	 * @return 本次钝化的数量
+	 */
+	public int passivateIdle() {
+		int count = 0;
+		final long now = ticker.getAsLong();
+		for (Segment<K, S> segment : segments) {
+			segment.lock();
+			try {
+				count += sweep(segment, now, segment.active);
+			} finally {
+				segment.unlock();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 注册表中键的数量, 包括已钝化的
+	 *
+	 * @return 键的数量
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, S> segment : segments) {
+			segment.lock();
+			try {
+				size += segment.map.size();
+			} finally {
+				segment.unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * 活跃状态机的数量
+	 *
+	 * @return 活跃状态机的数量
+	 */
+	public int activeCount() {
+		int count = 0;
+		for (Segment<K, S> segment : segments) {
+			segment.lock();
+			try {
+				count += segment.active;
+			} finally {
+				segment.unlock();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 获取占用索引, 已钝化的状态机按钝化时的状态计入
+	 *
+	 * @return 占用索引
+	 * @throws IllegalStateException 构建时未开启占用索引
+	 * @see Builder#occupancyIndex()
+	 */
+	public StateOccupancyIndex<K, S> occupancy() {
+		if (occupancy == null)
+			throw new IllegalStateException("Occupancy index not enabled");
+		return occupancy;
+	}
+
+	/**
+	 * 迁移至新版本的定义
+	 * <p>
+	 * 依次锁定各分段并切换至新版本, 切换后该分段新建的状态机使用新版本; 分段中已有的状态机在下次通过
+	 * {@link #get(Object)} 或 {@link #withMachine(Object, Function)} 访问时迁移, 也可以通过返回的 {@link Migration}
+	 * 分批或在后台迁移. 迁移一个状态机即按其当前状态钝化, 通过映射得到新版本中的状态后以新版本重新激活, 纪元随之加一;
+	 * 正在通过 {@link #withMachine(Object, Function)} (包括 {@link #get(Object)} 返回的句柄)使用的状态机不会被迁移,
+	 * 会在使用结束后的下次访问时迁移; 句柄在迁移后作用于新版本的状态机.
+	 * <p>
+	 * 映射在调用时即对旧版本的每个状态执行一次, 结果必须是新版本中的状态. 开启占用索引时新版本的状态列表必须与旧版本一致.
+	 * 同一时刻只能进行一次迁移, 上一次迁移完成前不能开始新的迁移.
+	 *
+	 * @param next		新版本的定义, 必须指定共享的执行器
+	 * @param mapping	旧版本状态至新版本状态的映射
+	 * @return 迁移进度
+	 * @throws IllegalArgumentException 定义未指定执行器或映射的结果不在新版本中
+	 * @throws IllegalStateException 上一次迁移尚未完成, 或开启了占用索引而状态列表不一致
+	 */
+	public synchronized Migration<K, S> migrate(StateMachineDefinition<S> next,
+												Function<? super S, ? extends S> mapping) {
+		checkExecutor(next);
+		final Migration<K, S> previous = migration;
+		if (previous != null && !previous.isComplete())
+			throw new IllegalStateException("Previous migration in progress: " + previous);
+		final Generation<S> from = generation;
+		if (occupancy != null && !from.states.equals(next.getStates()))
+			throw new IllegalStateException("Occupancy index requires the same state list");
+		final Generation<S> to = new Generation<>(next, from.version + 1);
+		final int[] remap = new int[from.states.size()];
+		for (int i = 0; i < remap.length; i++) {
+			final S mapped = mapping.apply(from.states.get(i));
+			if ((remap[i] = to.stateIndex.indexOf(mapped)) == -1)
+				throw new IllegalArgumentException("State " + from.states.get(i) +
+						" mapped to unknown state: " + mapped);
+		}
+
+		final Migration<K, S> current = new Migration<>(this, from, to, remap);
+		migration = current;
+		generation = to;
+		for (Segment<K, S> segment : segments) {
+			segment.lock();
+			try {
+				segment.generation = to;
+				segment.migration = current;
+				segment.pending.addAll(segment.map.values());
+				segment.stale = segment.map.size();
+				current.total.add(segment.stale);
+				current.remaining.add(segment.stale);
+				if (segment.stale == 0)
+					segment.migrated(false);
+			} finally {
+				segment.unlock();
+			}
+		}
+		current.switched = true;
+		return current;
+	}
+
+	/**
+	 * 最近一次迁移
+	 *
+	 * @return 迁移进度, 未迁移过时返回空
+	 */
+	public Migration<K, S> getMigration() {
+		return migration;
+	}
+
+	/**
+	 * 最新版本的定义版本, 构建时为1, 每次迁移加一
+	 *
+	 * @return 定义版本
+	 */
+	public int getVersion() {
+		return generation.version;
+	}
+
+	/**
+	 * 获取最新版本的定义, 迁移完成前部分状态机可能仍在使用旧版本
+	 *
+	 * @return 状态机定义
+	 */
+	public StateMachineDefinition<S> getDefinition() {
+		return generation.definition;
+	}
+
+	/**
+	 * 获取或激活状态机并标记为使用中, 使用结束后必须调用 {@link #unpin(Entry)}
+	 */
+	private Entry<K, S> pin(K key) {
+		final Segment<K, S> segment = segmentFor(key);
+		segment.lock();
+		try {
+			final Entry<K, S> entry = activate(segment, key);
+			entry.pins++;
+			return entry;
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	private void unpin(Entry<K, S> entry) {
+		final Segment<K, S> segment = segmentFor(entry.key);
+		segment.lock();
+		try {
+			entry.pins--;
+			entry.lastAccess = ticker.getAsLong();
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * 获取或激活状态机, 仅在持有分段锁的情况下调用
+	 */
+	private Entry<K, S> activate(Segment<K, S> segment, K key) {
+		final long now = ticker.getAsLong();
+		Entry<K, S> entry = segment.map.get(key);
+		if (entry != null && entry.generation != segment.generation)
+			migrateEntry(segment, entry);
+		if (entry == null) {
+			entry = new Entry<>(key, segment.generation);
+			entry.machine = bind(key, segment.generation.definition.newMachine());
+			segment.map.put(key, entry);
+			segment.link(entry);
+			if (occupancy != null)
+				occupancy.track(key, entry.machine);
+		} else if (entry.machine == null) {
+			final Generation<S> g = entry.generation;
+			entry.machine = bind(key, g.definition.newMachine(g.states.get(indexOf(entry.passivated))));
+			entry.passivated = pack(0, epochOf(entry.passivated) + 1);
+			segment.link(entry);
+			if (occupancy != null)
+				occupancy.track(key, entry.machine);
+		}
+		entry.lastAccess = now;
+		entry.referenced = true;
+
+		if (segment.active > maximumActivePerSegment)
+			evict(segment, entry);
+		if ((++segment.operations & (SWEEP_INTERVAL - 1)) == 0)
+			sweep(segment, now, SWEEP_BATCH);
+		return entry;
+	}
+
+	/**
+	 * 事件逻辑收到的状态机替换为句柄: 异步执行的事件逻辑在 {@link #withMachine(Object, Function)} 或句柄的调用结束后
+	 * 才会执行, 此时状态机可能已被钝化, 通过原状态机进行的切换将会丢失
+	 */
+	private StateMachine<S> bind(K key, StateMachine<S> machine) {
+		if (machine instanceof AbstractStateMachine)
+			((AbstractStateMachine<S>) machine).self = handle(key, machine);
+		return machine;
+	}
+
+	/**
+	 * 创建与状态机类型一致的句柄
+	 */
+	private StateMachine<S> handle(K key, StateMachine<S> machine) {
+		return machine instanceof ConcurrentStateMachine ? new ConcurrentHandle(key) : new Handle(key);
+	}
+
+	/**
+	 * 从时钟指针处开始检查指定数量的状态机, 钝化其中闲置超时的
+	 */
+	private int sweep(Segment<K, S> segment, long now, int limit) {
+		if (idleNanos == Long.MAX_VALUE)
+			return 0;
+		int count = 0;
+		for (int i = 0; i < limit && segment.hand != null; i++) {
+			final Entry<K, S> entry = segment.hand;
+			segment.hand = entry.next;
+			if (entry.pins == 0 && now - entry.lastAccess >= idleNanos) {
+				passivate(segment, entry);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 使用时钟算法钝化一个状态机: 跳过正在使用的, 最近访问过的清除访问标记后给予二次机会
+	 *
+	 * @param activating	正在激活的状态机, 调用方尚未标记为使用中, 不能被钝化
+	 */
+	private void evict(Segment<K, S> segment, Entry<K, S> activating) {
+		for (int i = 0, limit = segment.active * 2; i < limit; i++) {
+			final Entry<K, S> entry = segment.hand;
+			segment.hand = entry.next;
+			if (entry.pins > 0 || entry == activating)
+				continue;
+			if (entry.referenced) {
+				entry.referenced = false;
+				continue;
+			}
+			passivate(segment, entry);
+			return;
+		}
+	}
+
+	private void passivate(Segment<K, S> segment, Entry<K, S> entry) {
+		if (occupancy != null)
+			occupancy.detach(entry.key);
+		final int index = entry.generation.stateIndex.indexOf(entry.machine.current());
+		entry.passivated = pack(index, epochOf(entry.passivated));
+		entry.machine = null;
+		segment.unlink(entry);
+	}
+
+	/**
+	 * 将使用旧版本的状态机迁移至分段当前的版本, 仅在持有分段锁的情况下调用
+	 * <p>
+	 * 活跃的状态机先钝化, 再将钝化的状态映射至新版本, 下次激活时以新版本创建.
+	 *
+	 * @return 正在使用而无法迁移时返回假
+	 */
+	private boolean migrateEntry(Segment<K, S> segment, Entry<K, S> entry) {
+		if (entry.machine != null) {
+			if (entry.pins > 0)
+				return false;
+			passivate(segment, entry);
+		}
+		entry.passivated = pack(segment.migration.remap[indexOf(entry.passivated)], epochOf(entry.passivated));
+		entry.generation = segment.generation;
+		segment.migrated(true);
+		return true;
+	}
+
+	/**
+	 * 分批迁移, 每次最多迁移指定数量的状态机, 逐个持有分段锁
+	 *
+	 * @return 本次迁移的数量
+	 */
+	private int migrateBatch(Migration<K, S> migration, int limit) {
+		int count = 0;
+		final List<Entry<K, S>> pinned = new ArrayList<>();
+		for (Segment<K, S> segment : segments) {
+			if (count >= limit)
+				break;
+			segment.lock();
+			try {
+				if (segment.migration != migration)
+					continue;
+				Entry<K, S> entry;
+				while (count < limit && (entry = segment.pending.poll()) != null) {
+					// 已在访问时迁移或已被移除
+					if (entry.generation == segment.generation || segment.map.get(entry.key) != entry)
+						continue;
+					if (migrateEntry(segment, entry))
+						count++;
+					else
+						pinned.add(entry);
+				}
+				if (segment.migration != null)
+					segment.pending.addAll(pinned);
+				pinned.clear();
+			} finally {
+				segment.unlock();
+			}
+		}
+		return count;
+	}
+
+	private static void checkExecutor(StateMachineDefinition<?> definition) {
+		if (definition.getExecutor() == null)
+			throw new IllegalArgumentException("状态机定义必须指定共享的执行器");
+	}
+
+	private Segment<K, S> segmentFor(K key) {
+		final int h = key.hashCode();
+		return segments[(h ^ (h >>> 16)) & segmentMask];
+	}
+
+	private static long pack(int index, int epoch) {
+		return ((long) epoch << 32) | (index & 0xFFFFFFFFL);
+	}
+
+	private static int indexOf(long packed) {
+		return (int) packed;
+	}
+
+	private static int epochOf(long packed) {
+		return (int) (packed >>> 32);
+	}
+
+	/**
+	 * {@link #get(Object)} 返回的状态机
+	 * <p>
+	 * 不持有状态机本身, 每次调用都经由 {@link #withMachine(Object, Function)} 转发至键对应的活跃状态机,
+	 * 调用期间该状态机不会被钝化或迁移; 因此钝化、重新激活及迁移至新版本的定义对持有者透明.
+	 */
+	private class Handle implements StateMachineHandle<S> {
+
+		final K key;
+
+		Handle(K key) {
+			this.key = key;
+		}
+
+		@Override
+		public Lease<S> lease() {
+			final Entry<K, S> entry = pin(key);
+			return new Lease<S>() {
+				@Override
+				public StateMachine<S> machine() {
+					return entry.machine;
+				}
+
+				@Override
+				public void release() {
+					unpin(entry);
+				}
+			};
+		}
+
+		@Override
+		public void switchNext(boolean invokeHandlers) {
+			withMachine(key, m -> {
+				m.switchNext(invokeHandlers);
+				return null;
+			});
+		}
+
+		@Override
+		public S getAndSwitchNext(boolean invokeHandlers) {
+			return withMachine(key, m -> m.getAndSwitchNext(invokeHandlers));
+		}
+
+		@Override
+		public S switchNextAndGet(boolean invokeHandlers) {
+			return withMachine(key, m -> m.switchNextAndGet(invokeHandlers));
+		}
+
+		@Override
+		public void switchPrev(boolean invokeHandlers) {
+			withMachine(key, m -> {
+				m.switchPrev(invokeHandlers);
+				return null;
+			});
+		}
+
+		@Override
+		public S getAndSwitchPrev(boolean invokeHandlers) {
+			return withMachine(key, m -> m.getAndSwitchPrev(invokeHandlers));
+		}
+
+		@Override
+		public S switchPrevAndGet(boolean invokeHandlers) {
+			return withMachine(key, m -> m.switchPrevAndGet(invokeHandlers));
+		}
+
+		@Override
+		public void reset(boolean invokeHandlers) {
+			withMachine(key, m -> {
+				m.reset(invokeHandlers);
+				return null;
+			});
+		}
+
+		@Override
+		public boolean switchTo(S state, boolean invokeHandlers) {
+			return withMachine(key, m -> m.switchTo(state, invokeHandlers));
+		}
+
+		@Override
+		public void publish(Object event) {
+			withMachine(key, m -> {
+				m.publish(event);
+				return null;
+			});
+		}
+
+		@Override
+		public boolean switchTo(S state) {
+			return withMachine(key, m -> m.switchTo(state));
+		}
+
+		@Override
+		public CompletableFuture<TransitionResult<S>> switchToAsync(S state) {
+			return withMachine(key, m -> m.switchToAsync(state));
+		}
+
+		@Override
+		public CompletableFuture<TransitionResult<S>> switchNextAsync() {
+			return withMachine(key, StateMachine::switchNextAsync);
+		}
+
+		@Override
+		public CompletableFuture<TransitionResult<S>> publishAsync(Object event) {
+			return withMachine(key, m -> m.publishAsync(event));
+		}
+
+		@Override
+		public boolean transaction(Consumer<StateTransaction<S>> transaction) {
+			return withMachine(key, m -> m.transaction(transaction));
+		}
+
+		@Override
+		public boolean transaction(Consumer<StateTransaction<S>> transaction, BatchDispatchMode mode) {
+			return withMachine(key, m -> m.transaction(transaction, mode));
+		}
+
+		@Override
+		public boolean applyAll(List<S> path) {
+			return withMachine(key, m -> m.applyAll(path));
+		}
+
+		@Override
+		public boolean applyAll(List<S> path, BatchDispatchMode mode) {
+			return withMachine(key, m -> m.applyAll(path, mode));
+		}
+
+		@Override
+		public Map<String, Bulkhead> bulkheads() {
+			return withMachine(key, StateMachine::bulkheads);
+		}
+
+		@Override
+		public S switchPrevAndGet() {
+			return withMachine(key, StateMachine::switchPrevAndGet);
+		}
+
+		@Override
+		public S getAndSwitchPrev() {
+			return withMachine(key, StateMachine::getAndSwitchPrev);
+		}
+
+		@Override
+		public void switchPrev() {
+			withMachine(key, m -> {
+				m.switchPrev();
+				return null;
+			});
+		}
+
+		@Override
+		public S switchNextAndGet() {
+			return withMachine(key, StateMachine::switchNextAndGet);
+		}
+
+		@Override
+		public S getAndSwitchNext() {
+			return withMachine(key, StateMachine::getAndSwitchNext);
+		}
+
+		@Override
+		public void switchNext() {
+			withMachine(key, m -> {
+				m.switchNext();
+				return null;
+			});
+		}
+
+		@Override
+		public S current() {
+			return withMachine(key, StateMachine::current);
+		}
+
+		@Override
+		public void reset() {
+			withMachine(key, m -> {
+				m.reset();
+				return null;
+			});
+		}
+
+		@Override
+		public void awaitState(S state) throws InterruptedException {
+			final Entry<K, S> entry = pin(key);
+			try {
+				entry.machine.awaitState(state);
+			} finally {
+				unpin(entry);
+			}
+		}
+
+		@Override
+		public boolean awaitState(S state, long timeout, TimeUnit unit) throws InterruptedException {
+			final Entry<K, S> entry = pin(key);
+			try {
+				return entry.machine.awaitState(state, timeout, unit);
+			} finally {
+				unpin(entry);
+			}
+		}
+
+		@Override
+		public S awaitAny(Set<S> states) throws InterruptedException {
+			final Entry<K, S> entry = pin(key);
+			try {
+				return entry.machine.awaitAny(states);
+			} finally {
+				unpin(entry);
+			}
+		}
+
+		@Override
+		public S awaitAny(Set<S> states, long timeout, TimeUnit unit) throws InterruptedException {
+			final Entry<K, S> entry = pin(key);
+			try {
+				return entry.machine.awaitAny(states, timeout, unit);
+			} finally {
+				unpin(entry);
+			}
+		}
+
+		@Override
+		public int size() {
+			return withMachine(key, StateMachine::size);
+		}
+
+		@Override
+		public boolean isSwitchable() {
+			return withMachine(key, StateMachine::isSwitchable);
+		}
+
+		@Override
+		public boolean switchToIfMatch(S now, S newState) {
+			return withMachine(key, m -> m.switchToIfMatch(now, newState));
+		}
+
+		@Override
+		public void computeIfMatch(S state, Runnable action) {
+			withMachine(key, m -> {
+				m.computeIfMatch(state, action);
+				return null;
+			});
+		}
+
+		@Override
+		public boolean isCircle() {
+			return withMachine(key, StateMachine::isCircle);
+		}
+
+		/**
+		 * 状态机由注册表管理, 关闭句柄不会关闭状态机
+		 */
+		@Override
+		public void close() {}
+
+		@Override
+		public String toString() {
+			return "StateMachineRegistry.Handle{" + key + "}";
+		}
+	}
+
+	/**
+	 * {@link StateMachineType#CONCURRENT} 类型的状态机的句柄
+	 * <p>
+	 * 迁移至其他类型的定义后, 比较并交换将抛出 {@link UnsupportedOperationException}.
+	 */
+	private final class ConcurrentHandle extends Handle implements ConcurrentStateMachine<S> {
+
+		ConcurrentHandle(K key) {
+			super(key);
+		}
+
+		@Override
+		public boolean compareAndSet(S expectedValue, S newValue) {
+			return withMachine(key, m -> concurrent(m).compareAndSet(expectedValue, newValue));
+		}
+
+		@Override
+		public boolean compareAndSet(S expectedValue, S newValue, boolean invokeHandlers) {
+			return withMachine(key, m -> concurrent(m).compareAndSet(expectedValue, newValue, invokeHandlers));
+		}
+
+		private ConcurrentStateMachine<S> concurrent(StateMachine<S> machine) {
+			if (!(machine instanceof ConcurrentStateMachine))
+				throw new UnsupportedOperationException("State machine of " + key + " is no longer concurrent");
+			return (ConcurrentStateMachine<S>) machine;
+		}
+	}
+
+	/**
+	 * 分段, 锁即分段本身
+	 */
+	private static final class Segment<K, S> extends ReentrantLock {
+
+		private static final long serialVersionUID = 1L;
+
+		final Map<K, Entry<K, S>> map = new HashMap<>();
+		/**
+		 * 时钟指针, 指向环形链表中下一个待检查的活跃状态机
+		 */
+		Entry<K, S> hand;
+		int active;
+		int operations;
+		/**
+		 * 分段当前使用的定义版本
+		 */
+		Generation<S> generation;
+		/**
+		 * 进行中的迁移, 分段内的状态机均已迁移后为空
+		 */
+		Migration<K, S> migration;
+		/**
+		 * 待迁移的状态机, 其中可能包含已在访问时迁移或已被移除的
+		 */
+		final ArrayDeque<Entry<K, S>> pending = new ArrayDeque<>();
+		/**
+		 * 仍在使用旧版本的状态机数量
+		 */
+		int stale;
+
+		Segment(Generation<S> generation) {
+			this.generation = generation;
+		}
+
+		/**
+		 * 一个使用旧版本的状态机已迁移或已被移除
+		 *
+		 * @param migrated	是否为迁移
+		 */
+		void migrated(boolean migrated) {
+			final Migration<K, S> m = migration;
+			if (stale > 0) {
+				stale--;
+				m.remaining.decrement();
+				if (migrated)
+					m.migrated.increment();
+			}
+			if (stale == 0) {
+				pending.clear();
+				migration = null;
+			}
+		}
+
+		void link(Entry<K, S> entry) {
+			if (hand == null) {
+				entry.prev = entry.next = entry;
+				hand = entry;
+			} else {
+				// 插入到指针之前, 即最后才会被检查
+				entry.next = hand;
+				entry.prev = hand.prev;
+				hand.prev.next = entry;
+				hand.prev = entry;
+			}
+			active++;
+		}
+
+		void unlink(Entry<K, S> entry) {
+			if (entry.next == entry) {
+				hand = null;
+			} else {
+				entry.prev.next = entry.next;
+				entry.next.prev = entry.prev;
+				if (hand == entry)
+					hand = entry.next;
+			}
+			entry.prev = entry.next = null;
+			active--;
+		}
+	}
+
+	/**
+	 * 注册表条目
+	 */
+	private static final class Entry<K, S> {
+
+		final K key;
+		/**
+		 * 状态机所使用的定义版本
+		 */
+		Generation<S> generation;
+		/**
+		 * 活跃的状态机, 钝化后为空
+		 */
+		StateMachine<S> machine;
+		/**
+		 * 高32位为纪元; 钝化后低32位为钝化时的状态序号
+		 */
+		long passivated;
+		long lastAccess;
+		/**
+		 * 自上次时钟指针经过后是否被访问过
+		 */
+		boolean referenced;
+		/**
+		 * 正在使用该状态机的逻辑数量
+		 */
+		int pins;
+		Entry<K, S> prev;
+		Entry<K, S> next;
+
+		Entry(K key, Generation<S> generation) {
+			this.key = key;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * 定义的一个版本
+	 */
+	private static final class Generation<S> {
+
+		final StateMachineDefinition<S> definition;
+		final List<S> states;
+		final StateIndex<S> stateIndex;
+		final int version;
+
+		Generation(StateMachineDefinition<S> definition, int version) {
+			this.definition = definition;
+			this.states = definition.getStates();
+			this.stateIndex = StateIndex.of(states);
+			this.version = version;
+		}
+	}
+
+	/**
+	 * 一次定义版本的迁移
+	 * <p>
+	 * 记录迁移的进度, 并提供分批迁移的方法; 未通过此处迁移的状态机会在下次访问时迁移.
+	 * 迁移开始后新建的状态机直接使用新版本, 不计入进度.
+	 *
+	 * @param <K>	键的类型
+	 * @param <S>	状态类型
+	 * @see StateMachineRegistry#migrate(StateMachineDefinition, Function)
+	 */
+	public static final class Migration<K, S> {
+
+		private final StateMachineRegistry<K, S> registry;
+		private final Generation<S> from;
+		private final Generation<S> to;
+		/**
+		 * 旧版本状态序号至新版本状态序号的映射
+		 */
+		private final int[] remap;
+		private final LongAdder total = new LongAdder();
+		private final LongAdder remaining = new LongAdder();
+		private final LongAdder migrated = new LongAdder();
+		/**
+		 * 所有分段是否均已切换至新版本
+		 */
+		private volatile boolean switched;
+
+		private Migration(StateMachineRegistry<K, S> registry, Generation<S> from, Generation<S> to, int[] remap) {
+			this.registry = registry;
+			this.from = from;
+			this.to = to;
+			this.remap = remap;
+		}
+
+		/**
+		 * 迁移一批状态机, 正在使用的状态机留待下次迁移
+		 *
+		 * @param limit	本次最多迁移的数量
+		 * @return 本次迁移的数量
+		 */
+		public int migrateBatch(int limit) {
+			if (limit <= 0)
+				throw new IllegalArgumentException("limit must be positive");
+			return registry.migrateBatch(this, limit);
+		}
+
+		/**
+		 * 在指定的调度器中分批迁移剩余的状态机, 每批作为一个独立的任务调度, 批次之间不占用调度器的线程;
+		 * 剩余的状态机均在使用中时延迟后重试. 返回的结果被取消后不再调度后续批次.
+		 *
+		 * @param scheduler	调度器
+		 * @param batchSize	每批迁移的数量
+		 * @return 全部迁移完成时完成
+		 */
+		public CompletableFuture<Migration<K, S>> migrateAsync(ScheduledExecutorService scheduler, int batchSize) {
+			if (batchSize <= 0)
+				throw new IllegalArgumentException("batchSize must be positive");
+			final CompletableFuture<Migration<K, S>> future = new CompletableFuture<>();
+			scheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (future.isDone())
+						return;
+					try {
+						final long delay = registry.migrateBatch(Migration.this, batchSize) == 0 ?
+								MIGRATION_RETRY_NANOS : 0;
+						if (isComplete())
+							future.complete(Migration.this);
+						else
+							// 通过调度器提交下一批, 不在当前任务中重入执行器
+							scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+					} catch (Throwable t) {
+						future.completeExceptionally(t);
+					}
+				}
+			});
+			return future;
+		}
+
+		/**
+		 * 所有状态机是否均已迁移(或已被移除)
+		 *
+		 * @return 完成时返回真
+		 */
+		public boolean isComplete() {
+			return switched && remaining.sum() == 0;
+		}
+
+		/**
+		 * 迁移开始时使用旧版本的状态机数量
+		 *
+		 * @return 状态机数量
+		 */
+		public long getTotal() {
+			return total.sum();
+		}
+
+		/**
+		 * 已迁移的状态机数量
+		 *
+		 * @return 状态机数量
+		 */
+		public long getMigrated() {
+			return migrated.sum();
+		}
+
+		/**
+		 * 尚未迁移的状态机数量
+		 *
+		 * @return 状态机数量
+		 */
+		public long getRemaining() {
+			return remaining.sum();
+		}
+
+		public int getFromVersion() {
+			return from.version;
+		}
+
+		public int getToVersion() {
+			return to.version;
+		}
+
+		public StateMachineDefinition<S> getDefinition() {
+			return to.definition;
+		}
+
+		@Override
+		public String toString() {
+			return "Migration{" + from.version + " -> " + to.version + ", migrated=" + getMigrated() +
+					", remaining=" + getRemaining() + "}";
+		}
+	}
+
+	/**
+	 * 注册表构建器
+	 *
+	 * @param <K>	键的类型
+	 * @param <S>	状态类型
+	 */
+	public static final class Builder<K, S> {
+
+		private final StateMachineDefinition<S> definition;
+		private long idleNanos = Long.MAX_VALUE;
+		private int maximumActive = Integer.MAX_VALUE;
+		private int concurrencyLevel = 16;
+		private LongSupplier ticker = System::nanoTime;
+		private boolean occupancyIndex;
+
+		private Builder(StateMachineDefinition<S> definition) {
+			this.definition = definition;
+		}
+
+		/**
+		 * 指定闲置多久后钝化, 默认不因闲置而钝化
+		 *
+		 * @param duration	时长
+		 * @param unit		时长单位
+		 * @return 当前对象, 链式调用
+		 */
+		public Builder<K, S> idleTimeout(long duration, TimeUnit unit) {
+			if (duration <= 0)
+				throw new IllegalArgumentException("duration must be positive");
+			this.idleNanos = unit.toNanos(duration);
+			return this;
+		}
+
+		/**
+		 * 指定活跃状态机数量的上限, 超出时按时钟算法钝化; 上限平均分配至各分段, 默认不限制
+		 *
+		 * @param maximumActive	活跃状态机数量的上限
+		 * @return 当前对象, 链式调用
+		 */
+		public Builder<K, S> maximumActive(int maximumActive) {
+			if (maximumActive <= 0)
+				throw new IllegalArgumentException("maximumActive must be positive");
+			this.maximumActive = maximumActive;
+			return this;
+		}
+
+		/**
+		 * 指定分段数量, 向上取整至2的幂, 默认为16
+		 *
+		 * @param concurrencyLevel	分段数量
+		 * @return 当前对象, 链式调用
+		 */
+		public Builder<K, S> concurrencyLevel(int concurrencyLevel) {
+			if (concurrencyLevel <= 0 || concurrencyLevel > 1 << 16)
+				throw new IllegalArgumentException("concurrencyLevel out of range: " + concurrencyLevel);
+			this.concurrencyLevel = concurrencyLevel;
+			return this;
+		}
+
+		/**
+		 * 指定时间源(纳秒), 默认为 {@link System#nanoTime()}
+		 *
+		 * @param ticker	时间源
+		 * @return 当前对象, 链式调用
+		 */
+		public Builder<K, S> ticker(LongSupplier ticker) {
+			if (ticker == null)
+				throw new NullPointerException();
+			this.ticker = ticker;
+			return this;
+		}
+
+		/**
+		 * 开启占用索引
+		 *
+		 * @return 当前对象, 链式调用
+		 * @see StateMachineRegistry#occupancy()
+		 */
+		public Builder<K, S> occupancyIndex() {
+			this.occupancyIndex = true;
+			return this;
+		}
+
+		/**
+		 * 执行构建
+		 *
+		 * @return 注册表
+		 */
+		public StateMachineRegistry<K, S> build() {
+			return new StateMachineRegistry<>(this);
+		}
+	}
+}
@@ -0,0 +1,530 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.StateMachineDefinition.BulkheadDefinition;
+import com.serliunx.statemanagement.machine.handler.StateHandler;
+import com.serliunx.statemanagement.machine.handler.StateHandlerWrapper;
+import com.serliunx.statemanagement.manager.StateIndex;
+import com.serliunx.statemanagement.support.ExecutorStrategy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 状态机定义的二进制快照
+ * <p>
+ * 将冻结的定义(状态表、各状态及切换上的处理器布局、事件、舱壁、切换守卫及拦截器、各项配置)写入紧凑的二进制文件, 启动时一次读取整个文件即可还原定义,
+ * 无需重新执行构建器中大量的注册调用. 文件中的字符串集中存放于字符串表, 其余部分仅引用其序号.
+ * <p>
+ * 处理器、事件逻辑、事件、执行器、执行器策略、守卫及拦截器无法序列化, 通过 {@link Bindings} 按名称绑定: 写入时记录名称, 读取时按名称重新绑定,
+ * 写入时遇到未绑定的对象或读取时遇到未绑定的名称均抛出 {@link IllegalArgumentException}.
+ * 状态按 {@link Object#toString()} 记录, 读取时与传入的状态列表逐个比对, 不一致时抛出 {@link IllegalStateException}.
+ * 编译过的定义读取后重新编译.
+ *
+ * <pre>{@code
+ * StateMachineSnapshot.Bindings<PrinterState> bindings = new StateMachineSnapshot.Bindings<PrinterState>()
+ *         .handler("onPrinting", printingHandler)
+ *         .executor("default", executor);
+ * StateMachineSnapshot.write(definition, bindings, path);
+ * StateMachineDefinition<PrinterState> definition = StateMachineSnapshot.read(path, PrinterState.values(), bindings);
+ * }</pre>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineDefinition
+ */
+public final class StateMachineSnapshot {
+
+	private static final int MAGIC = 0x534D4431;
+	private static final int VERSION = 1;
+	/**
+	 * 空引用
+	 */
+	private static final int NONE = -1;
+
+	private static final StateMachineType[] TYPES = StateMachineType.values();
+	private static final HandlerDispatchMode[] DISPATCH_MODES = HandlerDispatchMode.values();
+	private static final ContentionMode[] CONTENTION_MODES = ContentionMode.values();
+	private static final AsyncBatchMode[] ASYNC_BATCH_MODES = AsyncBatchMode.values();
+
+	private StateMachineSnapshot() {throw new UnsupportedOperationException();}
+
+	/**
+	 * 将定义写入快照文件, 文件已存在时覆盖
+	 *
+	 * @param definition	状态机定义
+	 * @param bindings		名称绑定
+	 * @param path			文件路径
+	 * @param <S>			状态类型
+	 * @throws IOException 文件写入失败
+	 * @throws IllegalArgumentException 定义中存在未绑定的处理器、事件逻辑、事件或执行器
+	 */
+	public static <S> void write(StateMachineDefinition<S> definition, Bindings<S> bindings, Path path)
+			throws IOException {
+		Files.write(path, toBytes(definition, bindings));
+	}
+
+	/**
+	 * 从快照文件读取定义
+	 *
+	 * @param path		文件路径
+	 * @param states	状态集合, 必须与写入时一致
+	 * @param bindings	名称绑定
+	 * @param <S>		状态类型
+	 * @return 状态机定义
+	 * @throws IOException 文件读取失败
+	 * @see #fromBytes(byte[], List, Bindings)
+	 */
+	public static <S> StateMachineDefinition<S> read(Path path, S[] states, Bindings<S> bindings) throws IOException {
+		return read(path, Arrays.asList(states), bindings);
+	}
+
+	/**
+	 * 从快照文件读取定义
+	 *
+	 * @param path		文件路径
+	 * @param states	状态集合, 必须与写入时一致
+	 * @param bindings	名称绑定
+	 * @param <S>		状态类型
+	 * @return 状态机定义
+	 * @throws IOException 文件读取失败
+	 * @see #fromBytes(byte[], List, Bindings)
+	 */
+	public static <S> StateMachineDefinition<S> read(Path path, List<S> states, Bindings<S> bindings)
+			throws IOException {
+		return fromBytes(Files.readAllBytes(path), states, bindings);
+	}
+
+	/**
+	 * 将定义编码为快照
+	 *
+	 * @param definition	状态机定义
+	 * @param bindings		名称绑定
+	 * @param <S>			状态类型
+	 * @return 快照
+	 * @throws IllegalArgumentException 定义中存在未绑定的处理器、事件逻辑、事件或执行器
+	 */
+	public static <S> byte[] toBytes(StateMachineDefinition<S> definition, Bindings<S> bindings) {
+		final List<S> states = definition.getStates();
+		final StateIndex<S> stateIndex = StateIndex.of(states);
+		final Map<String, Integer> strings = new LinkedHashMap<>();
+		final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+		try {
+			final DataOutputStream out = new DataOutputStream(body);
+			out.writeInt(states.size());
+			for (S state : states)
+				out.writeInt(string(strings, state.toString()));
+			out.writeInt(definition.getInitialState() == null ? NONE :
+					stateIndex.indexOf(definition.getInitialState()));
+			out.writeByte(definition.getType().ordinal());
+			out.writeByte(definition.getDispatchMode().ordinal());
+			out.writeByte(definition.getContentionMode().ordinal());
+			out.writeByte(definition.getAsyncBatchMode().ordinal());
+			out.writeByte(bool(definition.getAsync()));
+			out.writeBoolean(definition.isCompiled());
+			out.writeInt(definition.getExecutor() == null ? NONE :
+					string(strings, name("executor", bindings.executorNames, definition.getExecutor())));
+			out.writeInt(definition.getExecutorStrategy() == null ? NONE : string(strings,
+					name("executor strategy", bindings.strategyNames, definition.getExecutorStrategy())));
+
+			writeHandlers(out, strings, bindings, definition.getEntryHandlers(), stateIndex::indexOf);
+			writeHandlers(out, strings, bindings, definition.getLeaveHandlers(), stateIndex::indexOf);
+			// 交换处理器以 "源状态-目的状态" 为键, 按状态对还原
+			final Map<String, Integer> exchanges = new HashMap<>();
+			for (int i = 0; i < states.size(); i++) {
+				for (int j = 0; j < states.size(); j++) {
+					final String key = states.get(i).toString() + "-" + states.get(j).toString();
+					if (definition.getExchangeHandlers().containsKey(key))
+						exchanges.putIfAbsent(key, i * states.size() + j);
+				}
+			}
+			writeHandlers(out, strings, bindings, definition.getExchangeHandlers(), key -> {
+				final Integer pair = exchanges.get(key);
+				if (pair == null)
+					throw new IllegalArgumentException("Unknown exchange: " + key);
+				return pair;
+			});
+
+			out.writeInt(definition.getEventRegistries().size());
+			for (Map.Entry<Object, List<Consumer<StateMachine<S>>>> entry : definition.getEventRegistries().entrySet()) {
+				out.writeInt(string(strings, name("event", bindings.eventNames, entry.getKey())));
+				out.writeInt(entry.getValue().size());
+				for (Consumer<StateMachine<S>> logic : entry.getValue())
+					out.writeInt(string(strings, name("logic", bindings.logicNames, logic)));
+			}
+
+			out.writeInt(definition.getBulkheads().size());
+			for (BulkheadDefinition<S> bulkhead : definition.getBulkheads()) {
+				out.writeInt(string(strings, bulkhead.name));
+				out.writeInt(bulkhead.maxConcurrent);
+				out.writeInt(bulkhead.queueCapacity);
+				out.writeInt(bulkhead.states.size());
+				for (S state : bulkhead.states)
+					out.writeInt(stateIndex.indexOf(state));
+			}
+
+			final TransitionPipeline<S> pipeline = definition.getPipeline();
+			final TransitionGuard<S>[] guards = pipeline == null ? null : pipeline.guards();
+			out.writeInt(guards == null ? 0 : guards.length);
+			for (int i = 0; guards != null && i < guards.length; i++)
+				out.writeInt(string(strings, name("guard", bindings.guardNames, guards[i])));
+			final TransitionInterceptor<S>[] interceptors = pipeline == null ? null : pipeline.interceptors();
+			out.writeInt(interceptors == null ? 0 : interceptors.length);
+			for (int i = 0; interceptors != null && i < interceptors.length; i++)
+				out.writeInt(string(strings, name("interceptor", bindings.interceptorNames, interceptors[i])));
+
+			final ByteArrayOutputStream snapshot = new ByteArrayOutputStream(body.size() + strings.size() * 16 + 16);
+			final DataOutputStream header = new DataOutputStream(snapshot);
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.writeInt(strings.size());
+			for (String s : strings.keySet()) {
+				final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				header.writeInt(bytes.length);
+				header.write(bytes);
+			}
+			body.writeTo(snapshot);
+			return snapshot.toByteArray();
+		} catch (IOException e) {
+			// 不应该发生
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 从快照还原定义
+	 *
+	 * @param snapshot	快照
+	 * @param states	状态集合, 必须与写入时一致
+	 * @param bindings	名称绑定
+	 * @param <S>		状态类型
+	 * @return 状态机定义
+	 * @throws IllegalStateException 快照损坏或与状态集合不匹配
+	 * @throws IllegalArgumentException 快照中存在未绑定的名称
+	 */
+	public static <S> StateMachineDefinition<S> fromBytes(byte[] snapshot, List<S> states, Bindings<S> bindings) {
+		final ByteBuffer in = ByteBuffer.wrap(snapshot);
+		try {
+			if (in.getInt() != MAGIC || in.getInt() != VERSION)
+				throw new IllegalStateException("Not a state machine snapshot");
+			final String[] strings = new String[count(in, 4)];
+			for (int i = 0; i < strings.length; i++) {
+				final int length = count(in, 1);
+				strings[i] = new String(snapshot, in.position(), length, StandardCharsets.UTF_8);
+				in.position(in.position() + length);
+			}
+
+			// 已取得的绑定对象, 依次为处理器、执行器、执行器策略、守卫、拦截器
+			final Object[][] resolved = {new Object[strings.length], new Object[strings.length],
+					new Object[strings.length], new Object[strings.length], new Object[strings.length]};
+			final Object[] resolvedEvents = new Object[strings.length];
+			final Object[] resolvedLogics = new Object[strings.length];
+
+			final int stateCount = in.getInt();
+			if (stateCount != states.size())
+				throw new IllegalStateException("State definition mismatch: " + stateCount + " states");
+			for (S state : states) {
+				final String name = strings[in.getInt()];
+				if (!name.equals(state.toString()))
+					throw new IllegalStateException("State definition mismatch: " + name + " / " + state);
+			}
+			final int initial = in.getInt();
+			final StateMachineType type = TYPES[in.get()];
+			final HandlerDispatchMode dispatchMode = DISPATCH_MODES[in.get()];
+			final ContentionMode contentionMode = CONTENTION_MODES[in.get()];
+			final AsyncBatchMode asyncBatchMode = ASYNC_BATCH_MODES[in.get()];
+			final byte async = in.get();
+			final boolean compiled = in.get() != 0;
+			final int executor = in.getInt();
+			final int strategy = in.getInt();
+
+			final Map<S, List<StateHandlerWrapper<S>>> entryHandlers = readHandlers(in, strings, resolved,
+					bindings, states, false);
+			final Map<S, List<StateHandlerWrapper<S>>> leaveHandlers = readHandlers(in, strings, resolved,
+					bindings, states, false);
+			final Map<String, List<StateHandlerWrapper<S>>> exchangeHandlers = readHandlers(in, strings, resolved,
+					bindings, states, true);
+
+			final int eventCount = count(in, 8);
+			final Map<Object, List<Consumer<StateMachine<S>>>> eventRegistries = new HashMap<>(capacity(eventCount));
+			for (int i = 0; i < eventCount; i++) {
+				final Object event = bound("event", bindings.events, strings, resolvedEvents, in.getInt());
+				final int size = count(in, 4);
+				final List<Consumer<StateMachine<S>>> logics = new ArrayList<>(size);
+				for (int j = 0; j < size; j++)
+					logics.add(bound("logic", bindings.logics, strings, resolvedLogics, in.getInt()));
+				eventRegistries.put(event, Collections.unmodifiableList(logics));
+			}
+
+			final int bulkheadCount = count(in, 16);
+			final List<BulkheadDefinition<S>> bulkheads = new ArrayList<>(bulkheadCount);
+			for (int i = 0; i < bulkheadCount; i++) {
+				final String name = strings[in.getInt()];
+				final int maxConcurrent = in.getInt();
+				final int queueCapacity = in.getInt();
+				final List<S> bulkheadStates = new ArrayList<>();
+				for (int j = count(in, 4); j > 0; j--)
+					bulkheadStates.add(states.get(in.getInt()));
+				bulkheads.add(new BulkheadDefinition<>(name, maxConcurrent, queueCapacity, bulkheadStates));
+			}
+
+			final List<TransitionGuard<S>> guards = new ArrayList<>();
+			for (int i = count(in, 4); i > 0; i--)
+				guards.add(bound("guard", bindings.guards, strings, resolved[3], in.getInt()));
+			final List<TransitionInterceptor<S>> interceptors = new ArrayList<>();
+			for (int i = count(in, 4); i > 0; i--)
+				interceptors.add(bound("interceptor", bindings.interceptors, strings, resolved[4], in.getInt()));
+
+			// 读取时已按冻结后的形式构建, 无需再次复制
+			final StateMachineDefinition<S> definition = new StateMachineDefinition<>(states, entryHandlers,
+					leaveHandlers, exchangeHandlers, Collections.unmodifiableMap(eventRegistries),
+					executor == NONE ? null : bound("executor", bindings.executors, strings, resolved[1], executor),
+					strategy == NONE ? null :
+							bound("executor strategy", bindings.strategies, strings, resolved[2], strategy),
+					async == NONE ? null : async != 0,
+					initial == NONE ? null : states.get(initial),
+					type, dispatchMode, contentionMode, asyncBatchMode, bulkheads,
+					TransitionPipeline.of(guards, interceptors), true);
+			return compiled ? definition.compile() : definition;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalStateException("Corrupted state machine snapshot", e);
+		}
+	}
+
+	private static <S, K> void writeHandlers(DataOutputStream out, Map<String, Integer> strings, Bindings<S> bindings,
+											 Map<K, List<StateHandlerWrapper<S>>> handlers, KeyEncoder<K> keys)
+			throws IOException {
+		out.writeInt(handlers.size());
+		for (Map.Entry<K, List<StateHandlerWrapper<S>>> entry : handlers.entrySet()) {
+			out.writeInt(keys.encode(entry.getKey()));
+			out.writeInt(entry.getValue().size());
+			for (StateHandlerWrapper<S> hw : entry.getValue()) {
+				out.writeInt(string(strings, name("handler", bindings.handlerNames, hw.getStateHandler())));
+				out.writeInt(hw.getExecutor() == null ? NONE :
+						string(strings, name("executor", bindings.executorNames, hw.getExecutor())));
+				out.writeByte(bool(hw.getAsync()));
+				out.writeBoolean(hw.isConflated());
+			}
+		}
+	}
+
+	/**
+	 * 读取处理器集合
+	 *
+	 * @param exchange	是否为交换处理器, 其键为状态对, 否则为状态序号
+	 */
+	@SuppressWarnings("unchecked")
+	private static <S, K> Map<K, List<StateHandlerWrapper<S>>> readHandlers(ByteBuffer in, String[] strings,
+																		   Object[][] resolved, Bindings<S> bindings,
+																		   List<S> states, boolean exchange) {
+		final int count = count(in, 8);
+		final Map<K, List<StateHandlerWrapper<S>>> handlers = new HashMap<>(capacity(count));
+		for (int i = 0; i < count; i++) {
+			final int k = in.getInt();
+			if (k < 0 || k >= (exchange ? (long) states.size() * states.size() : states.size()))
+				throw new IllegalStateException("Corrupted state machine snapshot: state " + k);
+			final K key = (K) (exchange ? states.get(k / states.size()).toString() + "-" +
+					states.get(k % states.size()).toString() : states.get(k));
+			final int size = count(in, 10);
+			final List<StateHandlerWrapper<S>> wrappers = new ArrayList<>(size);
+			for (int j = 0; j < size; j++) {
+				final StateHandler<S> handler = bound("handler", bindings.handlers, strings, resolved[0], in.getInt());
+				final int executor = in.getInt();
+				final byte async = in.get();
+				final boolean conflated = in.get() != 0;
+				wrappers.add(new StateHandlerWrapper<>(handler,
+						executor == NONE ? null : bound("executor", bindings.executors, strings, resolved[1], executor),
+						async == NONE ? null : async != 0, conflated));
+			}
+			handlers.put(key, Collections.unmodifiableList(wrappers));
+		}
+		return Collections.unmodifiableMap(handlers);
+	}
+
+	private static int string(Map<String, Integer> strings, String s) {
+		final Integer index = strings.get(s);
+		if (index != null)
+			return index;
+		strings.put(s, strings.size());
+		return strings.size() - 1;
+	}
+
+	private static int bool(Boolean value) {
+		return value == null ? NONE : value ? 1 : 0;
+	}
+
+	private static String name(String kind, Map<Object, String> names, Object value) {
+		final String name = names.get(value);
+		if (name == null)
+			throw new IllegalArgumentException("Unbound " + kind + ": " + value);
+		return name;
+	}
+
+	/**
+	 * 按名称取得绑定的对象, 每个名称只查找一次
+	 *
+	 * @param resolved	已取得的对象, 按字符串表的序号存放
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T bound(String kind, Map<String, T> values, String[] strings, Object[] resolved, int index) {
+		final Object cached = resolved[index];
+		if (cached != null)
+			return (T) cached;
+		final T value = values.get(strings[index]);
+		if (value == null)
+			throw new IllegalArgumentException("Unbound " + kind + ": " + strings[index]);
+		resolved[index] = value;
+		return value;
+	}
+
+	/**
+	 * 读取元素数量或长度, 并按每个元素至少占用的字节数与剩余的长度比对; 损坏的快照不会导致分配过大或负数长度的数组
+	 *
+	 * @param elementBytes	每个元素至少占用的字节数
+	 */
+	private static int count(ByteBuffer in, int elementBytes) {
+		final int count = in.getInt();
+		if (count < 0 || count > in.remaining() / elementBytes)
+			throw new IllegalStateException("Corrupted state machine snapshot: count " + count);
+		return count;
+	}
+
+	private static int capacity(int size) {
+		return Math.max(16, size * 2);
+	}
+
+	@FunctionalInterface
+	private interface KeyEncoder<K> {
+		int encode(K key);
+	}
+
+	/**
+	 * 快照的名称绑定
+	 * <p>
+	 * 写入及读取快照时使用的绑定需要以相同的名称注册对应的对象; 处理器、事件逻辑及执行器按对象本身识别, 事件按 {@link Object#equals(Object)} 识别.
+	 * 同一名称重复绑定不同的对象时抛出 {@link IllegalArgumentException}.
+	 *
+	 * @param <S>	状态类型
+	 */
+	public static final class Bindings<S> {
+
+		private final Map<String, StateHandler<S>> handlers = new HashMap<>();
+		private final Map<Object, String> handlerNames = new IdentityHashMap<>();
+		private final Map<String, Consumer<StateMachine<S>>> logics = new HashMap<>();
+		private final Map<Object, String> logicNames = new IdentityHashMap<>();
+		private final Map<String, Object> events = new HashMap<>();
+		private final Map<Object, String> eventNames = new HashMap<>();
+		private final Map<String, Executor> executors = new HashMap<>();
+		private final Map<Object, String> executorNames = new IdentityHashMap<>();
+		private final Map<String, ExecutorStrategy> strategies = new HashMap<>();
+		private final Map<Object, String> strategyNames = new IdentityHashMap<>();
+		private final Map<String, TransitionGuard<S>> guards = new HashMap<>();
+		private final Map<Object, String> guardNames = new IdentityHashMap<>();
+		private final Map<String, TransitionInterceptor<S>> interceptors = new HashMap<>();
+		private final Map<Object, String> interceptorNames = new IdentityHashMap<>();
+
+		/**
+		 * 绑定状态处理器
+		 *
+		 * @param name		名称
+		 * @param handler	状态处理器
+		 * @return 当前对象, 链式调用
+		 */
+		public Bindings<S> handler(String name, StateHandler<S> handler) {
+			bind("handler", handlers, handlerNames, name, handler);
+			return this;
+		}
+
+		/**
+		 * 绑定事件的切换逻辑
+		 *
+		 * @param name	名称
+		 * @param logic	切换逻辑
+		 * @return 当前对象, 链式调用
+		 * @see StateMachineBuilder#whenHappened(Object, Consumer)
+		 */
+		public Bindings<S> logic(String name, Consumer<StateMachine<S>> logic) {
+			bind("logic", logics, logicNames, name, logic);
+			return this;
+		}
+
+		/**
+		 * 绑定事件
+		 *
+		 * @param name	名称
+		 * @param event	事件
+		 * @return 当前对象, 链式调用
+		 */
+		public Bindings<S> event(String name, Object event) {
+			bind("event", events, eventNames, name, event);
+			return this;
+		}
+
+		/**
+		 * 绑定执行器, 包括定义的执行器及处理器单独指定的执行器
+		 *
+		 * @param name		名称
+		 * @param executor	执行器
+		 * @return 当前对象, 链式调用
+		 */
+		public Bindings<S> executor(String name, Executor executor) {
+			bind("executor", executors, executorNames, name, executor);
+			return this;
+		}
+
+		/**
+		 * 绑定执行器策略
+		 *
+		 * @param name		名称
+		 * @param strategy	执行器策略
+		 * @return 当前对象, 链式调用
+		 */
+		public Bindings<S> executorStrategy(String name, ExecutorStrategy strategy) {
+			bind("executor strategy", strategies, strategyNames, name, strategy);
+			return this;
+		}
+
+		/**
+		 * 绑定切换守卫
+		 *
+		 * @param name	名称
+		 * @param guard	守卫
+		 * @return 当前对象, 链式调用
+		 */
+		public Bindings<S> guard(String name, TransitionGuard<S> guard) {
+			bind("guard", guards, guardNames, name, guard);
+			return this;
+		}
+
+		/**
+		 * 绑定切换拦截器
+		 *
+		 * @param name			名称
+		 * @param interceptor	拦截器
+		 * @return 当前对象, 链式调用
+		 */
+		public Bindings<S> interceptor(String name, TransitionInterceptor<S> interceptor) {
+			bind("interceptor", interceptors, interceptorNames, name, interceptor);
+			return this;
+		}
+
+		private static <T> void bind(String kind, Map<String, T> values, Map<Object, String> names, String name,
+									 T value) {
+			if (name == null || value == null)
+				throw new NullPointerException();
+			final T existing = values.putIfAbsent(name, value);
+			if (existing != null && existing != value)
+				throw new IllegalArgumentException("Duplicate " + kind + " name: " + name);
+			names.putIfAbsent(value, name);
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.manager.StateIndex;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 状态占用索引
+ * <p>
+ * 按状态维护处于该状态的成员集合及数量, 在状态机提交切换时增量更新: 统计某个状态的数量为 O(1),
+ * 列出某个状态的成员为 O(成员数量), 无需遍历所有状态机并逐个读取当前状态.
+ * <p>
+ * 基于锁实现的状态机在持有写锁时更新索引, 更新顺序与切换顺序一致; 并发型状态机在CAS成功后重新读取当前状态并与记录的状态比对,
+ * 同一成员的更新互斥执行, 因此即使多个CAS的回调顺序与更新顺序不一致, 索引也不会重复或遗漏计数, 所有切换完成后与各状态机的当前状态精确一致.
+ * 切换进行中查询时, 成员可能暂时反映切换前的状态.
+ * <p>
+ * 每个状态机同一时刻只能被一个索引跟踪.
+ *
+ * @param <K>	成员键的类型
+ * @param <S>	状态类型
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineRegistry.Builder#occupancyIndex()
+ */
+public final class StateOccupancyIndex<K, S> {
+
+	private final List<S> states;
+	private final StateIndex<S> stateIndex;
+	private final LongAdder[] counts;
+	private final Set<K>[] members;
+	private final ConcurrentMap<K, Member<K, S>> tracked = new ConcurrentHashMap<>();
+
+	/**
+	 * @param states	状态列表
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public StateOccupancyIndex(List<S> states) {
+		this.states = states;
+		this.stateIndex = StateIndex.of(states);
+		this.counts = new LongAdder[states.size()];
+		this.members = new Set[states.size()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+			members[i] = ConcurrentHashMap.newKeySet();
+		}
+	}
+
+	/**
+	 * 跟踪状态机, 键已被跟踪时改为跟踪新的状态机
+	 *
+	 * @param key		成员键
+	 * @param machine	状态机, 必须是内置的状态机实现
+	 * @throws IllegalArgumentException 状态机不受支持或已被其他成员跟踪
+	 */
+	public void track(K key, StateMachine<S> machine) {
+		if (!(machine instanceof AbstractStateMachine))
+			throw new IllegalArgumentException("Unsupported state machine: " + machine);
+		final AbstractStateMachine<S> m = (AbstractStateMachine<S>) machine;
+		final Member<K, S> member = tracked.computeIfAbsent(key, k -> new Member<>(this, k));
+		synchronized (member) {
+			if (member.machine == m)
+				return;
+			if (m.occupancy != null)
+				throw new IllegalArgumentException("State machine already tracked");
+			detach(member);
+			member.machine = m;
+			member.sequence++;
+			m.occupancy = member;
+		}
+		refresh(member);
+	}
+
+	/**
+	 * 停止跟踪成员
+	 *
+	 * @param key	成员键
+	 * @return 成员存在时返回真
+	 */
+	public boolean untrack(K key) {
+		final Member<K, S> member = tracked.remove(key);
+		if (member == null)
+			return false;
+		synchronized (member) {
+			detach(member);
+			move(member, -1);
+		}
+		return true;
+	}
+
+	/**
+	 * 处于指定状态的成员数量
+	 *
+	 * @param state	状态
+	 * @return 成员数量, 状态不存在时返回0
+	 */
+	public long count(S state) {
+		final int index = stateIndex.indexOf(state);
+		return index == -1 ? 0 : counts[index].sum();
+	}
+
+	/**
+	 * 处于指定状态的成员, 返回的集合为只读视图, 随索引的更新而变化
+	 *
+	 * @param state	状态
+	 * @return 成员集合, 状态不存在时返回空集合
+	 */
+	public Set<K> members(S state) {
+		final int index = stateIndex.indexOf(state);
+		return index == -1 ? Collections.emptySet() : Collections.unmodifiableSet(members[index]);
+	}
+
+	/**
+	 * 成员在索引中记录的状态
+	 *
+	 * @param key	成员键
+	 * @return 记录的状态, 成员不存在时返回空
+	 */
+	public S stateOf(K key) {
+		final Member<K, S> member = tracked.get(key);
+		if (member == null)
+			return null;
+		final int recorded = member.recorded;
+		return recorded == -1 ? null : states.get(recorded);
+	}
+
+	/**
+	 * 被跟踪的成员数量
+	 *
+	 * @return 成员数量
+	 */
+	public int size() {
+		return tracked.size();
+	}
+
+	/**
+	 * 解除成员与状态机的关联并保留其最后的状态, 用于状态机被钝化等场景
+	 *
+	 * @param key	成员键
+	 */
+	void detach(K key) {
+		final Member<K, S> member = tracked.get(key);
+		if (member == null)
+			return;
+		refresh(member);
+		synchronized (member) {
+			detach(member);
+		}
+	}
+
+	private void detach(Member<K, S> member) {
+		if (member.machine != null) {
+			member.machine.occupancy = null;
+			member.machine = null;
+			member.sequence++;
+		}
+	}
+
+	/**
+	 * 读取状态机的当前状态并记录, 读取期间状态机已通过回调更新过记录时放弃
+	 * <p>
+	 * 读取当前状态时不能持有成员锁: 基于锁实现的状态机在持有写锁时回调, 回调需要获取成员锁.
+	 */
+	private void refresh(Member<K, S> member) {
+		final AbstractStateMachine<S> machine;
+		final long sequence;
+		synchronized (member) {
+			machine = member.machine;
+			sequence = member.sequence;
+		}
+		if (machine == null)
+			return;
+		final int current = stateIndex.indexOf(machine.current());
+		synchronized (member) {
+			if (member.sequence == sequence)
+				move(member, current);
+		}
+	}
+
+	/**
+	 * 将成员移动至指定状态, 仅在持有成员锁的情况下调用
+	 *
+	 * @param member	成员
+	 * @param to		目的状态的序号, -1 表示移出索引
+	 */
+	private void move(Member<K, S> member, int to) {
+		final int from = member.recorded;
+		if (from == to)
+			return;
+		if (from != -1) {
+			members[from].remove(member.key);
+			counts[from].decrement();
+		}
+		if (to != -1) {
+			members[to].add(member.key);
+			counts[to].increment();
+		}
+		member.recorded = to;
+	}
+
+	/**
+	 * 索引成员
+	 */
+	static final class Member<K, S> {
+
+		private final StateOccupancyIndex<K, S> index;
+		private final K key;
+		/**
+		 * 关联的状态机, 解除关联后为空
+		 */
+		private AbstractStateMachine<S> machine;
+		/**
+		 * 索引中记录的状态序号, 未记录时为 -1
+		 */
+		private volatile int recorded = -1;
+		/**
+		 * 记录的版本, 关联、解除关联及每次回调更新时加一
+		 */
+		private long sequence;
+
+		Member(StateOccupancyIndex<K, S> index, K key) {
+			this.index = index;
+			this.key = key;
+		}
+
+		/**
+		 * 状态机的状态序号更新后调用
+		 *
+		 * @param newIndex	新的状态序号
+		 */
+		void update(int newIndex) {
+			synchronized (this) {
+				if (machine == null)
+					return;
+				sequence++;
+				index.move(this, machine.occupancyIndex(newIndex));
+			}
+		}
+	}
+}
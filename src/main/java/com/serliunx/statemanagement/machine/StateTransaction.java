@@ -0,0 +1,47 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 状态机事务
+ * <p>
+ * 在 {@link StateMachine#transaction(java.util.function.Consumer)} 中使用, 所有操作仅作用于事务内的状态副本,
+ * 事务逻辑正常结束后一次性提交至状态机; 事务逻辑抛出异常时不会提交任何切换. 事务对象不能在事务逻辑之外使用.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public interface StateTransaction<S> {
+
+    /**
+     * 获取事务内的当前状态
+     *
+     * @return 当前状态
+     */
+    S current();
+
+    /**
+     * 切换至指定状态
+     *
+     * @param state 新的状态
+     * @return 切换成功返回真, 状态不存在或与当前状态一致时返回假
+     */
+    boolean switchTo(S state);
+
+    /**
+     * 切换至下一个状态, 到达最后一个状态后回到第一个
+     *
+     * @return 切换后的状态
+     */
+    S switchNext();
+
+    /**
+     * 切换至上一个状态, 到达第一个状态后回到最后一个
+     *
+     * @return 切换后的状态
+     */
+    S switchPrev();
+
+    /**
+     * 重置回默认状态
+     */
+    void reset();
+}
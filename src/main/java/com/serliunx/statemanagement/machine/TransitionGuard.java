@@ -0,0 +1,32 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 切换守卫
+ * <p>
+ * 在 {@link StateMachine#switchTo(Object)} 及 {@link ConcurrentStateMachine#compareAndSet(Object, Object)} 实际修改状态前执行,
+ * 返回假时否决本次切换, 状态保持不变且不触发处理器, 切换方法返回假.
+ * <p>
+ * 守卫在获取写锁或执行CAS之前执行, 被否决的切换不会参与竞争; 执行期间当前状态可能被其他线程修改,
+ * 此时会以新的源状态重新执行, 因此同一次切换的守卫可能被执行多次, 守卫应当无副作用.
+ * <p>
+ * 守卫不作用于其他切换方式: 事务内的切换(包括 {@link StateMachine#transaction(java.util.function.Consumer)}、
+ * {@link StateMachine#applyAll(java.util.List)} 及多状态机事务 {@link com.serliunx.statemanagement.machine.support.StateMachines#atomically()})、
+ * 切换至上一个或下一个状态以及重置均不经过守卫, 需要约束这些切换时应在调用前自行判断.
+ * {@link MappedStateTable} 中对应的单槽位切换及批量切换同样经过守卫.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineBuilder#guard(TransitionGuard)
+ */
+@FunctionalInterface
+public interface TransitionGuard<S> {
+
+	/**
+	 * 是否允许切换
+	 *
+	 * @param from	源状态
+	 * @param to	目的状态
+	 * @return 允许时返回真, 否决时返回假
+	 */
+	boolean allow(S from, S to);
+}
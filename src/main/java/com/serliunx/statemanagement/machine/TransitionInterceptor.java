@@ -0,0 +1,37 @@
+package com.serliunx.statemanagement.machine;
+
+/**
+ * 切换拦截器
+ * <p>
+ * 观察 {@link StateMachine#switchTo(Object)} 及 {@link ConcurrentStateMachine#compareAndSet(Object, Object)} 的结果,
+ * 适用于审计、指标统计等场景: 切换完成并触发处理器后(异步处理器可能仍在执行)回调 {@link #afterTransition(Object, Object)},
+ * 被 {@link TransitionGuard} 否决时回调 {@link #onVetoed(Object, Object)}. 回调在切换的线程中执行, 不持有写锁.
+ * <p>
+ * 由于回调发生在释放写锁(或CAS成功)之后, 并发切换时各线程的 {@link #afterTransition(Object, Object)} 可能与切换的提交顺序不一致,
+ * 例如先回调 B-C 后回调 A-B; 需要严格按顺序审计时应以回调中的源状态及目的状态自行排序, 或使用在写锁内按提交顺序触发的同步处理器
+ * ({@link HandlerDispatchMode#IN_LOCK}, 仅限基于锁实现的状态机).
+ * 与 {@link TransitionGuard} 一致, 事务内的切换、切换至上一个或下一个状态以及重置不会回调拦截器.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachineBuilder#intercept(TransitionInterceptor)
+ */
+@FunctionalInterface
+public interface TransitionInterceptor<S> {
+
+	/**
+	 * 切换完成
+	 *
+	 * @param from	源状态
+	 * @param to	目的状态
+	 */
+	void afterTransition(S from, S to);
+
+	/**
+	 * 切换被守卫否决
+	 *
+	 * @param from	源状态
+	 * @param to	目的状态
+	 */
+	default void onVetoed(S from, S to) {}
+}
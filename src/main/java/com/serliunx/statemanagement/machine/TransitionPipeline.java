@@ -0,0 +1,79 @@
+package com.serliunx.statemanagement.machine;
+
+import java.util.Collection;
+
+/**
+ * 编译后的切换守卫及拦截器
+ * <p>
+ * 构建时将注册的守卫及拦截器展开为数组, 切换时按注册顺序依次调用. 未注册任何守卫及拦截器时不创建管道,
+ * 状态机中对应的字段为空, 切换时仅多一次空值判断.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see TransitionGuard
+ * @see TransitionInterceptor
+ */
+final class TransitionPipeline<S> {
+
+	private final TransitionGuard<S>[] guards;
+	private final TransitionInterceptor<S>[] interceptors;
+
+	private TransitionPipeline(TransitionGuard<S>[] guards, TransitionInterceptor<S>[] interceptors) {
+		this.guards = guards;
+		this.interceptors = interceptors;
+	}
+
+	/**
+	 * 编译守卫及拦截器
+	 *
+	 * @param guards		守卫
+	 * @param interceptors	拦截器
+	 * @param <S>			状态类型
+	 * @return 管道, 均为空时返回空
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static <S> TransitionPipeline<S> of(Collection<TransitionGuard<S>> guards,
+										Collection<TransitionInterceptor<S>> interceptors) {
+		if (guards.isEmpty() && interceptors.isEmpty())
+			return null;
+		return new TransitionPipeline<>(guards.toArray(new TransitionGuard[0]),
+				interceptors.toArray(new TransitionInterceptor[0]));
+	}
+
+	/**
+	 * 依次执行守卫, 任意守卫否决时通知拦截器
+	 *
+	 * @param from	源状态
+	 * @param to	目的状态
+	 * @return 全部守卫允许时返回真
+	 */
+	boolean allow(S from, S to) {
+		for (TransitionGuard<S> guard : guards) {
+			if (guard.allow(from, to))
+				continue;
+			for (TransitionInterceptor<S> interceptor : interceptors)
+				interceptor.onVetoed(from, to);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 通知拦截器切换已完成
+	 *
+	 * @param from	源状态
+	 * @param to	目的状态
+	 */
+	void committed(S from, S to) {
+		for (TransitionInterceptor<S> interceptor : interceptors)
+			interceptor.afterTransition(from, to);
+	}
+
+	TransitionGuard<S>[] guards() {
+		return guards;
+	}
+
+	TransitionInterceptor<S>[] interceptors() {
+		return interceptors;
+	}
+}
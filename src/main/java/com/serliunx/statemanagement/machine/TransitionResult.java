@@ -0,0 +1,235 @@
+package com.serliunx.statemanagement.machine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 状态切换结果
+ * <p>
+ * 由 {@link StateMachine#switchToAsync(Object)} 等异步方法返回, 在本次切换相关的所有处理器(同步及异步)
+ * 执行完毕后产生; 包含每个处理器的耗时及失败信息.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateMachine#switchToAsync(Object)
+ * @see StateMachine#switchNextAsync()
+ * @see StateMachine#publishAsync(Object)
+ */
+public final class TransitionResult<S> {
+
+	/**
+	 * 源状态
+	 */
+	private final S from;
+	/**
+	 * 目的状态
+	 */
+	private final S to;
+	/**
+	 * 是否发生了切换
+	 */
+	private final boolean switched;
+	/**
+	 * 处理器执行记录
+	 */
+	private final List<HandlerExecution> executions;
+	/**
+	 * 从切换开始到所有处理器执行完毕的耗时(纳秒)
+	 */
+	private final long elapsedNanos;
+
+	TransitionResult(S from, S to, boolean switched, List<HandlerExecution> executions, long elapsedNanos) {
+		this.from = from;
+		this.to = to;
+		this.switched = switched;
+		this.executions = Collections.unmodifiableList(executions);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * 未发生切换时的结果(目标状态不存在或与当前状态一致)
+	 *
+	 * @param current	当前状态
+	 * @param target	期望切换的状态
+	 * @param <S>		状态类型
+	 * @return 切换结果
+	 */
+	static <S> TransitionResult<S> unchanged(S current, S target) {
+		return new TransitionResult<>(current, target, false, Collections.emptyList(), 0);
+	}
+
+	public S getFrom() {
+		return from;
+	}
+
+	public S getTo() {
+		return to;
+	}
+
+	/**
+	 * 是否发生了切换
+	 * <p>
+	 * 对于事件发布, 当事件处理前后的状态不一致时为真.
+	 *
+	 * @return 发生了切换返回真, 否则返回假
+	 */
+	public boolean isSwitched() {
+		return switched;
+	}
+
+	public List<HandlerExecution> getExecutions() {
+		return executions;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * 获取执行失败(抛出异常或被拒绝执行)的处理器记录
+	 *
+	 * @return 失败的处理器记录
+	 */
+	public List<HandlerExecution> getFailures() {
+		final List<HandlerExecution> failures = new ArrayList<>();
+		for (HandlerExecution execution : executions) {
+			if (!execution.isSuccessful())
+				failures.add(execution);
+		}
+		return failures;
+	}
+
+	/**
+	 * 是否切换成功且所有处理器均执行成功
+	 *
+	 * @return 切换成功且没有失败的处理器时返回真, 否则返回假
+	 */
+	public boolean isSuccessful() {
+		if (!switched)
+			return false;
+		for (HandlerExecution execution : executions) {
+			if (!execution.isSuccessful())
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "TransitionResult{" +
+				"from=" + from +
+				", to=" + to +
+				", switched=" + switched +
+				", executions=" + executions.size() +
+				", elapsedNanos=" + elapsedNanos +
+				'}';
+	}
+
+	/**
+	 * 处理器类型
+	 */
+	public enum HandlerType {
+		/**
+		 * 离开事件处理器
+		 */
+		LEAVE,
+		/**
+		 * 进入事件处理器
+		 */
+		ENTRY,
+		/**
+		 * 交换事件处理器
+		 */
+		EXCHANGE,
+		/**
+		 * 事件发布的处理逻辑
+		 */
+		EVENT;
+	}
+
+	/**
+	 * 单个处理器的执行记录
+	 */
+	public static final class HandlerExecution {
+
+		/**
+		 * 处理器类型
+		 */
+		private final HandlerType type;
+		/**
+		 * 处理器, 事件发布时为事件的处理逻辑
+		 */
+		private final Object handler;
+		/**
+		 * 是否异步执行
+		 */
+		private final boolean async;
+		/**
+		 * 执行耗时(纳秒), 被拒绝时为0
+		 */
+		private final long durationNanos;
+		/**
+		 * 执行时抛出的异常
+		 */
+		private final Throwable failure;
+		/**
+		 * 是否被执行器拒绝
+		 */
+		private final boolean rejected;
+
+		HandlerExecution(HandlerType type, Object handler, boolean async, long durationNanos,
+						 Throwable failure, boolean rejected) {
+			this.type = type;
+			this.handler = handler;
+			this.async = async;
+			this.durationNanos = durationNanos;
+			this.failure = failure;
+			this.rejected = rejected;
+		}
+
+		public HandlerType getType() {
+			return type;
+		}
+
+		public Object getHandler() {
+			return handler;
+		}
+
+		public boolean isAsync() {
+			return async;
+		}
+
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		public boolean isRejected() {
+			return rejected;
+		}
+
+		/**
+		 * 是否执行成功
+		 *
+		 * @return 执行过程中未抛出异常且未被拒绝时返回真
+		 */
+		public boolean isSuccessful() {
+			return failure == null && !rejected;
+		}
+
+		@Override
+		public String toString() {
+			return "HandlerExecution{" +
+					"type=" + type +
+					", async=" + async +
+					", durationNanos=" + durationNanos +
+					", failure=" + failure +
+					", rejected=" + rejected +
+					'}';
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.serliunx.statemanagement.machine;
+
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerExecution;
+import com.serliunx.statemanagement.machine.TransitionResult.HandlerType;
+import com.serliunx.statemanagement.support.RejectionAware;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 状态切换追踪
+ * <p>
+ * 记录一次切换所触发的所有处理器的执行情况, 当所有处理器(包括异步处理器)执行完毕后完成对应的 {@link CompletableFuture}.
+ * <p>
+ * 内部以计数的方式跟踪未完成的处理器: 初始计数为1(代表发起方), 每登记一个处理器加1, 处理器完成后减1;
+ * 发起方在登记完所有处理器后调用 {@link #seal()} 释放自身的计数.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public final class TransitionTracker<S> {
+
+    private final CompletableFuture<TransitionResult<S>> future = new CompletableFuture<>();
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final List<HandlerExecution> executions = new ArrayList<>();
+    private final long startNanos = System.nanoTime();
+
+    private volatile S from;
+    private volatile S to;
+    private volatile boolean switched;
+
+    TransitionTracker() {}
+
+    /**
+     * 记录本次切换的源状态与目的状态
+     *
+     * @param from  源状态
+     * @param to    目的状态
+     */
+    void transition(S from, S to) {
+        this.from = from;
+        this.to = to;
+        this.switched = true;
+    }
+
+    /**
+     * 同步执行并记录处理器
+     *
+     * @param type      处理器类型
+     * @param handler   处理器
+     * @param body      执行逻辑
+     */
+    void invoke(HandlerType type, Object handler, Runnable body) {
+        pending.incrementAndGet();
+        new Invocation(type, handler, false, body).run();
+    }
+
+    /**
+     * 登记一个异步执行的处理器, 返回的任务交由执行器执行
+     *
+     * @param type      处理器类型
+     * @param handler   处理器
+     * @param body      执行逻辑
+     * @return 可提交至执行器的任务
+     */
+    Invocation track(HandlerType type, Object handler, Runnable body) {
+        pending.incrementAndGet();
+        return new Invocation(type, handler, true, body);
+    }
+
+    /**
+     * 发起方登记完毕, 释放自身持有的计数
+     *
+     * @return 所有处理器执行完毕后完成的结果
+     */
+    CompletableFuture<TransitionResult<S>> seal() {
+        release();
+        return future;
+    }
+
+    /**
+     * 持有一个计数, 用于处理器延后登记的情况(如提交后触发), 登记完毕后调用 {@link #release()} 释放
+     */
+    void hold() {
+        pending.incrementAndGet();
+    }
+
+    private void record(HandlerExecution execution) {
+        synchronized (executions) {
+            executions.add(execution);
+        }
+        release();
+    }
+
+    void release() {
+        if (pending.decrementAndGet() != 0)
+            return;
+        final List<HandlerExecution> snapshot;
+        synchronized (executions) {
+            snapshot = new ArrayList<>(executions);
+        }
+        future.complete(new TransitionResult<>(from, to, switched, snapshot, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * 单次处理器执行, 保证仅记录一次
+     */
+    final class Invocation implements RejectionAware {
+
+        private final HandlerType type;
+        private final Object handler;
+        private final boolean async;
+        private final Runnable body;
+        private final AtomicInteger done = new AtomicInteger();
+
+        Invocation(HandlerType type, Object handler, boolean async, Runnable body) {
+            this.type = type;
+            this.handler = handler;
+            this.async = async;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            final long begin = System.nanoTime();
+            Throwable failure = null;
+            try {
+                body.run();
+            } catch (Throwable t) {
+                failure = t;
+            }
+            complete(System.nanoTime() - begin, failure);
+        }
+
+        /**
+         * 由外部完成执行后记录结果(如被合并投递的处理器)
+         *
+         * @param durationNanos 执行耗时
+         * @param failure       执行时抛出的异常
+         */
+        void complete(long durationNanos, Throwable failure) {
+            if (done.compareAndSet(0, 1))
+                record(new HandlerExecution(type, handler, async, durationNanos, failure, false));
+        }
+
+        @Override
+        public void onRejected() {
+            if (done.compareAndSet(0, 1))
+                record(new HandlerExecution(type, handler, async, 0, null, true));
+        }
+    }
+}
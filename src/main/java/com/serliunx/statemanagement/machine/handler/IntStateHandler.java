@@ -0,0 +1,21 @@
+package com.serliunx.statemanagement.machine.handler;
+
+/**
+ * 整型状态处理器
+ * <p>
+ * 与 {@link StateHandler} 一致, 但直接以基本类型接收源状态与目的状态, 不会产生参数对象.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@FunctionalInterface
+public interface IntStateHandler {
+
+	/**
+	 * 处理
+	 *
+	 * @param from	源状态
+	 * @param to	目的状态
+	 */
+	void handle(int from, int to);
+}
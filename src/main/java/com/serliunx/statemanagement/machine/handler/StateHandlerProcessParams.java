@@ -23,6 +23,12 @@ public final class StateHandlerProcessParams<S> {
 	 * 附加参数
 	 */
 	private final Object attach;
+	/**
+	 * 被合并的切换次数
+	 * <p>
+	 * 仅合并投递的处理器可能大于0, 此时源状态为被合并的第一次切换的源状态, 目标状态为最近一次切换的目标状态
+	 */
+	private final int skipped;
 
 	/**
 	 * @param from 						原状态
@@ -30,9 +36,20 @@ public final class StateHandlerProcessParams<S> {
 	 * @param attach 					附加参数
 	 */
 	public StateHandlerProcessParams(S from, S to, Object attach) {
+		this(from, to, attach, 0);
+	}
+
+	/**
+	 * @param from 						原状态
+	 * @param to 						目标状态
+	 * @param attach 					附加参数
+	 * @param skipped					被合并的切换次数
+	 */
+	public StateHandlerProcessParams(S from, S to, Object attach, int skipped) {
 		this.from = from;
 		this.to = to;
 		this.attach = attach;
+		this.skipped = skipped;
 	}
 
 	public S getFrom() {
@@ -46,4 +63,8 @@ public final class StateHandlerProcessParams<S> {
 	public Object getAttach() {
 		return attach;
 	}
+
+	public int getSkipped() {
+		return skipped;
+	}
 }
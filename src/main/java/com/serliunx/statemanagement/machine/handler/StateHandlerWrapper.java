@@ -27,6 +27,13 @@ public final class StateHandlerWrapper<S> {
 	 * 是否异步执行
 	 */
 	private final Boolean async;
+	/**
+	 * 是否合并投递
+	 * <p>
+	 * 合并投递的处理器总是异步执行, 且每个状态机中至多存在一次待执行的调用;
+	 * 执行前到达的多次切换会被合并为一次投递.
+	 */
+	private final boolean conflated;
 
 	/**
 	 * @param stateHandler	状态处理器
@@ -34,9 +41,20 @@ public final class StateHandlerWrapper<S> {
 	 * @param async			是否异步执行
 	 */
 	public StateHandlerWrapper(StateHandler<S> stateHandler, Executor executor, Boolean async) {
+		this(stateHandler, executor, async, false);
+	}
+
+	/**
+	 * @param stateHandler	状态处理器
+	 * @param executor		执行器
+	 * @param async			是否异步执行
+	 * @param conflated		是否合并投递
+	 */
+	public StateHandlerWrapper(StateHandler<S> stateHandler, Executor executor, Boolean async, boolean conflated) {
 		this.stateHandler = stateHandler;
 		this.executor = executor;
-		this.async = async;
+		this.async = conflated ? Boolean.TRUE : async;
+		this.conflated = conflated;
 	}
 
 	public StateHandler<S> getStateHandler() {
@@ -50,4 +68,8 @@ public final class StateHandlerWrapper<S> {
 	public Boolean getAsync() {
 		return async;
 	}
+
+	public boolean isConflated() {
+		return conflated;
+	}
 }
@@ -1,6 +1,7 @@
 package com.serliunx.statemanagement.machine.support;
 
 import com.serliunx.statemanagement.machine.ConcurrentStateMachine;
+import com.serliunx.statemanagement.machine.MultiStateMachineTransaction;
 import com.serliunx.statemanagement.machine.StateMachine;
 import com.serliunx.statemanagement.machine.StateMachineBuilder;
 
@@ -91,4 +92,14 @@ public final class StateMachines {
                 .async(false)
                 .build();
     }
+
+    /**
+     * 开始一个多状态机事务, 登记的所有切换要么全部生效, 要么全部不生效
+     *
+     * @return 多状态机事务
+     * @see MultiStateMachineTransaction
+     */
+    public static MultiStateMachineTransaction atomically() {
+        return MultiStateMachineTransaction.begin();
+    }
 }
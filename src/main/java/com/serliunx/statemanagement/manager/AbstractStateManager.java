@@ -1,7 +1,11 @@
 package com.serliunx.statemanagement.manager;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -20,6 +24,11 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 	 */
 	private final List<S> stateList;
 
+	/**
+	 * 状态索引
+	 */
+	private final StateIndex<S> stateIndex;
+
 	/**
 	 * 当前状态的序号
 	 * <p> 请保证仅在有写锁的情况下去修改
@@ -31,10 +40,19 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 	 */
 	private int defaultIndex = 0;
 
+	/**
+	 * 等待指定状态的线程, 首次有线程等待时创建
+	 */
+	private volatile StateWaiters<S> waiters;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<AbstractStateManager, StateWaiters> WAITERS =
+			AtomicReferenceFieldUpdater.newUpdater(AbstractStateManager.class, StateWaiters.class, "waiters");
+
 	/**
 	 * 锁
 	 */
-	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 	/**
 	 * 读锁
 	 */
@@ -46,9 +64,11 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 
 	/**
 	 * @param stateList 状态列表
+	 * @throws IllegalArgumentException 状态列表中存在空值或重复的状态
 	 */
 	public AbstractStateManager(List<S> stateList) {
 		this.stateList = stateList;
+		this.stateIndex = stateList == null ? null : StateIndex.of(stateList);
 		index = 0;
 	}
 
@@ -89,6 +109,7 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 				return false;
 			}
 			index = i;
+			signalState(i);
 		} finally {
 			writeLock.unlock();
 		}
@@ -100,6 +121,7 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 		try {
 			writeLock.lock();
 			index = getDefault();
+			signalState(index);
 		} finally {
 			writeLock.unlock();
 		}
@@ -110,6 +132,88 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 		return stateList.size();
 	}
 
+	@Override
+	public void awaitState(S state) throws InterruptedException {
+		doAwait(Collections.singleton(state), -1);
+	}
+
+	@Override
+	public boolean awaitState(S state, long timeout, TimeUnit unit) throws InterruptedException {
+		return doAwait(Collections.singleton(state), Math.max(0, unit.toNanos(timeout))) != null;
+	}
+
+	@Override
+	public S awaitAny(Set<S> states) throws InterruptedException {
+		return doAwait(states, -1);
+	}
+
+	@Override
+	public S awaitAny(Set<S> states, long timeout, TimeUnit unit) throws InterruptedException {
+		return doAwait(states, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	/**
+	 * 等待任一指定的状态
+	 *
+	 * @param states	目标状态集合
+	 * @param nanos		最长等待时间, 小于0时不限时
+	 * @return 到达的状态, 超时返回空
+	 * @throws InterruptedException 等待期间线程被中断
+	 */
+	private S doAwait(Set<S> states, long nanos) throws InterruptedException {
+		final int[] indexes = states.stream().mapToInt(this::indexOf).filter(i -> i != -1).distinct().toArray();
+		if (indexes.length == 0)
+			throw new IllegalArgumentException("Unknown states: " + states);
+		S current = current();
+		if (states.contains(current))
+			return current;
+		if (nanos == 0)
+			return null;
+
+		final StateWaiters<S> waiters = waiters();
+		final StateWaiters.Waiter<S> waiter = waiters.register(indexes);
+		try {
+			// 登记后再次检查, 避免错过登记前发生的切换
+			current = current();
+			if (states.contains(current))
+				return current;
+			return waiter.await(nanos);
+		} finally {
+			waiters.unregister(waiter, indexes);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private StateWaiters<S> waiters() {
+		final StateWaiters<S> existing = waiters;
+		if (existing != null)
+			return existing;
+		WAITERS.compareAndSet(this, null, new StateWaiters<>(size()));
+		return waiters;
+	}
+
+	/**
+	 * 唤醒等待指定状态的线程并回调 {@link #onStateChanged(int)}, 状态序号更新后调用;
+	 * 没有任何线程等待时仅有一次volatile读的开销
+	 *
+	 * @param newIndex	新的状态序号
+	 */
+	protected final void signalState(int newIndex) {
+		final StateWaiters<S> w = waiters;
+		if (w != null)
+			w.signal(newIndex, stateList.get(newIndex));
+		onStateChanged(newIndex);
+	}
+
+	/**
+	 * 状态序号更新后的回调, 默认不做任何处理
+	 * <p>
+	 * 基于锁实现的管理器在持有写锁时回调; 基于CAS实现的管理器在CAS成功后回调, 多个线程的回调顺序与更新顺序可能不一致.
+	 *
+	 * @param newIndex	新的状态序号
+	 */
+	protected void onStateChanged(int newIndex) {}
+
 	/**
 	 * 将序号移动至下一个
 	 * <ul>
@@ -121,6 +225,7 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 	protected void next() {
 		if (++index >= stateList.size())
 			index = 0;
+		signalState(index);
 	}
 
 	/**
@@ -134,6 +239,7 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 	protected void prev() {
 		if (--index < 0)
 			index = stateList.size() - 1;
+		signalState(index);
 	}
 
 	/**
@@ -163,15 +269,18 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 
 	/**
 	 * 获取指定状态在状态列表中的序号
+	 * <p>
+	 * 基于构造时建立的状态索引 {@link StateIndex}, 开销不随状态数量增长
 	 *
 	 * @param state 状态
-	 * @return 序号 {@link List#indexOf(Object)}
+	 * @return 序号, 状态不存在时返回-1
 	 */
 	protected int indexOf(S state) {
-		if (state == null) {
+		if (state == null ||
+				stateIndex == null) {
 			return -1;
 		}
-		return stateList.indexOf(state);
+		return stateIndex.indexOf(state);
 	}
 
 	/**
@@ -208,6 +317,7 @@ public abstract class AbstractStateManager<S> implements StateManager<S> {
 	 */
 	protected void updateCurrentIndex(int newIndex) {
 		index = newIndex;
+		signalState(newIndex);
 	}
 
 	/**
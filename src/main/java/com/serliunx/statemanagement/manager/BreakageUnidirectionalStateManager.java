@@ -42,45 +42,67 @@ public final class BreakageUnidirectionalStateManager<S> extends DefaultUnidirec
 
     @Override
     public S switchNextAndGet() {
-        if (isLast()) {
-            if (allowThrow)
-                throw new StateException("The last state has been reached and cannot be switched again!");
-            return null;
+        // 判断与切换须在同一次加锁内完成, 否则多个线程可能同时越过最后一个状态
+        try {
+            writeLock.lock();
+            if (isLast()) {
+                if (allowThrow)
+                    throw new StateException("The last state has been reached and cannot be switched again!");
+                return null;
+            }
+            return super.switchNextAndGet();
+        } finally {
+            writeLock.unlock();
         }
-        return super.switchNextAndGet();
     }
 
     @Override
     public S getAndSwitchNext() {
-        if (isLast()) {
-            if (allowThrow)
-                throw new StateException("The last state has been reached and cannot be switched again!");
-            return null;
+        // 判断与切换须在同一次加锁内完成, 否则多个线程可能同时越过最后一个状态
+        try {
+            writeLock.lock();
+            if (isLast()) {
+                if (allowThrow)
+                    throw new StateException("The last state has been reached and cannot be switched again!");
+                return null;
+            }
+            return super.getAndSwitchNext();
+        } finally {
+            writeLock.unlock();
         }
-        return super.getAndSwitchNext();
     }
 
     @Override
     public void switchNext() {
-        if (isLast()) {
-            if (allowThrow)
-                throw new StateException("The last state has been reached and cannot be switched again!");
-            return;
+        try {
+            writeLock.lock();
+            if (isLast()) {
+                if (allowThrow)
+                    throw new StateException("The last state has been reached and cannot be switched again!");
+                return;
+            }
+            super.switchNext();
+        } finally {
+            writeLock.unlock();
         }
-        super.switchNext();
     }
 
     @Override
     public boolean switchTo(S state) {
-        /*
-         *  非最后一个状态且切换后的状态必须在当前状态的下位
-         */
-        if (indexOf(state) <= currentIndex()) {
-            if (allowThrow)
-                throw new StateException("The last state has been reached and cannot be switched again!");
-            return false;
+        try {
+            writeLock.lock();
+            /*
+             *  非最后一个状态且切换后的状态必须在当前状态的下位
+             */
+            if (indexOf(state) <= currentIndex()) {
+                if (allowThrow)
+                    throw new StateException("The last state has been reached and cannot be switched again!");
+                return false;
+            }
+            return super.switchTo(state);
+        } finally {
+            writeLock.unlock();
         }
-        return super.switchTo(state);
     }
 
     @Override
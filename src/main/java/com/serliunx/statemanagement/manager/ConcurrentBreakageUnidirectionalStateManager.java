@@ -0,0 +1,104 @@
+package com.serliunx.statemanagement.manager;
+
+import com.serliunx.statemanagement.exception.StateException;
+
+import java.util.List;
+
+/**
+ * 基于CAS实现的断路的单向状态管理器
+ * <p>
+ * 规则与 {@link BreakageUnidirectionalStateManager} 一致: 只能向后切换且最后一个状态无法转向第一个状态;
+ * "是否已到达最后一个状态" 的判断与状态的更新在同一次CAS中完成, 多个线程同时切换时至多有一个线程能到达最后一个状态,
+ * 适合作为高并发下的一次性进度闸门使用.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see BreakageUnidirectionalStateManager
+ */
+public final class ConcurrentBreakageUnidirectionalStateManager<S> extends ConcurrentUnidirectionalStateManager<S> {
+
+    /**
+     * 是否在切换失败时抛出异常
+     */
+    private final boolean allowThrow;
+
+    public ConcurrentBreakageUnidirectionalStateManager(List<S> stateList, boolean allowThrow) {
+        super(stateList);
+        this.allowThrow = allowThrow;
+    }
+
+    public ConcurrentBreakageUnidirectionalStateManager(S[] states, boolean allowThrow) {
+        super(states);
+        this.allowThrow = allowThrow;
+    }
+
+    public ConcurrentBreakageUnidirectionalStateManager(List<S> stateList) {
+        this(stateList, true);
+    }
+
+    public ConcurrentBreakageUnidirectionalStateManager(S[] states) {
+        this(states, true);
+    }
+
+    @Override
+    public S switchNextAndGet() {
+        final int previous = advance();
+        if (previous == -1)
+            return reachedLast();
+        return get(previous + 1);
+    }
+
+    @Override
+    public S getAndSwitchNext() {
+        final int previous = advance();
+        if (previous == -1)
+            return reachedLast();
+        return get(previous);
+    }
+
+    @Override
+    public void switchNext() {
+        if (advance() == -1)
+            reachedLast();
+    }
+
+    @Override
+    public boolean switchTo(S state) {
+        if (super.switchTo(state))
+            return true;
+        if (allowThrow)
+            throw new StateException("The last state has been reached and cannot be switched again!");
+        return false;
+    }
+
+    @Override
+    public boolean isCircle() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        throw new UnsupportedOperationException("Cannot reset state for ConcurrentBreakageUnidirectionalStateManager!");
+    }
+
+    @Override
+    public boolean isSwitchable() {
+        return !isLast();
+    }
+
+    @Override
+    protected int nextIndex(int current) {
+        return current == size() - 1 ? -1 : current + 1;
+    }
+
+    @Override
+    protected boolean isSwitchable(int current, int target) {
+        return target > current;
+    }
+
+    private S reachedLast() {
+        if (allowThrow)
+            throw new StateException("The last state has been reached and cannot be switched again!");
+        return null;
+    }
+}
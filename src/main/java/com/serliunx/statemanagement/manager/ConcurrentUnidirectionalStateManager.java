@@ -0,0 +1,139 @@
+package com.serliunx.statemanagement.manager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于CAS实现的单向流转的状态管理器
+ * <p>
+ * 流转规则与 {@link DefaultUnidirectionalStateManager} 一致: 只能切换至当前状态之后的状态, 处于最后一个状态时只能回到默认状态;
+ * 规则的校验与状态的更新在同一次CAS中完成, 整个过程不涉及任何锁.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see DefaultUnidirectionalStateManager
+ */
+public class ConcurrentUnidirectionalStateManager<S> extends AbstractStateManager<S>
+		implements UnidirectionalStateManager<S> {
+
+	/**
+	 * 当前状态的序号
+	 */
+	private final AtomicInteger index = new AtomicInteger(0);
+
+	/**
+	 * @param stateList 状态列表
+	 */
+	public ConcurrentUnidirectionalStateManager(List<S> stateList) {
+		super(stateList);
+	}
+
+	/**
+	 * @param states 状态数组
+	 */
+	public ConcurrentUnidirectionalStateManager(S[] states) {
+		super(states);
+	}
+
+	@Override
+	public S current() {
+		return get(index.get());
+	}
+
+	@Override
+	public S switchNextAndGet() {
+		final int previous = advance();
+		return previous == -1 ? null : get(nextIndex(previous));
+	}
+
+	@Override
+	public S getAndSwitchNext() {
+		final int previous = advance();
+		return previous == -1 ? null : get(previous);
+	}
+
+	@Override
+	public void switchNext() {
+		advance();
+	}
+
+	@Override
+	public boolean switchTo(S state) {
+		final int target = indexOf(state);
+		if (target == -1)
+			return false;
+		int current;
+		do {
+			if (!isSwitchable(current = index.get(), target))
+				return false;
+		} while (!index.compareAndSet(current, target));
+		signalState(target);
+		return true;
+	}
+
+	@Override
+	public void reset() {
+		index.set(getDefault());
+		signalState(getDefault());
+	}
+
+	@Override
+	protected int currentIndex() {
+		return index.get();
+	}
+
+	@Override
+	protected void updateCurrentIndex(int newIndex) {
+		index.set(newIndex);
+		signalState(newIndex);
+	}
+
+	@Override
+	protected boolean isLast() {
+		return index.get() == size() - 1;
+	}
+
+	@Override
+	protected boolean isFirst() {
+		return index.get() == 0;
+	}
+
+	/**
+	 * 使用CAS切换至下一个状态
+	 *
+	 * @return 切换前的状态序号, 无法切换时返回-1
+	 */
+	protected final int advance() {
+		int current, next;
+		do {
+			current = index.get();
+			if ((next = nextIndex(current)) == -1)
+				return -1;
+		} while (!index.compareAndSet(current, next));
+		signalState(next);
+		return current;
+	}
+
+	/**
+	 * 获取指定状态的下一个状态序号, 到达最后一个状态后回到第一个
+	 *
+	 * @param current	当前状态序号
+	 * @return 下一个状态序号, 无法切换时返回-1
+	 */
+	protected int nextIndex(int current) {
+		return current == size() - 1 ? 0 : current + 1;
+	}
+
+	/**
+	 * 能否由指定状态切换至目标状态
+	 *
+	 * @param current	当前状态序号
+	 * @param target	目标状态序号
+	 * @return 可以切换时返回真, 否则返回假
+	 */
+	protected boolean isSwitchable(int current, int target) {
+		if (current == target)
+			return false;
+		return current == size() - 1 ? target == getDefault() : target > current;
+	}
+}
@@ -0,0 +1,199 @@
+package com.serliunx.statemanagement.manager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 整型状态管理器的默认实现, 状态序号的切换使用CAS实现
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public class DefaultIntStateManager implements IntStateManager {
+
+	/**
+	 * 状态索引
+	 */
+	protected final IntStateIndex stateIndex;
+	/**
+	 * 当前状态的序号
+	 */
+	private final AtomicInteger index = new AtomicInteger(0);
+	/**
+	 * 默认状态序号
+	 */
+	private final int defaultIndex;
+
+	/**
+	 * @param stateIndex	状态索引
+	 * @param initialState	初始状态, 同时作为默认状态
+	 */
+	public DefaultIntStateManager(IntStateIndex stateIndex, int initialState) {
+		if (stateIndex.size() == 0)
+			throw new IllegalArgumentException("No states");
+		final int initialIndex = stateIndex.indexOf(initialState);
+		if (initialIndex == -1)
+			throw new IllegalArgumentException("Unknown initial state: " + initialState);
+		this.stateIndex = stateIndex;
+		this.defaultIndex = initialIndex;
+		this.index.set(initialIndex);
+	}
+
+	/**
+	 * @param states	状态数组, 第一个状态为初始状态
+	 */
+	public DefaultIntStateManager(int... states) {
+		this(IntStateIndex.of(states), states.length == 0 ? 0 : states[0]);
+	}
+
+	@Override
+	public int current() {
+		return stateIndex.stateAt(index.get());
+	}
+
+	@Override
+	public boolean switchTo(int state) {
+		return doSwitchTo(state, true);
+	}
+
+	@Override
+	public boolean compareAndSet(int expectedValue, int newValue) {
+		return doCompareAndSet(expectedValue, newValue, true);
+	}
+
+	@Override
+	public void reset() {
+		doReset(true);
+	}
+
+	@Override
+	public int size() {
+		return stateIndex.size();
+	}
+
+	@Override
+	public int switchNextAndGet() {
+		return doSwitchNext(true, false);
+	}
+
+	@Override
+	public int getAndSwitchNext() {
+		return doSwitchNext(true, true);
+	}
+
+	@Override
+	public void switchNext() {
+		doSwitchNext(true, true);
+	}
+
+	@Override
+	public int switchPrevAndGet() {
+		return doSwitchPrev(true, false);
+	}
+
+	@Override
+	public int getAndSwitchPrev() {
+		return doSwitchPrev(true, true);
+	}
+
+	@Override
+	public void switchPrev() {
+		doSwitchPrev(true, true);
+	}
+
+	/**
+	 * 切换至指定状态
+	 *
+	 * @param state		新的状态
+	 * @param notify	是否回调 {@link #onTransition(int, int)}
+	 * @return 切换成功返回真, 否则返回假
+	 */
+	protected final boolean doSwitchTo(int state, boolean notify) {
+		final int target = stateIndex.indexOf(state);
+		if (target == -1)
+			return false;
+		int current;
+		do {
+			if ((current = index.get()) == target)
+				return false;
+		} while (!index.compareAndSet(current, target));
+		if (notify)
+			onTransition(current, target);
+		return true;
+	}
+
+	/**
+	 * 使用CAS更新状态
+	 *
+	 * @param expectedValue	前置状态
+	 * @param newValue		更新的状态值
+	 * @param notify		是否回调 {@link #onTransition(int, int)}
+	 * @return 成功更新返回真, 否则返回假
+	 */
+	protected final boolean doCompareAndSet(int expectedValue, int newValue, boolean notify) {
+		final int expected = stateIndex.indexOf(expectedValue);
+		final int target = stateIndex.indexOf(newValue);
+		if (expected == -1 || target == -1 ||
+				!index.compareAndSet(expected, target))
+			return false;
+		if (notify)
+			onTransition(expected, target);
+		return true;
+	}
+
+	/**
+	 * 重置回默认状态
+	 *
+	 * @param notify	是否回调 {@link #onTransition(int, int)}
+	 */
+	protected final void doReset(boolean notify) {
+		final int previous = index.getAndSet(defaultIndex);
+		if (notify && previous != defaultIndex)
+			onTransition(previous, defaultIndex);
+	}
+
+	/**
+	 * 切换至下一个状态, 到达最后一个状态后回到第一个
+	 *
+	 * @param notify		是否回调 {@link #onTransition(int, int)}
+	 * @param returnPrevious	返回切换前的状态还是切换后的状态
+	 * @return 切换前或切换后的状态
+	 */
+	protected final int doSwitchNext(boolean notify, boolean returnPrevious) {
+		final int size = stateIndex.size();
+		int current, next;
+		do {
+			current = index.get();
+			next = current == size - 1 ? 0 : current + 1;
+		} while (!index.compareAndSet(current, next));
+		if (notify && current != next)
+			onTransition(current, next);
+		return stateIndex.stateAt(returnPrevious ? current : next);
+	}
+
+	/**
+	 * 切换至上一个状态, 到达第一个状态后回到最后一个
+	 *
+	 * @param notify		是否回调 {@link #onTransition(int, int)}
+	 * @param returnPrevious	返回切换前的状态还是切换后的状态
+	 * @return 切换前或切换后的状态
+	 */
+	protected final int doSwitchPrev(boolean notify, boolean returnPrevious) {
+		final int size = stateIndex.size();
+		int current, prev;
+		do {
+			current = index.get();
+			prev = current == 0 ? size - 1 : current - 1;
+		} while (!index.compareAndSet(current, prev));
+		if (notify && current != prev)
+			onTransition(current, prev);
+		return stateIndex.stateAt(returnPrevious ? current : prev);
+	}
+
+	/**
+	 * 成功切换后回调, 默认不做任何处理
+	 *
+	 * @param fromIndex	源状态序号
+	 * @param toIndex	目的状态序号
+	 */
+	protected void onTransition(int fromIndex, int toIndex) {}
+}
@@ -0,0 +1,176 @@
+package com.serliunx.statemanagement.manager;
+
+import java.util.Arrays;
+
+/**
+ * 整型状态索引
+ * <p>
+ * 整型状态与序号之间的双向映射, 查找过程不涉及装箱:
+ * <ul>
+ *     <li> 状态为连续的整数(如 0..n-1)时无需任何查找结构, 序号即为状态与首个状态的差值
+ *     <li> 其他情况使用开放寻址的整型哈希表
+ * </ul>
+ * 状态数组中不允许出现重复的状态.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateIndex
+ */
+public final class IntStateIndex {
+
+	/**
+	 * 状态数组, 状态连续时为空
+	 */
+	private final int[] states;
+	/**
+	 * 首个状态, 仅在状态连续时使用
+	 */
+	private final int base;
+	private final int size;
+
+	/**
+	 * 哈希表, 状态连续时为空
+	 */
+	private final int[] keys;
+	private final int[] indexes;
+	private final boolean[] used;
+	private final int mask;
+	private final int shift;
+
+	private IntStateIndex(int[] states) {
+		this.size = states.length;
+		if (isContiguous(states)) {
+			this.states = null;
+			this.base = states.length == 0 ? 0 : states[0];
+			this.keys = null;
+			this.indexes = null;
+			this.used = null;
+			this.mask = 0;
+			this.shift = 0;
+			return;
+		}
+		this.states = states.clone();
+		this.base = 0;
+		int capacity = 2;
+		while (capacity < states.length * 2)
+			capacity <<= 1;
+		this.keys = new int[capacity];
+		this.indexes = new int[capacity];
+		this.used = new boolean[capacity];
+		this.mask = capacity - 1;
+		this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+		for (int i = 0; i < states.length; i++) {
+			int slot = hash(states[i]);
+			while (used[slot]) {
+				if (keys[slot] == states[i])
+					throw new IllegalArgumentException("Duplicate state: " + states[i]);
+				slot = (slot + 1) & mask;
+			}
+			used[slot] = true;
+			keys[slot] = states[i];
+			indexes[slot] = i;
+		}
+	}
+
+	/**
+	 * 根据状态数组建立索引
+	 *
+	 * @param states	状态数组
+	 * @return 整型状态索引
+	 * @throws IllegalArgumentException 状态数组中存在重复的状态
+	 */
+	public static IntStateIndex of(int... states) {
+		return new IntStateIndex(states);
+	}
+
+	/**
+	 * 建立连续状态 0..count-1 的索引
+	 *
+	 * @param count	状态数量
+	 * @return 整型状态索引
+	 */
+	public static IntStateIndex range(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Illegal state count: " + count);
+		final int[] states = new int[count];
+		for (int i = 0; i < count; i++)
+			states[i] = i;
+		return new IntStateIndex(states);
+	}
+
+	/**
+	 * 获取指定状态的序号
+	 *
+	 * @param state	状态
+	 * @return 序号, 状态不存在时返回-1
+	 */
+	public int indexOf(int state) {
+		if (states == null) {
+			final int i = state - base;
+			return i >= 0 && i < size ? i : -1;
+		}
+		int slot = hash(state);
+		while (used[slot]) {
+			if (keys[slot] == state)
+				return indexes[slot];
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * 获取指定序号的状态
+	 *
+	 * @param index	序号
+	 * @return 状态
+	 */
+	public int stateAt(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return states == null ? base + index : states[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 状态是否连续
+	 *
+	 * @return 连续时返回真, 否则返回假
+	 */
+	public boolean isContiguous() {
+		return states == null;
+	}
+
+	/**
+	 * 获取所有状态
+	 *
+	 * @return 状态数组的副本
+	 */
+	public int[] states() {
+		if (states != null)
+			return states.clone();
+		final int[] copy = new int[size];
+		for (int i = 0; i < size; i++)
+			copy[i] = base + i;
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return "IntStateIndex" + Arrays.toString(states());
+	}
+
+	private int hash(int key) {
+		return (key * 0x9E3779B9) >>> shift;
+	}
+
+	private static boolean isContiguous(int[] states) {
+		for (int i = 1; i < states.length; i++) {
+			if (states[i] != states[0] + i)
+				return false;
+		}
+		return true;
+	}
+}
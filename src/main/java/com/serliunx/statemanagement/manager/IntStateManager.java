@@ -0,0 +1,109 @@
+package com.serliunx.statemanagement.manager;
+
+/**
+ * 整型状态管理器
+ * <p>
+ * 行为与双向流转的状态管理器 {@link BidirectionalStateManager} 一致, 区别在于状态为基本类型 int,
+ * 整个切换过程不涉及装箱及对象分配, 适用于协议解析等需要高频切换状态的场景.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see BidirectionalStateManager
+ * @see DefaultIntStateManager
+ */
+public interface IntStateManager {
+
+	/**
+	 * 获取当前状态
+	 *
+	 * @return 当前最新状态
+	 */
+	int current();
+
+	/**
+	 * 切换到指定状态
+	 *
+	 * @param state 新的状态
+	 * @return 切换成功返回真, 否则返回假
+	 */
+	boolean switchTo(int state);
+
+	/**
+	 * 尝试使用CAS更新状态
+	 *
+	 * @param expectedValue 前置状态
+	 * @param newValue      更新的状态值
+	 * @return 成功更新返回真, 否则返回假
+	 */
+	boolean compareAndSet(int expectedValue, int newValue);
+
+	/**
+	 * 重置回默认状态, 一般为状态集合中的第一个
+	 */
+	void reset();
+
+	/**
+	 * 获取当前状态数量
+	 *
+	 * @return 数量
+	 */
+	int size();
+
+	/**
+	 * 切换至下一个状态并返回切换后的状态
+	 *
+	 * @return 切换后的状态
+	 */
+	int switchNextAndGet();
+
+	/**
+	 * 返回并切换至下一个状态
+	 *
+	 * @return 切换前的状态
+	 */
+	int getAndSwitchNext();
+
+	/**
+	 * 切换至下一个状态
+	 */
+	void switchNext();
+
+	/**
+	 * 切换至上一个状态并返回切换后的状态
+	 *
+	 * @return 切换后的状态
+	 */
+	int switchPrevAndGet();
+
+	/**
+	 * 获取当前状态并切换至上一个状态
+	 *
+	 * @return 切换前的状态
+	 */
+	int getAndSwitchPrev();
+
+	/**
+	 * 切换至上一个状态
+	 */
+	void switchPrev();
+
+	/**
+	 * 是否可切换
+	 *
+	 * @return 可切换返回真, 否则返回假
+	 * @see StateManager#isSwitchable()
+	 */
+	default boolean isSwitchable() {
+		return size() > 1;
+	}
+
+	/**
+	 * 校验当前状态是否为指定的状态
+	 *
+	 * @param state	指定的状态
+	 * @return	符合返回真, 否则返回假
+	 */
+	default boolean is(int state) {
+		return current() == state;
+	}
+}
@@ -0,0 +1,151 @@
+package com.serliunx.statemanagement.manager;
+
+import java.util.List;
+
+/**
+ * 状态索引
+ * <p>
+ * 在构造时根据状态列表一次性建立的不可变的状态到序号的映射, 用于替代 {@link List#indexOf(Object)} 的线性查找,
+ * 使查找开销不随状态数量增长:
+ * <ul>
+ *     <li> 所有状态均为同一枚举类型时, 直接以枚举的序数作为完美哈希, 查找仅需一次数组访问及一次引用比较
+ *     <li> 其他情况使用开放寻址的哈希表, 比较时优先比较引用, 引用不同时才调用 {@link Object#equals(Object)}
+ * </ul>
+ * 状态列表中不允许出现空值或重复的状态.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public abstract class StateIndex<S> {
+
+	private StateIndex() {}
+
+	/**
+	 * 获取指定状态的序号
+	 *
+	 * @param state 状态
+	 * @return 序号, 状态不存在时返回-1
+	 */
+	public abstract int indexOf(Object state);
+
+	/**
+	 * 根据状态列表建立索引
+	 *
+	 * @param stateList	状态列表
+	 * @param <S>		状态类型
+	 * @return 状态索引
+	 * @throws IllegalArgumentException 状态列表中存在空值或重复的状态
+	 */
+	public static <S> StateIndex<S> of(List<S> stateList) {
+		final Object[] states = stateList.toArray();
+		Class<?> enumClass = null;
+		for (int i = 0; i < states.length; i++) {
+			final Object state = states[i];
+			if (state == null)
+				throw new IllegalArgumentException("Null state at index " + i);
+			if (!(state instanceof Enum)) {
+				enumClass = null;
+				break;
+			}
+			final Class<?> declaringClass = ((Enum<?>) state).getDeclaringClass();
+			if (i == 0)
+				enumClass = declaringClass;
+			else if (enumClass != declaringClass) {
+				enumClass = null;
+				break;
+			}
+		}
+		if (enumClass != null)
+			return new OrdinalIndex<>(states, enumClass.getEnumConstants().length);
+		return new HashIndex<>(states);
+	}
+
+	private static IllegalArgumentException duplicate(Object state) {
+		return new IllegalArgumentException("Duplicate state: " + state);
+	}
+
+	/**
+	 * 枚举状态的索引, 以序数作为完美哈希
+	 */
+	private static final class OrdinalIndex<S> extends StateIndex<S> {
+
+		private final Object[] constants;
+		private final int[] indexes;
+
+		OrdinalIndex(Object[] states, int constantCount) {
+			constants = new Object[constantCount];
+			indexes = new int[constantCount];
+			for (int i = 0; i < states.length; i++) {
+				final int ordinal = ((Enum<?>) states[i]).ordinal();
+				if (constants[ordinal] != null)
+					throw duplicate(states[i]);
+				constants[ordinal] = states[i];
+				indexes[ordinal] = i;
+			}
+		}
+
+		@Override
+		public int indexOf(Object state) {
+			if (!(state instanceof Enum))
+				return -1;
+			final int ordinal = ((Enum<?>) state).ordinal();
+			// 引用比较同时排除了其他枚举类型的常量
+			if (ordinal < constants.length && constants[ordinal] == state)
+				return indexes[ordinal];
+			return -1;
+		}
+	}
+
+	/**
+	 * 开放寻址(线性探测)的哈希索引, 负载因子不超过0.5
+	 * <p>
+	 * 使用斐波那契散列打散哈希值, 避免连续的哈希值(如 "STEP-1"、"STEP-2" 等字符串)聚集成长的探测链
+	 */
+	private static final class HashIndex<S> extends StateIndex<S> {
+
+		private final Object[] keys;
+		private final int[] indexes;
+		private final int mask;
+		private final int shift;
+
+		HashIndex(Object[] states) {
+			int capacity = 2;
+			while (capacity < states.length * 2)
+				capacity <<= 1;
+			keys = new Object[capacity];
+			indexes = new int[capacity];
+			mask = capacity - 1;
+			shift = Integer.numberOfLeadingZeros(capacity) + 1;
+			for (int i = 0; i < states.length; i++) {
+				final Object state = states[i];
+				int slot = hash(state);
+				Object key;
+				while ((key = keys[slot]) != null) {
+					if (key == state || key.equals(state))
+						throw duplicate(state);
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = state;
+				indexes[slot] = i;
+			}
+		}
+
+		@Override
+		public int indexOf(Object state) {
+			if (state == null)
+				return -1;
+			int slot = hash(state);
+			Object key;
+			while ((key = keys[slot]) != null) {
+				if (key == state || state.equals(key))
+					return indexes[slot];
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		private int hash(Object key) {
+			return (key.hashCode() * 0x9E3779B9) >>> shift;
+		}
+	}
+}
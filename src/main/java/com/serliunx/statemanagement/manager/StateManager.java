@@ -1,5 +1,8 @@
 package com.serliunx.statemanagement.manager;
 
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 状态管理器
  * <p>
@@ -31,6 +34,53 @@ public interface StateManager<S> {
 	 */
 	void reset();
 
+	/**
+	 * 阻塞直至到达指定的状态
+	 *
+	 * @param state	目标状态
+	 * @throws InterruptedException 等待期间线程被中断
+	 * @see #awaitState(Object, long, TimeUnit)
+	 */
+	void awaitState(S state) throws InterruptedException;
+
+	/**
+	 * 阻塞直至到达指定的状态或超时
+	 * <p>
+	 * 当前已处于该状态时立即返回; 否则在切换至该状态时被唤醒, 即使随后状态又被切换.
+	 * 等待的线程通过 {@link java.util.concurrent.locks.LockSupport} 挂起, 仅在目标状态被提交时唤醒.
+	 *
+	 * @param state		目标状态
+	 * @param timeout	最长等待时间
+	 * @param unit		时间单位
+	 * @return 到达目标状态返回真, 超时返回假
+	 * @throws InterruptedException 等待期间线程被中断
+	 * @throws IllegalArgumentException 状态不存在
+	 */
+	boolean awaitState(S state, long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * 阻塞直至到达任一指定的状态
+	 *
+	 * @param states	目标状态集合
+	 * @return 到达的状态
+	 * @throws InterruptedException 等待期间线程被中断
+	 * @see #awaitAny(Set, long, TimeUnit)
+	 */
+	S awaitAny(Set<S> states) throws InterruptedException;
+
+	/**
+	 * 阻塞直至到达任一指定的状态或超时
+	 *
+	 * @param states	目标状态集合, 不存在的状态将被忽略
+	 * @param timeout	最长等待时间
+	 * @param unit		时间单位
+	 * @return 到达的状态, 超时返回空
+	 * @throws InterruptedException 等待期间线程被中断
+	 * @throws IllegalArgumentException 集合中没有任何存在的状态
+	 * @see #awaitState(Object, long, TimeUnit)
+	 */
+	S awaitAny(Set<S> states, long timeout, TimeUnit unit) throws InterruptedException;
+
 	/**
 	 * 获取当前状态数量
 	 *
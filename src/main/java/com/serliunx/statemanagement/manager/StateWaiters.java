@@ -0,0 +1,124 @@
+package com.serliunx.statemanagement.manager;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 等待指定状态的线程集合
+ * <p>
+ * 按状态序号分别维护等待队列, 且仅在首次有线程等待该状态时创建; 状态更新后只唤醒等待该状态的线程,
+ * 并将到达的状态直接交给等待者, 即使状态随后又被切换, 等待者依然能感知到曾经到达过目标状态.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see StateManager#awaitState(Object, long, java.util.concurrent.TimeUnit)
+ */
+final class StateWaiters<S> {
+
+	private final AtomicReferenceArray<Queue<Waiter<S>>> queues;
+
+	StateWaiters(int size) {
+		this.queues = new AtomicReferenceArray<>(size);
+	}
+
+	/**
+	 * 登记等待者
+	 *
+	 * @param indexes	等待的状态序号
+	 * @return 等待者
+	 */
+	Waiter<S> register(int[] indexes) {
+		final Waiter<S> waiter = new Waiter<>(Thread.currentThread());
+		for (int index : indexes)
+			queue(index).offer(waiter);
+		return waiter;
+	}
+
+	/**
+	 * 移除等待者
+	 *
+	 * @param waiter	等待者
+	 * @param indexes	等待的状态序号
+	 */
+	void unregister(Waiter<S> waiter, int[] indexes) {
+		for (int index : indexes) {
+			final Queue<Waiter<S>> queue = queues.get(index);
+			if (queue != null)
+				queue.remove(waiter);
+		}
+	}
+
+	/**
+	 * 唤醒等待指定状态的线程
+	 *
+	 * @param index	到达的状态序号
+	 * @param state	到达的状态
+	 */
+	void signal(int index, S state) {
+		final Queue<Waiter<S>> queue = queues.get(index);
+		if (queue == null)
+			return;
+		Waiter<S> waiter;
+		while ((waiter = queue.poll()) != null)
+			waiter.complete(state);
+	}
+
+	private Queue<Waiter<S>> queue(int index) {
+		Queue<Waiter<S>> queue = queues.get(index);
+		if (queue != null)
+			return queue;
+		queue = new ConcurrentLinkedQueue<>();
+		if (queues.compareAndSet(index, null, queue))
+			return queue;
+		return queues.get(index);
+	}
+
+	/**
+	 * 等待者
+	 */
+	static final class Waiter<S> {
+
+		private final Thread thread;
+		/**
+		 * 到达的状态, 首个到达的状态生效
+		 */
+		private final AtomicReference<S> reached = new AtomicReference<>();
+
+		Waiter(Thread thread) {
+			this.thread = thread;
+		}
+
+		void complete(S state) {
+			if (reached.compareAndSet(null, state))
+				LockSupport.unpark(thread);
+		}
+
+		/**
+		 * 阻塞直至到达目标状态或超时
+		 *
+		 * @param nanos	最长等待时间, 小于0时不限时
+		 * @return 到达的状态, 超时且未到达时返回空
+		 * @throws InterruptedException 等待期间线程被中断
+		 */
+		S await(long nanos) throws InterruptedException {
+			final long deadline = nanos < 0 ? 0 : System.nanoTime() + nanos;
+			S state;
+			while ((state = reached.get()) == null) {
+				if (Thread.interrupted())
+					throw new InterruptedException();
+				if (nanos < 0) {
+					LockSupport.park(this);
+				} else {
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0)
+						return reached.get();
+					LockSupport.parkNanos(this, remaining);
+				}
+			}
+			return state;
+		}
+	}
+}
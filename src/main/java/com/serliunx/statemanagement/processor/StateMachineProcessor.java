@@ -0,0 +1,350 @@
+package com.serliunx.statemanagement.processor;
+
+import com.serliunx.statemanagement.annotation.OnEntry;
+import com.serliunx.statemanagement.annotation.OnExchange;
+import com.serliunx.statemanagement.annotation.OnLeave;
+import com.serliunx.statemanagement.annotation.StateMachineDefinition;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * 状态机注解处理器
+ * <p>
+ * 为标注了 {@link StateMachineDefinition} 的枚举生成 {@link com.serliunx.statemanagement.machine.GeneratedStateMachine}
+ * 的实现: 离开及进入处理器分别按源状态、目的状态的序号 {@code switch}, 交换处理器按 源状态序号 * 状态数量 + 目的状态序号
+ * {@code switch}, 每个分支内直接调用处理器方法.
+ * <p>
+ * 状态名称、方法签名及可见性均在编译期校验, 不合法时报告编译错误.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@SupportedAnnotationTypes("com.serliunx.statemanagement.annotation.StateMachineDefinition")
+public class StateMachineProcessor extends AbstractProcessor {
+
+	private static final String PARAMS_TYPE = "com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams";
+	private static final String HANDLER_TYPE = "com.serliunx.statemanagement.machine.TransitionResult.HandlerType";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(StateMachineDefinition.class)) {
+			if (element.getKind() != ElementKind.ENUM) {
+				error(element, "@StateMachineDefinition 只能标注在枚举上");
+				continue;
+			}
+			try {
+				generate((TypeElement) element);
+			} catch (IOException e) {
+				error(element, "生成状态机失败: " + e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	private void generate(TypeElement enumType) throws IOException {
+		final StateMachineDefinition definition = enumType.getAnnotation(StateMachineDefinition.class);
+		final List<String> states = new ArrayList<>();
+		for (Element e : enumType.getEnclosedElements()) {
+			if (e.getKind() == ElementKind.ENUM_CONSTANT)
+				states.add(e.getSimpleName().toString());
+		}
+		if (states.isEmpty()) {
+			error(enumType, "枚举中没有任何状态");
+			return;
+		}
+		final String initial = definition.initial().isEmpty() ? states.get(0) : definition.initial();
+		if (!states.contains(initial)) {
+			error(enumType, "未知的初始状态: " + initial);
+			return;
+		}
+
+		final String enumName = enumType.getQualifiedName().toString();
+		final String packageName = processingEnv.getElementUtils().getPackageOf(enumType).getQualifiedName().toString();
+		final String className = definition.name().isEmpty() ? enumType.getSimpleName() + "StateMachine" :
+				definition.name();
+
+		final Model model = new Model(enumType, states);
+		model.collect(enumType, false);
+		for (TypeElement handlerType : handlerTypes(enumType))
+			model.collect(handlerType, true);
+		if (model.failed)
+			return;
+
+		final StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty())
+			source.append("package ").append(packageName).append(";\n\n");
+		source.append("/**\n * 由 {@link ").append(enumName).append("} 生成的状态机, 请勿修改\n */\n")
+				.append("public final class ").append(className)
+				.append(" extends com.serliunx.statemanagement.machine.GeneratedStateMachine<").append(enumName)
+				.append("> {\n\n");
+
+		// 处理器实例
+		final StringBuilder parameters = new StringBuilder();
+		final StringBuilder arguments = new StringBuilder();
+		for (int i = 0; i < model.instances.size(); i++) {
+			final String type = model.instances.get(i).getQualifiedName().toString();
+			source.append("\tprivate final ").append(type).append(" handlers").append(i).append(";\n");
+			parameters.append(", ").append(type).append(" handlers").append(i);
+			arguments.append(", handlers").append(i);
+		}
+		if (!model.instances.isEmpty())
+			source.append('\n');
+
+		final String params = parameters.length() == 0 ? "" : parameters.substring(2);
+		source.append("\tpublic ").append(className).append("(").append(params).append(") {\n")
+				.append("\t\tthis(").append(enumName).append('.').append(initial).append(", null, null")
+				.append(arguments).append(");\n\t}\n\n");
+		source.append("\tpublic ").append(className).append("(").append(enumName).append(" initialState, ")
+				.append("java.util.concurrent.Executor executor, Boolean async").append(parameters).append(") {\n")
+				.append("\t\tsuper(").append(enumName).append(".values(), initialState, executor, async);\n");
+		for (int i = 0; i < model.instances.size(); i++)
+			source.append("\t\tthis.handlers").append(i).append(" = java.util.Objects.requireNonNull(handlers")
+					.append(i).append(");\n");
+		source.append("\t}\n\n");
+
+		source.append("\t@Override\n\tprotected void dispatch(int from, int to, ").append(PARAMS_TYPE).append('<')
+				.append(enumName).append("> params,\n\t\t\tcom.serliunx.statemanagement.machine.TransitionTracker<")
+				.append(enumName).append("> tracker) {\n");
+		if (!model.isEmpty())
+			source.append("\t\tfinal boolean direct = isDirect(tracker);\n");
+		appendSwitch(source, "from", model.leaves, "LEAVE", "params.getFrom()");
+		appendSwitch(source, "to", model.entries, "ENTRY", "params.getTo()");
+		appendSwitch(source, "from * " + states.size() + " + to", model.exchanges, "EXCHANGE", "params.getTo()");
+		source.append("\t}\n}\n");
+
+		final String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+		final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, enumType);
+		try (Writer writer = file.openWriter()) {
+			writer.write(source.toString());
+		}
+	}
+
+	private static void appendSwitch(StringBuilder source, String selector, Map<Integer, List<Call>> cases,
+									 String type, String state) {
+		if (cases.isEmpty())
+			return;
+		source.append("\t\tswitch (").append(selector).append(") {\n");
+		cases.forEach((label, calls) -> {
+			source.append("\t\t\tcase ").append(label).append(":\n");
+			for (Call call : calls) {
+				if (!call.async)
+					source.append("\t\t\t\tif (direct)\n\t\t\t\t\t").append(call.expression).append(";\n\t\t\t\telse\n\t");
+				source.append("\t\t\t\tinvoke(").append(HANDLER_TYPE).append('.').append(type).append(", ")
+						.append(state).append(", ").append(call.async).append(", \"").append(call.name)
+						.append("\", () -> ").append(call.expression).append(", tracker);\n");
+			}
+			source.append("\t\t\t\tbreak;\n");
+		});
+		source.append("\t\t}\n");
+	}
+
+	private List<TypeElement> handlerTypes(TypeElement enumType) {
+		final List<TypeElement> types = new ArrayList<>();
+		for (AnnotationMirror mirror : enumType.getAnnotationMirrors()) {
+			if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName()
+					.contentEquals(StateMachineDefinition.class.getName()))
+				continue;
+			mirror.getElementValues().forEach((method, value) -> {
+				if (!method.getSimpleName().contentEquals("handlers"))
+					return;
+				for (Object item : (List<?>) value.getValue()) {
+					final TypeMirror type = (TypeMirror) ((AnnotationValue) item).getValue();
+					types.add((TypeElement) ((DeclaredType) type).asElement());
+				}
+			});
+		}
+		return types;
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * 处理器方法的调用
+	 */
+	private static final class Call {
+
+		private final String name;
+		private final String expression;
+		private final boolean async;
+
+		Call(String name, String expression, boolean async) {
+			this.name = name;
+			this.expression = expression;
+			this.async = async;
+		}
+	}
+
+	/**
+	 * 收集到的处理器方法, 键为 switch 的分支
+	 */
+	private final class Model {
+
+		private final TypeElement enumType;
+		private final List<String> states;
+		private final Map<Integer, List<Call>> leaves = new TreeMap<>();
+		private final Map<Integer, List<Call>> entries = new TreeMap<>();
+		private final Map<Integer, List<Call>> exchanges = new TreeMap<>();
+		/**
+		 * 含有实例方法的处理器类
+		 */
+		private final List<TypeElement> instances = new ArrayList<>();
+		private boolean failed;
+
+		Model(TypeElement enumType, List<String> states) {
+			this.enumType = enumType;
+			this.states = states;
+		}
+
+		boolean isEmpty() {
+			return leaves.isEmpty() && entries.isEmpty() && exchanges.isEmpty();
+		}
+
+		void collect(TypeElement owner, boolean allowInstance) {
+			for (ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements())) {
+				final OnLeave onLeave = method.getAnnotation(OnLeave.class);
+				final OnEntry onEntry = method.getAnnotation(OnEntry.class);
+				final OnExchange onExchange = method.getAnnotation(OnExchange.class);
+				if (onLeave == null && onEntry == null && onExchange == null)
+					continue;
+				final String target = target(owner, method, allowInstance);
+				final String arguments = arguments(method);
+				if (target == null || arguments == null) {
+					failed = true;
+					continue;
+				}
+				final String expression = target + "." + method.getSimpleName() + "(" + arguments + ")";
+				final String name = owner.getSimpleName() + "#" + method.getSimpleName();
+				if (onLeave != null) {
+					for (String state : onLeave.value())
+						add(leaves, indexOf(method, state), new Call(name, expression, onLeave.async()));
+				}
+				if (onEntry != null) {
+					for (String state : onEntry.value())
+						add(entries, indexOf(method, state), new Call(name, expression, onEntry.async()));
+				}
+				if (onExchange != null) {
+					final int from = indexOf(method, onExchange.from());
+					final int to = indexOf(method, onExchange.to());
+					if (from == to && from != -1) {
+						error(method, "源状态与目的状态相同: " + onExchange.from());
+						failed = true;
+					} else if (from != -1 && to != -1)
+						add(exchanges, from * states.size() + to, new Call(name, expression, onExchange.async()));
+				}
+			}
+		}
+
+		private void add(Map<Integer, List<Call>> cases, int label, Call call) {
+			if (label != -1)
+				cases.computeIfAbsent(label, k -> new ArrayList<>()).add(call);
+		}
+
+		private int indexOf(ExecutableElement method, String state) {
+			final int index = states.indexOf(state);
+			if (index == -1) {
+				error(method, "未知的状态: " + state + ", 可选的状态为 " + states);
+				failed = true;
+			}
+			return index;
+		}
+
+		/**
+		 * 方法的调用目标, 静态方法为类名, 实例方法为生成的字段名
+		 */
+		private String target(TypeElement owner, ExecutableElement method, boolean allowInstance) {
+			final Set<Modifier> modifiers = method.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE)) {
+				error(method, "处理器方法不能为私有方法");
+				return null;
+			}
+			// 生成的状态机与枚举位于同一个包中, 且不是处理器类的子类
+			final PackageElement generated = processingEnv.getElementUtils().getPackageOf(enumType);
+			if (!isAccessible(method, generated)) {
+				error(method, "处理器方法必须为公开方法或与枚举 " + enumType.getSimpleName() + " 位于同一个包中: "
+						+ generated.getQualifiedName());
+				return null;
+			}
+			for (Element type = owner; type instanceof TypeElement; type = type.getEnclosingElement()) {
+				if (!isAccessible(type, generated)) {
+					error(method, "处理器方法所在的类 " + ((TypeElement) type).getQualifiedName()
+							+ " 必须为公开类或与枚举 " + enumType.getSimpleName() + " 位于同一个包中: "
+							+ generated.getQualifiedName());
+					return null;
+				}
+			}
+			if (modifiers.contains(Modifier.STATIC))
+				return owner.getQualifiedName().toString();
+			if (!allowInstance) {
+				error(method, "枚举中的处理器方法必须为静态方法");
+				return null;
+			}
+			int index = instances.indexOf(owner);
+			if (index == -1) {
+				instances.add(owner);
+				index = instances.size() - 1;
+			}
+			return "handlers" + index;
+		}
+
+		/**
+		 * 生成的状态机能否访问指定的方法或类: 公开的, 或者非私有且位于同一个包中
+		 */
+		private boolean isAccessible(Element element, PackageElement generated) {
+			final Set<Modifier> modifiers = element.getModifiers();
+			if (modifiers.contains(Modifier.PUBLIC))
+				return true;
+			return !modifiers.contains(Modifier.PRIVATE) &&
+					processingEnv.getElementUtils().getPackageOf(element).equals(generated);
+		}
+
+		/**
+		 * 方法的调用参数
+		 */
+		private String arguments(ExecutableElement method) {
+			final List<? extends VariableElement> parameters = method.getParameters();
+			if (parameters.isEmpty())
+				return "";
+			if (parameters.size() == 1 && isParams(parameters.get(0).asType()))
+				return "params";
+			if (parameters.size() == 2 &&
+					isState(parameters.get(0).asType()) &&
+					isState(parameters.get(1).asType()))
+				return "params.getFrom(), params.getTo()";
+			error(method, "处理器方法的参数只能为空、StateHandlerProcessParams<" + enumType.getSimpleName() + "> 或 ("
+					+ enumType.getSimpleName() + " from, " + enumType.getSimpleName() + " to)");
+			return null;
+		}
+
+		private boolean isParams(TypeMirror type) {
+			if (type.getKind() != TypeKind.DECLARED)
+				return false;
+			final DeclaredType declared = (DeclaredType) type;
+			if (!((TypeElement) declared.asElement()).getQualifiedName().contentEquals(PARAMS_TYPE))
+				return false;
+			final List<? extends TypeMirror> arguments = declared.getTypeArguments();
+			return arguments.isEmpty() || isState(arguments.get(0));
+		}
+
+		private boolean isState(TypeMirror type) {
+			return processingEnv.getTypeUtils().isSameType(type, enumType.asType());
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.serliunx.statemanagement.support;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应线程数量的线程池
+ * <p>
+ * 统计任务的到达速率 λ 及平均执行耗时 W, 按利特尔法则 L = λ × W 估算所需的并发数量,
+ * 以 {@link #TARGET_UTILIZATION} 为目标利用率确定核心线程数量并限制在给定的上下限之间; 队列满时线程数量可以临时增长至上限.
+ * <p>
+ * 调整在提交任务时按固定间隔进行, 不需要额外的调度线程; 没有任务提交时保持上一次调整的结果.
+ * 每次调整的结果可以通过 {@link #getArrivalRate()}、{@link #getMeanLatencyNanos()}、{@link #getEstimatedConcurrency()}、
+ * {@link #getTargetPoolSize()} 及 {@link #getResizeCount()} 获取.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see ExecutorStrategy#adaptive(int, int, int, long, TimeUnit)
+ */
+public final class AdaptiveExecutor extends ThreadPoolExecutor {
+
+	/**
+	 * 目标利用率, 留出余量以吸收到达速率的波动
+	 */
+	public static final double TARGET_UTILIZATION = 0.75;
+	/**
+	 * 统计值的平滑系数, 新的采样所占的比重
+	 */
+	private static final double SMOOTHING = 0.5;
+
+	private final int minThreads;
+	private final int maxThreads;
+	private final long intervalNanos;
+
+	private final LongAdder arrivals = new LongAdder();
+	private final LongAdder completions = new LongAdder();
+	private final LongAdder busyNanos = new LongAdder();
+	private final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+	private final AtomicBoolean resizing = new AtomicBoolean();
+	private final AtomicLong resizes = new AtomicLong();
+
+	private volatile long windowStart = System.nanoTime();
+	private volatile double arrivalRate;
+	private volatile double meanLatencyNanos;
+	private volatile int targetPoolSize;
+
+	/**
+	 * @param minThreads		最小线程数量
+	 * @param maxThreads		最大线程数量
+	 * @param queueCapacity		队列容量
+	 * @param interval			调整的间隔
+	 * @param unit				间隔的单位
+	 * @param rejectedHandler	拒绝策略
+	 */
+	public AdaptiveExecutor(int minThreads, int maxThreads, int queueCapacity, long interval, TimeUnit unit,
+							RejectedExecutionHandler rejectedHandler) {
+		super(minThreads, maxThreads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(queueCapacity),
+				new NamedThreadFactory("state-process-adaptive-%s"), rejectedHandler);
+		this.minThreads = minThreads;
+		this.maxThreads = maxThreads;
+		this.intervalNanos = unit.toNanos(interval);
+		this.targetPoolSize = minThreads;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		arrivals.increment();
+		final long now = System.nanoTime();
+		if (now - windowStart >= intervalNanos)
+			resize(now);
+		super.execute(command);
+	}
+
+	@Override
+	protected void beforeExecute(Thread t, Runnable r) {
+		startNanos.get()[0] = System.nanoTime();
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		busyNanos.add(System.nanoTime() - startNanos.get()[0]);
+		completions.increment();
+	}
+
+	/**
+	 * 按上一个统计窗口的数据调整核心线程数量, 同一时刻只有一个线程进行调整
+	 */
+	private void resize(long now) {
+		if (!resizing.compareAndSet(false, true))
+			return;
+		try {
+			final long elapsed = now - windowStart;
+			if (elapsed < intervalNanos)
+				return;
+			windowStart = now;
+			final long arrived = arrivals.sumThenReset();
+			final long completed = completions.sumThenReset();
+			final long busy = busyNanos.sumThenReset();
+			arrivalRate = smooth(arrivalRate, arrived * 1e9 / elapsed);
+			if (completed > 0)
+				meanLatencyNanos = smooth(meanLatencyNanos, (double) busy / completed);
+			final int target = (int) Math.min(maxThreads,
+					Math.max(minThreads, Math.ceil(getEstimatedConcurrency() / TARGET_UTILIZATION)));
+			targetPoolSize = target;
+			if (target != getCorePoolSize()) {
+				setCorePoolSize(target);
+				resizes.incrementAndGet();
+			}
+		} finally {
+			resizing.set(false);
+		}
+	}
+
+	private static double smooth(double previous, double sample) {
+		return previous == 0 ? sample : previous + (sample - previous) * SMOOTHING;
+	}
+
+	/**
+	 * 平滑后的任务到达速率
+	 *
+	 * @return 每秒到达的任务数量
+	 */
+	public double getArrivalRate() {
+		return arrivalRate;
+	}
+
+	/**
+	 * 平滑后的任务平均执行耗时
+	 *
+	 * @return 纳秒
+	 */
+	public double getMeanLatencyNanos() {
+		return meanLatencyNanos;
+	}
+
+	/**
+	 * 按利特尔法则估算的所需并发数量
+	 *
+	 * @return 到达速率 × 平均执行耗时
+	 */
+	public double getEstimatedConcurrency() {
+		return arrivalRate * meanLatencyNanos / 1e9;
+	}
+
+	/**
+	 * 最近一次调整确定的核心线程数量
+	 *
+	 * @return 核心线程数量
+	 */
+	public int getTargetPoolSize() {
+		return targetPoolSize;
+	}
+
+	/**
+	 * 核心线程数量实际发生变化的次数
+	 *
+	 * @return 调整次数
+	 */
+	public long getResizeCount() {
+		return resizes.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("AdaptiveExecutor{arrivalRate=%.1f/s, meanLatency=%.0fns, target=%d, pool=%d, " +
+				"resizes=%d}", arrivalRate, meanLatencyNanos, targetPoolSize, getPoolSize(), resizes.get());
+	}
+}
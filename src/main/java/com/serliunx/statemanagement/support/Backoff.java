@@ -0,0 +1,67 @@
+package com.serliunx.statemanagement.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自旋退避工具类
+ * <p>
+ * CAS失败后按指数增长的次数自旋, 每次自旋调用 {@code Thread.onSpinWait()} 提示处理器当前处于忙等待;
+ * 运行在不支持该方法的JDK(8)上时退化为空循环. 超过自旋上限后改为让出处理器.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public final class Backoff {
+
+	/**
+	 * 自旋次数的最大指数, 即单次退避最多自旋 2^10 次
+	 */
+	private static final int MAX_SHIFT = 10;
+	/**
+	 * {@code Thread.onSpinWait()}, 不支持时为空
+	 */
+	private static final MethodHandle ON_SPIN_WAIT;
+
+	static {
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			handle = null;
+		}
+		ON_SPIN_WAIT = handle;
+	}
+
+	private Backoff() {throw new UnsupportedOperationException();}
+
+	/**
+	 * 提示处理器当前线程处于忙等待
+	 */
+	public static void onSpinWait() {
+		if (ON_SPIN_WAIT == null)
+			return;
+		try {
+			ON_SPIN_WAIT.invokeExact();
+		} catch (Throwable ignored) {}
+	}
+
+	/**
+	 * 第 attempt 次失败后退避
+	 * <p>
+	 * 自旋次数在 [1, 2^attempt] 内随机选取, 避免多个线程在同一时刻重试; attempt 超过上限后让出处理器.
+	 *
+	 * @param attempt	已失败的次数, 从0开始
+	 */
+	public static void pause(int attempt) {
+		if (attempt > MAX_SHIFT) {
+			Thread.yield();
+			return;
+		}
+		final int spins = ThreadLocalRandom.current().nextInt(1 << attempt) + 1;
+		for (int i = 0; i < spins; i++)
+			onSpinWait();
+	}
+}
@@ -0,0 +1,223 @@
+package com.serliunx.statemanagement.support;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 舱壁(隔离执行器)
+ * <p>
+ * 为一组任务单独限制并发数量及排队数量, 实际的执行仍复用共享的执行器; 以此避免某个缓慢或繁忙的状态占满共享执行器,
+ * 导致其他状态的处理器被拒绝.
+ * <ul>
+ *     <li> 同时提交至共享执行器的任务不超过 {@link #getMaxConcurrent()} 个
+ *     <li> 超出部分在舱壁内部排队, 排队数量不超过 {@link #getQueueCapacity()} 个
+ *     <li> 队列已满时计数并抛出 {@link RejectedExecutionException}, 与其他执行器的拒绝行为保持一致
+ *     <li> 共享执行器拒绝工作任务且舱壁内已无其他工作任务时, 排队的任务全部被拒绝, 实现了 {@link RejectionAware} 的任务会得到通知
+ * </ul>
+ * 舱壁依赖共享执行器报告拒绝来归还名额: 共享执行器拒绝工作任务时必须抛出 {@link RejectedExecutionException},
+ * 或者回调 {@link RejectionAware#onRejected()}(如 {@link DefaultCountableRejectedExecutionHandler}). 静默丢弃任务的拒绝策略
+ * 会使被丢弃的工作任务永久占用名额, 因此使用 {@link ThreadPoolExecutor.DiscardPolicy} 或
+ * {@link ThreadPoolExecutor.DiscardOldestPolicy} 的线程池不能作为共享执行器; 自定义的拒绝策略同样需要满足上述要求.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public final class Bulkhead implements Executor {
+
+    /**
+     * 单个工作任务连续执行的最大任务数量, 执行完毕后让出共享执行器的线程
+     */
+    private static final int MAX_DRAIN = 16;
+
+    private final String name;
+    private final Executor delegate;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final AtomicInteger active = new AtomicInteger(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong completed = new AtomicLong(0);
+
+    /**
+     * @param name          名称
+     * @param delegate      共享的执行器, 拒绝任务时必须抛出异常或回调 {@link RejectionAware#onRejected()}
+     * @param maxConcurrent 最大并发数量
+     * @param queueCapacity 最大排队数量
+     * @throws IllegalArgumentException 限制不合法, 或者共享执行器使用了静默丢弃任务的拒绝策略
+     */
+    public Bulkhead(String name, Executor delegate, int maxConcurrent, int queueCapacity) {
+        if (delegate == null)
+            throw new NullPointerException();
+        if (maxConcurrent <= 0 || queueCapacity < 0)
+            throw new IllegalArgumentException("Illegal bulkhead limits: " + maxConcurrent + "/" + queueCapacity);
+        if (delegate instanceof ThreadPoolExecutor) {
+            final RejectedExecutionHandler handler = ((ThreadPoolExecutor) delegate).getRejectedExecutionHandler();
+            if (handler instanceof ThreadPoolExecutor.DiscardPolicy ||
+                    handler instanceof ThreadPoolExecutor.DiscardOldestPolicy)
+                throw new IllegalArgumentException("Bulkhead " + name + " cannot share an executor that silently " +
+                        "discards tasks: " + handler.getClass().getName());
+        }
+        this.name = name;
+        this.delegate = delegate;
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        int q;
+        do {
+            if ((q = queued.get()) >= queueCapacity + maxConcurrent - active.get()) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Bulkhead " + name + " is saturated: " + this);
+            }
+        } while (!queued.compareAndSet(q, q + 1));
+        queue.offer(command);
+        dispatch();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 获取正在共享执行器中执行(或等待执行)的工作任务数量
+     *
+     * @return 当前并发数量
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * 获取在舱壁内排队的任务数量
+     *
+     * @return 排队数量
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * 获取到目前为止被拒绝的任务数量
+     *
+     * @return 被拒绝的任务数量
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * 获取到目前为止执行完毕的任务数量
+     *
+     * @return 执行完毕的任务数量
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * 是否已饱和(并发数已满且队列已满)
+     *
+     * @return 饱和时返回真, 否则返回假
+     */
+    public boolean isSaturated() {
+        return active.get() >= maxConcurrent && queued.get() >= queueCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead{" +
+                "name='" + name + '\'' +
+                ", active=" + active.get() + "/" + maxConcurrent +
+                ", queued=" + queued.get() + "/" + queueCapacity +
+                ", rejected=" + rejected.get() +
+                ", completed=" + completed.get() +
+                '}';
+    }
+
+    /**
+     * 在并发数量允许的情况下向共享执行器提交工作任务
+     */
+    private void dispatch() {
+        int a;
+        while (queued.get() > 0 && (a = active.get()) < maxConcurrent) {
+            if (!active.compareAndSet(a, a + 1))
+                continue;
+            final Worker worker = new Worker();
+            try {
+                delegate.execute(worker);
+            } catch (RejectedExecutionException e) {
+                worker.onRejected();
+            }
+            return;
+        }
+    }
+
+    private Runnable poll() {
+        final Runnable task = queue.poll();
+        if (task != null)
+            queued.decrementAndGet();
+        return task;
+    }
+
+    private void reject(Runnable task) {
+        rejected.incrementAndGet();
+        if (task instanceof RejectionAware)
+            ((RejectionAware) task).onRejected();
+    }
+
+    /**
+     * 工作任务, 占用一个并发名额并连续执行舱壁内排队的任务
+     */
+    private final class Worker implements RejectionAware {
+
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                for (int i = 0; i < MAX_DRAIN && (task = poll()) != null; i++) {
+                    try {
+                        task.run();
+                    } finally {
+                        completed.incrementAndGet();
+                    }
+                }
+            } finally {
+                active.decrementAndGet();
+                dispatch();
+            }
+        }
+
+        /**
+         * 共享执行器拒绝了工作任务: 释放名额; 仍有其他工作任务时由其继续消费队列,
+         * 否则拒绝队列中剩余的全部任务, 避免任务滞留在舱壁内无人执行
+         */
+        @Override
+        public void onRejected() {
+            if (active.decrementAndGet() > 0)
+                return;
+            Runnable task;
+            while ((task = poll()) != null)
+                reject(task);
+        }
+    }
+}
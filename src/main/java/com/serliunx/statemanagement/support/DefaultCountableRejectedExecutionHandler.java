@@ -36,5 +36,7 @@ public class DefaultCountableRejectedExecutionHandler implements CountableReject
     public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
         last = r;
         counter.incrementAndGet();
+        if (r instanceof RejectionAware)
+            ((RejectionAware) r).onRejected();
     }
 }
@@ -0,0 +1,116 @@
+package com.serliunx.statemanagement.support;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 执行器策略
+ * <p>
+ * 状态机未指定执行器时, 通过策略为每个状态机实例创建各自的执行器; 状态机关闭时一并关闭.
+ * 内置的策略:
+ * <ul>
+ *     <li> {@link #standard()} 原有的自适应线程池, 核心线程数为处理器数量的两倍, 队列容量固定(默认)
+ *     <li> {@link #workStealing()} 异步模式的 {@link ForkJoinPool}, 适合计算密集、不阻塞的处理器
+ *     <li> {@link #dedicated()} 单个专属线程及无界队列, 处理器按提交顺序依次执行
+ *     <li> {@link #adaptive(int, int)} 根据处理器的耗时及到达速率调整线程数量, 适合会阻塞的处理器
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see com.serliunx.statemanagement.machine.StateMachineBuilder#executorStrategy(ExecutorStrategy)
+ */
+@FunctionalInterface
+public interface ExecutorStrategy {
+
+	/**
+	 * 创建执行器
+	 *
+	 * @return 执行器
+	 */
+	Executor newExecutor();
+
+	/**
+	 * 原有的自适应线程池, 被拒绝的任务丢弃并计数
+	 *
+	 * @return 执行器策略
+	 * @see ExecutorUtils#adaptiveThreadPool(RejectedExecutionHandler)
+	 */
+	static ExecutorStrategy standard() {
+		return () -> ExecutorUtils.adaptiveThreadPool(new DefaultCountableRejectedExecutionHandler());
+	}
+
+	/**
+	 * 工作窃取, 并行度为处理器数量
+	 *
+	 * @return 执行器策略
+	 * @see #workStealing(int)
+	 */
+	static ExecutorStrategy workStealing() {
+		return workStealing(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * 工作窃取
+	 * <p>
+	 * 使用异步模式(先进先出)的 {@link ForkJoinPool}, 各线程拥有独立的任务队列, 空闲线程从其他线程窃取任务;
+	 * 队列无界, 任务不会被拒绝.
+	 *
+	 * @param parallelism	并行度
+	 * @return 执行器策略
+	 */
+	static ExecutorStrategy workStealing(int parallelism) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive");
+		return () -> {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			return new ForkJoinPool(parallelism, pool -> {
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("state-process-fj-" + threadNumber.getAndIncrement());
+				return thread;
+			}, null, true);
+		};
+	}
+
+	/**
+	 * 专属线程
+	 * <p>
+	 * 每个状态机拥有一个专属线程及无界队列, 处理器按提交顺序依次执行, 任务不会被拒绝.
+	 *
+	 * @return 执行器策略
+	 */
+	static ExecutorStrategy dedicated() {
+		return () -> new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				new NamedThreadFactory("state-process-dedicated-%s"));
+	}
+
+	/**
+	 * 自适应线程数量, 每秒调整一次, 队列容量为最大线程数的64倍
+	 *
+	 * @param minThreads	最小线程数量
+	 * @param maxThreads	最大线程数量
+	 * @return 执行器策略
+	 * @see AdaptiveExecutor
+	 */
+	static ExecutorStrategy adaptive(int minThreads, int maxThreads) {
+		return adaptive(minThreads, maxThreads, maxThreads * 64, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 自适应线程数量, 被拒绝的任务丢弃并计数
+	 *
+	 * @param minThreads	最小线程数量
+	 * @param maxThreads	最大线程数量
+	 * @param queueCapacity	队列容量
+	 * @param interval		调整的间隔
+	 * @param unit			间隔的单位
+	 * @return 执行器策略
+	 * @see AdaptiveExecutor
+	 */
+	static ExecutorStrategy adaptive(int minThreads, int maxThreads, int queueCapacity, long interval,
+									 TimeUnit unit) {
+		if (minThreads <= 0 || maxThreads < minThreads || queueCapacity <= 0 || interval <= 0)
+			throw new IllegalArgumentException("Illegal adaptive executor bounds");
+		return () -> new AdaptiveExecutor(minThreads, maxThreads, queueCapacity, interval, unit,
+				new DefaultCountableRejectedExecutionHandler());
+	}
+}
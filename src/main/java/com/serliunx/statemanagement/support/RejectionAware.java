@@ -0,0 +1,18 @@
+package com.serliunx.statemanagement.support;
+
+/**
+ * 可感知拒绝的任务
+ * <p>
+ * 部分拒绝策略(如 {@link DefaultCountableRejectedExecutionHandler})会静默地丢弃任务, 提交方无从得知任务是否会被执行;
+ * 实现该接口的任务在被拒绝时会得到通知, 以便提交方及时感知并收尾.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public interface RejectionAware extends Runnable {
+
+    /**
+     * 任务被拒绝执行时回调
+     */
+    void onRejected();
+}
@@ -0,0 +1,34 @@
+package com.serliunx.statemanagement.support;
+
+/**
+ * 环形缓冲区的等待策略
+ * <p>
+ * 决定消费者没有可处理的数据、或生产者因缓冲区已满而无法发布时如何等待.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ * @see com.serliunx.statemanagement.machine.RingBufferDispatcher
+ */
+public enum WaitStrategy {
+
+	/**
+	 * 忙等待
+	 * <p>
+	 * 延迟最低, 但会持续占用一个处理器核心, 仅适用于核心数量充足且对延迟极其敏感的场景.
+	 */
+	BUSY_SPIN,
+
+	/**
+	 * 自旋一段时间后让出处理器
+	 * <p>
+	 * 延迟较低, 空闲时依然占用处理器.
+	 */
+	YIELD,
+
+	/**
+	 * 自旋一段时间后挂起, 由生产者在发布时唤醒(默认)
+	 * <p>
+	 * 空闲时不占用处理器, 唤醒会带来额外的延迟; 仅在消费者已挂起时才需要唤醒, 持续有数据时没有额外开销.
+	 */
+	PARK
+}
@@ -1,17 +1,75 @@
 package com.serliunx.statemanagement;
 
+import com.serliunx.statemanagement.machine.AsyncBatchMode;
+import com.serliunx.statemanagement.machine.BatchDispatchMode;
 import com.serliunx.statemanagement.machine.ConcurrentStateMachine;
+import com.serliunx.statemanagement.machine.ContentionMode;
+import com.serliunx.statemanagement.machine.IntStateMachine;
+import com.serliunx.statemanagement.machine.IntStateMachineBuilder;
+import com.serliunx.statemanagement.machine.MappedStateTable;
+import com.serliunx.statemanagement.machine.RingBufferDispatcher;
 import com.serliunx.statemanagement.machine.StateMachine;
 import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.machine.StateMachineDefinition;
+import com.serliunx.statemanagement.machine.StateMachineRegistry;
+import com.serliunx.statemanagement.machine.StateMachineSnapshot;
+import com.serliunx.statemanagement.machine.StateMachineType;
+import com.serliunx.statemanagement.machine.StateOccupancyIndex;
+import com.serliunx.statemanagement.machine.TransitionGuard;
+import com.serliunx.statemanagement.machine.TransitionInterceptor;
+import com.serliunx.statemanagement.machine.TransitionResult;
+import com.serliunx.statemanagement.machine.handler.StateHandler;
+import com.serliunx.statemanagement.machine.support.StateMachines;
+import com.serliunx.statemanagement.support.AdaptiveExecutor;
+import com.serliunx.statemanagement.support.Bulkhead;
+import com.serliunx.statemanagement.support.DefaultCountableRejectedExecutionHandler;
+import com.serliunx.statemanagement.support.ExecutorStrategy;
+import com.serliunx.statemanagement.support.OrderHandlers;
+import com.serliunx.statemanagement.support.OrderState;
+import com.serliunx.statemanagement.support.OrderStateStateMachine;
 import com.serliunx.statemanagement.support.PrinterEvent;
 import com.serliunx.statemanagement.support.PrinterState;
+import com.serliunx.statemanagement.support.WaitStrategy;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
 
 /**
  * 状态机测试
@@ -74,4 +132,1362 @@ public class MachineTest {
 
 		TimeUnit.SECONDS.sleep(5);
 	}
+
+	@Test
+	public void testSwitchToAsync() throws Exception {
+		StateMachine<PrinterState> stateMachine = StateMachineBuilder.from(PrinterState.values())
+				.async(false)
+				.whenLeave(PrinterState.IDLE, h -> {
+					throw new IllegalStateException("leave failed");
+				})
+				.whenEntry(PrinterState.PRINTING, h -> {
+					try {
+						TimeUnit.MILLISECONDS.sleep(100);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}, true, executor)
+				.build();
+
+		TransitionResult<PrinterState> result = stateMachine.switchToAsync(PrinterState.PRINTING)
+				.get(5, TimeUnit.SECONDS);
+		log.info("{}", result);
+
+		assertTrue(result.isSwitched());
+		assertFalse(result.isSuccessful());
+		assertEquals(2, result.getExecutions().size());
+		assertEquals(1, result.getFailures().size());
+		assertEquals(TransitionResult.HandlerType.LEAVE, result.getFailures().get(0).getType());
+		assertTrue(result.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+
+		assertFalse(stateMachine.switchToAsync(PrinterState.PRINTING).get().isSwitched());
+		stateMachine.close();
+
+		// 执行器静默丢弃处理器时结果永远不会完成, 报告拒绝时处理器记录为被拒绝
+		final CountDownLatch release = new CountDownLatch(1);
+		for (RejectedExecutionHandler handler : new RejectedExecutionHandler[]{
+				new ThreadPoolExecutor.DiscardPolicy(), new DefaultCountableRejectedExecutionHandler()}) {
+			final ThreadPoolExecutor saturated = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new SynchronousQueue<>(), handler);
+			try {
+				saturated.execute(() -> {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+				final StateMachine<PrinterState> machine = StateMachineBuilder.from(PrinterState.values())
+						.executor(saturated)
+						.async()
+						.whenEntry(PrinterState.PRINTING, h -> {})
+						.build();
+				final CompletableFuture<TransitionResult<PrinterState>> future =
+						machine.switchToAsync(PrinterState.PRINTING);
+				if (handler instanceof ThreadPoolExecutor.DiscardPolicy) {
+					try {
+						future.get(200, TimeUnit.MILLISECONDS);
+						fail();
+					} catch (TimeoutException ignored) {}
+				} else {
+					final TransitionResult<PrinterState> rejected = future.get(5, TimeUnit.SECONDS);
+					assertEquals(1, rejected.getFailures().size());
+					assertTrue(rejected.getFailures().get(0).isRejected());
+				}
+			} finally {
+				saturated.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	public void testBulkhead() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger printing = new AtomicInteger();
+		StateMachine<PrinterState> stateMachine = StateMachineBuilder.from(PrinterState.values())
+				.async()
+				.executor(executor)
+				.bulkhead(PrinterState.STOPPED, 1, 1)
+				.whenEntry(PrinterState.STOPPED, h -> {
+					try {
+						started.countDown();
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				})
+				.whenEntry(PrinterState.PRINTING, h -> printing.incrementAndGet())
+				.build();
+
+		stateMachine.switchTo(PrinterState.STOPPED);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		stateMachine.switchTo(PrinterState.PRINTING);
+		int rejections = 0;
+		for (int i = 0; i < 4; i++) {
+			try {
+				stateMachine.switchTo(PrinterState.STOPPED);
+			} catch (RejectedExecutionException e) {
+				rejections++;
+			}
+			stateMachine.switchTo(PrinterState.PRINTING);
+		}
+		assertEquals(3, rejections);
+		Bulkhead bulkhead = stateMachine.bulkheads().get(PrinterState.STOPPED.toString());
+		log.info("{}", bulkhead);
+
+		assertEquals(1, bulkhead.getActiveCount());
+		assertTrue(bulkhead.isSaturated());
+		assertEquals(3, bulkhead.getRejectedCount());
+
+		TimeUnit.MILLISECONDS.sleep(200);
+		assertEquals(5, printing.get());
+		release.countDown();
+
+		// 静默丢弃任务的执行器会使舱壁的名额永久泄漏
+		for (RejectedExecutionHandler handler : new RejectedExecutionHandler[]{
+				new ThreadPoolExecutor.DiscardPolicy(), new ThreadPoolExecutor.DiscardOldestPolicy()}) {
+			final ThreadPoolExecutor discarding = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new SynchronousQueue<>(), handler);
+			try {
+				new Bulkhead("discarding", discarding, 1, 1);
+				fail();
+			} catch (IllegalArgumentException ignored) {
+			} finally {
+				discarding.shutdownNow();
+			}
+		}
+		final ThreadPoolExecutor reporting = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new SynchronousQueue<>(), new DefaultCountableRejectedExecutionHandler());
+		new Bulkhead("reporting", reporting, 1, 1);
+		reporting.shutdownNow();
+	}
+
+	@Test
+	public void testConflatedHandler() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger deliveries = new AtomicInteger();
+		final AtomicInteger transitions = new AtomicInteger();
+		StateMachine<PrinterState> stateMachine = StateMachineBuilder.from(PrinterState.values())
+				.async(false)
+				.executor(executor)
+				.whenEntryConflated(PrinterState.PRINTING, h -> {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					deliveries.incrementAndGet();
+					transitions.addAndGet(h.getSkipped() + 1);
+					log.info("{} -> {}, skipped: {}", h.getFrom(), h.getTo(), h.getSkipped());
+				})
+				.build();
+
+		for (int i = 0; i < 1000; i++) {
+			stateMachine.switchTo(PrinterState.PRINTING);
+			stateMachine.switchTo(PrinterState.IDLE);
+		}
+		release.countDown();
+
+		TimeUnit.MILLISECONDS.sleep(200);
+		assertTrue(deliveries.get() <= 2);
+		assertEquals(1000, transitions.get());
+	}
+
+	@Test
+	public void testPostCommitDispatch() throws Exception {
+		final List<PrinterState> entered = new CopyOnWriteArrayList<>();
+		final AtomicReference<StateMachine<PrinterState>> holder = new AtomicReference<>();
+		StateMachine<PrinterState> stateMachine = StateMachineBuilder.from(PrinterState.values())
+				.async(false)
+				.postCommit()
+				.whenEntry(PrinterState.PRINTING, h -> {
+					entered.add(h.getTo());
+					// 写锁已释放, 其他线程可以正常读取状态
+					try {
+						assertEquals(PrinterState.PRINTING, executor.submit(() -> holder.get().current())
+								.get(1, TimeUnit.SECONDS));
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+					holder.get().switchTo(PrinterState.STOPPING);
+					entered.add(PrinterState.PRINTING);
+				})
+				.whenEntry(PrinterState.STOPPING, h -> entered.add(h.getTo()))
+				.build();
+		holder.set(stateMachine);
+
+		assertTrue(stateMachine.switchTo(PrinterState.PRINTING));
+		assertEquals(PrinterState.STOPPING, stateMachine.current());
+		assertEquals(Arrays.asList(PrinterState.PRINTING, PrinterState.PRINTING, PrinterState.STOPPING), entered);
+	}
+
+	@Test
+	public void testIntStateMachine() {
+		final int[] counters = new int[3];
+		IntStateMachine machine = IntStateMachineBuilder.from(10, 20, 30, 40)
+				.whenEntry(30, (from, to) -> counters[0]++)
+				.whenLeave(30, (from, to) -> counters[1]++)
+				.exchange(40, 10, (from, to) -> counters[2]++)
+				.build();
+
+		assertEquals(10, machine.current());
+		for (int i = 0; i < 8; i++)
+			machine.switchNext();
+		assertTrue(machine.compareAndSet(10, 30));
+		assertFalse(machine.compareAndSet(10, 40));
+		assertFalse(machine.switchTo(50));
+		assertTrue(machine.switchTo(20, false));
+		assertEquals(20, machine.current());
+		assertArrayEquals(new int[]{3, 2, 2}, counters);
+
+		IntStateMachine range = IntStateMachineBuilder.range(4).withInitial(3).build();
+		assertEquals(0, range.switchNextAndGet());
+		assertEquals(3, range.switchPrevAndGet());
+	}
+
+	@Test
+	public void testCompiledDefinition() throws Exception {
+		final List<String> trace = new CopyOnWriteArrayList<>();
+		StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+				.async(false)
+				.whenLeave(PrinterState.IDLE, h -> trace.add("leave-" + h.getFrom()))
+				.whenEntry(PrinterState.SCANNING, h -> trace.add("entry-" + h.getTo()))
+				.exchange(PrinterState.IDLE, PrinterState.SCANNING, h -> trace.add("exchange"));
+		StateMachineDefinition<PrinterState> definition = builder.compile();
+		assertTrue(definition.isCompiled());
+
+		try (StateMachine<PrinterState> first = definition.newMachine();
+			 StateMachine<PrinterState> second = definition.newMachine(PrinterState.SCANNING);
+			 StateMachine<PrinterState> reference = builder.build()) {
+			assertEquals(PrinterState.SCANNING, second.current());
+			first.switchNext();
+			assertEquals(Arrays.asList("leave-IDLE", "entry-SCANNING", "exchange"), trace);
+			trace.clear();
+			reference.switchNext();
+			assertEquals(Arrays.asList("leave-IDLE", "entry-SCANNING", "exchange"), trace);
+			trace.clear();
+			second.switchTo(PrinterState.IDLE);
+			assertTrue(trace.isEmpty());
+		}
+
+		// 状态较多时使用稀疏的分发表
+		final List<String> states = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			states.add("S-" + i);
+		final AtomicInteger counter = new AtomicInteger();
+		try (StateMachine<String> machine = StateMachineBuilder.from(states)
+				.async(false)
+				.whenEntry("S-50", h -> counter.incrementAndGet())
+				.exchange("S-99", "S-0", h -> counter.addAndGet(10))
+				.compile()
+				.newMachine()) {
+			for (int i = 0; i < 200; i++)
+				machine.switchNext();
+			assertEquals(22, counter.get());
+		}
+
+		// 自身到自身的切换(重置至默认状态、期望值与新值相同的CAS)在编译前后触发相同的处理器
+		StateMachineBuilder<PrinterState> self = StateMachineBuilder.from(PrinterState.values())
+				.async(false)
+				.whenLeave(PrinterState.IDLE, h -> trace.add("leave-" + h.getFrom()))
+				.whenEntry(PrinterState.IDLE, h -> trace.add("entry-" + h.getTo()));
+		try (StateMachine<PrinterState> compiled = self.compile().newMachine();
+			 StateMachine<PrinterState> reference = self.build()) {
+			for (StateMachine<PrinterState> machine : Arrays.asList(compiled, reference)) {
+				trace.clear();
+				machine.reset();
+				assertEquals(Arrays.asList("leave-IDLE", "entry-IDLE"), trace);
+			}
+		}
+		self.concurrent();
+		try (ConcurrentStateMachine<PrinterState> compiled = self.compile().newMachine();
+			 ConcurrentStateMachine<PrinterState> reference = self.build()) {
+			for (ConcurrentStateMachine<PrinterState> machine : Arrays.asList(compiled, reference)) {
+				trace.clear();
+				assertTrue(machine.compareAndSet(PrinterState.IDLE, PrinterState.IDLE));
+				assertEquals(Arrays.asList("leave-IDLE", "entry-IDLE"), trace);
+			}
+		}
+	}
+
+	@Test
+	public void testGeneratedStateMachine() throws Exception {
+		final OrderHandlers handlers = new OrderHandlers();
+		try (StateMachine<OrderState> machine = new OrderStateStateMachine(handlers)) {
+			assertEquals(OrderState.CREATED, machine.current());
+			machine.switchNext();
+			machine.switchNext();
+			assertEquals(Arrays.asList("entry-PAID", "entry-SHIPPED"), handlers.trace);
+			assertEquals(1, OrderState.leaveCreated());
+
+			final TransitionResult<OrderState> done = machine.switchToAsync(OrderState.DONE).get(5, TimeUnit.SECONDS);
+			assertTrue(done.isSuccessful());
+			assertEquals(1, done.getExecutions().size());
+			assertTrue(done.getExecutions().get(0).isAsync());
+			assertTrue(handlers.trace.contains("done"));
+
+			handlers.trace.clear();
+			machine.switchNext();
+			assertEquals(Collections.singletonList("DONE->CREATED"), handlers.trace);
+		}
+	}
+
+	@Test
+	public void testContentionMode() throws Exception {
+		final PrinterState[] states = PrinterState.values();
+		final int threads = 8;
+		final int rounds = 2000;
+		for (ContentionMode mode : ContentionMode.values()) {
+			final AtomicInteger transitions = new AtomicInteger();
+			final AtomicInteger broken = new AtomicInteger();
+			try (ConcurrentStateMachine<PrinterState> machine = StateMachineBuilder.from(states)
+					.async(false)
+					.concurrent()
+					.contentionMode(mode)
+					.whenEntry(PrinterState.IDLE, h -> transitions.incrementAndGet())
+					.whenEntry(PrinterState.SCANNING, h -> {
+						// 处理器收到的必须是同一次切换的前后状态
+						if (h.getFrom() != PrinterState.IDLE)
+							broken.incrementAndGet();
+					})
+					.build()) {
+				final CountDownLatch latch = new CountDownLatch(threads);
+				for (int i = 0; i < threads; i++) {
+					new Thread(() -> {
+						for (int j = 0; j < rounds; j++)
+							machine.switchNext();
+						latch.countDown();
+					}).start();
+				}
+				assertTrue(latch.await(30, TimeUnit.SECONDS));
+				assertEquals(states[threads * rounds % states.length], machine.current());
+				assertEquals(threads * rounds / states.length, transitions.get());
+				assertEquals(0, broken.get());
+
+				assertTrue(machine.switchTo(PrinterState.STOPPED));
+				assertFalse(machine.switchTo(PrinterState.STOPPED));
+				assertEquals(PrinterState.STOPPED, machine.getAndSwitchNext());
+				assertEquals(PrinterState.STOPPED, machine.switchPrevAndGet());
+			}
+		}
+	}
+
+	@Test
+	public void testFlightRecorderEvents() throws Exception {
+		final Path file = Files.createTempFile("state-management", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.serliunx.statemanagement.StateTransition");
+			recording.enable("com.serliunx.statemanagement.StateHandlerExecution");
+			recording.enable("com.serliunx.statemanagement.StateEventPublish");
+			recording.enable("com.serliunx.statemanagement.HandlerTaskRejected");
+			recording.start();
+			try (StateMachine<PrinterState> machine = StateMachineBuilder.from(PrinterState.values())
+					.async(false)
+					.whenEntry(PrinterState.SCANNING, h -> {})
+					.whenEntry(PrinterState.PRINTING, h -> {}, true, r -> {
+						throw new RejectedExecutionException();
+					})
+					.whenHappened(PrinterEvent.TURN_ON, m -> {})
+					.build()) {
+				machine.switchNext();
+				machine.switchNextAsync().get(5, TimeUnit.SECONDS);
+				machine.publish(PrinterEvent.TURN_ON);
+			}
+			recording.stop();
+			recording.dump(file);
+		}
+		try {
+			final List<String> names = new ArrayList<>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file))
+				names.add(event.getEventType().getName() + ":" + event.getLong("machineId"));
+			assertEquals(2, names.stream().filter(n -> n.contains("StateTransition")).count());
+			assertEquals(1, names.stream().filter(n -> n.contains("StateHandlerExecution")).count());
+			assertEquals(1, names.stream().filter(n -> n.contains("StateEventPublish")).count());
+			assertEquals(1, names.stream().filter(n -> n.contains("HandlerTaskRejected")).count());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testStateMachineRegistry() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final AtomicLong clock = new AtomicLong();
+		final AtomicInteger entries = new AtomicInteger();
+		final StateMachineDefinition<PrinterState> definition = StateMachineBuilder.from(PrinterState.values())
+				.executor(executor)
+				.async(false)
+				.whenEntry(PrinterState.PRINTING, h -> entries.incrementAndGet())
+				.freeze();
+		final StateMachineRegistry<String, PrinterState> registry = StateMachineRegistry
+				.<String, PrinterState>from(definition)
+				.idleTimeout(10, TimeUnit.SECONDS)
+				.maximumActive(2)
+				.concurrencyLevel(1)
+				.ticker(clock::get)
+				.build();
+
+		registry.get("a").switchTo(PrinterState.PRINTING);
+		registry.get("b").switchNext();
+		assertEquals(2, registry.activeCount());
+		assertNull(registry.peek("c"));
+
+		// 超出上限, 钝化未被再次访问的状态机
+		registry.get("c");
+		assertEquals(2, registry.activeCount());
+		assertEquals(3, registry.size());
+
+		// 闲置超时
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+		registry.passivateIdle();
+		assertEquals(0, registry.activeCount());
+		assertEquals(PrinterState.PRINTING, registry.peek("a"));
+		assertEquals(PrinterState.SCANNING, registry.peek("b"));
+
+		// 重新激活后保留状态, 处理器照常触发
+		final int epoch = registry.epoch("a");
+		assertEquals(PrinterState.PRINTING, registry.get("a").current());
+		assertEquals(epoch + 1, registry.epoch("a"));
+		registry.get("b").switchNext();
+		assertEquals(2, entries.get());
+
+		// 使用期间不会被钝化
+		registry.withMachine("b", m -> {
+			clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+			registry.passivateIdle();
+			return m.switchNextAndGet();
+		});
+		assertEquals(PrinterState.STOPPING, registry.peek("b"));
+		assertEquals(1, registry.activeCount());
+
+		// 句柄可以长期持有, 钝化后通过句柄的切换作用于重新激活的状态机
+		final StateMachine<PrinterState> held = registry.get("b");
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+		registry.passivateIdle();
+		assertEquals(0, registry.activeCount());
+		held.switchNext();
+		assertEquals(PrinterState.STOPPED, registry.peek("b"));
+		assertEquals(1, registry.activeCount());
+
+		assertTrue(registry.remove("a"));
+		assertNull(registry.peek("a"));
+
+		// 事件逻辑收到的是句柄, 保留的引用在钝化后依然有效
+		final AtomicReference<StateMachine<PrinterState>> captured = new AtomicReference<>();
+		final StateMachineRegistry<String, PrinterState> evented = StateMachineRegistry
+				.<String, PrinterState>from(StateMachineBuilder.from(PrinterState.values())
+						.executor(executor)
+						.async(false)
+						.whenHappened("capture", captured::set)
+						.freeze())
+				.idleTimeout(10, TimeUnit.SECONDS)
+				.ticker(clock::get)
+				.build();
+		evented.get("e").publish("capture");
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+		evented.passivateIdle();
+		assertEquals(0, evented.activeCount());
+		assertTrue(captured.get().switchTo(PrinterState.PRINTING));
+		assertEquals(PrinterState.PRINTING, evented.peek("e"));
+
+		// 并发型状态机的句柄支持比较并交换, 句柄可以参与多状态机事务, 提交期间不会被钝化
+		final StateMachineRegistry<String, PrinterState> concurrent = StateMachineRegistry
+				.<String, PrinterState>from(StateMachineBuilder.from(PrinterState.values())
+						.executor(executor)
+						.async(false)
+						.concurrent()
+						.freeze())
+				.maximumActive(1)
+				.concurrencyLevel(1)
+				.build();
+		assertFalse(registry.get("b") instanceof ConcurrentStateMachine);
+		final StateMachine<PrinterState> first = concurrent.get("c1");
+		assertTrue(first instanceof ConcurrentStateMachine);
+		assertTrue(((ConcurrentStateMachine<PrinterState>) first).compareAndSet(PrinterState.IDLE, PrinterState.SCANNING));
+		assertFalse(((ConcurrentStateMachine<PrinterState>) first).compareAndSet(PrinterState.IDLE, PrinterState.PRINTING));
+		assertTrue(StateMachines.atomically()
+				.expect(first, PrinterState.SCANNING)
+				.switchTo(first, PrinterState.PRINTING)
+				.switchTo(concurrent.get("c2"), PrinterState.PRINTING)
+				.switchTo(concurrent.get("c1"), PrinterState.STOPPING)
+				.commit());
+		assertEquals(PrinterState.STOPPING, concurrent.peek("c1"));
+		assertEquals(PrinterState.PRINTING, concurrent.peek("c2"));
+
+		// 其余状态机均在使用中时, 超出上限也不会钝化正在激活的状态机
+		final StateMachineRegistry<String, PrinterState> single = StateMachineRegistry
+				.<String, PrinterState>from(definition)
+				.maximumActive(1)
+				.concurrencyLevel(1)
+				.build();
+		final CountDownLatch pinned = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Thread holder = new Thread(() -> single.withMachine("x", m -> {
+			pinned.countDown();
+			try {
+				return release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}));
+		holder.start();
+		assertTrue(pinned.await(10, TimeUnit.SECONDS));
+		try {
+			assertEquals(PrinterState.IDLE, single.get("y").current());
+		} finally {
+			release.countDown();
+			holder.join();
+		}
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRegistryMigration() throws Exception {
+		final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		final AtomicLong clock = new AtomicLong();
+		final AtomicInteger paused = new AtomicInteger();
+		final StateMachineDefinition<String> v1 = StateMachineBuilder.from(new String[]{"IDLE", "RUNNING", "DONE"})
+				.executor(executor)
+				.async(false)
+				.freeze();
+		// 新版本将 RUNNING 重命名为 ACTIVE 并新增 PAUSED
+		final StateMachineDefinition<String> v2 = StateMachineBuilder.from(new String[]{"IDLE", "ACTIVE", "PAUSED", "DONE"})
+				.executor(executor)
+				.async(false)
+				.whenEntry("PAUSED", h -> paused.incrementAndGet())
+				.freeze();
+		final StateMachineRegistry<Integer, String> registry = StateMachineRegistry.<Integer, String>from(v1)
+				.idleTimeout(10, TimeUnit.SECONDS)
+				.concurrencyLevel(4)
+				.ticker(clock::get)
+				.build();
+		for (int key = 0; key < 100; key++) {
+			if (key % 2 == 0)
+				registry.get(key).switchTo("RUNNING");
+			else
+				registry.get(key);
+		}
+		// 一半钝化, 一半保持活跃
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+		for (int key = 50; key < 100; key++)
+			registry.get(key);
+		registry.passivateIdle();
+		assertEquals(50, registry.activeCount());
+
+		try {
+			registry.migrate(v2, s -> s.equals("RUNNING") ? "STARTED" : s);
+			fail();
+		} catch (IllegalArgumentException ignored) {}
+		final StateMachine<String> held = registry.get(52);
+		// 迁移期间正在使用的状态机不会被迁移
+		final AtomicReference<StateMachineRegistry.Migration<Integer, String>> started = new AtomicReference<>();
+		registry.withMachine(50, m -> {
+			final StateMachineRegistry.Migration<Integer, String> migration = registry.migrate(v2,
+					s -> s.equals("RUNNING") ? "ACTIVE" : s);
+			started.set(migration);
+			assertEquals(2, registry.getVersion());
+			assertSame(v2, registry.getDefinition());
+			assertSame(migration, registry.getMigration());
+			assertEquals(100, migration.getTotal());
+			assertEquals(100, migration.getRemaining());
+			assertEquals(1, registry.version(0));
+			assertEquals("RUNNING", registry.peek(0));
+
+			// 访问时迁移, 状态按映射转换并使用新版本的处理器
+			final int epoch = registry.epoch(0);
+			assertEquals("ACTIVE", registry.get(0).current());
+			assertEquals(2, registry.version(0));
+			assertEquals(epoch + 1, registry.epoch(0));
+			assertTrue(registry.get(0).switchTo("PAUSED"));
+			assertEquals(1, paused.get());
+			assertEquals(99, migration.getRemaining());
+
+			// 迁移开始后新建的状态机直接使用新版本
+			registry.get(1000);
+			assertEquals(2, registry.version(1000));
+
+			assertEquals(98, migration.migrateBatch(1000));
+			assertEquals(1, registry.version(50));
+			return m.switchTo("RUNNING");
+		});
+		final StateMachineRegistry.Migration<Integer, String> migration = started.get();
+		assertEquals(1, migration.getRemaining());
+		assertFalse(migration.isComplete());
+		// 迁移完成前不能开始新的迁移
+		try {
+			registry.migrate(v2, s -> s);
+			fail();
+		} catch (IllegalStateException ignored) {}
+		assertEquals("ACTIVE", registry.peek(2));
+		assertEquals("IDLE", registry.peek(51));
+		assertEquals("RUNNING", registry.peek(50));
+		// 迁移前取得的句柄作用于迁移后的状态机
+		assertTrue(held.switchTo("PAUSED"));
+		assertEquals("PAUSED", registry.peek(52));
+		assertEquals(2, registry.version(52));
+
+		assertSame(migration, migration.migrateAsync(executor, 10).get(5, TimeUnit.SECONDS));
+		assertTrue(migration.isComplete());
+		assertEquals(100, migration.getMigrated());
+		assertEquals("ACTIVE", registry.peek(50));
+		assertEquals(2, registry.version(50));
+
+		// 移除尚未迁移的状态机同样计入进度
+		final StateMachineRegistry.Migration<Integer, String> rollback = registry.migrate(v2, s -> s);
+		assertTrue(registry.remove(3));
+		assertEquals(100, rollback.getRemaining());
+		assertEquals(100, rollback.migrateBatch(1000));
+		assertTrue(rollback.isComplete());
+		assertEquals(100, rollback.getMigrated());
+		assertEquals(3, registry.getVersion());
+		assertEquals(3, registry.version(1000));
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testMappedStateTable() throws Exception {
+		final Path file = Files.createTempFile("state-management", ".table");
+		Files.delete(file);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final List<Object> printing = new CopyOnWriteArrayList<>();
+		final StateMachineDefinition<PrinterState> definition = StateMachineBuilder.from(PrinterState.values())
+				.executor(executor)
+				.async(false)
+				.withInitial(PrinterState.STOPPED)
+				.whenEntry(PrinterState.PRINTING, h -> printing.add(h.getAttach()))
+				.freeze();
+		try {
+			for (boolean epoch : new boolean[]{false, true}) {
+				try (MappedStateTable<PrinterState> table = MappedStateTable.open(definition, file, 1000, epoch)) {
+					assertEquals(PrinterState.STOPPED, table.current(999));
+					assertTrue(table.switchTo(7, PrinterState.PRINTING));
+					assertFalse(table.switchTo(7, PrinterState.PRINTING));
+					assertFalse(table.compareAndSet(8, PrinterState.IDLE, PrinterState.SCANNING));
+					assertTrue(table.compareAndSet(8, PrinterState.STOPPED, PrinterState.IDLE));
+					// 相邻槽位共享同一个对齐字
+					assertEquals(PrinterState.IDLE, table.switchNextAndGet(9));
+					assertEquals(PrinterState.STOPPED, table.current(6));
+				}
+				assertEquals(Collections.singletonList(7L), printing);
+
+				// 重新打开后恢复
+				try (MappedStateTable<PrinterState> table = MappedStateTable.open(definition, file, 2000, epoch)) {
+					assertEquals(2000, table.capacity());
+					assertEquals(PrinterState.PRINTING, table.current(7));
+					assertEquals(PrinterState.IDLE, table.current(8));
+					assertEquals(PrinterState.IDLE, table.current(9));
+					assertEquals(PrinterState.STOPPED, table.current(1999));
+					assertEquals(epoch ? 1 : 0, table.epoch(7));
+				}
+
+				// 定义或格式不匹配
+				try {
+					MappedStateTable.open(StateMachineBuilder.from(PrinterEvent.values()).executor(executor).freeze(),
+							file, 1000, epoch).close();
+					fail();
+				} catch (IllegalStateException ignored) {}
+				try {
+					MappedStateTable.open(definition, file, 1000, !epoch).close();
+					fail();
+				} catch (IllegalStateException ignored) {}
+				printing.clear();
+				Files.delete(file);
+			}
+
+			// 守卫及拦截器同样作用于状态表
+			final List<String> events = new CopyOnWriteArrayList<>();
+			final StateMachineDefinition<PrinterState> guarded = StateMachineBuilder.from(PrinterState.values())
+					.executor(executor)
+					.guard((from, to) -> to != PrinterState.STOPPED || from == PrinterState.STOPPING)
+					.intercept(new TransitionInterceptor<PrinterState>() {
+						@Override
+						public void afterTransition(PrinterState from, PrinterState to) {
+							events.add(from + "-" + to);
+						}
+
+						@Override
+						public void onVetoed(PrinterState from, PrinterState to) {
+							events.add("vetoed:" + from + "-" + to);
+						}
+					})
+					.freeze();
+			try (MappedStateTable<PrinterState> table = MappedStateTable.open(guarded, file, 1000)) {
+				assertFalse(table.switchTo(1, PrinterState.STOPPED));
+				assertFalse(table.compareAndSet(1, PrinterState.IDLE, PrinterState.STOPPED));
+				assertEquals(PrinterState.IDLE, table.current(1));
+				assertTrue(table.switchTo(1, PrinterState.STOPPING));
+				assertTrue(table.compareAndSet(1, PrinterState.STOPPING, PrinterState.STOPPED));
+				assertTrue(table.switchTo(2, PrinterState.STOPPING));
+				assertEquals(Arrays.asList("vetoed:IDLE-STOPPED", "vetoed:IDLE-STOPPED", "IDLE-STOPPING",
+						"STOPPING-STOPPED", "IDLE-STOPPING"), events);
+				events.clear();
+
+				// 批量切换时被否决的源状态不参与切换, 拦截器对每个切换的槽位回调一次
+				assertEquals(1, table.transitionWhere(s -> s == PrinterState.IDLE || s == PrinterState.STOPPING,
+						PrinterState.STOPPED, true, ForkJoinPool.commonPool()));
+				assertEquals(PrinterState.STOPPED, table.current(2));
+				assertEquals(PrinterState.IDLE, table.current(3));
+				assertEquals(Arrays.asList("vetoed:IDLE-STOPPED", "STOPPING-STOPPED"), events);
+			}
+			Files.delete(file);
+
+			// 256个状态(序号0~255)仍使用单字节槽位
+			final List<String> states = new ArrayList<>();
+			for (int i = 0; i < 256; i++)
+				states.add("S-" + i);
+			final StateMachineDefinition<String> wide = StateMachineBuilder.from(states).executor(executor).freeze();
+			try (MappedStateTable<String> table = MappedStateTable.open(wide, file, 1000)) {
+				assertTrue(table.switchTo(3, "S-255"));
+				assertEquals("S-255", table.current(3));
+				assertEquals("S-0", table.current(4));
+			}
+			assertEquals(64 + 1000, Files.size(file));
+		} finally {
+			Files.deleteIfExists(file);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFleetTransition() throws Exception {
+		final Path file = Files.createTempFile("state-management", ".table");
+		Files.delete(file);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final Set<Object> printing = ConcurrentHashMap.newKeySet();
+		final StateMachineDefinition<PrinterState> definition = StateMachineBuilder.from(PrinterState.values())
+				.executor(executor)
+				.async(false)
+				.whenEntry(PrinterState.PRINTING, h -> printing.add(h.getAttach()))
+				.freeze();
+		final int capacity = 300_001;
+		try {
+			try (MappedStateTable<PrinterState> table = MappedStateTable.open(definition, file, capacity, false, false,
+					true)) {
+				assertEquals(capacity, table.count(PrinterState.IDLE));
+				for (long slot = 0; slot < capacity; slot += 3)
+					table.switchTo(slot, PrinterState.SCANNING, false);
+				assertEquals(100_001, table.count(PrinterState.SCANNING));
+				assertEquals(capacity - 100_001, table.count(PrinterState.IDLE));
+
+				// 不匹配的状态不会切换
+				assertEquals(0, table.transitionAll(PrinterState.PRINTING, PrinterState.IDLE));
+				assertEquals(100_001, table.transitionAll(PrinterState.SCANNING, PrinterState.PRINTING));
+				assertEquals(100_001, printing.size());
+				assertEquals(0, table.count(PrinterState.SCANNING));
+				assertEquals(100_001, table.count(PrinterState.PRINTING));
+				assertTrue(printing.contains(300_000L));
+				assertEquals(PrinterState.PRINTING, table.current(3));
+				assertEquals(PrinterState.IDLE, table.current(4));
+
+				// 目的状态本身不会被切换
+				printing.clear();
+				assertEquals(capacity - 100_001, table.transitionWhere(s -> s != PrinterState.STOPPED,
+						PrinterState.PRINTING));
+				assertEquals(capacity - 100_001, printing.size());
+				assertEquals(capacity, table.count(PrinterState.PRINTING));
+				assertEquals(capacity, table.transitionAll(PrinterState.PRINTING, PrinterState.STOPPED, false,
+						ForkJoinPool.commonPool()));
+				assertEquals(PrinterState.STOPPED, table.current(capacity - 1));
+				assertEquals(capacity, table.count(PrinterState.STOPPED));
+				assertEquals(0, table.count(PrinterState.PRINTING));
+			}
+			// 重新打开时扫描已有的槽位重建索引, 扩充的槽位计入初始状态
+			try (MappedStateTable<PrinterState> table = MappedStateTable.open(definition, file, capacity + 10, false,
+					false, true)) {
+				assertEquals(capacity, table.count(PrinterState.STOPPED));
+				assertEquals(10, table.count(PrinterState.IDLE));
+				assertTrue(table.compareAndSet(capacity, PrinterState.IDLE, PrinterState.SCANNING));
+				assertEquals(PrinterState.IDLE, table.switchNextAndGet(0));
+				assertEquals(capacity - 1, table.count(PrinterState.STOPPED));
+				assertEquals(10, table.count(PrinterState.IDLE));
+				assertEquals(1, table.count(PrinterState.SCANNING));
+			}
+			try (MappedStateTable<PrinterState> table = MappedStateTable.open(definition, file, capacity)) {
+				table.count(PrinterState.IDLE);
+				fail();
+			} catch (IllegalStateException ignored) {}
+			Files.delete(file);
+
+			// 处理器抛出异常时其余槽位的处理器照常触发, 所有分块结束后抛出
+			final LongAdder handled = new LongAdder();
+			final StateMachineDefinition<PrinterState> failing = StateMachineBuilder.from(PrinterState.values())
+					.executor(executor)
+					.async(false)
+					.whenEntry(PrinterState.PRINTING, h -> {
+						handled.increment();
+						if ((Long) h.getAttach() % 100_000 == 0)
+							throw new IllegalArgumentException("slot " + h.getAttach());
+					})
+					.freeze();
+			try (MappedStateTable<PrinterState> table = MappedStateTable.open(failing, file, capacity, false, false,
+					true)) {
+				try {
+					table.transitionAll(PrinterState.IDLE, PrinterState.PRINTING);
+					fail();
+				} catch (IllegalArgumentException e) {
+					// 第一个异常按槽位顺序确定
+					assertEquals("slot 0", e.getMessage());
+					assertEquals(3, e.getSuppressed().length);
+				}
+				assertEquals(capacity, handled.sum());
+				assertEquals(capacity, table.count(PrinterState.PRINTING));
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testStateTableSnapshot() throws Exception {
+		final Path file = Files.createTempFile("state-management", ".table");
+		Files.delete(file);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final StateMachineDefinition<PrinterState> definition = StateMachineBuilder.from(PrinterState.values())
+				.executor(executor)
+				.async(false)
+				.freeze();
+		final int capacity = 100_001;
+		try (MappedStateTable<PrinterState> table = MappedStateTable.open(definition, file, capacity)) {
+			// 未启用快照
+			try {
+				table.snapshot();
+				fail();
+			} catch (IllegalStateException ignored) {}
+		}
+		try (MappedStateTable<PrinterState> table = MappedStateTable.open(definition, file, capacity, false, true)) {
+			for (long slot = 0; slot < capacity; slot += 2)
+				table.switchTo(slot, PrinterState.SCANNING, false);
+
+			try (MappedStateTable.Snapshot<PrinterState> snapshot = table.snapshot()) {
+				// 同一时刻只能存在一个快照
+				try {
+					table.snapshot();
+					fail();
+				} catch (IllegalStateException ignored) {}
+				assertEquals(0, snapshot.getPreservedBlocks());
+
+				// 快照之后的切换不影响快照
+				table.switchTo(0, PrinterState.STOPPED, false);
+				assertEquals(capacity / 2, table.transitionAll(PrinterState.IDLE, PrinterState.PRINTING));
+				assertEquals(PrinterState.STOPPED, table.current(0));
+				assertEquals(PrinterState.SCANNING, snapshot.get(0));
+				assertEquals(PrinterState.IDLE, snapshot.get(capacity - 2));
+				assertEquals(capacity / 2 + 1, snapshot.count(PrinterState.SCANNING));
+				assertEquals(capacity / 2, snapshot.count(PrinterState.IDLE));
+				assertEquals(0, snapshot.count(PrinterState.PRINTING));
+				assertTrue(snapshot.getPreservedBlocks() > 0);
+
+				final long[] visited = new long[2];
+				snapshot.forEach(10, 20, (state, slot) -> {
+					assertEquals(slot % 2 == 0 ? PrinterState.SCANNING : PrinterState.IDLE, state);
+					visited[0]++;
+					visited[1] = slot;
+				});
+				assertEquals(10, visited[0]);
+				assertEquals(19, visited[1]);
+				snapshot.close();
+				try {
+					snapshot.get(0);
+					fail();
+				} catch (IllegalStateException ignored) {}
+			}
+
+			// 写入方按槽位顺序切换时, 快照中的切换一定是连续的前缀
+			for (long slot = 0; slot < capacity; slot++)
+				table.switchTo(slot, PrinterState.IDLE, false);
+			final Thread writer = new Thread(() -> {
+				for (long slot = 0; slot < capacity; slot++)
+					table.switchTo(slot, PrinterState.PRINTING, false);
+			});
+			writer.start();
+			for (int round = 0; round < 10; round++) {
+				try (MappedStateTable.Snapshot<PrinterState> snapshot = table.snapshot()) {
+					final long[] prefix = {0, 0};
+					snapshot.forEach((state, slot) -> {
+						if (state == PrinterState.PRINTING)
+							assertEquals(prefix[0]++, slot);
+						else
+							prefix[1]++;
+					});
+					assertEquals(capacity, prefix[0] + prefix[1]);
+					assertEquals(prefix[0], snapshot.count(PrinterState.PRINTING));
+				}
+			}
+			writer.join();
+			try (MappedStateTable.Snapshot<PrinterState> snapshot = table.snapshot()) {
+				assertEquals(capacity, snapshot.count(PrinterState.PRINTING));
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testStateMachineSnapshot() throws Exception {
+		final Path file = Files.createTempFile("state-management", ".snapshot");
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final List<String> invoked = new CopyOnWriteArrayList<>();
+		final StateHandler<PrinterState> printing = h -> invoked.add("printing:" + h.getFrom());
+		final StateHandler<PrinterState> leaveIdle = h -> invoked.add("leaveIdle");
+		final StateHandler<PrinterState> stop = h -> invoked.add("stop");
+		final Consumer<StateMachine<PrinterState>> turnOff = m -> m.switchTo(PrinterState.STOPPED);
+		final StateMachineSnapshot.Bindings<PrinterState> bindings = new StateMachineSnapshot.Bindings<PrinterState>()
+				.handler("printing", printing)
+				.handler("leaveIdle", leaveIdle)
+				.handler("stop", stop)
+				.logic("turnOff", turnOff)
+				.event("TURN_OFF", PrinterEvent.TURN_OFF)
+				.executor("default", executor);
+		final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+				.executor(executor)
+				.async(false)
+				.withInitial(PrinterState.SCANNING)
+				.concurrent()
+				.whenEntry(PrinterState.PRINTING, printing)
+				.whenLeave(PrinterState.IDLE, leaveIdle)
+				.exchange(PrinterState.PRINTING, PrinterState.STOPPED, stop)
+				.whenHappened(PrinterEvent.TURN_OFF, turnOff)
+				.bulkhead("printing", 2, 8, Collections.singletonList(PrinterState.PRINTING));
+		try {
+			StateMachineSnapshot.write(builder.compile(), bindings, file);
+			final StateMachineDefinition<PrinterState> definition = StateMachineSnapshot.read(file,
+					PrinterState.values(), bindings);
+			assertTrue(definition.isCompiled());
+			assertEquals(StateMachineType.CONCURRENT, definition.getType());
+			assertSame(executor, definition.getExecutor());
+
+			final StateMachine<PrinterState> machine = definition.newMachine();
+			assertEquals(PrinterState.SCANNING, machine.current());
+			machine.switchTo(PrinterState.PRINTING);
+			machine.publish(PrinterEvent.TURN_OFF);
+			assertEquals(PrinterState.STOPPED, machine.current());
+			machine.switchTo(PrinterState.IDLE);
+			machine.switchTo(PrinterState.PRINTING);
+			assertEquals(Arrays.asList("printing:SCANNING", "stop", "leaveIdle", "printing:IDLE"), invoked);
+
+			// 未绑定的处理器及名称
+			try {
+				StateMachineSnapshot.toBytes(builder.whenEntry(PrinterState.IDLE, h -> {}).freeze(), bindings);
+				fail();
+			} catch (IllegalArgumentException ignored) {}
+			try {
+				StateMachineSnapshot.read(file, PrinterState.values(), new StateMachineSnapshot.Bindings<>());
+				fail();
+			} catch (IllegalArgumentException ignored) {}
+			// 状态不匹配
+			try {
+				StateMachineSnapshot.read(file, Arrays.asList(PrinterState.IDLE, PrinterState.SCANNING), bindings);
+				fail();
+			} catch (IllegalStateException ignored) {}
+
+			// 损坏的数量或长度
+			final byte[] bytes = Files.readAllBytes(file);
+			for (int position = 8; position + 4 <= bytes.length; position++) {
+				for (int value : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE, bytes.length}) {
+					final byte[] corrupted = bytes.clone();
+					ByteBuffer.wrap(corrupted).putInt(position, value);
+					try {
+						StateMachineSnapshot.fromBytes(corrupted, Arrays.asList(PrinterState.values()), bindings);
+					} catch (IllegalStateException ignored) {
+					} catch (IllegalArgumentException e) {
+						assertTrue(e.getMessage(), e.getMessage().startsWith("Unbound"));
+					}
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testAsyncBatch() throws Exception {
+		final ExecutorService delegate = Executors.newFixedThreadPool(2);
+		final AtomicInteger submitted = new AtomicInteger();
+		final Executor executor = r -> {
+			submitted.incrementAndGet();
+			delegate.execute(r);
+		};
+		try {
+			for (AsyncBatchMode mode : AsyncBatchMode.values()) {
+				for (boolean compiled : new boolean[]{false, true}) {
+					final AtomicInteger handled = new AtomicInteger();
+					final Set<String> threads = ConcurrentHashMap.newKeySet();
+					final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+							.executor(executor)
+							.async()
+							.asyncBatch(mode);
+					for (int i = 0; i < 5; i++)
+						builder.whenEntry(PrinterState.PRINTING, h -> {
+							threads.add(Thread.currentThread().getName());
+							handled.incrementAndGet();
+						});
+					builder.whenLeave(PrinterState.IDLE, h -> {
+						handled.incrementAndGet();
+						throw new IllegalStateException();
+					});
+					final StateMachineDefinition<PrinterState> definition = compiled ? builder.compile() :
+							builder.freeze();
+					submitted.set(0);
+
+					final TransitionResult<PrinterState> result = definition.<StateMachine<PrinterState>>newMachine()
+							.switchToAsync(PrinterState.PRINTING)
+							.get(5, TimeUnit.SECONDS);
+					assertEquals(6, handled.get());
+					// 并行投递时其余处理器提交至同一个执行器, 不会逃逸至公共线程池
+					assertEquals(mode == AsyncBatchMode.SEQUENTIAL ? 1 : 6, submitted.get());
+					assertTrue(threads.toString(), threads.stream().noneMatch(t -> t.contains("commonPool")));
+					// 同一批次中的异常不影响其他处理器
+					assertEquals(6, result.getExecutions().size());
+					assertEquals(1, result.getFailures().size());
+				}
+			}
+
+			// 整个批次被拒绝
+			final StateMachine<PrinterState> machine = StateMachineBuilder.from(PrinterState.values())
+					.executor(r -> {throw new RejectedExecutionException();})
+					.async()
+					.asyncBatch(AsyncBatchMode.SEQUENTIAL)
+					.whenEntry(PrinterState.PRINTING, h -> {})
+					.whenEntry(PrinterState.PRINTING, h -> {})
+					.build();
+			final TransitionResult<PrinterState> result = machine.switchToAsync(PrinterState.PRINTING)
+					.get(5, TimeUnit.SECONDS);
+			assertEquals(2, result.getFailures().size());
+			assertTrue(result.getFailures().stream().allMatch(TransitionResult.HandlerExecution::isRejected));
+		} finally {
+			delegate.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testExecutorStrategy() throws Exception {
+		final Map<String, ExecutorStrategy> strategies = new LinkedHashMap<>();
+		strategies.put("state-process-fj-", ExecutorStrategy.workStealing(2));
+		strategies.put("state-process-dedicated-", ExecutorStrategy.dedicated());
+		strategies.put("state-process-adaptive-", ExecutorStrategy.adaptive(1, 4));
+		for (Map.Entry<String, ExecutorStrategy> entry : strategies.entrySet()) {
+			final List<String> threads = new CopyOnWriteArrayList<>();
+			final StateMachine<PrinterState> machine = StateMachineBuilder.from(PrinterState.values())
+					.executorStrategy(entry.getValue())
+					.async()
+					.whenEntry(PrinterState.PRINTING, h -> threads.add(Thread.currentThread().getName()))
+					.freeze()
+					.newMachine();
+			assertTrue(machine.switchToAsync(PrinterState.PRINTING).get(5, TimeUnit.SECONDS).isSuccessful());
+			assertTrue(threads.get(0), threads.get(0).startsWith(entry.getKey()));
+			machine.close();
+		}
+
+		// 任务每10毫秒到达约10个, 每个耗时10毫秒, 需要约10个线程
+		final AdaptiveExecutor executor = new AdaptiveExecutor(1, 8, 4096, 20, TimeUnit.MILLISECONDS,
+				new DefaultCountableRejectedExecutionHandler());
+		try {
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+			while (System.nanoTime() < deadline) {
+				executor.execute(() -> {
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException ignored) {}
+				});
+				Thread.sleep(1);
+			}
+			assertTrue(executor.toString(), executor.getMeanLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+			assertTrue(executor.toString(), executor.getTargetPoolSize() > 1);
+			assertTrue(executor.toString(), executor.getResizeCount() > 0);
+			assertEquals(executor.getTargetPoolSize(), executor.getCorePoolSize());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testRingBufferDispatcher() throws Exception {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			for (boolean compiled : new boolean[]{false, true}) {
+				// 容量较小, 覆盖缓冲区已满时生产者等待的情况
+				final RingBufferDispatcher ring = new RingBufferDispatcher(8, waitStrategy);
+				final List<String> handled = new ArrayList<>();
+				final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+						.executor(ring)
+						.async();
+				for (PrinterState state : PrinterState.values()) {
+					builder.whenLeave(state, h -> handled.add("leave-" + h.getFrom()));
+					builder.whenEntry(state, h -> handled.add("entry-" + h.getTo()));
+				}
+				final StateMachine<PrinterState> machine = compiled ? builder.freeze().newMachine() : builder.build();
+				final List<String> expected = new ArrayList<>();
+				PrinterState current = machine.current();
+				for (int i = 0; i < 1000; i++) {
+					final PrinterState next = PrinterState.values()[(current.ordinal() + 1) % PrinterState.values().length];
+					machine.switchNext();
+					expected.add("leave-" + current);
+					expected.add("entry-" + next);
+					current = next;
+				}
+				final TransitionResult<PrinterState> result = machine.switchToAsync(PrinterState.STOPPED)
+						.get(5, TimeUnit.SECONDS);
+				assertTrue(result.isSuccessful());
+				assertEquals(2, result.getExecutions().size());
+				expected.add("leave-" + current);
+				expected.add("entry-" + PrinterState.STOPPED);
+
+				// 关闭状态机时一并关闭分发器, 等待已发布的切换处理完毕
+				machine.close();
+				assertEquals(waitStrategy + "/" + compiled, expected, handled);
+				assertEquals(1001, ring.getConsumedCount());
+				assertTrue(ring.isClosed());
+				try {
+					ring.execute(() -> {});
+					fail();
+				} catch (RejectedExecutionException ignored) {}
+			}
+		}
+
+		// 多个生产者
+		final RingBufferDispatcher ring = new RingBufferDispatcher(16, WaitStrategy.YIELD);
+		final LongAdder counter = new LongAdder();
+		final CountDownLatch latch = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			new Thread(() -> {
+				for (int i = 0; i < 10000; i++)
+					ring.execute(counter::increment);
+				latch.countDown();
+			}).start();
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		ring.close();
+		assertEquals(40000, counter.sum());
+		assertEquals(40000, ring.getPublishedCount());
+		assertEquals(40000, ring.getConsumedCount());
+	}
+
+	@Test
+	public void testRingBufferDispatcherReentrant() throws Exception {
+		for (boolean compiled : new boolean[]{false, true}) {
+			// 容量为2, 消费者线程上的处理器再次切换同一个状态机并发布任务, 同时另一个线程持续切换使缓冲区保持已满
+			final RingBufferDispatcher ring = new RingBufferDispatcher(2, WaitStrategy.PARK);
+			final AtomicReference<StateMachine<PrinterState>> self = new AtomicReference<>();
+			final AtomicInteger nested = new AtomicInteger();
+			final LongAdder tasks = new LongAdder();
+			final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+					.executor(ring)
+					.async()
+					.whenEntry(PrinterState.PRINTING, h -> {
+						if (nested.incrementAndGet() > 500)
+							return;
+						self.get().switchNext();
+						ring.execute(tasks::increment);
+						ring.execute(tasks::increment);
+						ring.execute(tasks::increment);
+					});
+			final StateMachine<PrinterState> machine = compiled ? builder.freeze().newMachine() : builder.build();
+			self.set(machine);
+			final CountDownLatch latch = new CountDownLatch(1);
+			final Thread producer = new Thread(() -> {
+				for (int i = 0; i < 5000; i++)
+					machine.switchNext();
+				latch.countDown();
+			});
+			producer.setDaemon(true);
+			producer.start();
+			assertTrue("compiled=" + compiled, latch.await(10, TimeUnit.SECONDS));
+
+			machine.close();
+			assertTrue(nested.get() > 500);
+			assertEquals(1500, tasks.sum());
+			assertEquals(ring.getPublishedCount(), ring.getConsumedCount());
+		}
+	}
+
+	@Test
+	public void testTransitionPipeline() throws Exception {
+		final List<String> events = new CopyOnWriteArrayList<>();
+		final TransitionGuard<PrinterState> notFromIdleToStopped = (from, to) ->
+				!(from == PrinterState.IDLE && to == PrinterState.STOPPED);
+		final TransitionInterceptor<PrinterState> audit = new TransitionInterceptor<PrinterState>() {
+			@Override
+			public void afterTransition(PrinterState from, PrinterState to) {
+				events.add("after:" + from + "-" + to);
+			}
+
+			@Override
+			public void onVetoed(PrinterState from, PrinterState to) {
+				events.add("vetoed:" + from + "-" + to);
+			}
+		};
+		final StateHandler<PrinterState> stopped = h -> events.add("entry:" + h.getTo());
+		final StateMachineSnapshot.Bindings<PrinterState> bindings = new StateMachineSnapshot.Bindings<PrinterState>()
+				.guard("notFromIdleToStopped", notFromIdleToStopped)
+				.interceptor("audit", audit)
+				.handler("stopped", stopped)
+				.executor("default", executor);
+		for (StateMachineType type : StateMachineType.values()) {
+			final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+					.executor(executor)
+					.type(type)
+					.guard(notFromIdleToStopped)
+					.intercept(audit)
+					.whenEntry(PrinterState.STOPPED, stopped);
+			final List<StateMachine<PrinterState>> machines = Arrays.asList(builder.build(),
+					builder.compile().newMachine(),
+					StateMachineSnapshot.fromBytes(StateMachineSnapshot.toBytes(builder.freeze(), bindings),
+							Arrays.asList(PrinterState.values()), bindings).newMachine());
+			for (StateMachine<PrinterState> machine : machines) {
+				events.clear();
+				assertFalse(machine.switchTo(PrinterState.STOPPED));
+				assertEquals(PrinterState.IDLE, machine.current());
+				assertEquals(Collections.singletonList("vetoed:IDLE-STOPPED"), events);
+
+				events.clear();
+				assertTrue(machine.switchTo(PrinterState.PRINTING));
+				assertTrue(machine.switchTo(PrinterState.STOPPED));
+				assertEquals(Arrays.asList("after:IDLE-PRINTING", "entry:STOPPED", "after:PRINTING-STOPPED"), events);
+
+				// 仅作用于 switchTo 及 compareAndSet
+				events.clear();
+				machine.reset();
+				machine.switchNext();
+				assertEquals(Collections.emptyList(), events);
+				if (!(machine instanceof ConcurrentStateMachine))
+					continue;
+				final ConcurrentStateMachine<PrinterState> concurrent = (ConcurrentStateMachine<PrinterState>) machine;
+				machine.reset();
+				assertFalse(concurrent.compareAndSet(PrinterState.IDLE, PrinterState.STOPPED));
+				assertFalse(concurrent.compareAndSet(PrinterState.PRINTING, PrinterState.STOPPED));
+				assertTrue(concurrent.compareAndSet(PrinterState.IDLE, PrinterState.SCANNING));
+				assertEquals(Arrays.asList("vetoed:IDLE-STOPPED", "after:IDLE-SCANNING"), events);
+			}
+		}
+
+		// 多个线程竞争时守卫以实际的源状态执行
+		final StateMachine<PrinterState> machine = StateMachineBuilder.from(PrinterState.values())
+				.concurrent()
+				.executor(executor)
+				.guard((from, to) -> to.ordinal() == from.ordinal() + 1)
+				.build();
+		final AtomicInteger switched = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			new Thread(() -> {
+				for (PrinterState state : PrinterState.values()) {
+					if (machine.switchTo(state))
+						switched.incrementAndGet();
+				}
+				latch.countDown();
+			}).start();
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(PrinterState.values().length - 1, switched.get());
+		assertEquals(PrinterState.STOPPED, machine.current());
+	}
+
+	@Test
+	public void testStateOccupancyIndex() throws Exception {
+		final PrinterState[] states = PrinterState.values();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		for (StateMachineType type : StateMachineType.values()) {
+			final StateOccupancyIndex<Integer, PrinterState> index = new StateOccupancyIndex<>(Arrays.asList(states));
+			final List<StateMachine<PrinterState>> machines = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				final StateMachine<PrinterState> machine = StateMachineBuilder.from(states)
+						.executor(executor)
+						.type(type)
+						.build();
+				machines.add(machine);
+				index.track(i, machine);
+			}
+			assertEquals(8, index.count(PrinterState.IDLE));
+
+			// 多个线程同时切换同一批状态机
+			final CountDownLatch latch = new CountDownLatch(4);
+			for (int t = 0; t < 4; t++) {
+				new Thread(() -> {
+					for (int j = 0; j < 1000; j++) {
+						final StateMachine<PrinterState> machine = machines.get(j % machines.size());
+						if (j % 3 == 0)
+							machine.switchTo(states[j % states.length], false);
+						else
+							machine.switchNext(false);
+					}
+					latch.countDown();
+				}).start();
+			}
+			assertTrue(latch.await(30, TimeUnit.SECONDS));
+			for (PrinterState state : states) {
+				final long expected = machines.stream().filter(m -> m.current() == state).count();
+				assertEquals(expected, index.count(state));
+				assertEquals(expected, index.members(state).size());
+			}
+			assertTrue(index.untrack(0));
+			assertEquals(7, Arrays.stream(states).mapToLong(index::count).sum());
+		}
+
+		// 注册表: 钝化后依然计入
+		final StateMachineRegistry<String, PrinterState> registry = StateMachineRegistry
+				.<String, PrinterState>from(StateMachineBuilder.from(states).executor(executor).freeze())
+				.maximumActive(1)
+				.concurrencyLevel(1)
+				.occupancyIndex()
+				.build();
+		registry.get("a").switchTo(PrinterState.PRINTING);
+		registry.get("b").switchTo(PrinterState.PRINTING);
+		registry.get("c");
+		assertEquals(1, registry.activeCount());
+		final StateOccupancyIndex<String, PrinterState> occupancy = registry.occupancy();
+		assertEquals(2, occupancy.count(PrinterState.PRINTING));
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")), occupancy.members(PrinterState.PRINTING));
+		registry.get("a").switchNext();
+		assertEquals(PrinterState.STOPPING, occupancy.stateOf("a"));
+		assertEquals(1, occupancy.count(PrinterState.PRINTING));
+		registry.remove("b");
+		assertEquals(0, occupancy.count(PrinterState.PRINTING));
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testTransaction() throws Exception {
+		for (StateMachineType type : StateMachineType.values()) {
+			final List<String> trace = new CopyOnWriteArrayList<>();
+			try (StateMachine<PrinterState> machine = StateMachineBuilder.from(PrinterState.values())
+					.async(false)
+					.type(type)
+					.whenEntry(PrinterState.PRINTING, h -> trace.add(h.getFrom() + "->" + h.getTo()))
+					.whenEntry(PrinterState.STOPPED, h -> trace.add(h.getFrom() + "->" + h.getTo()))
+					.build()) {
+				assertTrue(machine.transaction(tx -> {
+					tx.switchNext();
+					tx.switchNext();
+					tx.switchTo(PrinterState.STOPPED);
+				}));
+				assertEquals(PrinterState.STOPPED, machine.current());
+				assertEquals(Arrays.asList("SCANNING->PRINTING", "PRINTING->STOPPED"), trace);
+
+				// 合并为一次切换
+				trace.clear();
+				assertTrue(machine.applyAll(Arrays.asList(PrinterState.IDLE, PrinterState.STOPPING,
+						PrinterState.PRINTING), BatchDispatchMode.COLLAPSED));
+				assertEquals(Collections.singletonList("STOPPED->PRINTING"), trace);
+
+				// 存在未知状态时不做任何切换
+				trace.clear();
+				assertFalse(machine.applyAll(Arrays.asList(PrinterState.IDLE, null)));
+				assertEquals(PrinterState.PRINTING, machine.current());
+
+				// 事务逻辑抛出异常时不提交
+				try {
+					machine.transaction(tx -> {
+						tx.reset();
+						throw new IllegalStateException();
+					});
+					fail();
+				} catch (IllegalStateException ignored) {}
+				assertEquals(PrinterState.PRINTING, machine.current());
+				assertTrue(trace.isEmpty());
+			}
+		}
+	}
 }
@@ -1,11 +1,24 @@
 package com.serliunx.statemanagement;
 
+import com.serliunx.statemanagement.machine.support.StateMachines;
 import com.serliunx.statemanagement.manager.*;
 import com.serliunx.statemanagement.support.PrinterState;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
 /**
  * 状态管理器测试
  *
@@ -48,4 +61,84 @@ public class ManagerTest {
 			log.info("hello~");
 		});
 	}
+
+	@Test
+	public void testStateIndex() {
+		StateManager<String> manager = new StandardStateManager<>(Arrays.asList("A", "B", "C"));
+		assertTrue(manager.switchTo(new String("C")));
+		assertEquals("C", manager.current());
+		assertFalse(manager.switchTo("D"));
+
+		StateIndex<PrinterState> index = StateIndex.of(Arrays.asList(PrinterState.STOPPED, PrinterState.IDLE));
+		assertEquals(1, index.indexOf(PrinterState.IDLE));
+		assertEquals(-1, index.indexOf(PrinterState.PRINTING));
+		assertEquals(-1, index.indexOf("IDLE"));
+
+		try {
+			new StandardStateManager<>(Arrays.asList("A", "B", "A"));
+			fail();
+		} catch (IllegalArgumentException ignored) {}
+	}
+
+	@Test
+	public void testConcurrentUnidirectionalStateManager() throws Exception {
+		UnidirectionalStateManager<PrinterState> manager =
+				new ConcurrentUnidirectionalStateManager<>(PrinterState.values());
+		assertTrue(manager.switchTo(PrinterState.PRINTING));
+		assertFalse(manager.switchTo(PrinterState.SCANNING));
+		assertTrue(manager.switchTo(PrinterState.STOPPED));
+		assertFalse(manager.switchTo(PrinterState.SCANNING));
+		assertEquals(PrinterState.IDLE, manager.switchNextAndGet());
+
+		// 多个线程同时推进一次性的进度闸门, 成功的次数恰好为状态数量减一
+		final List<UnidirectionalStateManager<PrinterState>> gates = Arrays.asList(
+				new ConcurrentBreakageUnidirectionalStateManager<>(PrinterState.values(), false),
+				new BreakageUnidirectionalStateManager<>(PrinterState.values(), false));
+		for (UnidirectionalStateManager<PrinterState> gate : gates) {
+			final AtomicInteger advanced = new AtomicInteger();
+			final ExecutorService executor = Executors.newFixedThreadPool(8);
+			final CountDownLatch start = new CountDownLatch(1);
+			for (int i = 0; i < 64; i++) {
+				executor.execute(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					if (gate.getAndSwitchNext() != null)
+						advanced.incrementAndGet();
+				});
+			}
+			start.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+			assertEquals(PrinterState.values().length - 1, advanced.get());
+			assertEquals(PrinterState.STOPPED, gate.current());
+			assertFalse(gate.isSwitchable());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testAwaitState() throws Exception {
+		final List<StateManager<PrinterState>> managers = Arrays.asList(
+				new DefaultBidirectionalStateManager<>(PrinterState.values()),
+				new ConcurrentUnidirectionalStateManager<>(PrinterState.values()),
+				StateMachines.concurrentStateMachine(PrinterState.values()));
+		for (StateManager<PrinterState> manager : managers) {
+			assertTrue(manager.awaitState(PrinterState.IDLE, 0, TimeUnit.SECONDS));
+			assertFalse(manager.awaitState(PrinterState.PRINTING, 10, TimeUnit.MILLISECONDS));
+
+			final ExecutorService executor = Executors.newSingleThreadExecutor();
+			final Future<PrinterState> any = executor.submit(() ->
+					manager.awaitAny(EnumSet.of(PrinterState.PRINTING, PrinterState.STOPPED)));
+			// 等待线程挂起后再切换, 短暂到达的状态同样会唤醒等待者
+			Thread.sleep(50);
+			assertFalse(any.isDone());
+			manager.switchTo(PrinterState.SCANNING);
+			manager.switchTo(PrinterState.PRINTING);
+			manager.switchTo(PrinterState.STOPPING);
+			assertEquals(PrinterState.PRINTING, any.get(5, TimeUnit.SECONDS));
+			executor.shutdown();
+		}
+	}
 }
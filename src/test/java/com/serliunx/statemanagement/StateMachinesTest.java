@@ -2,12 +2,21 @@ package com.serliunx.statemanagement;
 
 import com.serliunx.statemanagement.machine.ConcurrentStateMachine;
 import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.machine.StateTransaction;
 import com.serliunx.statemanagement.machine.support.StateMachines;
 import com.serliunx.statemanagement.support.PrinterState;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
 /**
  * 状态机工具类测试
  *
@@ -35,4 +44,65 @@ public class StateMachinesTest {
         log.info("{}", machine.current());
         machine.close();
     }
+
+    @Test(timeout = 30000)
+    public void testAtomically() throws Exception {
+        final List<String> trace = new CopyOnWriteArrayList<>();
+        try (StateMachine<PrinterState> standard = StateMachineBuilder.from(PrinterState.values())
+                .async(false)
+                .whenEntry(PrinterState.PRINTING, h -> trace.add("standard"))
+                .build();
+             ConcurrentStateMachine<PrinterState> concurrent = StateMachineBuilder.from(PrinterState.values())
+                     .async(false)
+                     .concurrent()
+                     .whenEntry(PrinterState.PRINTING, h -> trace.add("concurrent"))
+                     .build()) {
+            assertTrue(StateMachines.atomically()
+                    .switchTo(concurrent, PrinterState.PRINTING)
+                    .switchTo(standard, PrinterState.PRINTING)
+                    .commit());
+            assertEquals(Arrays.asList("concurrent", "standard"), trace);
+
+            // 前置条件不满足时全部放弃
+            assertFalse(StateMachines.atomically()
+                    .switchTo(standard, PrinterState.STOPPED)
+                    .expect(concurrent, PrinterState.IDLE)
+                    .switchTo(concurrent, PrinterState.STOPPED)
+                    .commit());
+            assertEquals(PrinterState.PRINTING, standard.current());
+            assertEquals(PrinterState.PRINTING, concurrent.current());
+
+            // 交错的加锁顺序及单独的切换同时进行
+            final int rounds = 2000;
+            final CountDownLatch latch = new CountDownLatch(3);
+            final Runnable forward = () -> {
+                for (int i = 0; i < rounds; i++)
+                    StateMachines.atomically()
+                            .transaction(standard, StateTransaction::switchNext)
+                            .transaction(concurrent, StateTransaction::switchNext)
+                            .commit();
+                latch.countDown();
+            };
+            final Runnable backward = () -> {
+                for (int i = 0; i < rounds; i++)
+                    StateMachines.atomically()
+                            .transaction(concurrent, StateTransaction::switchNext)
+                            .transaction(standard, StateTransaction::switchNext)
+                            .commit();
+                latch.countDown();
+            };
+            final Runnable single = () -> {
+                for (int i = 0; i < rounds; i++) {
+                    concurrent.switchPrev(false);
+                    concurrent.switchNext(false);
+                }
+                latch.countDown();
+            };
+            new Thread(forward).start();
+            new Thread(backward).start();
+            new Thread(single).start();
+            latch.await();
+            assertEquals(standard.current(), concurrent.current());
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.AsyncBatchMode;
+import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.support.DefaultCountableRejectedExecutionHandler;
+import com.serliunx.statemanagement.support.ExecutorUtils;
+import com.serliunx.statemanagement.support.PrinterState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步处理器投递方式的基准测试
+ * <p>
+ * 每次切换触发 {@link #fanOut} 个异步进入处理器, 执行器为 {@link ExecutorUtils#adaptiveThreadPool} 创建的默认线程池;
+ * 除切换吞吐量外, 以辅助计数器报告提交的任务数量、被拒绝的任务数量及实际执行的处理器数量.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncBatchBenchmark {
+
+    @Param({"NONE", "SEQUENTIAL", "PARALLEL"})
+    private AsyncBatchMode mode;
+
+    @Param({"10"})
+    private int fanOut;
+
+    private DefaultCountableRejectedExecutionHandler rejection;
+    private ThreadPoolExecutor executor;
+    private StateMachine<PrinterState> machine;
+    private final LongAdder handled = new LongAdder();
+
+    @Setup
+    public void setup() {
+        rejection = new DefaultCountableRejectedExecutionHandler();
+        executor = (ThreadPoolExecutor) ExecutorUtils.adaptiveThreadPool(rejection);
+        final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+                .executor(executor)
+                .async()
+                .asyncBatch(mode);
+        for (int i = 0; i < fanOut; i++)
+            builder.whenEntry(PrinterState.PRINTING, h -> handled.increment());
+        machine = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 辅助计数器, 每轮迭代的增量
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long submitted;
+        public long rejected;
+        public long handlers;
+
+        private long submittedBase;
+        private long rejectedBase;
+        private long handledBase;
+
+        @Setup(Level.Iteration)
+        public void reset(AsyncBatchBenchmark benchmark) {
+            submitted = rejected = handlers = 0;
+            submittedBase = benchmark.executor.getTaskCount();
+            rejectedBase = benchmark.rejection.getCount();
+            handledBase = benchmark.handled.sum();
+        }
+
+        @TearDown(Level.Iteration)
+        public void collect(AsyncBatchBenchmark benchmark) {
+            submitted = benchmark.executor.getTaskCount() - submittedBase;
+            rejected = benchmark.rejection.getCount() - rejectedBase;
+            handlers = benchmark.handled.sum() - handledBase;
+        }
+    }
+
+    @Benchmark
+    public boolean transition(Counters counters) {
+        machine.switchTo(PrinterState.IDLE);
+        return machine.switchTo(PrinterState.PRINTING);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(AsyncBatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.support.PrinterState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编译后的处理器分发基准测试
+ * <p>
+ * 每次操作切换至下一个状态并触发该切换上的离开、进入及交换处理器, 分别对比:
+ * <ul>
+ *     <li> 构建器直接生成的状态机(拼接交换处理器的键并查询映射表)
+ *     <li> 编译后的状态机(按状态序号查边表)
+ *     <li> 手写的 {@code switch} 实现, 作为上限
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledDispatchBenchmark {
+
+    private static final PrinterState[] STATES = PrinterState.values();
+
+    private StateMachine<PrinterState> builderMachine;
+    private StateMachine<PrinterState> compiledMachine;
+    private int current;
+    private long counter;
+
+    @Setup
+    public void setup() {
+        final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(STATES).async(false);
+        for (PrinterState state : STATES) {
+            builder.whenLeave(state, h -> counter++);
+            builder.whenEntry(state, h -> counter += 2);
+        }
+        builder.exchange(PrinterState.STOPPED, PrinterState.IDLE, h -> counter += 3);
+        builderMachine = builder.build();
+        compiledMachine = builder.compile().newMachine();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        builderMachine.close();
+        compiledMachine.close();
+    }
+
+    @Benchmark
+    public void builder(Blackhole blackhole) {
+        builderMachine.switchNext();
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        compiledMachine.switchNext();
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    public void handWritten(Blackhole blackhole) {
+        synchronized (this) {
+            final PrinterState from = STATES[current];
+            current = current == STATES.length - 1 ? 0 : current + 1;
+            final PrinterState to = STATES[current];
+            switch (from) {
+                case IDLE: case SCANNING: case PRINTING: case STOPPING: case STOPPED:
+                    counter++;
+            }
+            switch (to) {
+                case IDLE: case SCANNING: case PRINTING: case STOPPING: case STOPPED:
+                    counter += 2;
+            }
+            if (from == PrinterState.STOPPED && to == PrinterState.IDLE)
+                counter += 3;
+        }
+        blackhole.consume(counter);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CompiledDispatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
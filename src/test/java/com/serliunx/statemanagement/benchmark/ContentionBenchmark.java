@@ -0,0 +1,70 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.ContentionMode;
+import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.support.PrinterState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并发型状态机的竞争基准测试
+ * <p>
+ * 所有线程共享同一个状态机并不断切换至下一个状态, 对比不同竞争模式下的总吞吐量;
+ * 默认以32个线程运行, 通过 {@link #main(String[])} 运行时依次使用1、4、16、32个线程, 观察吞吐量随线程数的变化.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(32)
+@Fork(1)
+public class ContentionBenchmark {
+
+    @Param({"CAS", "BACKOFF", "COMBINING"})
+    private ContentionMode mode;
+
+    private ExecutorService executor;
+    private StateMachine<PrinterState> machine;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newSingleThreadExecutor();
+        machine = StateMachineBuilder.from(PrinterState.values())
+                .executor(executor)
+                .async(false)
+                .concurrent()
+                .contentionMode(mode)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public PrinterState switchNext() {
+        return machine.switchNextAndGet();
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[]{1, 4, 16, 32}) {
+            Options options = new OptionsBuilder()
+                    .include(ContentionBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.machine.StateMachineDefinition;
+import com.serliunx.statemanagement.machine.StateMachineSnapshot;
+import com.serliunx.statemanagement.machine.handler.StateHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 定义快照基准测试
+ * <p>
+ * 对比启动时通过构建器重新注册所有处理器并冻结, 与从快照还原同一份定义的耗时;
+ * 每个状态注册进入、离开处理器, 每对相邻状态注册交换处理器, 每个状态对应一个事件.
+ * 启动阶段的代码大多尚未被即时编译, 通过 {@code -bm ss -wi 0 -i 1 -f 10} 运行可以观察冷启动时的耗时.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefinitionSnapshotBenchmark {
+
+    @Param({"16", "256"})
+    private int stateCount;
+
+    private ExecutorService executor;
+    private List<String> states;
+    private StateHandler<String> handler;
+    private Consumer<StateMachine<String>> logic;
+    private StateMachineSnapshot.Bindings<String> bindings;
+    private byte[] snapshot;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newSingleThreadExecutor();
+        states = new ArrayList<>(stateCount);
+        for (int i = 0; i < stateCount; i++)
+            states.add("STEP-" + i);
+        handler = h -> {};
+        logic = StateMachine::switchNext;
+        bindings = new StateMachineSnapshot.Bindings<String>()
+                .handler("handler", handler)
+                .logic("logic", logic)
+                .executor("executor", executor);
+        for (String state : states)
+            bindings.event(state, state);
+        snapshot = StateMachineSnapshot.toBytes(build(), bindings);
+        // 两种方式各执行一次, 排除类加载的影响
+        load();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public StateMachineDefinition<String> build() {
+        final StateMachineBuilder<String> builder = StateMachineBuilder.from(states)
+                .executor(executor)
+                .async(false);
+        for (int i = 0; i < stateCount; i++) {
+            final String state = states.get(i);
+            builder.whenEntry(state, handler)
+                    .whenLeave(state, handler)
+                    .exchange(state, states.get((i + 1) % stateCount), handler)
+                    .whenHappened(state, logic);
+        }
+        return builder.freeze();
+    }
+
+    @Benchmark
+    public StateMachineDefinition<String> load() {
+        return StateMachineSnapshot.fromBytes(snapshot, states, bindings);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(DefinitionSnapshotBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
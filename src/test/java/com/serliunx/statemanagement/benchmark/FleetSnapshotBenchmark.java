@@ -0,0 +1,139 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.MappedStateTable;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.machine.StateMachineDefinition;
+import com.serliunx.statemanagement.support.PrinterState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态表快照的基准测试
+ * <p>
+ * 每次调用处理整张表, 结果以每秒处理的槽位数量计:
+ * <ul>
+ *     <li> {@code switchEach}: 逐个槽位切换; {@code DISABLED} 为未启用快照的表, {@code ENABLED} 为启用快照但没有打开的快照,
+ *     {@code OPEN} 为切换期间存在打开的快照, 每个分块被复制一次
+ *     <li> {@code exportSnapshot}: 取快照后按顺序遍历所有槽位
+ *     <li> {@code exportCurrent}: 逐个槽位调用 {@link MappedStateTable#current(long)} 作为对照, 结果不是一致的视图
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FleetSnapshotBenchmark {
+
+    private static final int SLOTS = 1 << 24;
+
+    public abstract static class Fleet {
+
+        private ExecutorService executor;
+        private Path file;
+        MappedStateTable<PrinterState> table;
+
+        void open(boolean snapshots) throws Exception {
+            executor = Executors.newSingleThreadExecutor();
+            final StateMachineDefinition<PrinterState> definition = StateMachineBuilder.from(PrinterState.values())
+                    .executor(executor)
+                    .async(false)
+                    .freeze();
+            file = Files.createTempFile("state-management", ".table");
+            Files.delete(file);
+            table = MappedStateTable.open(definition, file, SLOTS, false, snapshots);
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            table.close();
+            Files.deleteIfExists(file);
+            executor.shutdownNow();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Writes extends Fleet {
+
+        @Param({"DISABLED", "ENABLED", "OPEN"})
+        private String mode;
+
+        private PrinterState current = PrinterState.IDLE;
+
+        @Setup
+        public void setup() throws Exception {
+            open(!"DISABLED".equals(mode));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Exports extends Fleet {
+
+        private long printing;
+
+        @Setup
+        public void setup() throws Exception {
+            open(true);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long switchEach(Writes state) {
+        final MappedStateTable<PrinterState> table = state.table;
+        final PrinterState to = state.current = state.current == PrinterState.IDLE ?
+                PrinterState.SCANNING : PrinterState.IDLE;
+        final MappedStateTable.Snapshot<PrinterState> open = "OPEN".equals(state.mode) ? table.snapshot() : null;
+        long switched = 0;
+        for (long slot = 0; slot < SLOTS; slot++) {
+            if (table.switchTo(slot, to, false))
+                switched++;
+        }
+        if (open != null)
+            open.close();
+        return switched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long exportSnapshot(Exports state) {
+        state.printing = 0;
+        try (MappedStateTable.Snapshot<PrinterState> view = state.table.snapshot()) {
+            view.forEach((s, slot) -> {
+                if (s == PrinterState.PRINTING)
+                    state.printing++;
+            });
+        }
+        return state.printing;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long exportCurrent(Exports state) {
+        final MappedStateTable<PrinterState> table = state.table;
+        long count = 0;
+        for (long slot = 0; slot < SLOTS; slot++) {
+            if (table.current(slot) == PrinterState.PRINTING)
+                count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(FleetSnapshotBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.MappedStateTable;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.machine.StateMachineDefinition;
+import com.serliunx.statemanagement.support.PrinterState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态表批量切换的基准测试
+ * <p>
+ * 每次调用处理整张表, 结果以每秒处理的槽位数量计: 没有槽位匹配时的扫描、所有槽位在两个状态间来回切换,
+ * 以及逐个槽位调用 {@link MappedStateTable#switchTo(long, Object, boolean)} 作为对照.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FleetTransitionBenchmark {
+
+    private static final int SLOTS = 1 << 26;
+
+    private ExecutorService executor;
+    private Path file;
+    private MappedStateTable<PrinterState> table;
+    private PrinterState current = PrinterState.IDLE;
+
+    @Setup
+    public void setup() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        final StateMachineDefinition<PrinterState> definition = StateMachineBuilder.from(PrinterState.values())
+                .executor(executor)
+                .async(false)
+                .freeze();
+        file = Files.createTempFile("state-management", ".table");
+        Files.delete(file);
+        table = MappedStateTable.open(definition, file, SLOTS);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        table.close();
+        Files.deleteIfExists(file);
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long scanNoMatch() {
+        return table.transitionAll(PrinterState.PRINTING, PrinterState.STOPPED, false, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long transitionAll() {
+        final PrinterState from = current;
+        current = from == PrinterState.IDLE ? PrinterState.SCANNING : PrinterState.IDLE;
+        return table.transitionAll(from, current, false, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long switchEach() {
+        final PrinterState to = current = current == PrinterState.IDLE ? PrinterState.SCANNING : PrinterState.IDLE;
+        long switched = 0;
+        for (long slot = 0; slot < SLOTS; slot++) {
+            if (table.switchTo(slot, to, false))
+                switched++;
+        }
+        return switched;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(FleetTransitionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,118 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.annotation.OnEntry;
+import com.serliunx.statemanagement.annotation.OnExchange;
+import com.serliunx.statemanagement.annotation.OnLeave;
+import com.serliunx.statemanagement.annotation.StateMachineDefinition;
+import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编译期生成的状态机基准测试
+ * <p>
+ * 分别对比构建器与生成的状态机的创建开销(startup)及每次切换的处理器分发开销(dispatch),
+ * 两者使用同一个执行器, 避免创建线程池的开销掩盖差异.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratedStateMachineBenchmark {
+
+    private static long counter;
+
+    @StateMachineDefinition(name = "BenchmarkStateMachine")
+    public enum BenchmarkState {
+        A, B, C, D, E;
+
+        @OnLeave({"A", "B", "C", "D", "E"})
+        static void onLeave() {
+            counter++;
+        }
+
+        @OnEntry({"A", "B", "C", "D", "E"})
+        static void onEntry() {
+            counter += 2;
+        }
+
+        @OnExchange(from = "E", to = "A")
+        static void onCycle() {
+            counter += 3;
+        }
+    }
+
+    private ExecutorService executor;
+    private StateMachine<BenchmarkState> builderMachine;
+    private StateMachine<BenchmarkState> generatedMachine;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newSingleThreadExecutor();
+        builderMachine = newBuilderMachine();
+        generatedMachine = newGeneratedMachine();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public StateMachine<BenchmarkState> builderStartup() {
+        return newBuilderMachine();
+    }
+
+    @Benchmark
+    public StateMachine<BenchmarkState> generatedStartup() {
+        return newGeneratedMachine();
+    }
+
+    @Benchmark
+    public void builderDispatch(Blackhole blackhole) {
+        builderMachine.switchNext();
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    public void generatedDispatch(Blackhole blackhole) {
+        generatedMachine.switchNext();
+        blackhole.consume(counter);
+    }
+
+    private StateMachine<BenchmarkState> newBuilderMachine() {
+        final StateMachineBuilder<BenchmarkState> builder = StateMachineBuilder.from(BenchmarkState.values())
+                .executor(executor)
+                .async(false);
+        for (BenchmarkState state : BenchmarkState.values()) {
+            builder.whenLeave(state, h -> BenchmarkState.onLeave());
+            builder.whenEntry(state, h -> BenchmarkState.onEntry());
+        }
+        builder.exchange(BenchmarkState.E, BenchmarkState.A, h -> BenchmarkState.onCycle());
+        return builder.build();
+    }
+
+    private StateMachine<BenchmarkState> newGeneratedMachine() {
+        return new BenchmarkStateMachine(BenchmarkState.A, executor, false);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(GeneratedStateMachineBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
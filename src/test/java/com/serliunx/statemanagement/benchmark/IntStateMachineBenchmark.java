@@ -0,0 +1,76 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.ConcurrentStateMachine;
+import com.serliunx.statemanagement.machine.IntStateMachine;
+import com.serliunx.statemanagement.machine.IntStateMachineBuilder;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整型状态机基准测试
+ * <p>
+ * 模拟协议解析循环: 每次操作切换一次状态并触发一个进入处理器, 对照组为使用 {@code Integer} 状态的并发型状态机.
+ * 可配合 {@code -prof gc} 观察整型状态机每次操作的分配量.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntStateMachineBenchmark {
+
+    private static final int STATES = 8;
+
+    private IntStateMachine intMachine;
+    private ConcurrentStateMachine<Integer> boxedMachine;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        final IntStateMachineBuilder intBuilder = IntStateMachineBuilder.range(STATES);
+        final Integer[] states = new Integer[STATES];
+        for (int i = 0; i < STATES; i++)
+            states[i] = i;
+        final StateMachineBuilder<Integer> builder = StateMachineBuilder.from(states).async(false).concurrent();
+        for (int i = 0; i < STATES; i++) {
+            intBuilder.whenEntry(i, (from, to) -> counter += to);
+            builder.whenEntry(i, h -> counter += h.getTo());
+        }
+        intMachine = intBuilder.build();
+        boxedMachine = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        boxedMachine.close();
+    }
+
+    @Benchmark
+    public void intSwitchNext(Blackhole blackhole) {
+        intMachine.switchNext();
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    public void boxedSwitchNext(Blackhole blackhole) {
+        boxedMachine.switchNext();
+        blackhole.consume(counter);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(IntStateMachineBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.RingBufferDispatcher;
+import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.support.NamedThreadFactory;
+import com.serliunx.statemanagement.support.PrinterState;
+import com.serliunx.statemanagement.support.WaitStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 环形缓冲区分发器的基准测试
+ * <p>
+ * 每次切换触发一个异步离开处理器及一个异步进入处理器, 处理器均由单个线程按顺序执行:
+ * <ul>
+ *     <li> {@code POOL}: 单线程的 {@link ThreadPoolExecutor}, 每个处理器提交一个任务,
+ *     队列容量与缓冲区相同, 队列已满时由调用方执行
+ *     <li> 其余为使用对应等待策略的 {@link RingBufferDispatcher}, 每次切换发布一个槽位, 缓冲区已满时等待
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferBenchmark {
+
+    @Param({"POOL", "BUSY_SPIN", "YIELD", "PARK"})
+    private String dispatcher;
+
+    @Param({"1024"})
+    private int capacity;
+
+    private Executor executor;
+    private StateMachine<PrinterState> machine;
+    private long handled;
+
+    @Setup
+    public void setup() {
+        executor = "POOL".equals(dispatcher) ?
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity),
+                        new NamedThreadFactory("state-process-pool-%s"), new ThreadPoolExecutor.CallerRunsPolicy()) :
+                new RingBufferDispatcher(capacity, WaitStrategy.valueOf(dispatcher));
+        final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+                .executor(executor)
+                .async();
+        for (PrinterState state : PrinterState.values()) {
+            builder.whenLeave(state, h -> handled++);
+            builder.whenEntry(state, h -> handled++);
+        }
+        machine = builder.freeze().newMachine();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        machine.close();
+    }
+
+    @Benchmark
+    public void transition() {
+        machine.switchNext();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RingBufferBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
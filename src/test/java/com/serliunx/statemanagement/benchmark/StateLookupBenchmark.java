@@ -0,0 +1,71 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.manager.StandardStateManager;
+import com.serliunx.statemanagement.manager.StateManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态查找基准测试
+ * <p>
+ * 随着状态数量从4增长到10000, 基于状态索引的 {@link StateManager#switchTo(Object)} 开销应保持不变;
+ * {@link #listIndexOf()} 为原先基于 {@link List#indexOf(Object)} 的线性查找, 作为对照.
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateLookupBenchmark {
+
+    @Param({"4", "64", "1024", "10000"})
+    private int stateCount;
+
+    private List<String> states;
+    private StateManager<String> manager;
+    /**
+     * 不同的实例, 避免引用比较直接命中
+     */
+    private String first;
+    private String last;
+    private boolean flip;
+
+    @Setup
+    public void setup() {
+        states = new ArrayList<>(stateCount);
+        for (int i = 0; i < stateCount; i++)
+            states.add("STEP-" + i);
+        manager = new StandardStateManager<>(states);
+        first = new String(states.get(0));
+        last = new String(states.get(stateCount - 1));
+    }
+
+    @Benchmark
+    public boolean switchTo() {
+        flip = !flip;
+        return manager.switchTo(flip ? last : first);
+    }
+
+    @Benchmark
+    public int listIndexOf() {
+        flip = !flip;
+        return states.indexOf(flip ? last : first);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(StateLookupBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.serliunx.statemanagement.benchmark;
+
+import com.serliunx.statemanagement.machine.ConcurrentStateMachine;
+import com.serliunx.statemanagement.machine.StateMachine;
+import com.serliunx.statemanagement.machine.StateMachineBuilder;
+import com.serliunx.statemanagement.machine.StateMachineType;
+import com.serliunx.statemanagement.support.PrinterState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 切换守卫及拦截器的基准测试
+ * <p>
+ * 每次操作往返切换两次, 不注册处理器; 标准型状态机不支持 {@code compareAndSet}, 对应的结果仅为空操作的开销:
+ * <ul>
+ *     <li> {@code NONE}: 未注册守卫及拦截器, 与引入管道前的切换路径相同
+ *     <li> {@code GUARD}: 一个始终允许的守卫
+ *     <li> {@code INTERCEPTOR}: 一个空的拦截器
+ *     <li> {@code VETO}: 一个始终否决的守卫, 被否决的切换不获取写锁也不执行CAS
+ * </ul>
+ *
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionPipelineBenchmark {
+
+    @Param({"STANDARD", "CONCURRENT"})
+    private StateMachineType type;
+
+    @Param({"NONE", "GUARD", "INTERCEPTOR", "VETO"})
+    private String pipeline;
+
+    private StateMachine<PrinterState> machine;
+    private long intercepted;
+
+    @Setup
+    public void setup() {
+        final StateMachineBuilder<PrinterState> builder = StateMachineBuilder.from(PrinterState.values())
+                .executor(Executors.newSingleThreadExecutor())
+                .type(type);
+        switch (pipeline) {
+            case "GUARD":
+                builder.guard((from, to) -> true);
+                break;
+            case "INTERCEPTOR":
+                builder.intercept((from, to) -> intercepted++);
+                break;
+            case "VETO":
+                builder.guard((from, to) -> false);
+                break;
+            default:
+        }
+        machine = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        machine.close();
+    }
+
+    @Benchmark
+    public boolean switchTo() {
+        return machine.switchTo(PrinterState.PRINTING) & machine.switchTo(PrinterState.IDLE);
+    }
+
+    @Benchmark
+    public boolean compareAndSet() {
+        if (!(machine instanceof ConcurrentStateMachine))
+            return false;
+        final ConcurrentStateMachine<PrinterState> concurrent = (ConcurrentStateMachine<PrinterState>) machine;
+        return concurrent.compareAndSet(PrinterState.IDLE, PrinterState.PRINTING) &
+                concurrent.compareAndSet(PrinterState.PRINTING, PrinterState.IDLE);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(TransitionPipelineBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,32 @@
+package com.serliunx.statemanagement.support;
+
+import com.serliunx.statemanagement.annotation.OnEntry;
+import com.serliunx.statemanagement.annotation.OnExchange;
+import com.serliunx.statemanagement.machine.handler.StateHandlerProcessParams;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+public class OrderHandlers {
+
+	public final List<String> trace = new CopyOnWriteArrayList<>();
+
+	@OnEntry({"PAID", "SHIPPED"})
+	void onEntry(StateHandlerProcessParams<OrderState> params) {
+		trace.add("entry-" + params.getTo());
+	}
+
+	@OnExchange(from = "DONE", to = "CREATED")
+	void onReopen(OrderState from, OrderState to) {
+		trace.add(from + "->" + to);
+	}
+
+	@OnEntry(value = "DONE", async = true)
+	void onDone() {
+		trace.add("done");
+	}
+}
@@ -0,0 +1,27 @@
+package com.serliunx.statemanagement.support;
+
+import com.serliunx.statemanagement.annotation.OnLeave;
+import com.serliunx.statemanagement.annotation.StateMachineDefinition;
+
+/**
+ * @author <a href="mailto:serliunx@yeah.net">SerLiunx</a>
+ * @since 2026/10/19
+ */
+@StateMachineDefinition(handlers = OrderHandlers.class)
+public enum OrderState {
+	CREATED,
+	PAID,
+	SHIPPED,
+	DONE;
+
+	static int leaveCreated;
+
+	@OnLeave("CREATED")
+	static void onLeaveCreated() {
+		leaveCreated++;
+	}
+
+	public static int leaveCreated() {
+		return leaveCreated;
+	}
+}